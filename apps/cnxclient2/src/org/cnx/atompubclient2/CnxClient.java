@@ -16,6 +16,7 @@
 package org.cnx.atompubclient2;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
 import com.sun.syndication.io.FeedException;
 import java.io.File;
@@ -29,19 +30,24 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.Nullable;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.FileBody;
+import org.apache.http.util.EntityUtils;
 import org.cnx.atompubclient2.cnxcollections.APCForCollection;
 import org.cnx.atompubclient2.cnxcollections.APCForModules;
 import org.cnx.atompubclient2.cnxcollections.APCForResources;
 import org.cnx.common.exceptions.CnxException;
+import org.cnx.common.jaxb.JaxbRegistry;
+import org.cnx.common.repository.RepositoryConstants;
 import org.cnx.common.repository.atompub.CnxAtomPubConstants;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
@@ -70,13 +76,42 @@ public class CnxClient {
     private final String REPOSITORY_ID = "cnx-repo";
     private final BigDecimal RESOURCE_MAPPING_DOC_VERSION = new BigDecimal(1.0);
 
-    // TODO(arjuns) : See how this value can be cached.
-    private final Service serviceDocumentObject;
-    private final APCForResources apcForResources;
-    private final APCForModules apcForModules;
-    private final APCForCollection apcForCollection;
+    /** How long a fetched service document is used before it is fetched again. */
+    public static final long DEFAULT_SERVICE_DOCUMENT_TTL_MILLIS = 10 * 60 * 1000;
+
+    private static final Logger logger = Logger.getLogger(CnxClient.class.getName());
+
     private final CnxAtomPubConstants constants;
     private final HttpClientWrapper httpClient;
+    private final long serviceDocumentTtlMillis;
+
+    private volatile ServiceDocument serviceDocument;
+    /** Set while a thread is fetching a newer service document. */
+    private final AtomicBoolean refreshingServiceDocument = new AtomicBoolean();
+    private final AtomicLong serviceDocumentFetches = new AtomicLong();
+    private final AtomicLong serviceDocumentFetchFailures = new AtomicLong();
+
+    /** Whether Module and Collection Versions are transferred as multipart/related. */
+    private volatile boolean rawContentTransfer;
+
+    /**
+     * Parsed service document, along with the AtomPub collections built from it.
+     */
+    private static class ServiceDocument {
+        private final Service service;
+        private final APCForResources apcForResources;
+        private final APCForModules apcForModules;
+        private final APCForCollection apcForCollection;
+        private final long fetchTimeMillis;
+
+        ServiceDocument(Service service, long fetchTimeMillis) throws URISyntaxException {
+            this.service = service;
+            this.apcForResources = new APCForResources(service);
+            this.apcForModules = new APCForModules(service);
+            this.apcForCollection = new APCForCollection(service);
+            this.fetchTimeMillis = fetchTimeMillis;
+        }
+    }
 
     /**
      * Constructor for CNX Client.
@@ -91,19 +126,31 @@ public class CnxClient {
      */
     public CnxClient(URL atomPubUrl) throws IOException, URISyntaxException, JAXBException,
             CnxException {
+        this(atomPubUrl, DEFAULT_SERVICE_DOCUMENT_TTL_MILLIS);
+    }
+
+    /**
+     * Constructor for CNX Client.
+     * 
+     * The service document is fetched once here. After serviceDocumentTtlMillis, the first
+     * request made through this client fetches it again, while concurrent requests keep using the
+     * current one. If fetching fails, the current service document stays in use.
+     * 
+     * @param atomPubUrl AtomPub URI for CNX AtomPub Service.
+     * @param serviceDocumentTtlMillis How long a fetched service document is used.
+     * @throws IOException
+     * @throws URISyntaxException
+     * @throws JAXBException
+     * @throws CnxException
+     */
+    public CnxClient(URL atomPubUrl, long serviceDocumentTtlMillis) throws IOException,
+            URISyntaxException, JAXBException, CnxException {
+        Preconditions.checkArgument(serviceDocumentTtlMillis > 0, "Invalid TTL : %s",
+                serviceDocumentTtlMillis);
         constants = new CnxAtomPubConstants(atomPubUrl);
         httpClient = HttpClientWrapper.getHttpClient();
-
-        String serviceDocumentXml = getServiceDocumentXml();
-
-        JAXBContext jaxbContext = JAXBContext.newInstance(Service.class);
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-
-        serviceDocumentObject =
-                (Service) unmarshaller.unmarshal(new StringReader(serviceDocumentXml));
-        apcForResources = new APCForResources(getServiceDocumentObject());
-        apcForModules = new APCForModules(getServiceDocumentObject());
-        apcForCollection = new APCForCollection(getServiceDocumentObject());
+        this.serviceDocumentTtlMillis = serviceDocumentTtlMillis;
+        serviceDocument = fetchServiceDocument();
     }
 
     /**
@@ -121,7 +168,84 @@ public class CnxClient {
      * @return Java representation for Service Document.
      */
     public Service getServiceDocumentObject() {
-        return serviceDocumentObject;
+        return getServiceDocument().service;
+    }
+
+    /**
+     * @return Number of times the service document was fetched from the repository.
+     */
+    public long getServiceDocumentFetchCount() {
+        return serviceDocumentFetches.get();
+    }
+
+    /**
+     * @return Number of failed attempts to refresh the service document.
+     */
+    public long getServiceDocumentFetchFailureCount() {
+        return serviceDocumentFetchFailures.get();
+    }
+
+    /**
+     * @return true if Module and Collection Versions are transferred without base64 encoding.
+     */
+    public boolean isRawContentTransfer() {
+        return rawContentTransfer;
+    }
+
+    /**
+     * Choose how Module and Collection Versions are transferred. By default they are base64
+     * encoded inside Atom Entries. With raw transfer, CNXML, ResourceMapping XML and CollXml are
+     * sent as they are, as parts of a multipart/related body, which is about 25% smaller and
+     * avoids encoding and decoding on both sides. The repository must support raw transfer.
+     * 
+     * @param rawContentTransfer true to use raw transfer.
+     */
+    public void setRawContentTransfer(boolean rawContentTransfer) {
+        this.rawContentTransfer = rawContentTransfer;
+    }
+
+    private ServiceDocument fetchServiceDocument() throws IOException, URISyntaxException,
+            JAXBException, CnxException {
+        serviceDocumentFetches.incrementAndGet();
+        String serviceDocumentXml = getServiceDocumentXml();
+        Service service =
+                JaxbRegistry.unmarshal(Service.class, new StringReader(serviceDocumentXml));
+        return new ServiceDocument(service, System.currentTimeMillis());
+    }
+
+    /**
+     * Return the current service document, refreshing it first if it has expired and no other
+     * thread is already doing so.
+     */
+    private ServiceDocument getServiceDocument() {
+        final ServiceDocument current = serviceDocument;
+        if (System.currentTimeMillis() - current.fetchTimeMillis < serviceDocumentTtlMillis
+                || !refreshingServiceDocument.compareAndSet(false, true)) {
+            return current;
+        }
+
+        try {
+            serviceDocument = fetchServiceDocument();
+        } catch (Exception e) {
+            serviceDocumentFetchFailures.incrementAndGet();
+            logger.log(Level.WARNING, "Failed to refresh service document. Using previous one.",
+                    e);
+        } finally {
+            refreshingServiceDocument.set(false);
+        }
+        return serviceDocument;
+    }
+
+    private APCForResources getApcForResources() {
+        return getServiceDocument().apcForResources;
+    }
+
+    private APCForModules getApcForModules() {
+        return getServiceDocument().apcForModules;
+    }
+
+    private APCForCollection getApcForCollection() {
+        return getServiceDocument().apcForCollection;
     }
 
     /**
@@ -154,7 +278,7 @@ public class CnxClient {
     public ResourceWrapper createResource() throws URISyntaxException,
             IllegalArgumentException,
             IOException, JDOMException, FeedException, CnxException {
-        return apcForResources.createResource();
+        return getApcForResources().createResource();
     }
 
     /**
@@ -173,7 +297,7 @@ public class CnxClient {
     public ResourceWrapper createResourceForMigration(IdWrapper id)
             throws IllegalArgumentException, IOException, JDOMException, FeedException,
             URISyntaxException, CnxException {
-        return apcForResources.createResourceForMigration(id);
+        return getApcForResources().createResourceForMigration(id);
     }
 
     /**
@@ -201,7 +325,7 @@ public class CnxClient {
 
         httpPost.setEntity(reqEntity);
 
-        HttpClientWrapper.getHttpClient().execute(httpPost);
+        EntityUtils.consume(httpClient.execute(httpPost).getEntity());
     }
 
     /**
@@ -216,13 +340,13 @@ public class CnxClient {
      */
     public InputStream getResource(IdWrapper id) throws IOException, URISyntaxException,
             CnxException {
-        return apcForResources.getResourceAsStream(id);
+        return getApcForResources().getResourceAsStream(id);
     }
 
     public ResourceInfoWrapper getResourceInformation(IdWrapper id)
             throws IllegalArgumentException, URISyntaxException, IOException, JDOMException,
             FeedException, CnxException {
-        return apcForResources.getResourceInformation(id);
+        return getApcForResources().getResourceInformation(id);
     }
 
     /**
@@ -280,7 +404,7 @@ public class CnxClient {
      */
     public ModuleWrapper createModule() throws IllegalArgumentException, IOException,
             JDOMException, FeedException, URISyntaxException, CnxException {
-        return apcForModules.createModule();
+        return getApcForModules().createModule();
     }
 
     /**
@@ -299,7 +423,7 @@ public class CnxClient {
             IllegalArgumentException,
             IOException,
             JDOMException, FeedException, URISyntaxException, CnxException {
-        return apcForModules.createModuleForMigration(id);
+        return getApcForModules().createModuleForMigration(id);
     }
 
     /**
@@ -348,8 +472,8 @@ public class CnxClient {
             String cnxml, String resourceMappingXml) throws IllegalArgumentException,
             URISyntaxException, IOException, CnxException, JAXBException,
             JDOMException, FeedException {
-        return apcForModules.createModuleVersionForMigration(id, newVersion, cnxml,
-                resourceMappingXml);
+        return getApcForModules().createModuleVersionForMigration(id, newVersion, cnxml,
+                resourceMappingXml, rawContentTransfer);
     }
 
     /**
@@ -371,7 +495,8 @@ public class CnxClient {
     public ModuleWrapper createModuleVersion(URI editUri, String cnxml, String resourceMappingXml)
             throws IllegalArgumentException, JDOMException, IOException, CnxException,
             JAXBException, FeedException, URISyntaxException {
-        return apcForModules.createModuleVersion(editUri, cnxml, resourceMappingXml);
+        return getApcForModules().createModuleVersion(editUri, cnxml, resourceMappingXml,
+                rawContentTransfer);
     }
 
     /**
@@ -392,7 +517,70 @@ public class CnxClient {
     public ModuleVersionWrapper getModuleVersion(IdWrapper id, VersionWrapper version)
             throws IllegalStateException, IllegalArgumentException, IOException,
             URISyntaxException, JDOMException, FeedException, CnxException {
-        return apcForModules.getModuleVersion(id, version);
+        return getApcForModules().getModuleVersion(id, version, rawContentTransfer);
+    }
+
+    /**
+     * Fetch the content HTML that CNX Repository rendered for a Module Version when it was
+     * published. See {@link org.cnx.common.render.RenderArtifacts}.
+     * 
+     * @param id Id of desired Module.
+     * @param version Version of desired Module. Should not be latest.
+     * @param fingerprint Renderer fingerprint of the desired artifact.
+     * @return content HTML, or null if Repository does not have an artifact for this Module
+     *         Version and fingerprint.
+     * 
+     * @throws IOException
+     * @throws URISyntaxException
+     * @throws CnxException
+     */
+    @Nullable
+    public String getModuleVersionRenderArtifact(IdWrapper id, VersionWrapper version,
+            String fingerprint) throws IOException, URISyntaxException, CnxException {
+        return getApcForModules().getModuleVersionRenderArtifact(id, version, fingerprint);
+    }
+
+    /**
+     * Fetch many Module Versions from CNX Repository, with a single request for up to
+     * {@link RepositoryConstants#MAX_MODULE_VERSIONS_PER_BATCH} Module Versions.
+     * 
+     * @param versions Map from Id to desired Version of each Module. Version can be
+     *            {@link CnxAtomPubUtils#LATEST_VERSION_WRAPPER}.
+     * @return Map from Module Id to ModuleVersionWrapper. Module Versions which were not found are
+     *         missing from the map.
+     * 
+     * @throws IllegalArgumentException
+     * @throws IOException
+     * @throws URISyntaxException
+     * @throws JDOMException
+     * @throws FeedException
+     * @throws CnxException
+     */
+    public ImmutableMap<IdWrapper, ModuleVersionWrapper> getModuleVersions(
+            Map<IdWrapper, VersionWrapper> versions) throws IllegalArgumentException,
+            IOException, URISyntaxException, JDOMException, FeedException, CnxException {
+        return getApcForModules().getModuleVersions(versions);
+    }
+
+    /**
+     * Fetch latest Version of many Modules from CNX Repository, with a single request for up to
+     * {@link RepositoryConstants#MAX_MODULE_INFOS_PER_BATCH} Modules.
+     * 
+     * @param ids Ids of desired Modules.
+     * @return Map from Module Id to ModuleWrapper whose Version is the latest Version of the
+     *         Module, or 0 if Module has no Versions. Modules which were not found are missing
+     *         from the map.
+     * 
+     * @throws IllegalArgumentException
+     * @throws IOException
+     * @throws URISyntaxException
+     * @throws FeedException
+     * @throws CnxException
+     */
+    public ImmutableMap<IdWrapper, ModuleWrapper> getModuleInfos(List<IdWrapper> ids)
+            throws IllegalArgumentException, IOException, URISyntaxException, FeedException,
+            CnxException {
+        return getApcForModules().getModuleInfos(ids);
     }
 
     /*
@@ -411,7 +599,7 @@ public class CnxClient {
      */
     public CollectionWrapper createCollection() throws IllegalArgumentException, IOException,
             JDOMException, FeedException, URISyntaxException, CnxException {
-        return apcForCollection.createCollection();
+        return getApcForCollection().createCollection();
     }
 
     /**
@@ -430,7 +618,7 @@ public class CnxClient {
             IllegalArgumentException,
             IOException,
             JDOMException, FeedException, URISyntaxException, CnxException {
-        return apcForCollection.createCollectionForMigration(id);
+        return getApcForCollection().createCollectionForMigration(id);
     }
 
     /**
@@ -473,7 +661,8 @@ public class CnxClient {
     public CollectionWrapper createCollectionVersion(URI editUri, String collectionXml)
             throws IllegalArgumentException, JDOMException, IOException, CnxException,
             JAXBException, FeedException, URISyntaxException {
-        return apcForCollection.createCollectionVersion(editUri, collectionXml);
+        return getApcForCollection().createCollectionVersion(editUri, collectionXml,
+                rawContentTransfer);
     }
     
     /**
@@ -496,7 +685,8 @@ public class CnxClient {
             String collectionXml) throws IllegalArgumentException,
             URISyntaxException, IOException, CnxException, JAXBException,
             JDOMException, FeedException {
-        return apcForCollection.createCollectionVersionForMigration(id, newVersion, collectionXml);
+        return getApcForCollection().createCollectionVersionForMigration(id, newVersion,
+                collectionXml, rawContentTransfer);
     }
 
     /**
@@ -516,6 +706,6 @@ public class CnxClient {
     public CollectionVersionWrapper getCollectionVersion(IdWrapper id, VersionWrapper version)
             throws IllegalStateException, IllegalArgumentException, IOException,
             URISyntaxException, JDOMException, FeedException, CnxException {
-        return apcForCollection.getCollectionVersion(id, version);
+        return getApcForCollection().getCollectionVersion(id, version, rawContentTransfer);
     }
 }
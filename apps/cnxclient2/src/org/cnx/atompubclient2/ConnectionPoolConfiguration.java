@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.atompubclient2;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Settings of the connection pool shared by {@link HttpClientWrapper}s outside of AppEngine.
+ * 
+ * @author Arjun Satyapal
+ */
+public class ConnectionPoolConfiguration {
+    private int maxTotalConnections = 100;
+    private int maxConnectionsPerRoute = 20;
+    private long idleTimeoutMillis = 30 * 1000;
+    private long keepAliveMillis = 30 * 1000;
+    private long connectionRequestTimeoutMillis = 60 * 1000;
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    /** Maximum number of open connections, across all hosts. */
+    public ConnectionPoolConfiguration setMaxTotalConnections(int maxTotalConnections) {
+        checkArgument(maxTotalConnections > 0, "Invalid maxTotalConnections : %s",
+                maxTotalConnections);
+        this.maxTotalConnections = maxTotalConnections;
+        return this;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /** Maximum number of open connections to a single host. */
+    public ConnectionPoolConfiguration setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        checkArgument(maxConnectionsPerRoute > 0, "Invalid maxConnectionsPerRoute : %s",
+                maxConnectionsPerRoute);
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        return this;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /** Pooled connections unused for longer than this are closed. */
+    public ConnectionPoolConfiguration setIdleTimeoutMillis(long idleTimeoutMillis) {
+        checkArgument(idleTimeoutMillis > 0, "Invalid idleTimeoutMillis : %s", idleTimeoutMillis);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * How long a connection is kept alive when the server does not send a Keep-Alive timeout. A
+     * shorter timeout sent by the server always wins.
+     */
+    public ConnectionPoolConfiguration setKeepAliveMillis(long keepAliveMillis) {
+        checkArgument(keepAliveMillis > 0, "Invalid keepAliveMillis : %s", keepAliveMillis);
+        this.keepAliveMillis = keepAliveMillis;
+        return this;
+    }
+
+    public long getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * How long a request waits for a pooled connection before failing. Bounds the wait when
+     * connections are not returned to the pool, e.g. by callers that do not consume a response.
+     */
+    public ConnectionPoolConfiguration setConnectionRequestTimeoutMillis(
+            long connectionRequestTimeoutMillis) {
+        checkArgument(connectionRequestTimeoutMillis > 0,
+                "Invalid connectionRequestTimeoutMillis : %s", connectionRequestTimeoutMillis);
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "maxTotalConnections=" + maxTotalConnections + ", maxConnectionsPerRoute="
+                + maxConnectionsPerRoute + ", idleTimeoutMillis=" + idleTimeoutMillis
+                + ", keepAliveMillis=" + keepAliveMillis + ", connectionRequestTimeoutMillis="
+                + connectionRequestTimeoutMillis;
+    }
+}
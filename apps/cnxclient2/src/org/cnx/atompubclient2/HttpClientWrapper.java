@@ -23,43 +23,148 @@ import org.cnx.common.exceptions.CnxInvalidUrlException;
 
 import org.cnx.common.exceptions.CnxBadRequestException;
 
+import static com.google.common.base.Preconditions.checkState;
+
 import com.google.appengine.api.utils.SystemProperty;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolException;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.cnx.common.exceptions.CnxException;
 import org.cnx.common.http.HttpStatusEnum;
 import org.esxx.js.protocol.GAEConnectionManager;
 
 /**
+ * Wrapper around HttpClient which converts HTTP errors to {@link CnxException}s.
+ * 
+ * On AppEngine requests go through URLFetch using {@link GAEConnectionManager}. Elsewhere (e.g.
+ * the migrator) connections are kept alive and pooled, and are shared by all threads. Callers
+ * must consume or close the entity of every response they get, otherwise its connection is not
+ * returned to the pool, and once the pool is exhausted requests fail after waiting for
+ * {@link ConnectionPoolConfiguration#getConnectionRequestTimeoutMillis}. Clients created with
+ * the public constructors own their pool and must be {@link #shutdown}.
  * 
  * @author Arjun Satyapal
  */
 public class HttpClientWrapper {
+    /**
+     * Milliseconds to wait for a pooled connection. The parameter read by HttpClient 4.1, named
+     * ClientPNames.CONN_MANAGER_TIMEOUT from 4.2. In 4.1 it is only exposed through the
+     * deprecated ConnManagerParams.
+     */
+    private static final String CONN_MANAGER_TIMEOUT = "http.conn-manager.timeout";
+
+    /** Client shared by all callers of {@link #getHttpClient}. */
+    private static volatile HttpClientWrapper sharedClient;
+    private static ConnectionPoolConfiguration sharedConfiguration =
+            new ConnectionPoolConfiguration();
+    private static ScheduledExecutorService idleConnectionEvictor;
+
     private final DefaultHttpClient httpClient;
+    @Nullable
+    private final ThreadSafeClientConnManager connectionManager;
+    @Nullable
+    private final ScheduledFuture<?> evictionTask;
 
+    /**
+     * Get the client shared by the whole process.
+     */
     public static HttpClientWrapper getHttpClient() {
-        return new HttpClientWrapper();
+        HttpClientWrapper client = sharedClient;
+        if (client == null) {
+            synchronized (HttpClientWrapper.class) {
+                if (sharedClient == null) {
+                    sharedClient = new HttpClientWrapper(sharedConfiguration);
+                }
+                client = sharedClient;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Set the connection pool settings of the shared client. Must be called before the first call
+     * to {@link #getHttpClient}. Ignored on AppEngine.
+     */
+    public static synchronized void configureSharedClient(
+            ConnectionPoolConfiguration configuration) {
+        checkState(sharedClient == null, "Shared HttpClient is already in use.");
+        sharedConfiguration = configuration;
+    }
+
+    private static synchronized ScheduledExecutorService getIdleConnectionEvictor() {
+        if (idleConnectionEvictor == null) {
+            idleConnectionEvictor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat("idle-connection-evictor-%d").build());
+        }
+        return idleConnectionEvictor;
     }
 
     public HttpClientWrapper() {
+        this(new ConnectionPoolConfiguration());
+    }
+
+    public HttpClientWrapper(final ConnectionPoolConfiguration configuration) {
         HttpParams httpParams = new BasicHttpParams();
         httpParams.setParameter("http.protocol.handle-redirects", true);
 
         // If running from UnitTest, then SystemProperty is null.
         if (SystemProperty.environment.value() != null) {
+            // URLFetch manages connections itself, and AppEngine does not allow the background
+            // thread used to evict idle connections.
             httpClient = new DefaultHttpClient(new GAEConnectionManager(), httpParams);
+            connectionManager = null;
+            evictionTask = null;
         } else {
-            httpClient = new DefaultHttpClient();
+            connectionManager =
+                    new ThreadSafeClientConnManager(SchemeRegistryFactory.createDefault());
+            connectionManager.setMaxTotal(configuration.getMaxTotalConnections());
+            connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+            httpClient = new DefaultHttpClient(connectionManager);
+
+            // Fail instead of blocking forever when the pool is exhausted.
+            httpClient.getParams().setLongParameter(CONN_MANAGER_TIMEOUT,
+                    configuration.getConnectionRequestTimeoutMillis());
+
+            httpClient.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+                @Override
+                public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                    final long duration = super.getKeepAliveDuration(response, context);
+                    if (duration < 0 || duration > configuration.getKeepAliveMillis()) {
+                        return configuration.getKeepAliveMillis();
+                    }
+                    return duration;
+                }
+            });
+
+            final long idleTimeoutMillis = configuration.getIdleTimeoutMillis();
+            evictionTask = getIdleConnectionEvictor().scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    connectionManager.closeExpiredConnections();
+                    connectionManager.closeIdleConnections(idleTimeoutMillis,
+                            TimeUnit.MILLISECONDS);
+                }
+            }, idleTimeoutMillis, idleTimeoutMillis, TimeUnit.MILLISECONDS);
         }
 
         httpClient.setRedirectStrategy(new DefaultRedirectStrategy() {
@@ -88,10 +193,33 @@ public class HttpClientWrapper {
     public HttpResponse execute(HttpUriRequest httpRequest) throws ClientProtocolException,
             IOException, CnxException {
         HttpResponse httpResponse = httpClient.execute(httpRequest);
-        handleHttpResponse(httpRequest, httpResponse);
+        try {
+            handleHttpResponse(httpRequest, httpResponse);
+        } catch (CnxException e) {
+            // Nobody reads the body of failed requests, so release the connection here.
+            EntityUtils.consume(httpResponse.getEntity());
+            throw e;
+        }
         return httpResponse;
     }
 
+    /**
+     * Close all pooled connections. The client cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (evictionTask != null) {
+            evictionTask.cancel(false /* mayInterruptIfRunning */);
+        }
+        httpClient.getConnectionManager().shutdown();
+    }
+
+    /**
+     * @return number of pooled connections, open or in use. Always 0 on AppEngine.
+     */
+    public int getConnectionsInPool() {
+        return connectionManager != null ? connectionManager.getConnectionsInPool() : 0;
+    }
+
     protected void handleHttpResponse(HttpUriRequest httpRequest, HttpResponse httpResponse)
             throws CnxException {
 
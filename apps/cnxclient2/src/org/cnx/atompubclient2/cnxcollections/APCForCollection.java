@@ -19,6 +19,7 @@ import static org.cnx.atompubclient2.HttpClientWrapper.getHttpClient;
 
 import org.cnx.common.repository.atompub.objects.ModuleWrapper;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
 import com.sun.syndication.feed.atom.Entry;
 import com.sun.syndication.io.FeedException;
@@ -27,16 +28,19 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import javax.xml.bind.JAXBException;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.StringEntity;
 import org.cnx.common.exceptions.CnxException;
+import org.cnx.common.repository.ContentType;
 import org.cnx.common.repository.PrettyXmlOutputter;
 import org.cnx.common.repository.atompub.CnxAtomPubCollectionEnum;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.cnx.common.repository.atompub.VersionWrapper;
 import org.cnx.common.repository.atompub.objects.CollectionVersionWrapper;
 import org.cnx.common.repository.atompub.objects.CollectionWrapper;
@@ -89,14 +93,27 @@ public class APCForCollection extends AbstractAPC {
             throws JDOMException,
             IOException, CnxException, JAXBException, IllegalArgumentException, FeedException,
             URISyntaxException {
-        Entry moduleVersionEntry = new Entry();
-        moduleVersionEntry.setContents(CnxAtomPubUtils
-                .getAtomPubListOfContentForCollectionEntry(collectionXml));
+        return createCollectionVersion(editUri, collectionXml, false /* rawContentTransfer */);
+    }
 
-        StringEntity stringEntity =
-                new StringEntity(PrettyXmlOutputter.prettyXmlOutputEntry(moduleVersionEntry));
+    /**
+     * @param rawContentTransfer If true, collectionXml is sent as multipart/related instead of
+     *            base64 encoded inside an Entry.
+     */
+    public CollectionWrapper createCollectionVersion(URI editUri, String collectionXml,
+            boolean rawContentTransfer) throws JDOMException, IOException, CnxException,
+            JAXBException, IllegalArgumentException, FeedException, URISyntaxException {
         HttpPut httpPut = new HttpPut(editUri);
-        httpPut.setEntity(stringEntity);
+        if (rawContentTransfer) {
+            httpPut.setEntity(getMultipartRelatedEntity(
+                    ImmutableMap.of(MultipartRelated.COLLXML_PART, collectionXml)));
+        } else {
+            Entry moduleVersionEntry = new Entry();
+            moduleVersionEntry.setContents(CnxAtomPubUtils
+                    .getAtomPubListOfContentForCollectionEntry(collectionXml));
+            httpPut.setEntity(new StringEntity(
+                    PrettyXmlOutputter.prettyXmlOutputEntry(moduleVersionEntry)));
+        }
         HttpResponse httpResponse = getHttpClient().execute(httpPut);
 
         String response =
@@ -109,14 +126,38 @@ public class APCForCollection extends AbstractAPC {
             String collectionXml) throws URISyntaxException,
             IllegalArgumentException, JDOMException, IOException, CnxException, JAXBException,
             FeedException {
+        return createCollectionVersionForMigration(id, version, collectionXml,
+                false /* rawContentTransfer */);
+    }
+
+    public CollectionWrapper createCollectionVersionForMigration(IdWrapper id,
+            VersionWrapper version, String collectionXml, boolean rawContentTransfer)
+            throws URISyntaxException, IllegalArgumentException, JDOMException, IOException,
+            CnxException, JAXBException, FeedException {
         URI editUri = getAPRVUriForMigration(id, version);
-        return createCollectionVersion(editUri, collectionXml);
+        return createCollectionVersion(editUri, collectionXml, rawContentTransfer);
     }
     
     public CollectionVersionWrapper getCollectionVersion(IdWrapper id, VersionWrapper version)
             throws IllegalStateException, IOException, URISyntaxException, JDOMException,
             IllegalArgumentException, FeedException, CnxException {
+        return getCollectionVersion(id, version, false /* rawContentTransfer */);
+    }
+
+    /**
+     * @param rawContentTransfer If true, CollXml is fetched as multipart/related instead of
+     *            base64 encoded inside an Entry.
+     */
+    public CollectionVersionWrapper getCollectionVersion(IdWrapper id, VersionWrapper version,
+            boolean rawContentTransfer) throws IllegalStateException, IOException,
+            URISyntaxException, JDOMException, IllegalArgumentException, FeedException,
+            CnxException {
         HttpGet httpGet = new HttpGet(getAPRVUri(id, version));
+        if (rawContentTransfer) {
+            httpGet.setHeader(HttpHeaders.ACCEPT, ContentType.MULTIPART_RELATED);
+            HttpResponse httpResponse = getHttpClient().execute(httpGet);
+            return CollectionVersionWrapper.fromParts(getMultipartRelatedParts(httpResponse));
+        }
         HttpResponse httpResponse = getHttpClient().execute(httpGet);
 
         String response =
@@ -17,6 +17,11 @@ package org.cnx.atompubclient2.cnxcollections;
 
 import static org.cnx.atompubclient2.HttpClientWrapper.getHttpClient;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.io.CharStreams;
 import com.sun.syndication.feed.atom.Entry;
 import com.sun.syndication.io.FeedException;
@@ -24,17 +29,26 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
 import javax.xml.bind.JAXBException;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.StringEntity;
 import org.cnx.common.exceptions.CnxException;
+import org.cnx.common.exceptions.CnxInvalidUrlException;
+import org.cnx.common.repository.ContentType;
 import org.cnx.common.repository.PrettyXmlOutputter;
+import org.cnx.common.repository.RepositoryConstants;
 import org.cnx.common.repository.atompub.CnxAtomPubCollectionEnum;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
+import org.cnx.common.repository.atompub.CommonUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.common.repository.atompub.MultipartRelated;
+import org.cnx.common.repository.atompub.ServletUris;
 import org.cnx.common.repository.atompub.VersionWrapper;
 import org.cnx.common.repository.atompub.objects.ModuleVersionWrapper;
 import org.cnx.common.repository.atompub.objects.ModuleWrapper;
@@ -81,14 +95,30 @@ public class APCForModules extends AbstractAPC {
             String cnxml, String resourceMappingXml) throws JDOMException,
             IOException, CnxException, JAXBException, IllegalArgumentException, FeedException,
             URISyntaxException {
-        Entry moduleVersionEntry = new Entry();
-        moduleVersionEntry.setContents(CnxAtomPubUtils.getAtomPubListOfContent(cnxml,
-                resourceMappingXml));
+        return createModuleVersion(editUri, cnxml, resourceMappingXml,
+                false /* rawContentTransfer */);
+    }
 
-        StringEntity stringEntity =
-                new StringEntity(PrettyXmlOutputter.prettyXmlOutputEntry(moduleVersionEntry));
+    /**
+     * @param rawContentTransfer If true, cnxml and resourceMappingXml are sent as
+     *            multipart/related instead of base64 encoded inside an Entry.
+     */
+    public ModuleWrapper createModuleVersion(URI editUri, String cnxml,
+            String resourceMappingXml, boolean rawContentTransfer) throws JDOMException,
+            IOException, CnxException, JAXBException, IllegalArgumentException, FeedException,
+            URISyntaxException {
         HttpPut httpPut = new HttpPut(editUri);
-        httpPut.setEntity(stringEntity);
+        if (rawContentTransfer) {
+            httpPut.setEntity(getMultipartRelatedEntity(ImmutableMap.of(
+                    MultipartRelated.CNXML_PART, cnxml,
+                    MultipartRelated.RESOURCE_MAPPING_PART, resourceMappingXml)));
+        } else {
+            Entry moduleVersionEntry = new Entry();
+            moduleVersionEntry.setContents(CnxAtomPubUtils.getAtomPubListOfContent(cnxml,
+                    resourceMappingXml));
+            httpPut.setEntity(new StringEntity(
+                    PrettyXmlOutputter.prettyXmlOutputEntry(moduleVersionEntry)));
+        }
         HttpResponse httpResponse = getHttpClient().execute(httpPut);
 
         String response =
@@ -101,14 +131,38 @@ public class APCForModules extends AbstractAPC {
             String cnxml, String resourceMappingXml) throws URISyntaxException,
             IllegalArgumentException, JDOMException, IOException, CnxException, JAXBException,
             FeedException {
+        return createModuleVersionForMigration(id, version, cnxml, resourceMappingXml,
+                false /* rawContentTransfer */);
+    }
+
+    public ModuleWrapper createModuleVersionForMigration(IdWrapper id, VersionWrapper version,
+            String cnxml, String resourceMappingXml, boolean rawContentTransfer)
+            throws URISyntaxException, IllegalArgumentException, JDOMException, IOException,
+            CnxException, JAXBException, FeedException {
         URI editUri = getAPRVUriForMigration(id, version);
-        return createModuleVersion(editUri, cnxml, resourceMappingXml);
+        return createModuleVersion(editUri, cnxml, resourceMappingXml, rawContentTransfer);
     }
 
     public ModuleVersionWrapper getModuleVersion(IdWrapper id, VersionWrapper version)
             throws IllegalStateException, IOException, URISyntaxException, JDOMException,
             IllegalArgumentException, FeedException, CnxException {
+        return getModuleVersion(id, version, false /* rawContentTransfer */);
+    }
+
+    /**
+     * @param rawContentTransfer If true, CNXML and ResourceMapping XML are fetched as
+     *            multipart/related instead of base64 encoded inside an Entry.
+     */
+    public ModuleVersionWrapper getModuleVersion(IdWrapper id, VersionWrapper version,
+            boolean rawContentTransfer) throws IllegalStateException, IOException,
+            URISyntaxException, JDOMException, IllegalArgumentException, FeedException,
+            CnxException {
         HttpGet httpGet = new HttpGet(getAPRVUri(id, version));
+        if (rawContentTransfer) {
+            httpGet.setHeader(HttpHeaders.ACCEPT, ContentType.MULTIPART_RELATED);
+            HttpResponse httpResponse = getHttpClient().execute(httpGet);
+            return ModuleVersionWrapper.fromParts(getMultipartRelatedParts(httpResponse));
+        }
         HttpResponse httpResponse = getHttpClient().execute(httpGet);
 
         // TODO(arjuns): Add error handling.
@@ -118,4 +172,89 @@ public class APCForModules extends AbstractAPC {
 
         return ModuleVersionWrapper.fromEntry(entry);
     }
+
+    /**
+     * Fetch the render artifact of a Module Version.
+     * 
+     * @param fingerprint renderer fingerprint of the desired artifact.
+     * @return the content HTML, or null if the Repository has no such artifact.
+     */
+    public String getModuleVersionRenderArtifact(IdWrapper id, VersionWrapper version,
+            String fingerprint) throws IOException, URISyntaxException, CnxException {
+        URI tail = new URI(ServletUris.RENDER_ARTIFACT + "/" + fingerprint);
+        HttpGet httpGet =
+                new HttpGet(CommonUtils.appendUri(getAPRVUri(id, version), tail));
+        HttpResponse httpResponse;
+        try {
+            httpResponse = getHttpClient().execute(httpGet);
+        } catch (CnxInvalidUrlException e) {
+            // Not rendered yet, or rendered with another fingerprint.
+            return null;
+        }
+        return CharStreams.toString(new InputStreamReader(httpResponse.getEntity().getContent(),
+                Charsets.UTF_8));
+    }
+
+    /**
+     * Fetch many Module Versions, with one request per
+     * {@link RepositoryConstants#MAX_MODULE_VERSIONS_PER_BATCH} Module Versions.
+     * 
+     * @param versions Map from Module Id to desired Version. Version can be
+     *            {@link CnxAtomPubUtils#LATEST_VERSION_WRAPPER}.
+     * @return Map from Module Id to Module Version, for Module Versions that were found.
+     */
+    public ImmutableMap<IdWrapper, ModuleVersionWrapper> getModuleVersions(
+            Map<IdWrapper, VersionWrapper> versions) throws IOException, URISyntaxException,
+            JDOMException, IllegalArgumentException, FeedException, CnxException {
+        ImmutableMap.Builder<IdWrapper, ModuleVersionWrapper> modules = ImmutableMap.builder();
+        for (Map<IdWrapper, VersionWrapper> batch : partition(versions,
+                RepositoryConstants.MAX_MODULE_VERSIONS_PER_BATCH)) {
+            for (Entry entry : postBatch(getAPCUriForBatch(), batch)) {
+                ModuleVersionWrapper module = ModuleVersionWrapper.fromEntry(entry);
+                modules.put(module.getId(), module);
+            }
+        }
+        return modules.build();
+    }
+
+    /**
+     * Fetch latest Version of many Modules, with one request per
+     * {@link RepositoryConstants#MAX_MODULE_INFOS_PER_BATCH} Modules.
+     * 
+     * @param ids Ids of desired Modules.
+     * @return Map from Module Id to Module, for Modules that were found. Version of each Module is
+     *         its latest Version, and 0 if Module has no Versions.
+     */
+    public ImmutableMap<IdWrapper, ModuleWrapper> getModuleInfos(List<IdWrapper> ids)
+            throws IOException, URISyntaxException, IllegalArgumentException, FeedException,
+            CnxException {
+        Map<IdWrapper, VersionWrapper> versions = Maps.newLinkedHashMap();
+        for (IdWrapper id : ids) {
+            versions.put(id, CnxAtomPubUtils.LATEST_VERSION_WRAPPER);
+        }
+
+        ImmutableMap.Builder<IdWrapper, ModuleWrapper> modules = ImmutableMap.builder();
+        for (Map<IdWrapper, VersionWrapper> batch : partition(versions,
+                RepositoryConstants.MAX_MODULE_INFOS_PER_BATCH)) {
+            for (Entry entry : postBatch(getAPCUriForBatchInformation(), batch)) {
+                ModuleWrapper module = ModuleWrapper.fromEntry(entry);
+                modules.put(module.getId(), module);
+            }
+        }
+        return modules.build();
+    }
+
+    private static List<Map<IdWrapper, VersionWrapper>> partition(
+            Map<IdWrapper, VersionWrapper> versions, int batchSize) {
+        List<Map<IdWrapper, VersionWrapper>> batches = Lists.newArrayList();
+        for (List<Map.Entry<IdWrapper, VersionWrapper>> batchEntries : Iterables.partition(
+                versions.entrySet(), batchSize)) {
+            Map<IdWrapper, VersionWrapper> batch = Maps.newLinkedHashMap();
+            for (Map.Entry<IdWrapper, VersionWrapper> version : batchEntries) {
+                batch.put(version.getKey(), version.getValue());
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
 }
@@ -16,14 +16,38 @@
 package org.cnx.atompubclient2.cnxcollections;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.cnx.atompubclient2.HttpClientWrapper.getHttpClient;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.CharStreams;
+import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
+import com.sun.syndication.io.FeedException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.http.entity.StringEntity;
+import org.cnx.common.exceptions.CnxException;
+import org.cnx.common.repository.ContentType;
+import org.cnx.common.repository.PrettyXmlOutputter;
 import org.cnx.common.repository.atompub.CnxAtomPubCollectionEnum;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.CommonUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.cnx.common.repository.atompub.ServletUris;
 import org.cnx.common.repository.atompub.VersionWrapper;
 import org.cnx.servicedocument.Collection;
@@ -137,6 +161,94 @@ public abstract class AbstractAPC extends Collection {
         return CommonUtils.appendUri(getAPRUriForMigration(id), tail);
     }
 
+    /**
+     * Get URI to fetch many AtomPubResourceVersions in one request.
+     * 
+     * @return URI where client should post a Feed with one Entry per desired
+     *         AtomPubResourceVersion.
+     * @throws URISyntaxException
+     */
+    protected URI getAPCUriForBatch() throws URISyntaxException {
+        URI tail = new URI(ServletUris.BATCH);
+        return CommonUtils.appendUri(getAPCUri(), tail);
+    }
+
+    /**
+     * Get URI to fetch information for many AtomPubResources in one request.
+     * 
+     * @return URI where client should post a Feed with one Entry per desired AtomPubResource.
+     * @throws URISyntaxException
+     */
+    protected URI getAPCUriForBatchInformation() throws URISyntaxException {
+        URI tail = new URI(ServletUris.BATCH + "/" + ServletUris.INFORMATION);
+        return CommonUtils.appendUri(getAPCUri(), tail);
+    }
+
+    /**
+     * Post a Feed containing one Entry per AtomPubResourceVersion, identified by its AtomPub Id,
+     * and return Entries of the Feed returned by server.
+     */
+    @SuppressWarnings("unchecked")
+    protected static List<Entry> postBatch(URI batchUri, Map<IdWrapper, VersionWrapper> versions)
+            throws IOException, IllegalArgumentException, FeedException, CnxException {
+        List<Entry> requestEntries = Lists.newArrayList();
+        for (Map.Entry<IdWrapper, VersionWrapper> version : versions.entrySet()) {
+            Entry entry = new Entry();
+            entry.setId(CnxAtomPubUtils.getAtomPubIdFromCnxIdAndVersion(version.getKey(),
+                    version.getValue()));
+            requestEntries.add(entry);
+        }
+        Feed requestFeed = new Feed();
+        requestFeed.setEntries(requestEntries);
+
+        HttpPost post = new HttpPost(batchUri);
+        StringEntity requestEntity =
+                new StringEntity(PrettyXmlOutputter.prettyXmlOutputFeed(requestFeed),
+                        Charsets.UTF_8.name());
+        requestEntity.setContentType(ContentType.APPLICATION_ATOM_XML);
+        post.setEntity(requestEntity);
+        HttpResponse httpResponse = getHttpClient().execute(post);
+
+        String response =
+                CharStreams.toString(new InputStreamReader(httpResponse.getEntity().getContent(),
+                        Charsets.UTF_8));
+        return CnxAtomPubUtils.parseXmlToFeed(response).getEntries();
+    }
+
+    /**
+     * Entity which writes xmlParts as multipart/related while it is being sent, so the documents
+     * are neither encoded nor copied. See {@link MultipartRelated}.
+     * 
+     * @param xmlParts Map from Content-ID to XML document, in the order they should be sent.
+     */
+    protected static HttpEntity getMultipartRelatedEntity(final Map<String, String> xmlParts) {
+        final String boundary = MultipartRelated.newBoundary();
+        EntityTemplate entity = new EntityTemplate(new ContentProducer() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8));
+                for (Map.Entry<String, String> part : xmlParts.entrySet()) {
+                    MultipartRelated.writePart(writer, boundary, part.getKey(),
+                            ContentType.TEXT_XML_UTF8, part.getValue());
+                }
+                MultipartRelated.writeEnd(writer, boundary);
+            }
+        });
+        entity.setContentType(MultipartRelated.getContentType(boundary, ContentType.TEXT_XML_UTF8));
+        return entity;
+    }
+
+    /**
+     * Read parts of a multipart/related response, keyed by Content-ID.
+     */
+    protected static Map<String, String> getMultipartRelatedParts(HttpResponse httpResponse)
+            throws IOException {
+        HttpEntity entity = httpResponse.getEntity();
+        String boundary = MultipartRelated.getBoundary(entity.getContentType().getValue());
+        return MultipartRelated.readParts(
+                new InputStreamReader(entity.getContent(), Charsets.UTF_8), boundary);
+    }
+
     // TODO(arjuns) : Add test for this.
     private Collection getApc(List<Collection> apcs,
             CnxAtomPubCollectionEnum apcType) {
@@ -19,12 +19,13 @@ package org.cnx.common.collxml;
 import static com.google.common.base.Preconditions.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
 
 import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import org.cnx.mdml.Metadata;
 import org.jdom.Document;
@@ -41,6 +42,9 @@ public class Collection {
     private final ImmutableList<CollectionItem> items;
     private final ImmutableList<ModuleLink> moduleLinks;
 
+    /** Index in moduleLinks of the first link to each module. */
+    private final ImmutableMap<String, Integer> moduleIndexes;
+
     /** Create a collection. This is package-private; others should use CollectionFactory. */
     Collection(String id, @Nullable String version, Document collxml, @Nullable Metadata metadata,
             List<CollectionItem> topItems) {
@@ -55,6 +59,7 @@ public class Collection {
         buildLists(items, moduleLinks, this.topItems);
         this.items = ImmutableList.copyOf(items);
         this.moduleLinks = ImmutableList.copyOf(moduleLinks);
+        this.moduleIndexes = buildModuleIndexes(this.moduleLinks);
     }
 
     private void buildLists(ArrayList<CollectionItem> items, ArrayList<ModuleLink> moduleLinks,
@@ -69,6 +74,16 @@ public class Collection {
         }
     }
 
+    private static ImmutableMap<String, Integer> buildModuleIndexes(
+            ImmutableList<ModuleLink> moduleLinks) {
+        final HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+        for (int i = moduleLinks.size() - 1; i >= 0; i--) {
+            // Iterate backwards so that the first link to a module wins.
+            indexes.put(moduleLinks.get(i).getModuleId(), i);
+        }
+        return ImmutableMap.copyOf(indexes);
+    }
+
     public String getId() {
         return id;
     }
@@ -103,13 +118,7 @@ public class Collection {
      *  This method checks whether the collection has a module.
      */
     public boolean hasModule(String moduleId) {
-        checkNotNull(moduleId);
-        for (ModuleLink link : moduleLinks) {
-            if (moduleId.equals(link.getModuleId())) {
-                return true;
-            }
-        }
-        return false;
+        return moduleIndexes.containsKey(checkNotNull(moduleId));
     }
 
     /**
@@ -119,15 +128,8 @@ public class Collection {
      *          found.
      */
     public int getModuleIndex(String moduleId) {
-        checkNotNull(moduleId);
-        int index = 0;
-        for (ModuleLink link : moduleLinks) {
-            if (moduleId.equals(link.getModuleId())) {
-                return index;
-            }
-            index++;
-        }
-        return -1;
+        final Integer index = moduleIndexes.get(checkNotNull(moduleId));
+        return index != null ? index : -1;
     }
 
     /**
@@ -148,29 +150,17 @@ public class Collection {
      *  @return An array containing [previous, next].  One or both may be null.
      */
     public ModuleLink[] getPreviousNext(String moduleId) {
-        checkNotNull(moduleId);
         final ModuleLink[] result = new ModuleLink[2];
-        ListIterator<ModuleLink> linkIter = moduleLinks.listIterator();
-        boolean found = false;
-
-        while (linkIter.hasNext()) {
-            final ModuleLink link = linkIter.next();
-            if (moduleId.equals(link.getModuleId())) {
-                found = true;
-                break;
-            }
-        }
-        if (!found) {
+        final int index = getModuleIndex(checkNotNull(moduleId));
+        if (index < 0) {
             return result;
         }
 
-        if (linkIter.hasNext()) {
-            result[1] = linkIter.next();
-            linkIter.previous();
+        if (index > 0) {
+            result[0] = moduleLinks.get(index - 1);
         }
-        linkIter.previous();
-        if (linkIter.hasPrevious()) {
-            result[0] = linkIter.previous();
+        if (index + 1 < moduleLinks.size()) {
+            result[1] = moduleLinks.get(index + 1);
         }
         return result;
     }
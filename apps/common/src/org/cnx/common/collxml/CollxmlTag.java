@@ -16,7 +16,7 @@
 
 package org.cnx.common.collxml;
 
-import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
 
 import javax.annotation.Nullable;
 
@@ -38,6 +38,18 @@ public enum CollxmlTag {
     public static final String NAMESPACE_URI = "http://cnx.rice.edu/collxml";
     public static final Namespace NAMESPACE = Namespace.getNamespace(NAMESPACE_URI);
 
+    private static final ImmutableMap<String, CollxmlTag> TAGS_BY_NAME;
+
+    static {
+        final ImmutableMap.Builder<String, CollxmlTag> builder = ImmutableMap.builder();
+        for (CollxmlTag tag : values()) {
+            if (tag.tag != null) {
+                builder.put(tag.tag, tag);
+            }
+        }
+        TAGS_BY_NAME = builder.build();
+    }
+
     private CollxmlTag(@Nullable String tag) {
         this.tag = tag;
     }
@@ -47,11 +59,10 @@ public enum CollxmlTag {
     }
 
     public static CollxmlTag of(@Nullable final String name) {
-        for (CollxmlTag tag : CollxmlTag.values()) {
-            if (Objects.equal(tag.tag, name)) {
-                return tag;
-            }
+        if (name == null) {
+            return INVALID;
         }
-        return INVALID;
+        final CollxmlTag tag = TAGS_BY_NAME.get(name);
+        return (tag != null) ? tag : INVALID;
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.common.jaxb;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Charsets;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Process wide registry of {@link JAXBContext}s.
+ *
+ * Creating a JAXBContext is one of the most expensive JAXB operations, while a context is
+ * thread-safe once created. Contexts are created lazily, once per class, and kept for the life of
+ * the process. Marshallers and unmarshallers are not thread-safe, so each thread keeps its own for
+ * every class.
+ *
+ * @author Arjun Satyapal
+ */
+public final class JaxbRegistry {
+    private static final ConcurrentMap<Class<?>, ClassEntry> entries =
+            new ConcurrentHashMap<Class<?>, ClassEntry>();
+
+    private static final AtomicLong contextCreations = new AtomicLong();
+
+    // Utility class.
+    private JaxbRegistry() {
+    }
+
+    /**
+     * Context and per thread (un)marshallers for one JAXB root class.
+     */
+    private static class ClassEntry {
+        private final JAXBContext context;
+        private final ThreadLocal<Marshaller> marshaller = new ThreadLocal<Marshaller>();
+        private final ThreadLocal<Unmarshaller> unmarshaller = new ThreadLocal<Unmarshaller>();
+
+        ClassEntry(JAXBContext context) {
+            this.context = context;
+        }
+
+        Marshaller getMarshaller() throws JAXBException {
+            Marshaller m = marshaller.get();
+            if (m == null) {
+                m = context.createMarshaller();
+                m.setProperty(Marshaller.JAXB_ENCODING, Charsets.UTF_8.displayName());
+                m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+                marshaller.set(m);
+            }
+            return m;
+        }
+
+        Unmarshaller getUnmarshaller() throws JAXBException {
+            Unmarshaller u = unmarshaller.get();
+            if (u == null) {
+                u = context.createUnmarshaller();
+                unmarshaller.set(u);
+            }
+            return u;
+        }
+    }
+
+    private static ClassEntry getEntry(Class<?> clazz) throws JAXBException {
+        checkNotNull(clazz);
+        ClassEntry entry = entries.get(clazz);
+        if (entry == null) {
+            // Two threads may race to create the context; only one of them is kept.
+            contextCreations.incrementAndGet();
+            final ClassEntry newEntry = new ClassEntry(JAXBContext.newInstance(clazz));
+            entry = entries.putIfAbsent(clazz, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Get the shared JAXBContext for a class.
+     */
+    public static JAXBContext getContext(Class<?> clazz) throws JAXBException {
+        return getEntry(clazz).context;
+    }
+
+    /**
+     * Convert a JAXB object to its UTF-8, formatted XML representation.
+     */
+    public static String marshal(Object jaxbObject) throws JAXBException {
+        final StringWriter stringWriter = new StringWriter();
+        getEntry(jaxbObject.getClass()).getMarshaller().marshal(jaxbObject, stringWriter);
+        return stringWriter.toString();
+    }
+
+    /**
+     * Parse the XML representation of a JAXB object.
+     *
+     * @param clazz Class annotated with XmlRootElement.
+     */
+    public static <T> T unmarshal(Class<T> clazz, Reader reader) throws JAXBException {
+        return clazz.cast(getEntry(clazz).getUnmarshaller().unmarshal(reader));
+    }
+
+    /**
+     * Number of JAXBContexts created so far.
+     */
+    public static long getContextCreations() {
+        return contextCreations.get();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.common.render;
+
+import com.google.common.base.Strings;
+import com.google.inject.Provider;
+
+import java.net.URI;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import org.cnx.cnxml.LinkResolver;
+import org.cnx.cnxml.Module;
+import org.cnx.cnxml.ResourceIndex;
+
+/**
+ *  ArtifactLinkResolver resolves the links of a module the same way the web view does for the
+ *  standalone module page.
+ */
+class ArtifactLinkResolver implements LinkResolver {
+    private static final Logger log = Logger.getLogger(ArtifactLinkResolver.class.getName());
+
+    private final String repositoryAtomPubUrl;
+    private final Provider<Module> moduleProvider;
+    private final Provider<ResourceIndex> resourceIndexProvider;
+
+    ArtifactLinkResolver(String repositoryAtomPubUrl, Provider<Module> moduleProvider,
+            Provider<ResourceIndex> resourceIndexProvider) {
+        this.repositoryAtomPubUrl = repositoryAtomPubUrl;
+        this.moduleProvider = moduleProvider;
+        this.resourceIndexProvider = resourceIndexProvider;
+    }
+
+    @Override public URI resolveUri(URI uri) throws Exception {
+        if (uri.isAbsolute() || (Strings.isNullOrEmpty(uri.getSchemeSpecificPart())
+                && !Strings.isNullOrEmpty(uri.getFragment()))) {
+            return uri;
+        }
+        return resolveResource(null, null, uri);
+    }
+
+    @Override public URI resolveDocument(String moduleId, @Nullable String moduleVersion)
+            throws Exception {
+        return RenderArtifacts.getModuleUri(moduleId, moduleVersion);
+    }
+
+    @Override public URI resolveResource(@Nullable String document, @Nullable String version,
+            URI resource) throws Exception {
+        if (document != null || version != null) {
+            return null;
+        }
+        final String resourceId = resourceIndexProvider.get().getResourceId(resource);
+        if (resourceId != null) {
+            return RenderArtifacts.getResourceUri(repositoryAtomPubUrl, resourceId);
+        }
+        log.warning("Module " + moduleProvider.get().getId() + " has no resource " + resource);
+        return resource;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.common.render;
+
+import com.google.common.base.Charsets;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.multibindings.Multibinder;
+import com.google.inject.name.Names;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import javax.xml.parsers.SAXParser;
+
+import org.cnx.cnxml.CnxmlModule;
+import org.cnx.cnxml.DefaultProcessorModule;
+import org.cnx.cnxml.LinkProcessor;
+import org.cnx.cnxml.LinkResolver;
+import org.cnx.cnxml.Module;
+import org.cnx.cnxml.ModuleFactory;
+import org.cnx.cnxml.ModuleHtmlGenerator;
+import org.cnx.cnxml.Processor;
+import org.cnx.cnxml.ResourceIndex;
+import org.cnx.common.jaxb.JaxbRegistry;
+import org.cnx.mdml.MdmlModule;
+import org.cnx.resourcemapping.Resources;
+import org.cnx.util.RenderScope;
+import org.cnx.util.RenderTime;
+import org.cnx.util.UtilModule;
+
+import org.jdom.Document;
+import org.jdom.input.SAXHandler;
+
+/**
+ *  ModuleArtifactRenderer renders the content HTML of module versions outside of the web view,
+ *  with the same pipeline and link rules as the standalone module page of the web view.  See
+ *  {@link RenderArtifacts}.
+ *  <p>
+ *  A renderer is expensive to create and may be shared by threads.
+ */
+public class ModuleArtifactRenderer {
+    /**
+     *  The web view renders with Xalan; other XSLT processors may produce different MathML.
+     */
+    private static final String TRANSFORMER_FACTORY =
+            "org.apache.xalan.processor.TransformerFactoryImpl";
+
+    private final String fingerprint;
+    private final Injector injector;
+
+    private static class RendererModule extends AbstractModule {
+        private final String repositoryAtomPubUrl;
+
+        RendererModule(String repositoryAtomPubUrl) {
+            this.repositoryAtomPubUrl = repositoryAtomPubUrl;
+        }
+
+        @Override protected void configure() {
+            bind(String.class)
+                    .annotatedWith(Names.named("javax.xml.transform.TransformerFactory"))
+                    .toInstance(TRANSFORMER_FACTORY);
+            bind(LinkResolver.class).toInstance(new ArtifactLinkResolver(repositoryAtomPubUrl,
+                    getProvider(Module.class), getProvider(ResourceIndex.class)));
+
+            Multibinder<Processor> processorBinder =
+                    Multibinder.newSetBinder(binder(), Processor.class);
+            processorBinder.addBinding().to(LinkProcessor.class);
+
+            install(new CnxmlModule());
+            install(new DefaultProcessorModule());
+            install(new MdmlModule());
+            install(new UtilModule());
+        }
+
+        @Provides @RenderTime Module provideModule() {
+            // Placeholder to make Guice happy. The real module is seeded in-scope.
+            return null;
+        }
+
+        @Provides @RenderTime ResourceIndex provideResourceIndex() {
+            // Placeholder to make Guice happy. The real index is seeded in-scope.
+            return null;
+        }
+    }
+
+    /**
+     *  @param repositoryAtomPubUrl AtomPub URL of the repository, as seen by the web view.
+     *          Resource links point at it.
+     */
+    public ModuleArtifactRenderer(String repositoryAtomPubUrl) {
+        this.fingerprint = RenderArtifacts.getFingerprint(repositoryAtomPubUrl);
+        this.injector = Guice.createInjector(new RendererModule(repositoryAtomPubUrl));
+    }
+
+    /**
+     *  getFingerprint returns the renderer fingerprint of the artifacts of this renderer.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     *  render generates the content HTML of a module version.
+     *
+     *  @param moduleId The module ID
+     *  @param version The module version
+     *  @param cnxml The CNXML document of the module version
+     *  @param resourceMappingXml The resource mapping document of the module version
+     *  @return The content HTML, as the web view would generate it
+     */
+    public String render(String moduleId, String version, String cnxml,
+            String resourceMappingXml) throws Exception {
+        final SAXHandler handler = new SAXHandler();
+        injector.getInstance(SAXParser.class).parse(
+                new ByteArrayInputStream(cnxml.getBytes(Charsets.UTF_8)), handler);
+        final Document document = handler.getDocument();
+        final Resources resources =
+                JaxbRegistry.unmarshal(Resources.class, new StringReader(resourceMappingXml));
+        final Module module = injector.getInstance(ModuleFactory.class).create(moduleId, version,
+                document, resources);
+
+        final RenderScope renderScope = injector.getInstance(RenderScope.class);
+        renderScope.enter();
+        try {
+            renderScope.seed(Module.class, module);
+            renderScope.seed(ResourceIndex.class, ResourceIndex.forModule(module));
+            return injector.getInstance(ModuleHtmlGenerator.class).generate(module);
+        } finally {
+            renderScope.exit();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.common.render;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Charsets;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.annotation.Nullable;
+
+import org.cnx.common.repository.atompub.CnxAtomPubUtils;
+import org.cnx.common.repository.atompub.ServletUris;
+
+/**
+ *  RenderArtifacts holds what the repository and the web view must agree on for the repository
+ *  to render module content ahead of time and for the web view to serve it.
+ *  <p>
+ *  A render artifact is the content HTML of a module version, as generated for the standalone
+ *  module page.  Artifacts are stored under a renderer fingerprint, which covers everything
+ *  besides the module version that the HTML depends on.  An artifact is only used by a web view
+ *  that computes the same fingerprint; any other web view renders the module itself.
+ */
+public final class RenderArtifacts {
+    /**
+     *  Version of the HTML generated from CNXML.  Should be incremented whenever a change to
+     *  lib/cnxml, or to the link rules below, changes the generated HTML, so that artifacts
+     *  rendered by older code are not served.
+     */
+    public static final int RENDERER_VERSION = 1;
+
+    /**
+     *  Path prefix of the pages of the web view.
+     */
+    public static final String WEBVIEW_URL_PREFIX = "/content";
+
+    /**
+     *  Number of hex digits of the SHA-256 hash used as fingerprint.
+     */
+    private static final int FINGERPRINT_LENGTH = 16;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private RenderArtifacts() {
+    }
+
+    /**
+     *  getFingerprint returns the renderer fingerprint of artifacts whose resource links point at
+     *  the given repository.
+     *
+     *  @param repositoryAtomPubUrl AtomPub URL of the repository, as seen by the web view
+     */
+    public static String getFingerprint(String repositoryAtomPubUrl) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        final String source = RENDERER_VERSION + "|" + WEBVIEW_URL_PREFIX + "|"
+                + checkNotNull(repositoryAtomPubUrl);
+        final byte[] hash = digest.digest(source.getBytes(Charsets.UTF_8));
+        final StringBuilder sb = new StringBuilder(FINGERPRINT_LENGTH);
+        for (int i = 0; i < FINGERPRINT_LENGTH / 2; i++) {
+            sb.append(HEX_DIGITS[(hash[i] >> 4) & 0xf]).append(HEX_DIGITS[hash[i] & 0xf]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     *  getModuleUri returns the web view URI of a module page.
+     *
+     *  @param moduleId The module ID
+     *  @param version The module version, or null for the latest version
+     */
+    public static URI getModuleUri(String moduleId, @Nullable String version)
+            throws URISyntaxException {
+        return new URI(WEBVIEW_URL_PREFIX + ServletUris.Module.MODULE_SERVLET + "/" + moduleId
+                + "/" + (version != null ? version : CnxAtomPubUtils.LATEST_VERSION_STRING));
+    }
+
+    /**
+     *  getResourceUri returns the URI from which the repository serves a resource.
+     *
+     *  @param repositoryAtomPubUrl AtomPub URL of the repository
+     *  @param resourceId The resource ID
+     */
+    public static URI getResourceUri(String repositoryAtomPubUrl, String resourceId)
+            throws URISyntaxException {
+        return new URI(repositoryAtomPubUrl + ServletUris.Resource.RESOURCE_SERVLET + "/"
+                + resourceId);
+    }
+}
@@ -46,6 +46,10 @@ public class ContentType {
     // Labview : Texas Instruments.
     public static final String LLB = "application/octet-stream";
     
+    // Used for raw transfer of Module and Collection Versions. See
+    // org.cnx.common.repository.atompub.MultipartRelated.
+    public static final String MULTIPART_RELATED = "multipart/related";
+    
     // Wolfram : NBP : Wolfram format. Reference : http://www.wolfram.com/technology/nb/
     public static final String NBP = "application/mathematica";
     
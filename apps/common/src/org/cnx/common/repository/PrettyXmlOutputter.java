@@ -27,7 +27,9 @@ import org.jdom.output.Format;
 import org.jdom.output.XMLOutputter;
 
 import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
 import com.sun.syndication.io.FeedException;
+import com.sun.syndication.io.WireFeedOutput;
 import com.sun.syndication.io.impl.Atom10Generator;
 
 /**
@@ -38,6 +40,9 @@ import com.sun.syndication.io.impl.Atom10Generator;
  * TODO(arjuns) : Rename this to StringConverter or some better name.
  */
 public class PrettyXmlOutputter {
+    /** Rome feed type for Atom feeds. */
+    public static final String ATOM_FEED_TYPE = "atom_1.0";
+
     // Utility class.
     private PrettyXmlOutputter() {
     }
@@ -65,4 +70,15 @@ public class PrettyXmlOutputter {
         }
         return writer.toString();
     }
+
+    public static String prettyXmlOutputFeed(Feed feed) throws CnxException {
+        feed.setFeedType(ATOM_FEED_TYPE);
+        try {
+            return new WireFeedOutput().outputString(feed);
+        } catch (IllegalArgumentException e) {
+            throw new CnxInternalServerErrorException("Invalid XML", e);
+        } catch (FeedException e) {
+            throw new CnxInternalServerErrorException("FeedException", e);
+        }
+    }
 }
@@ -25,4 +25,15 @@ public class RepositoryConstants {
      * Collections, modules and resource auto ids are allocated starting from this value.
      */
     public static final long MIN_NON_RESERVED_KEY_ID = 300000;
+
+    /**
+     * Max number of Module Versions that can be fetched in one batch request. Module Versions carry
+     * their CNXML, so this is kept small to bound the response size.
+     */
+    public static final int MAX_MODULE_VERSIONS_PER_BATCH = 100;
+
+    /**
+     * Max number of Modules whose information can be fetched in one batch request.
+     */
+    public static final int MAX_MODULE_INFOS_PER_BATCH = 500;
 }
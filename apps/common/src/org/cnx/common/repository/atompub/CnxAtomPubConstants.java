@@ -184,6 +184,20 @@ public class CnxAtomPubConstants {
         }
     }
 
+    /** Get URL for the render artifact of a ModuleVersion. */
+    public URL getModuleVersionRenderArtifactAbsPath(IdWrapper moduleId, VersionWrapper version,
+            String fingerprint) {
+        try {
+            return new URL(getModuleVersionAbsPath(moduleId, version).toString() + "/"
+                    + ServletUris.RENDER_ARTIFACT + "/" + fingerprint);
+        } catch (MalformedURLException e) {
+            logger.severe("Failed to create URL due to : " + Throwables.getStackTraceAsString(e));
+
+            // TODO(arjuns): Create a CNXAtomPubException to handle this.
+            throw new RuntimeException(e);
+        }
+    }
+
     /*
      * Methods to handle Collections.
      */
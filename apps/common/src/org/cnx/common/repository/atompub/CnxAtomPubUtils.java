@@ -20,23 +20,23 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.sun.syndication.feed.atom.Content;
 import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
 import com.sun.syndication.io.FeedException;
+import com.sun.syndication.io.WireFeedInput;
 import com.sun.syndication.io.impl.Atom10Parser;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import org.apache.commons.codec.binary.Base64;
+import org.cnx.common.jaxb.JaxbRegistry;
 import org.cnx.resourceentry.ResourceEntryValue;
 import org.cnx.resourcemapping.LocationInformation;
 import org.cnx.resourcemapping.Repository;
@@ -265,15 +265,7 @@ public class CnxAtomPubUtils {
     @SuppressWarnings("rawtypes")
     public static String jaxbObjectToString(Class rootClass, Object jaxbObject) 
             throws JAXBException {
-        StringWriter stringWriter = new StringWriter();
-        JAXBContext jaxbContext = JAXBContext.newInstance(jaxbObject.getClass());
-
-        Marshaller marshaller = jaxbContext.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_ENCODING, Charsets.UTF_8.displayName());
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        marshaller.marshal(jaxbObject, stringWriter);
-
-        return stringWriter.toString();
+        return JaxbRegistry.marshal(jaxbObject);
     }
 
     /**
@@ -302,6 +294,20 @@ public class CnxAtomPubUtils {
         return Atom10Parser.parseEntry(new InputStreamReader(is), null/* baseUri */);
     }
 
+    /**
+     * Converts a given XML to Atom Feed.
+     * 
+     * @param xml Input XML.
+     * @return AtomFeed.
+     * 
+     * @throws IllegalArgumentException
+     * @throws FeedException
+     */
+    public static Feed parseXmlToFeed(String xml) throws IllegalArgumentException,
+            FeedException {
+        return (Feed) new WireFeedInput().build(new StringReader(xml));
+    }
+
     /**
      * Get title from TextConstruct
      */
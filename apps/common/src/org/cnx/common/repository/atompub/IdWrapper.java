@@ -17,6 +17,7 @@ package org.cnx.common.repository.atompub;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.google.common.base.Objects;
 import org.cnx.common.repository.RepositoryConstants;
 
 import org.cnx.common.exceptions.CnxInvalidUrlException;
@@ -182,6 +183,11 @@ public class IdWrapper {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id, type);
+    }
+
     /**
      * Types of Ids supported.
      */
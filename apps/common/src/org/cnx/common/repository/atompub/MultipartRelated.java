@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.common.repository.atompub;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharStreams;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.cnx.common.repository.ContentType;
+
+/**
+ * Reads and writes the multipart/related (RFC 2387) bodies used for raw transfer of Module and
+ * Collection Versions.
+ *
+ * Base64 transfer wraps CNXML and ResourceMapping XML in a carrier document, encodes it and puts
+ * it inside an Atom Entry. Raw transfer instead sends each document as a separate part, as is,
+ * so neither side has to encode, decode or copy the documents. Parts are identified by their
+ * Content-ID. The optional root part is an Atom Entry without content, which carries the id,
+ * version and links.
+ *
+ * All parts are text, so bodies are handled as characters and written in UTF-8 by the caller.
+ *
+ * @author Arjun Satyapal
+ */
+public class MultipartRelated {
+    /** Content-ID of the Atom Entry carrying id, version and links. */
+    public static final String ENTRY_PART = "entry";
+    /** Content-ID of the CNXML of a Module Version. */
+    public static final String CNXML_PART = "cnxml";
+    /** Content-ID of the ResourceMapping XML of a Module Version. */
+    public static final String RESOURCE_MAPPING_PART = "resource-mapping";
+    /** Content-ID of the CollXml of a Collection Version. */
+    public static final String COLLXML_PART = "collxml";
+
+    private static final String CRLF = "\r\n";
+    private static final Pattern BOUNDARY_PATTERN =
+            Pattern.compile(";\\s*boundary=(?:\"([^\"]+)\"|([^;\\s]+))", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONTENT_ID_PATTERN =
+            Pattern.compile("^content-id:\\s*<?([^>\\s]+)>?\\s*$",
+                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+    // Utility class.
+    private MultipartRelated() {
+    }
+
+    /**
+     * Returns a new random boundary. Boundaries are never searched for inside the XML, so they
+     * only need to be unlikely to appear in it.
+     */
+    public static String newBoundary() {
+        return "cnx-" + UUID.randomUUID().toString();
+    }
+
+    /**
+     * Returns true if the given Accept or Content-Type header asks for raw transfer.
+     */
+    public static boolean isMultipartRelated(String headerValue) {
+        return headerValue != null
+                && headerValue.toLowerCase().contains(ContentType.MULTIPART_RELATED);
+    }
+
+    /**
+     * Returns value for Content-Type header of a body written with given boundary.
+     *
+     * @param boundary Boundary separating the parts.
+     * @param rootType Content type of the first part.
+     */
+    public static String getContentType(String boundary, String rootType) {
+        return new StringBuilder(ContentType.MULTIPART_RELATED)
+                .append("; type=\"").append(rootType)
+                .append("\"; boundary=\"").append(boundary).append('"')
+                .toString();
+    }
+
+    /**
+     * Extracts the boundary from a multipart/related Content-Type header.
+     *
+     * @throws IllegalArgumentException if the header has no boundary.
+     */
+    public static String getBoundary(String contentType) {
+        checkArgument(isMultipartRelated(contentType), "Not multipart/related : %s", contentType);
+        Matcher matcher = BOUNDARY_PATTERN.matcher(contentType);
+        checkArgument(matcher.find(), "Missing boundary : %s", contentType);
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    /**
+     * Writes one part. Parts are written in the order of the calls, and must be followed by
+     * {@link #writeEnd}.
+     */
+    public static void writePart(Writer out, String boundary, String contentId,
+            String contentType, String body) throws IOException {
+        out.write("--");
+        out.write(boundary);
+        out.write(CRLF);
+        out.write("Content-Type: ");
+        out.write(contentType);
+        out.write(CRLF);
+        out.write("Content-ID: <");
+        out.write(contentId);
+        out.write(">");
+        out.write(CRLF);
+        out.write(CRLF);
+        out.write(checkNotNull(body));
+        out.write(CRLF);
+    }
+
+    /**
+     * Writes the close delimiter and flushes the writer.
+     */
+    public static void writeEnd(Writer out, String boundary) throws IOException {
+        out.write("--");
+        out.write(boundary);
+        out.write("--");
+        out.write(CRLF);
+        out.flush();
+    }
+
+    /**
+     * Reads all parts of a multipart/related body.
+     *
+     * @return Map from Content-ID (without angle brackets) to part body.
+     * @throws IllegalArgumentException if the body is malformed.
+     */
+    public static Map<String, String> readParts(Reader in, String boundary) throws IOException {
+        String body = CharStreams.toString(in);
+        String delimiter = "--" + boundary;
+        String bodyDelimiter = CRLF + delimiter;
+
+        int position = body.startsWith(delimiter) ? 0 : body.indexOf(bodyDelimiter);
+        checkArgument(position >= 0, "Missing boundary : %s", boundary);
+        position = body.indexOf(delimiter, position) + delimiter.length();
+
+        ImmutableMap.Builder<String, String> parts = ImmutableMap.builder();
+        while (!body.startsWith("--", position)) {
+            checkArgument(body.startsWith(CRLF, position), "Malformed boundary line.");
+            int headersStart = position + CRLF.length();
+            int headersEnd = body.indexOf(CRLF + CRLF, headersStart);
+            checkArgument(headersEnd >= 0, "Malformed part headers.");
+
+            Matcher contentId =
+                    CONTENT_ID_PATTERN.matcher(body.substring(headersStart, headersEnd));
+            checkArgument(contentId.find(), "Part without Content-ID.");
+
+            int partStart = headersEnd + 2 * CRLF.length();
+            int partEnd = body.indexOf(bodyDelimiter, partStart);
+            checkArgument(partEnd >= 0, "Missing close delimiter.");
+
+            parts.put(contentId.group(1), body.substring(partStart, partEnd));
+            position = partEnd + bodyDelimiter.length();
+        }
+
+        return parts.build();
+    }
+}
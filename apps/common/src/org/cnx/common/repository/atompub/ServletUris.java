@@ -33,8 +33,11 @@ public class ServletUris {
 
     public static final String INFORMATION = "info";
     public static final String MIGRATION = "migration";
+    public static final String BATCH = "batch";
     public static final String XML_DOC = "xml";
     public static final String RESOURCE_MAPPING_DOC = "resources";
+    public static final String RENDER_ARTIFACT = "render";
+    public static final String RENDER_FINGERPRINT_PATH_PARAM = "fingerprint";
 
     public static class ServiceDocument {
         /** Name for CNX Workspace under ServiceDocument. */
@@ -166,6 +169,32 @@ public class ServletUris {
          */
         public static final String MODULE_VERSION_RESOURCE_MAPPING = MODULE_VERSION_PATH + "/"
                 + RESOURCE_MAPPING_DOC;
+
+        /**
+         * URI relative to : {@link #MODULE_VERSION_PATH}
+         * 
+         * In order to fetch the content HTML rendered at publish time for a Module-Version,
+         * clients should do HTTP Get on this URI. See
+         * {@link org.cnx.common.render.RenderArtifacts}.
+         */
+        public static final String MODULE_VERSION_RENDER_ARTIFACT = MODULE_VERSION_PATH + "/"
+                + RENDER_ARTIFACT + "/{" + RENDER_FINGERPRINT_PATH_PARAM + "}";
+
+        /**
+         * URI relative to : {@link #MODULE_SERVLET}
+         * 
+         * In order to fetch many Module-Versions in one request, clients should do HTTP Post on
+         * this URI with a Feed containing one Entry per desired Module-Version.
+         */
+        public static final String MODULE_BATCH = "/" + BATCH;
+
+        /**
+         * URI relative to : {@link #MODULE_BATCH}
+         * 
+         * In order to fetch information of many Modules in one request, clients should do HTTP
+         * Post on this URI with a Feed containing one Entry per desired Module.
+         */
+        public static final String MODULE_BATCH_INFO = MODULE_BATCH + "/" + INFORMATION;
     }
 
     public static class Collection {
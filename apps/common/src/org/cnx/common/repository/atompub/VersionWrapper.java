@@ -20,6 +20,7 @@ import static org.cnx.common.repository.atompub.CnxAtomPubUtils.LATEST_VERSION_S
 import org.cnx.common.exceptions.CnxInvalidUrlException;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 
 /**
  * This is to wrap version in a TypeSafe object. Version has two possible values : * latest *
@@ -55,6 +56,11 @@ public class VersionWrapper {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(version);
+    }
+
     public VersionWrapper getNextVersion() {
         if (version == null) {
             throw new IllegalStateException("getNext operation is not valid for version="
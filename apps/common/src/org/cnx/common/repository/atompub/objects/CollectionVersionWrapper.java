@@ -15,13 +15,19 @@
  */
 package org.cnx.common.repository.atompub.objects;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.io.FeedException;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Map;
 import org.cnx.common.repository.atompub.CnxAtomPubLinkRelations;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.cnx.common.repository.atompub.VersionWrapper;
+import org.jdom.JDOMException;
 
 /**
  * Wrapper object for CNX Collection Version.
@@ -49,14 +55,32 @@ public class CollectionVersionWrapper extends AtomPubResource {
 
     public static CollectionVersionWrapper fromEntry(Entry entry) throws URISyntaxException,
             IOException {
-        IdWrapper id = CnxAtomPubUtils.getIdFromAtomPubId(entry.getId());
-        VersionWrapper version = CnxAtomPubUtils.getVersionFromAtomPubId(entry.getId());
-
         String encodedCollectionXml = CnxAtomPubUtils.getContentAsString(entry.getContents());
         String decodedCollectionXml = CnxAtomPubUtils.decodeFromBase64EncodedString(encodedCollectionXml);
 
+        return fromEntry(entry, decodedCollectionXml);
+    }
+
+    /**
+     * Builds a CollectionVersionWrapper from the parts of a raw transfer. See
+     * {@link MultipartRelated}.
+     */
+    public static CollectionVersionWrapper fromParts(Map<String, String> parts)
+            throws URISyntaxException, JDOMException, IOException, FeedException {
+        String entryXml = parts.get(MultipartRelated.ENTRY_PART);
+        String collectionXml = parts.get(MultipartRelated.COLLXML_PART);
+        checkArgument(entryXml != null && collectionXml != null, "Missing parts : %s",
+                parts.keySet());
+
+        return fromEntry(CnxAtomPubUtils.parseXmlToEntry(entryXml), collectionXml);
+    }
+
+    private static CollectionVersionWrapper fromEntry(Entry entry, String collectionXml)
+            throws URISyntaxException {
+        IdWrapper id = CnxAtomPubUtils.getIdFromAtomPubId(entry.getId());
+        VersionWrapper version = CnxAtomPubUtils.getVersionFromAtomPubId(entry.getId());
         CollectionVersionWrapper collection =
-                new CollectionVersionWrapper(id, version, decodedCollectionXml);
+                new CollectionVersionWrapper(id, version, collectionXml);
 
         collection.setSelfUri(CnxAtomPubLinkRelations.getSelfUri(entry));
         collection.setEditUri(CnxAtomPubLinkRelations.getEditUri(entry));
@@ -15,12 +15,17 @@
  */
 package org.cnx.common.repository.atompub.objects;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.io.FeedException;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Map;
 import org.cnx.common.repository.atompub.CnxAtomPubLinkRelations;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.cnx.common.repository.atompub.VersionWrapper;
 import org.jdom.JDOMException;
 
@@ -54,9 +59,6 @@ public class ModuleVersionWrapper extends AtomPubResource {
 
     public static ModuleVersionWrapper fromEntry(Entry entry) throws URISyntaxException,
             JDOMException, IOException {
-        IdWrapper id = CnxAtomPubUtils.getIdFromAtomPubId(entry.getId());
-        VersionWrapper version = CnxAtomPubUtils.getVersionFromAtomPubId(entry.getId());
-
         String encodedModuleVersionCarrierXml =
                 CnxAtomPubUtils.getContentAsString(entry.getContents());
         String decodedModuleVersionCarrierXml =
@@ -68,6 +70,28 @@ public class ModuleVersionWrapper extends AtomPubResource {
                 CnxAtomPubUtils
                         .getResourceMappingDocFromModuleEntryXml(decodedModuleVersionCarrierXml);
 
+        return fromEntry(entry, cnxml, resourceMappingXml);
+    }
+
+    /**
+     * Builds a ModuleVersionWrapper from the parts of a raw transfer. See
+     * {@link MultipartRelated}.
+     */
+    public static ModuleVersionWrapper fromParts(Map<String, String> parts)
+            throws URISyntaxException, JDOMException, IOException, FeedException {
+        String entryXml = parts.get(MultipartRelated.ENTRY_PART);
+        String cnxml = parts.get(MultipartRelated.CNXML_PART);
+        String resourceMappingXml = parts.get(MultipartRelated.RESOURCE_MAPPING_PART);
+        checkArgument(entryXml != null && cnxml != null && resourceMappingXml != null,
+                "Missing parts : %s", parts.keySet());
+
+        return fromEntry(CnxAtomPubUtils.parseXmlToEntry(entryXml), cnxml, resourceMappingXml);
+    }
+
+    private static ModuleVersionWrapper fromEntry(Entry entry, String cnxml,
+            String resourceMappingXml) throws URISyntaxException {
+        IdWrapper id = CnxAtomPubUtils.getIdFromAtomPubId(entry.getId());
+        VersionWrapper version = CnxAtomPubUtils.getVersionFromAtomPubId(entry.getId());
         ModuleVersionWrapper module =
                 new ModuleVersionWrapper(id, version, cnxml, resourceMappingXml);
 
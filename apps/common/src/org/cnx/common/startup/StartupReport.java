@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.common.startup;
+
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Durations of the static initialization phases of this instance, for finding what slows down
+ * cold starts.
+ * <p>
+ * A phase is timed by calling {@link #start} when it begins and {@link #record} when it ends.
+ * Phases may nest, e.g. a singleton initialized while another one is, so their durations do not
+ * necessarily add up. Each phase is also logged when recorded.
+ *
+ * @author Tal Dayan
+ */
+public class StartupReport {
+    private static final Logger log = Logger.getLogger(StartupReport.class.getName());
+
+    /** Phase -> duration in millis, in recording order. Guarded by itself. */
+    private static final Map<String, Long> phaseMillis = Maps.newLinkedHashMap();
+
+    /** Get the start time of a phase, to be passed to {@link #record}. */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the end of a phase. If a phase with the same name was already recorded, its duration
+     * is replaced.
+     *
+     * @param startNanos the value returned by {@link #start} when the phase began.
+     */
+    public static void record(String phase, long startNanos) {
+        final long millis = (System.nanoTime() - startNanos) / 1000000;
+        synchronized (phaseMillis) {
+            phaseMillis.put(phase, millis);
+        }
+        log.info("Startup phase [" + phase + "] took " + millis + "ms");
+    }
+
+    /** Get the recorded phase durations in millis, in recording order. */
+    public static ImmutableMap<String, Long> getPhaseMillis() {
+        synchronized (phaseMillis) {
+            return ImmutableMap.copyOf(phaseMillis);
+        }
+    }
+
+    /** Get a plain text report with a line per phase. */
+    public static String getReport() {
+        final StringBuilder builder = new StringBuilder("Startup phases\n");
+        for (Map.Entry<String, Long> entry : getPhaseMillis().entrySet()) {
+            builder.append(String.format("%s: %dms\n", entry.getKey(), entry.getValue()));
+        }
+        return builder.toString();
+    }
+}
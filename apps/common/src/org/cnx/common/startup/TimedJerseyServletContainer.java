@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.common.startup;
+
+import javax.servlet.ServletException;
+
+import com.sun.jersey.spi.container.servlet.ServletContainer;
+
+/**
+ * The Jersey servlet, with its initialization, which scans the resource packages, recorded in the
+ * {@link StartupReport}.
+ *
+ * @author Tal Dayan
+ */
+@SuppressWarnings("serial")
+public class TimedJerseyServletContainer extends ServletContainer {
+    @Override
+    public void init() throws ServletException {
+        final long startNanos = StartupReport.start();
+        super.init();
+        StartupReport.record("Jersey", startNanos);
+    }
+}
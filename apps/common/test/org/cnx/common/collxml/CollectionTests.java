@@ -116,4 +116,31 @@ public class CollectionTests {
         assertEquals(links.get(1), result[0]);
         assertNull(result[1]);
     }
+
+    @Test public void getModuleIndexShouldCountModulesInOrder() {
+        final Collection coll = new Collection("col123", "42", collxml, null,
+                ImmutableList.<CollectionItem>of(
+                        new ModuleLink(0, 0, "m01", "latest", null),
+                        new Subcollection(0, 1, ImmutableList.<CollectionItem>of(
+                                new ModuleLink(1, 0, "m02", "latest", null),
+                                new ModuleLink(1, 1, "m03", "latest", null)
+                        ), null)
+                ));
+        assertEquals(0, coll.getModuleIndex("m01"));
+        assertEquals(2, coll.getModuleIndex("m03"));
+        assertEquals(-1, coll.getModuleIndex("m04"));
+        assertEquals("m03", coll.getModuleLink("m03").getModuleId());
+        assertNull(coll.getModuleLink("m04"));
+    }
+
+    @Test public void getModuleIndexShouldUseFirstLinkToModule() {
+        final Collection coll = new Collection("col123", "42", collxml, null,
+                ImmutableList.<CollectionItem>of(
+                        new ModuleLink(0, 0, "m01", "latest", null),
+                        new ModuleLink(0, 1, "m02", "latest", null),
+                        new ModuleLink(0, 2, "m01", "3", null)
+                ));
+        assertEquals(0, coll.getModuleIndex("m01"));
+        assertEquals("latest", coll.getModuleLink("m01").getModuleVersion());
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.common.jaxb;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.cnx.common.repository.atompub.CnxAtomPubUtils;
+import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.resourcemapping.Resources;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link JaxbRegistry}
+ * 
+ * @author Arjun Satyapal
+ */
+public class JaxbRegistryTests {
+    @Test
+    public void testContextIsCreatedOnce() throws Exception {
+        assertSame(JaxbRegistry.getContext(Resources.class),
+                JaxbRegistry.getContext(Resources.class));
+
+        final long creations = JaxbRegistry.getContextCreations();
+        JaxbRegistry.getContext(Resources.class);
+        assertEquals(creations, JaxbRegistry.getContextCreations());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Map<String, IdWrapper> mapPrettyNameToResourceId = ImmutableMap.of(
+                "image.png", new IdWrapper("r0001", IdWrapper.Type.RESOURCE));
+        final String xml =
+                CnxAtomPubUtils.getResourceMappingXmlFromResources(mapPrettyNameToResourceId);
+
+        final Resources resources = JaxbRegistry.unmarshal(Resources.class, new StringReader(xml));
+        assertEquals(1, resources.getResource().size());
+        assertEquals("image.png", resources.getResource().get(0).getName());
+        assertEquals("r0001", resources.getResource().get(0).getLocationInformation()
+                .getRepository().getResourceId());
+
+        // Reused marshallers must produce the same document.
+        assertEquals(xml, JaxbRegistry.marshal(resources));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.common.render;
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.cnx.common.repository.atompub.CnxAtomPubUtils;
+import org.cnx.common.repository.atompub.IdWrapper;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ModuleArtifactRendererTests {
+    private static final String ATOMPUB_URL = "http://repository.example.com/atompub";
+
+    private static final String CNXML =
+            "<document xmlns=\"http://cnx.rice.edu/cnxml\" id=\"m0001\" cnxml-version=\"0.7\">"
+            + "<title>Sample</title>"
+            + "<content>"
+            + "<para id=\"p1\">See <link document=\"m0002\">the next module</link>, "
+            + "<link document=\"m0003\" version=\"4\">another one</link> and "
+            + "<link resource=\"graph.png\">the graph</link>.</para>"
+            + "<figure id=\"f1\"><media id=\"media1\" alt=\"graph\">"
+            + "<image mime-type=\"image/png\" src=\"graph.png\"/></media></figure>"
+            + "<para id=\"p2\"><link url=\"missing.png\">missing</link></para>"
+            + "</content>"
+            + "</document>";
+
+    private static ModuleArtifactRenderer renderer;
+    private static String resourceMappingXml;
+
+    @BeforeClass public static void createRenderer() throws Exception {
+        renderer = new ModuleArtifactRenderer(ATOMPUB_URL);
+        resourceMappingXml = CnxAtomPubUtils.getResourceMappingXmlFromResources(
+                ImmutableMap.of("graph.png", new IdWrapper("r0042", IdWrapper.Type.RESOURCE)));
+    }
+
+    @Test public void fingerprintShouldDependOnRepository() {
+        assertEquals(RenderArtifacts.getFingerprint(ATOMPUB_URL), renderer.getFingerprint());
+        assertEquals(16, renderer.getFingerprint().length());
+        assertFalse(renderer.getFingerprint().equals(
+                RenderArtifacts.getFingerprint("http://other.example.com/atompub")));
+    }
+
+    @Test public void renderShouldResolveLinksForStandalonePage() throws Exception {
+        final String html = renderer.render("m0001", "1", CNXML, resourceMappingXml);
+
+        assertTrue(html, html.contains("href=\"/content/module/m0002/latest\""));
+        assertTrue(html, html.contains("href=\"/content/module/m0003/4\""));
+        assertTrue(html, html.contains("href=\"" + ATOMPUB_URL + "/resource/r0042\""));
+        assertTrue(html, html.contains("src=\"" + ATOMPUB_URL + "/resource/r0042\""));
+        // Unknown resources are left as they are.
+        assertTrue(html, html.contains("href=\"missing.png\""));
+    }
+
+    @Test public void renderShouldBeRepeatable() throws Exception {
+        assertEquals(renderer.render("m0001", "1", CNXML, resourceMappingXml),
+                renderer.render("m0001", "1", CNXML, resourceMappingXml));
+    }
+}
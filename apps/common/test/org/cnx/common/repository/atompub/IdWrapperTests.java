@@ -121,5 +121,6 @@ public class IdWrapperTests {
         IdWrapper another = new IdWrapper("m0001", IdWrapper.Type.MODULE);
         
         assertEquals(one, another);
+        assertEquals(one.hashCode(), another.hashCode());
     }
 }
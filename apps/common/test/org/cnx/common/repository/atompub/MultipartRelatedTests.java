@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.common.repository.atompub;
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.Lists;
+import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Link;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import org.cnx.common.repository.ContentType;
+import org.cnx.common.repository.PrettyXmlOutputter;
+import org.cnx.common.repository.atompub.objects.CollectionVersionWrapper;
+import org.cnx.common.repository.atompub.objects.ModuleVersionWrapper;
+import org.junit.Test;
+
+/**
+ * Test for {@link MultipartRelated}
+ *
+ * @author Arjun Satyapal
+ */
+public class MultipartRelatedTests {
+    private static final String BOUNDARY = MultipartRelated.newBoundary();
+
+    private static final String CNXML =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+                    + "<document id=\"m0001\">\n<content><para>-- a &amp; b \u00e9</para>"
+                    + "</content>\n</document>\n";
+    private static final String RESOURCE_MAPPING =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<resources/>";
+
+    private static Entry createEntry(IdWrapper id, VersionWrapper version) {
+        Entry entry = new Entry();
+        entry.setId(CnxAtomPubUtils.getAtomPubIdFromCnxIdAndVersion(id, version));
+
+        List<Link> links = Lists.newArrayList();
+        for (CnxAtomPubLinkRelations relation : new CnxAtomPubLinkRelations[] {
+                CnxAtomPubLinkRelations.SELF, CnxAtomPubLinkRelations.EDIT }) {
+            Link link = new Link();
+            link.setRel(relation.getLinkRelation());
+            link.setHref("http://localhost/atompub/" + relation.getLinkRelation());
+            links.add(link);
+        }
+        entry.setOtherLinks(links);
+        return entry;
+    }
+
+    private static String write(String entryXml, String... contentIdsAndBodies)
+            throws Exception {
+        StringWriter writer = new StringWriter();
+        if (entryXml != null) {
+            MultipartRelated.writePart(writer, BOUNDARY, MultipartRelated.ENTRY_PART,
+                    ContentType.APPLICATION_ATOM_XML, entryXml);
+        }
+        for (int i = 0; i < contentIdsAndBodies.length; i += 2) {
+            MultipartRelated.writePart(writer, BOUNDARY, contentIdsAndBodies[i],
+                    ContentType.TEXT_XML_UTF8, contentIdsAndBodies[i + 1]);
+        }
+        MultipartRelated.writeEnd(writer, BOUNDARY);
+        return writer.toString();
+    }
+
+    @Test
+    public void testReadParts() throws Exception {
+        String body = write(null, MultipartRelated.CNXML_PART, CNXML,
+                MultipartRelated.RESOURCE_MAPPING_PART, RESOURCE_MAPPING, "empty", "");
+
+        Map<String, String> parts =
+                MultipartRelated.readParts(new StringReader(body), BOUNDARY);
+        assertEquals(3, parts.size());
+        assertEquals(CNXML, parts.get(MultipartRelated.CNXML_PART));
+        assertEquals(RESOURCE_MAPPING, parts.get(MultipartRelated.RESOURCE_MAPPING_PART));
+        assertEquals("", parts.get("empty"));
+    }
+
+    @Test
+    public void testReadParts_preamble() throws Exception {
+        String body = "preamble\r\n" + write(null, MultipartRelated.COLLXML_PART, CNXML);
+        Map<String, String> parts =
+                MultipartRelated.readParts(new StringReader(body), BOUNDARY);
+        assertEquals(CNXML, parts.get(MultipartRelated.COLLXML_PART));
+    }
+
+    @Test
+    public void testReadParts_malformed() throws Exception {
+        String body = write(null, MultipartRelated.CNXML_PART, CNXML);
+        String truncated = body.substring(0, body.indexOf("</document>"));
+        try {
+            MultipartRelated.readParts(new StringReader(truncated), BOUNDARY);
+            fail("should have failed");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+
+        try {
+            MultipartRelated.readParts(new StringReader(body), "other-boundary");
+            fail("should have failed");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+
+    @Test
+    public void testGetBoundary() {
+        String contentType =
+                MultipartRelated.getContentType(BOUNDARY, ContentType.APPLICATION_ATOM_XML);
+        assertTrue(MultipartRelated.isMultipartRelated(contentType));
+        assertEquals(BOUNDARY, MultipartRelated.getBoundary(contentType));
+        assertEquals("simple",
+                MultipartRelated.getBoundary("Multipart/Related; boundary=simple; type=text/xml"));
+
+        assertFalse(MultipartRelated.isMultipartRelated(ContentType.TEXT_XML_UTF8));
+        assertFalse(MultipartRelated.isMultipartRelated(null));
+        try {
+            MultipartRelated.getBoundary(ContentType.MULTIPART_RELATED);
+            fail("should have failed");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+
+    @Test
+    public void testModuleVersionRoundTrip() throws Exception {
+        IdWrapper id = new IdWrapper("m0001", IdWrapper.Type.MODULE);
+        VersionWrapper version = new VersionWrapper(3);
+        String entryXml = PrettyXmlOutputter.prettyXmlOutputEntry(createEntry(id, version));
+        String body = write(entryXml, MultipartRelated.CNXML_PART, CNXML,
+                MultipartRelated.RESOURCE_MAPPING_PART, RESOURCE_MAPPING);
+
+        ModuleVersionWrapper module = ModuleVersionWrapper.fromParts(
+                MultipartRelated.readParts(new StringReader(body), BOUNDARY));
+        assertEquals(id, module.getId());
+        assertEquals(version, module.getVersion());
+        assertEquals(CNXML, module.getCnxml());
+        assertEquals(RESOURCE_MAPPING, module.getResourceMappingXml());
+        assertEquals("http://localhost/atompub/self", module.getSelfUri().toString());
+        assertEquals("http://localhost/atompub/edit", module.getEditUri().toString());
+    }
+
+    @Test
+    public void testCollectionVersionRoundTrip() throws Exception {
+        IdWrapper id = new IdWrapper("col0001", IdWrapper.Type.COLLECTION);
+        VersionWrapper version = new VersionWrapper(2);
+        String entryXml = PrettyXmlOutputter.prettyXmlOutputEntry(createEntry(id, version));
+        String body = write(entryXml, MultipartRelated.COLLXML_PART, CNXML);
+
+        CollectionVersionWrapper collection = CollectionVersionWrapper.fromParts(
+                MultipartRelated.readParts(new StringReader(body), BOUNDARY));
+        assertEquals(id, collection.getId());
+        assertEquals(version, collection.getVersion());
+        assertEquals(CNXML, collection.getCollectionXml());
+
+        try {
+            ModuleVersionWrapper.fromParts(
+                    MultipartRelated.readParts(new StringReader(body), BOUNDARY));
+            fail("should have failed");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+}
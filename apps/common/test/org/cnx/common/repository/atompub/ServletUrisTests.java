@@ -33,7 +33,7 @@ public class ServletUrisTests {
     @Test
     public void test_ServletUris_Fields() {
         ServletUris servletUris = new ServletUris();
-        validateNumberOfFields(9, servletUris);
+        validateNumberOfFields(12, servletUris);
 
         // This class does not have any derived field yet.
     }
@@ -79,7 +79,7 @@ public class ServletUrisTests {
     @Test
     public void test_Module_Fields() {
         ServletUris.Module module = new ServletUris.Module();
-        validateNumberOfFields(8, module);
+        validateNumberOfFields(11, module);
 
         assertEquals("/migration/{moduleId}", ServletUris.Module.MODULE_POST_MIGRATION);
         assertEquals("/migration/{moduleId}/{moduleVersion}",
@@ -89,8 +89,12 @@ public class ServletUrisTests {
         assertEquals("/{moduleId}/{moduleVersion}/xml", ServletUris.Module.MODULE_VERSION_CNXML);
         assertEquals("/{moduleId}/{moduleVersion}/resources",
                 ServletUris.Module.MODULE_VERSION_RESOURCE_MAPPING);
+        assertEquals("/{moduleId}/{moduleVersion}/render/{fingerprint}",
+                ServletUris.Module.MODULE_VERSION_RENDER_ARTIFACT);
+        assertEquals("/batch", ServletUris.Module.MODULE_BATCH);
+        assertEquals("/batch/info", ServletUris.Module.MODULE_BATCH_INFO);
 
-        // This class has 2 static and 6 derived fields.
+        // This class has 2 static and 9 derived fields.
     }
 
     /**
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.common.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link StartupReport}.
+ *
+ * @author Tal Dayan
+ */
+public class StartupReportTests {
+    @Test
+    public void testRecord() throws Exception {
+        long start = StartupReport.start();
+        Thread.sleep(5);
+        StartupReport.record("testRecord outer", start);
+        StartupReport.record("testRecord inner", StartupReport.start());
+
+        Map<String, Long> phases = StartupReport.getPhaseMillis();
+        assertTrue(phases.get("testRecord outer") >= 5);
+        assertTrue(phases.get("testRecord inner") < phases.get("testRecord outer"));
+
+        String report = StartupReport.getReport();
+        assertTrue(report, report.contains("testRecord outer: "));
+        assertTrue(report.indexOf("testRecord outer") < report.indexOf("testRecord inner"));
+    }
+
+    @Test
+    public void testRecordReplaces() {
+        StartupReport.record("testRecordReplaces", StartupReport.start() - 3000000000L);
+        StartupReport.record("testRecordReplaces", StartupReport.start());
+        assertEquals(0, (long) StartupReport.getPhaseMillis().get("testRecordReplaces"));
+    }
+}
@@ -19,6 +19,8 @@ import java.io.File;
 import java.net.URL;
 
 import org.cnx.atompubclient2.CnxClient;
+import org.cnx.atompubclient2.ConnectionPoolConfiguration;
+import org.cnx.atompubclient2.HttpClientWrapper;
 import org.cnx.migrator.context.MigratorConfiguration;
 import org.cnx.migrator.context.MigratorContext;
 import org.cnx.migrator.io.DataRootDirectory;
@@ -58,6 +60,10 @@ public class Migrator {
         MigratorUtil.sleep(2000);
 
         try {
+            // Every worker thread talks to the same repository host.
+            HttpClientWrapper.configureSharedClient(new ConnectionPoolConfiguration()
+                    .setMaxTotalConnections(config.getMaxThreads())
+                    .setMaxConnectionsPerRoute(config.getMaxThreads()));
             final URL atomPubUrl = new URL(config.getRepositoryAtomPubUrl());
             final CnxClient cnxClient = new CnxClient(atomPubUrl);
             this.context = new MigratorContext(config, cnxClient);
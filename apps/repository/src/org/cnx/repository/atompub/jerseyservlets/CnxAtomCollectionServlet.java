@@ -18,7 +18,9 @@ package org.cnx.repository.atompub.jerseyservlets;
 import static org.cnx.common.repository.atompub.CommonUtils.getURI;
 import static org.cnx.repository.atompub.utils.AtomPubResponseUtils.fromRepositoryError;
 import static org.cnx.repository.atompub.utils.AtomPubResponseUtils.logAndReturn;
+import static org.cnx.repository.atompub.utils.AtomPubResponseUtils.logAndReturnParts;
 
+import com.google.common.collect.ImmutableMap;
 import com.sun.syndication.feed.atom.Entry;
 import com.sun.syndication.feed.atom.Link;
 import java.io.IOException;
@@ -35,6 +37,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.xml.bind.JAXBException;
@@ -46,6 +49,7 @@ import org.cnx.common.repository.RepositoryConstants;
 import org.cnx.common.repository.atompub.CnxAtomPubConstants;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.cnx.common.repository.atompub.ServletUris;
 import org.cnx.common.repository.atompub.VersionWrapper;
 import org.cnx.repository.atompub.utils.RepositoryUtils;
@@ -165,6 +169,9 @@ public class CnxAtomCollectionServlet {
      * 
      * This method is used to publish a new Version for an existing Collection.
      * 
+     * Instead of an Entry, Client can send CollXml as {@link ContentType#MULTIPART_RELATED}. See
+     * {@link MultipartRelated}.
+     * 
      * @param req HttpServletRequest.
      * @param collectionId CollectionId for which client wants to publish a new version.
      * @param versionString New version that client wants to publish.
@@ -217,13 +224,20 @@ public class CnxAtomCollectionServlet {
 
         cnxConstants = new CnxAtomPubConstants(ServerUtil.computeAtomPubUrl(req));
 
-        Entry postedEntry = ServerUtil.getPostedEntry(logger, req);
-        if (postedEntry == null) {
-            throw new CnxBadRequestException("Invalid Request : Missing Collection XML.", null);
-        }
+        String decodedCollXml;
+        if (ServerUtil.isRawContentPosted(req)) {
+            decodedCollXml =
+                    ServerUtil.getRequiredPart(ServerUtil.getPostedParts(logger, req),
+                            MultipartRelated.COLLXML_PART);
+        } else {
+            Entry postedEntry = ServerUtil.getPostedEntry(logger, req);
+            if (postedEntry == null) {
+                throw new CnxBadRequestException("Invalid Request : Missing Collection XML.",
+                        null);
+            }
 
-        String decodedCollXml =
-                CnxAtomPubUtils.getCollXmlDocFromAtomPubCollectionEntry(postedEntry);
+            decodedCollXml = CnxAtomPubUtils.getCollXmlDocFromAtomPubCollectionEntry(postedEntry);
+        }
 
         RepositoryResponse<AddCollectionVersionResult> createdCollection;
 
@@ -276,6 +290,9 @@ public class CnxAtomCollectionServlet {
      * 
      * This method is used to fetch CollXml for a Collection-Version.
      * 
+     * If Client accepts {@link ContentType#MULTIPART_RELATED}, CollXml is sent as it is instead
+     * of base64 encoded inside the Entry. See {@link MultipartRelated}.
+     * 
      * @param req HttpServletRequest.
      * @param collectionId Id of desired Collection.
      * @param versionString Version of desired Collection.
@@ -284,7 +301,7 @@ public class CnxAtomCollectionServlet {
      *         publish versions in future.
      */
     @GET
-    @Produces(ContentType.TEXT_XML_UTF8)
+    @Produces({ ContentType.TEXT_XML_UTF8, ContentType.MULTIPART_RELATED })
     @Path(ServletUris.Collection.COLLECTION_VERSION_PATH)
     public Response getCollectionVersion(@Context HttpServletRequest req,
             @PathParam(ServletUris.COLLECTION_ID_PATH_PARAM) String collectionId,
@@ -310,6 +327,12 @@ public class CnxAtomCollectionServlet {
             String atomPubId =
                     CnxAtomPubUtils.getAtomPubIdFromCnxIdAndVersion(idWrapper, repoVersion);
             entry.setId(atomPubId);
+            entry.setOtherLinks(getListOfLinks(repoIdWrapper, repoVersion));
+
+            if (MultipartRelated.isMultipartRelated(req.getHeader(HttpHeaders.ACCEPT))) {
+                return logAndReturnParts(logger, entry,
+                        ImmutableMap.of(MultipartRelated.COLLXML_PART, collXmlDoc));
+            }
 
             // TODO(arjuns) : See if this can be refactored.
             try {
@@ -323,7 +346,6 @@ public class CnxAtomCollectionServlet {
                 throw new CnxInternalServerErrorException("IOException", e);
             }
 
-            entry.setOtherLinks(getListOfLinks(repoIdWrapper, repoVersion));
             return logAndReturn(logger, Status.OK, entry, null);
         }
 
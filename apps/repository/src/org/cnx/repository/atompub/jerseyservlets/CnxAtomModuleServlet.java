@@ -18,15 +18,20 @@ package org.cnx.repository.atompub.jerseyservlets;
 import static org.cnx.common.repository.atompub.CommonUtils.getURI;
 import static org.cnx.repository.atompub.utils.AtomPubResponseUtils.fromRepositoryError;
 import static org.cnx.repository.atompub.utils.AtomPubResponseUtils.logAndReturn;
+import static org.cnx.repository.atompub.utils.AtomPubResponseUtils.logAndReturnParts;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.sun.syndication.feed.atom.Content;
 import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
 import com.sun.syndication.feed.atom.Link;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
@@ -36,6 +41,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.xml.bind.JAXBException;
@@ -49,6 +55,7 @@ import org.cnx.common.repository.RepositoryConstants;
 import org.cnx.common.repository.atompub.CnxAtomPubConstants;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.cnx.common.repository.atompub.ServletUris;
 import org.cnx.common.repository.atompub.VersionWrapper;
 import org.cnx.repository.atompub.utils.RepositoryUtils;
@@ -56,7 +63,12 @@ import org.cnx.repository.atompub.utils.ServerUtil;
 import org.cnx.repository.service.api.AddModuleVersionResult;
 import org.cnx.repository.service.api.CnxRepositoryService;
 import org.cnx.repository.service.api.AddModuleResult;
+import org.cnx.repository.service.api.GetModuleInfosResult;
+import org.cnx.repository.service.api.GetModuleVersionRenderArtifactResult;
 import org.cnx.repository.service.api.GetModuleVersionResult;
+import org.cnx.repository.service.api.GetModuleVersionsResult;
+import org.cnx.repository.service.api.ModuleInfo;
+import org.cnx.repository.service.api.ModuleVersionReference;
 import org.cnx.repository.service.api.RepositoryResponse;
 import org.cnx.repository.service.impl.CnxRepositoryServiceImpl;
 import org.jdom.JDOMException;
@@ -165,6 +177,9 @@ public class CnxAtomModuleServlet {
      * 
      * This method is used to publish a new Version for an existing Module.
      * 
+     * Instead of an Entry, Client can send CNXML and ResourceMapping XML as
+     * {@link ContentType#MULTIPART_RELATED}. See {@link MultipartRelated}.
+     * 
      * @param req HttpServletRequest.
      * @param moduleId ModuleId for which client wants to publish a new version.
      * @param versionString New version that client wants to publish.
@@ -213,32 +228,38 @@ public class CnxAtomModuleServlet {
         final IdWrapper idWrapper = new IdWrapper(moduleId, IdWrapper.Type.MODULE);
         final VersionWrapper versionWrapper = new VersionWrapper(versionString);
         cnxConstants = new CnxAtomPubConstants(ServerUtil.computeAtomPubUrl(req));
-        Entry postedEntry = ServerUtil.getPostedEntry(logger, req);
-
-        if (postedEntry == null) {
-            throw new CnxBadRequestException(
-                    "Invalid Request : Missing data for CNXML and ResourceMapping XML.", null);
-        }
 
-        // TODO(arjuns) : Fix this. Move this to common.
-        Content encodedModuleEntryContent = (Content) postedEntry.getContents().get(0);
-        String decodedModuleEntryValue;
         String cnxmlDoc;
         String resourceMappingDoc;
-        try {
-            decodedModuleEntryValue =
-                    CnxAtomPubUtils.decodeFromBase64EncodedString(encodedModuleEntryContent
-                            .getValue());
-            cnxmlDoc = CnxAtomPubUtils.getCnxmlFromModuleEntryXml(decodedModuleEntryValue);
+        if (ServerUtil.isRawContentPosted(req)) {
+            Map<String, String> postedParts = ServerUtil.getPostedParts(logger, req);
+            cnxmlDoc = ServerUtil.getRequiredPart(postedParts, MultipartRelated.CNXML_PART);
             resourceMappingDoc =
-                    CnxAtomPubUtils
-                    .getResourceMappingDocFromModuleEntryXml(decodedModuleEntryValue);
-        } catch (UnsupportedEncodingException e) {
-            throw new CnxBadRequestException("Invalid Encoding", e);
-        } catch (JDOMException e) {
-            throw new CnxBadRequestException("JDom exception", e);
-        } catch (IOException e) {
-            throw new CnxBadRequestException("IOExcepiton", e);
+                    ServerUtil.getRequiredPart(postedParts, MultipartRelated.RESOURCE_MAPPING_PART);
+        } else {
+            Entry postedEntry = ServerUtil.getPostedEntry(logger, req);
+            if (postedEntry == null) {
+                throw new CnxBadRequestException(
+                        "Invalid Request : Missing data for CNXML and ResourceMapping XML.", null);
+            }
+
+            // TODO(arjuns) : Fix this. Move this to common.
+            Content encodedModuleEntryContent = (Content) postedEntry.getContents().get(0);
+            try {
+                String decodedModuleEntryValue =
+                        CnxAtomPubUtils.decodeFromBase64EncodedString(encodedModuleEntryContent
+                                .getValue());
+                cnxmlDoc = CnxAtomPubUtils.getCnxmlFromModuleEntryXml(decodedModuleEntryValue);
+                resourceMappingDoc =
+                        CnxAtomPubUtils
+                        .getResourceMappingDocFromModuleEntryXml(decodedModuleEntryValue);
+            } catch (UnsupportedEncodingException e) {
+                throw new CnxBadRequestException("Invalid Encoding", e);
+            } catch (JDOMException e) {
+                throw new CnxBadRequestException("JDom exception", e);
+            } catch (IOException e) {
+                throw new CnxBadRequestException("IOExcepiton", e);
+            }
         }
 
         RepositoryResponse<AddModuleVersionResult> createdModule;
@@ -289,6 +310,9 @@ public class CnxAtomModuleServlet {
      * 
      * This method is used to fetch CNXML and ResourceMappingDoc for a Module-Version.
      * 
+     * If Client accepts {@link ContentType#MULTIPART_RELATED}, the documents are sent as they are
+     * instead of base64 encoded inside the Entry. See {@link MultipartRelated}.
+     * 
      * @param req HttpServletRequest.
      * @param moduleId Id of desired Module.
      * @param versionString Version of desired Module.
@@ -299,7 +323,7 @@ public class CnxAtomModuleServlet {
      * @throws XMLStreamException
      */
     @GET
-    @Produces(ContentType.TEXT_XML_UTF8)
+    @Produces({ ContentType.TEXT_XML_UTF8, ContentType.MULTIPART_RELATED })
     @Path(ServletUris.Module.MODULE_VERSION_PATH)
     public Response getModuleVersion(@Context HttpServletRequest req,
             @PathParam(ServletUris.MODULE_ID_PATH_PARAM) String moduleId,
@@ -316,37 +340,174 @@ public class CnxAtomModuleServlet {
 
         if (moduleVersionResult.isOk()) {
             GetModuleVersionResult repoResult = moduleVersionResult.getResult();
-            String cnxmlDoc = repoResult.getCnxmlDoc();
-            String resourceMappingDoc = repoResult.getResourceMapDoc();
-
-            IdWrapper repoIdWrapper =
-                    new IdWrapper(repoResult.getModuleId(), IdWrapper.Type.MODULE);
+            Entry entry = getModuleVersionEntry(repoResult);
 
-            VersionWrapper repoVersion = new VersionWrapper(repoResult.getVersionNumber());
-            Entry entry = new Entry();
-            String atomPubId =
-                    CnxAtomPubUtils.getAtomPubIdFromCnxIdAndVersion(repoIdWrapper, repoVersion);
-            entry.setId(atomPubId);
-            // TODO(arjuns) : See if this can be refactored.
-            try {
-                entry.setContents(CnxAtomPubUtils.getAtomPubListOfContent(cnxmlDoc,
-                        resourceMappingDoc));
-            } catch (JAXBException e) {
-                throw new CnxInternalServerErrorException("JAXBException", e);
-            } catch (JDOMException e) {
-                throw new CnxInternalServerErrorException("JDomException", e);
-            } catch (IOException e) {
-                throw new CnxInternalServerErrorException("IOException", e);
+            if (MultipartRelated.isMultipartRelated(req.getHeader(HttpHeaders.ACCEPT))) {
+                return logAndReturnParts(logger, entry, ImmutableMap.of(
+                        MultipartRelated.CNXML_PART, repoResult.getCnxmlDoc(),
+                        MultipartRelated.RESOURCE_MAPPING_PART, repoResult.getResourceMapDoc()));
             }
 
-            entry.setOtherLinks(getListOfLinks(repoIdWrapper, repoVersion));
-
+            setModuleVersionContents(entry, repoResult);
             return logAndReturn(logger, Status.OK, entry, null /* locationUrl */);
         }
 
         return fromRepositoryError(logger, moduleVersionResult);
     }
 
+    /**
+     * When Client does HTTP-POST on
+     * {@link org.cnx.common.repository.atompub.ServletUris.Module#MODULE_BATCH}, then this method
+     * is invoked.
+     * 
+     * This method in turn calls {@link CnxRepositoryService#getModuleVersions}.
+     * 
+     * This method is used to fetch CNXML and ResourceMappingDoc for many Module-Versions in one
+     * request. Client posts a Feed with one Entry per desired Module-Version, whose AtomPub Id is
+     * built with {@link CnxAtomPubUtils#getAtomPubIdFromCnxIdAndVersion}. Version can be
+     * {@link CnxAtomPubUtils#LATEST_VERSION_STRING}.
+     * 
+     * @param req HttpServletRequest.
+     * @return Feed with one Entry per Module-Version that was found, in the same format as
+     *         returned by {@link #getModuleVersion}. Module-Versions that were not found are left
+     *         out.
+     */
+    @POST
+    @Produces(ContentType.APPLICATION_ATOM_XML)
+    @Path(ServletUris.Module.MODULE_BATCH)
+    public Response getModuleVersions(@Context HttpServletRequest req) throws CnxException {
+        cnxConstants = new CnxAtomPubConstants(ServerUtil.computeAtomPubUrl(req));
+
+        List<ModuleVersionReference> moduleVersions = Lists.newArrayList();
+        for (Object object : ServerUtil.getPostedFeed(logger, req).getEntries()) {
+            String atomPubId = getPostedAtomPubId((Entry) object);
+            IdWrapper idWrapper = CnxAtomPubUtils.getIdFromAtomPubId(atomPubId);
+            VersionWrapper versionWrapper = CnxAtomPubUtils.getVersionFromAtomPubId(atomPubId);
+            moduleVersions.add(new ModuleVersionReference(idWrapper.getId(), versionWrapper
+                    .getVersionInt()));
+        }
+
+        RepositoryResponse<GetModuleVersionsResult> moduleVersionsResult =
+                repositoryService.getModuleVersions(RepositoryUtils.getRepositoryContext(),
+                        moduleVersions);
+
+        if (moduleVersionsResult.isOk()) {
+            List<Entry> entries = Lists.newArrayList();
+            for (GetModuleVersionResult repoResult : moduleVersionsResult.getResult()
+                    .getModuleVersions()) {
+                Entry entry = getModuleVersionEntry(repoResult);
+                setModuleVersionContents(entry, repoResult);
+                entries.add(entry);
+            }
+
+            Feed feed = new Feed();
+            feed.setEntries(entries);
+            return logAndReturn(logger, Status.OK, feed);
+        }
+
+        return fromRepositoryError(logger, moduleVersionsResult);
+    }
+
+    /**
+     * When Client does HTTP-POST on
+     * {@link org.cnx.common.repository.atompub.ServletUris.Module#MODULE_BATCH_INFO}, then this
+     * method is invoked.
+     * 
+     * This method in turn calls {@link CnxRepositoryService#getModuleInfos}.
+     * 
+     * This method is used to fetch latest version of many Modules in one request. Client posts a
+     * Feed with one Entry per desired Module, whose AtomPub Id is built with
+     * {@link CnxAtomPubUtils#getAtomPubIdFromCnxIdAndVersion}. Version is ignored.
+     * 
+     * @param req HttpServletRequest.
+     * @return Feed with one Entry per Module that was found. AtomPub Id of each Entry carries the
+     *         latest version of the Module, and 0 if Module has no versions. Modules that were not
+     *         found are left out.
+     */
+    @POST
+    @Produces(ContentType.APPLICATION_ATOM_XML)
+    @Path(ServletUris.Module.MODULE_BATCH_INFO)
+    public Response getModuleInfos(@Context HttpServletRequest req) throws CnxException {
+        cnxConstants = new CnxAtomPubConstants(ServerUtil.computeAtomPubUrl(req));
+
+        List<String> moduleIds = Lists.newArrayList();
+        for (Object object : ServerUtil.getPostedFeed(logger, req).getEntries()) {
+            String atomPubId = getPostedAtomPubId((Entry) object);
+            moduleIds.add(CnxAtomPubUtils.getIdFromAtomPubId(atomPubId).getId());
+        }
+
+        RepositoryResponse<GetModuleInfosResult> moduleInfosResult =
+                repositoryService.getModuleInfos(RepositoryUtils.getRepositoryContext(),
+                        moduleIds);
+
+        if (moduleInfosResult.isOk()) {
+            List<Entry> entries = Lists.newArrayList();
+            for (ModuleInfo moduleInfo : moduleInfosResult.getResult().getModuleInfos()) {
+                IdWrapper repoIdWrapper =
+                        new IdWrapper(moduleInfo.getModuleId(), IdWrapper.Type.MODULE);
+                VersionWrapper latestVersion = new VersionWrapper(moduleInfo.getVersionCount());
+
+                Entry entry = new Entry();
+                entry.setId(CnxAtomPubUtils.getAtomPubIdFromCnxIdAndVersion(repoIdWrapper,
+                        latestVersion));
+                if (moduleInfo.getVersionCount() > 0) {
+                    entry.setOtherLinks(getListOfLinks(repoIdWrapper, latestVersion));
+                } else {
+                    URL editUrl = cnxConstants.getModuleVersionAbsPath(repoIdWrapper,
+                            CnxAtomPubUtils.DEFAULT_EDIT_VERSION);
+                    entry.setOtherLinks(RepositoryUtils.getListOfLinks(null /* selfUrl */,
+                            editUrl));
+                }
+                entries.add(entry);
+            }
+
+            Feed feed = new Feed();
+            feed.setEntries(entries);
+            return logAndReturn(logger, Status.OK, feed);
+        }
+
+        return fromRepositoryError(logger, moduleInfosResult);
+    }
+
+    private static String getPostedAtomPubId(Entry entry) throws CnxBadRequestException {
+        String atomPubId = entry.getId();
+        if (atomPubId == null || !atomPubId.contains(CnxAtomPubUtils.DELIMITER_ID_VERSION)) {
+            throw new CnxBadRequestException("Invalid Request : Invalid AtomPub Id : "
+                    + atomPubId, null);
+        }
+        return atomPubId;
+    }
+
+    /**
+     * Returns Entry with AtomPub Id and links of a Module-Version, without its contents.
+     */
+    private Entry getModuleVersionEntry(GetModuleVersionResult repoResult) {
+        IdWrapper repoIdWrapper = new IdWrapper(repoResult.getModuleId(), IdWrapper.Type.MODULE);
+
+        VersionWrapper repoVersion = new VersionWrapper(repoResult.getVersionNumber());
+        Entry entry = new Entry();
+        String atomPubId =
+                CnxAtomPubUtils.getAtomPubIdFromCnxIdAndVersion(repoIdWrapper, repoVersion);
+        entry.setId(atomPubId);
+        entry.setOtherLinks(getListOfLinks(repoIdWrapper, repoVersion));
+        return entry;
+    }
+
+    // TODO(arjuns) : See if this can be refactored.
+    private static void setModuleVersionContents(Entry entry, GetModuleVersionResult repoResult)
+            throws CnxInternalServerErrorException {
+        try {
+            entry.setContents(CnxAtomPubUtils.getAtomPubListOfContent(repoResult.getCnxmlDoc(),
+                    repoResult.getResourceMapDoc()));
+        } catch (JAXBException e) {
+            throw new CnxInternalServerErrorException("JAXBException", e);
+        } catch (JDOMException e) {
+            throw new CnxInternalServerErrorException("JDomException", e);
+        } catch (IOException e) {
+            throw new CnxInternalServerErrorException("IOException", e);
+        }
+    }
+
     /**
      * When Client does HTTP-GET on
      * {@link org.cnx.common.repository.atompub.ServletUris.Module#MODULE_VERSION_CNXML}, then this
@@ -409,6 +570,47 @@ public class CnxAtomModuleServlet {
         return fromRepositoryError(logger, moduleVersionResult);
     }
 
+    /**
+     * When Client does HTTP-GET on
+     * {@link org.cnx.common.repository.atompub.ServletUris.Module#MODULE_VERSION_RENDER_ARTIFACT},
+     * then this method is invoked.
+     * 
+     * This method is used to fetch the content HTML rendered when the Module-Version was
+     * published. Artifacts exist only for explicit versions, and only once rendered, so clients
+     * should fall back to rendering the CNXML when this returns 404.
+     * 
+     * @param moduleId Id of desired Module.
+     * @param versionString Version of desired Module. Must not be latest.
+     * @param fingerprint Fingerprint of the renderer configuration of the client.
+     * @return content HTML.
+     */
+    @GET
+    @Produces(ContentType.TEXT_HTML_UTF8)
+    @Path(ServletUris.Module.MODULE_VERSION_RENDER_ARTIFACT)
+    public Response getModuleVersionRenderArtifact(
+            @PathParam(ServletUris.MODULE_ID_PATH_PARAM) String moduleId,
+            @PathParam(ServletUris.MODULE_VERSION_PATH_PARAM) String versionString,
+            @PathParam(ServletUris.RENDER_FINGERPRINT_PATH_PARAM) String fingerprint)
+            throws CnxException {
+        final IdWrapper idWrapper = new IdWrapper(moduleId, IdWrapper.Type.MODULE);
+        final VersionWrapper versionWrapper = new VersionWrapper(versionString);
+        if (versionWrapper.getVersionInt() == null) {
+            throw new CnxBadRequestException("Render artifacts require an explicit version.",
+                    null /* throwable */);
+        }
+
+        RepositoryResponse<GetModuleVersionRenderArtifactResult> artifactResult =
+                repositoryService.getModuleVersionRenderArtifact(
+                        RepositoryUtils.getRepositoryContext(), idWrapper.getId(),
+                        versionWrapper.getVersionInt(), fingerprint);
+
+        if (artifactResult.isOk()) {
+            return Response.ok().entity(artifactResult.getResult().getHtml()).build();
+        }
+
+        return fromRepositoryError(logger, artifactResult);
+    }
+
     private List<Link> getListOfLinks(IdWrapper id, VersionWrapper version) {
         // URL to fetch the Module which was published now.
         URL selfUrl = cnxConstants.getModuleVersionAbsPath(id, version);
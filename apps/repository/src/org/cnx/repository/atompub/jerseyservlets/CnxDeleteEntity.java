@@ -101,10 +101,14 @@ public class CnxDeleteEntity {
         
 
         if (subKind != null) {
-            Query q = new Query(subKind, parentKey).setKeysOnly();
+            // Kindless ancestor query so that the other children of the parent, such as the
+            // latest version copy, are deleted as well. Returns also the parent itself.
+            Query q = new Query(parentKey).setKeysOnly();
             PreparedQuery pq = datastore.prepare(q);
             for (Entity entity : pq.asIterable()) {
-                keysToDelete.add(entity.getKey());
+                if (!entity.getKey().equals(parentKey)) {
+                    keysToDelete.add(entity.getKey());
+                }
             }
         }
         keysToDelete.add(parentKey);
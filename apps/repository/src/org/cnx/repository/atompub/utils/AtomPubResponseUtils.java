@@ -21,15 +21,25 @@ import javax.annotation.Nullable;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
+import com.google.common.base.Charsets;
 import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.util.Map;
 import java.util.logging.Logger;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import org.cnx.common.exceptions.CnxException;
+import org.cnx.common.repository.ContentType;
 import org.cnx.common.repository.PrettyXmlOutputter;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.cnx.repository.service.api.RepositoryResponse;
 import org.cnx.repository.service.api.RepositoryStatus;
 
@@ -97,6 +107,44 @@ public class AtomPubResponseUtils {
         return responseBuilder.build();
     }
 
+    public static Response logAndReturn(Logger logger, Status jerseyStatus, Feed feed)
+            throws CnxException {
+        String stringFeed = PrettyXmlOutputter.prettyXmlOutputFeed(feed);
+        return logAndReturn(logger, jerseyStatus, stringFeed, null /* location */);
+    }
+
+    /**
+     * Returns entry followed by xmlParts as a multipart/related response. The parts are written
+     * to the client as they are, without copying or encoding them.
+     *
+     * @param entry Atom Entry with id and links. It is sent as the root part.
+     * @param xmlParts Map from Content-ID to XML document, in the order they should be sent.
+     */
+    public static Response logAndReturnParts(Logger logger, Entry entry,
+            final Map<String, String> xmlParts) throws CnxException {
+        final String stringEntry = PrettyXmlOutputter.prettyXmlOutputEntry(entry);
+        final String boundary = MultipartRelated.newBoundary();
+
+        StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8));
+                MultipartRelated.writePart(writer, boundary, MultipartRelated.ENTRY_PART,
+                        ContentType.APPLICATION_ATOM_XML, stringEntry);
+                for (Map.Entry<String, String> part : xmlParts.entrySet()) {
+                    MultipartRelated.writePart(writer, boundary, part.getKey(),
+                            ContentType.TEXT_XML_UTF8, part.getValue());
+                }
+                MultipartRelated.writeEnd(writer, boundary);
+            }
+        };
+
+        logger.fine("Returning parts " + xmlParts.keySet() + " with entry : " + stringEntry);
+        return Response.ok(output,
+                MultipartRelated.getContentType(boundary, ContentType.APPLICATION_ATOM_XML))
+                .build();
+    }
+
     public static Response fromRepositoryError(Logger logger,
             @SuppressWarnings("rawtypes") RepositoryResponse response) {
         Preconditions.checkArgument(response.isError(), "This should be called only for Errors.");
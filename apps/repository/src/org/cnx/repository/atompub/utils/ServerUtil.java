@@ -21,7 +21,9 @@ import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import com.google.appengine.api.utils.SystemProperty;
 import com.google.common.base.Charsets;
 import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
 import com.sun.syndication.io.FeedException;
+import com.sun.syndication.io.WireFeedInput;
 import com.sun.syndication.io.impl.Atom10Parser;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -29,11 +31,13 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Map;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpServletRequest;
 import org.cnx.common.exceptions.CnxBadRequestException;
 import org.cnx.common.exceptions.CnxException;
 import org.cnx.common.repository.PrettyXmlOutputter;
+import org.cnx.common.repository.atompub.MultipartRelated;
 import org.jdom.JDOMException;
 
 /**
@@ -96,4 +100,69 @@ public class ServerUtil {
         logger.fine("Received Entry : " + PrettyXmlOutputter.prettyXmlOutputEntry(postedEntry));
         return postedEntry;
     }
+
+    /**
+     * Return Feed posted by Client from Request.
+     */
+    public static Feed getPostedFeed(Logger logger, HttpServletRequest req) throws CnxException {
+        Feed postedFeed = null;
+        try {
+            postedFeed =
+                (Feed) new WireFeedInput().build(
+                        new BufferedReader(new InputStreamReader(req.getInputStream(),
+                            Charsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            throw new CnxBadRequestException("Parsing Error.", e);
+        } catch (ClassCastException e) {
+            throw new CnxBadRequestException("Not an Atom Feed.", e);
+        } catch (IOException e) {
+            throw new CnxBadRequestException("IOException.", e);
+        } catch (FeedException e) {
+            throw new CnxBadRequestException("FeedException.", e);
+        }
+
+        logger.fine("Received Feed with " + postedFeed.getEntries().size() + " entries.");
+        return postedFeed;
+    }
+
+    /**
+     * Returns true if Client sent a raw (multipart/related) body instead of an Entry.
+     */
+    public static boolean isRawContentPosted(HttpServletRequest req) {
+        return MultipartRelated.isMultipartRelated(req.getContentType());
+    }
+
+    /**
+     * Return parts posted by Client from a multipart/related Request, keyed by Content-ID.
+     */
+    public static Map<String, String> getPostedParts(Logger logger, HttpServletRequest req)
+            throws CnxException {
+        Map<String, String> postedParts = null;
+        try {
+            String boundary = MultipartRelated.getBoundary(req.getContentType());
+            postedParts =
+                MultipartRelated.readParts(
+                        new BufferedReader(new InputStreamReader(req.getInputStream(),
+                            Charsets.UTF_8)), boundary);
+        } catch (IllegalArgumentException e) {
+            throw new CnxBadRequestException("Parsing Error.", e);
+        } catch (IOException e) {
+            throw new CnxBadRequestException("IOException.", e);
+        }
+
+        logger.fine("Received parts : " + postedParts.keySet());
+        return postedParts;
+    }
+
+    /**
+     * Return a part that Client must have posted.
+     */
+    public static String getRequiredPart(Map<String, String> postedParts, String contentId)
+            throws CnxBadRequestException {
+        String part = postedParts.get(contentId);
+        if (part == null) {
+            throw new CnxBadRequestException("Invalid Request : Missing part " + contentId, null);
+        }
+        return part;
+    }
 }
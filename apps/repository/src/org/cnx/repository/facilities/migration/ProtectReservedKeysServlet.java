@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.facilities.migration;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.cnx.repository.service.impl.persistence.PersistenceMigrationUtil;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+
+/**
+ * An admin servlet that protects the key ranges reserved for migration.
+ * <p>
+ * The protection also happens lazily before the first key allocation that needs it, so this is
+ * only needed to do it ahead of time, e.g. right after a deployment. It is idempotent.
+ *
+ * @author Tal Dayan
+ */
+@SuppressWarnings("serial")
+public class ProtectReservedKeysServlet extends HttpServlet {
+    @Override
+    public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        PersistenceMigrationUtil.protectAllReservedKeys(DatastoreServiceFactory
+            .getDatastoreService());
+        resp.setContentType("text/plain");
+        resp.getWriter().println("Reserved key ranges protected");
+    }
+}
@@ -0,0 +1,35 @@
+package org.cnx.repository.facilities.migration;
+
+import org.apache.hadoop.io.NullWritable;
+import org.cnx.repository.service.impl.operations.Services;
+import org.cnx.repository.service.impl.persistence.PersistenceException;
+import org.cnx.repository.service.impl.persistence.PersistenceMigrationUtil;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.tools.mapreduce.AppEngineMapper;
+
+/**
+ * Mapreduce to move the documents of module version and module latest version entities that
+ * hold them inline to the content store. Safe to run more than once.
+ * <p>
+ * Use <host_and_port>/mapreduce/status dashboard to access.
+ * 
+ * @author Tal Dayan
+ */
+public class StoredDocumentMigrationMapper extends
+        AppEngineMapper<Key, Entity, NullWritable, NullWritable> {
+    @Override
+    public void map(Key key, Entity value, Context context) {
+        final boolean migrated;
+        try {
+            migrated =
+                PersistenceMigrationUtil.moveDocumentsToContentStore(Services.persistence, key);
+        } catch (PersistenceException e) {
+            // Let the mapreduce framework retry this entity.
+            throw new RuntimeException("Failed to migrate " + key, e);
+        }
+        final String counter = (migrated ? "MIGRATED_" : "SKIPPED_") + key.getKind();
+        context.getCounter(counter, "count").increment(1);
+    }
+}
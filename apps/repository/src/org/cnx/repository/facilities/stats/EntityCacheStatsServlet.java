@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.facilities.stats;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.cnx.repository.service.impl.operations.Services;
+import org.cnx.repository.service.impl.persistence.CompressedText;
+import org.cnx.repository.service.impl.persistence.CompressionStats;
+import org.cnx.repository.service.impl.persistence.EntityCacheStats;
+
+/**
+ * An admin servlet that shows the entity cache hit ratios and the text compression ratios of
+ * this instance, per entity kind.
+ *
+ * @author Tal Dayan
+ */
+@SuppressWarnings("serial")
+public class EntityCacheStatsServlet extends HttpServlet {
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/plain");
+        PrintWriter out = resp.getWriter();
+
+        out.println("Entity cache");
+        for (Map.Entry<String, EntityCacheStats> entry : Services.persistence.getCache()
+            .getStatistics().entrySet()) {
+            out.printf("Kind [%s]: %s\n", entry.getKey(), entry.getValue());
+        }
+
+        out.printf("\nText compression (%s)\n",
+            CompressedText.isEnabled() ? "enabled" : "disabled");
+        for (Map.Entry<String, CompressionStats> entry : CompressedText.getStatistics()
+            .entrySet()) {
+            out.printf("Kind [%s]: %s\n", entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.facilities.stats;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.cnx.repository.service.impl.instrumentation.RepositoryInstrumentation;
+
+/**
+ * An admin servlet that exports the per operation statistics of the repository service of this
+ * instance, as JSON or, with format=prometheus, in the Prometheus text format.
+ *
+ * @author Tal Dayan
+ */
+@SuppressWarnings("serial")
+public class RepositoryStatsServlet extends HttpServlet {
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final RepositoryInstrumentation instrumentation = RepositoryInstrumentation.getInstance();
+        if ("prometheus".equals(req.getParameter("format"))) {
+            resp.setContentType("text/plain; version=0.0.4");
+            resp.getWriter().print(instrumentation.toPrometheus());
+        } else {
+            resp.setContentType("application/json");
+            resp.getWriter().print(instrumentation.toJson());
+        }
+    }
+}
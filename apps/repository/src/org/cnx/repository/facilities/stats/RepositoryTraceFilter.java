@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.facilities.stats;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.cnx.repository.service.impl.instrumentation.RequestTrace;
+
+/**
+ * A filter that traces the repository operations of requests with the {@link RequestTrace#HEADER}
+ * header, and returns their RPC breakdown in the same response header.
+ *
+ * @author Tal Dayan
+ */
+public class RepositoryTraceFilter implements Filter {
+    @Override
+    public void init(FilterConfig config) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(req instanceof HttpServletRequest)
+            || ((HttpServletRequest) req).getHeader(RequestTrace.HEADER) == null) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        RequestTrace.begin((HttpServletResponse) resp);
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            RequestTrace.end();
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
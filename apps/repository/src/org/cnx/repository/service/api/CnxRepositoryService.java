@@ -16,6 +16,8 @@
 
 package org.cnx.repository.service.api;
 
+import java.util.List;
+
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletResponse;
 
@@ -105,6 +107,21 @@ public interface CnxRepositoryService extends CnxRepositoryServiceMigrationExten
     RepositoryResponse<GetModuleInfoResult> getModuleInfo(RepositoryRequestContext context,
             String moduleId);
 
+    /**
+     * Get summary information of a batch of modules.
+     * 
+     * Unlike calling {@link #getModuleInfo} for each module, this reads all the modules with a
+     * single persistence lookup. The returned info does not include the module exports.
+     * 
+     * @param context the request context.
+     * @param moduleIds the target module ids. Up to
+     *            {@link org.cnx.common.repository.RepositoryConstants#MAX_MODULE_INFOS_PER_BATCH}.
+     * @return operation response. Modules that do not exist are reported in the result rather
+     *         than failing the operation.
+     */
+    RepositoryResponse<GetModuleInfosResult> getModuleInfos(RepositoryRequestContext context,
+            List<String> moduleIds);
+
     /**
      * Query module id list with optional paging.
      * 
@@ -179,6 +196,40 @@ public interface CnxRepositoryService extends CnxRepositoryServiceMigrationExten
     RepositoryResponse<GetModuleVersionResult> getModuleVersion(RepositoryRequestContext context,
             String moduleId, @Nullable Integer moduleVersion);
 
+    /**
+     * Get the render artifact of a module version.
+     * 
+     * Render artifacts are precomputed in the background after a module version is added, so a
+     * missing artifact is reported as NOT_FOUND and callers are expected to render the module
+     * themselves.
+     * 
+     * @param context the request context.
+     * @param moduleId the target module id
+     * @param moduleVersion the target module version.
+     * @param fingerprint the fingerprint of the renderer configuration used by the caller.
+     * @return operation response.
+     */
+    RepositoryResponse<GetModuleVersionRenderArtifactResult> getModuleVersionRenderArtifact(
+            RepositoryRequestContext context, String moduleId, int moduleVersion,
+            String fingerprint);
+
+    /**
+     * Get the content of a batch of module versions.
+     * 
+     * Unlike calling {@link #getModuleVersion} for each version, this reads all the versions with
+     * at most two persistence lookups, one for resolving latest versions and one for the version
+     * content.
+     * 
+     * @param context the request context.
+     * @param moduleVersions the target module versions. Up to
+     *            {@link org.cnx.common.repository.RepositoryConstants#MAX_MODULE_VERSIONS_PER_BATCH}
+     *            .
+     * @return operation response. Module versions that do not exist are reported in the result
+     *         rather than failing the operation.
+     */
+    RepositoryResponse<GetModuleVersionsResult> getModuleVersions(
+            RepositoryRequestContext context, List<ModuleVersionReference> moduleVersions);
+
     /**
      * Get the general information of a module version.
      * 
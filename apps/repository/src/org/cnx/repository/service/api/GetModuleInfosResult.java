@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Result of a successful {@link CnxRepositoryService#getModuleInfos} operation.
+ * 
+ * @author Tal Dayan
+ */
+public class GetModuleInfosResult {
+
+    private final ImmutableList<ModuleInfo> moduleInfos;
+
+    private final ImmutableList<String> missingModuleIds;
+
+    /**
+     * @param moduleInfos summary info of the modules that were found, in the order they were
+     *            requested.
+     * @param missingModuleIds ids of the requested modules that were not found.
+     */
+    public GetModuleInfosResult(List<ModuleInfo> moduleInfos, List<String> missingModuleIds) {
+        this.moduleInfos = ImmutableList.copyOf(checkNotNull(moduleInfos));
+        this.missingModuleIds = ImmutableList.copyOf(checkNotNull(missingModuleIds));
+    }
+
+    public ImmutableList<ModuleInfo> getModuleInfos() {
+        return moduleInfos;
+    }
+
+    public ImmutableList<String> getMissingModuleIds() {
+        return missingModuleIds;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Result of a successful getModuleVersionRenderArtifact() operation.
+ * 
+ * @author Tal Dayan
+ */
+public class GetModuleVersionRenderArtifactResult {
+    private final String moduleId;
+    private final int versionNumber;
+    private final String fingerprint;
+    private final String html;
+
+    /**
+     * @param moduleId the module id
+     * @param versionNumber the version number of the rendered version.
+     * @param fingerprint the renderer fingerprint of the artifact.
+     * @param html the rendered content HTML.
+     */
+    public GetModuleVersionRenderArtifactResult(String moduleId, int versionNumber,
+        String fingerprint, String html) {
+        this.moduleId = checkNotNull(moduleId);
+        this.versionNumber = versionNumber;
+        this.fingerprint = checkNotNull(fingerprint);
+        this.html = checkNotNull(html);
+    }
+
+    public String getModuleId() {
+        return moduleId;
+    }
+
+    public int getVersionNumber() {
+        return versionNumber;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getHtml() {
+        return html;
+    }
+}
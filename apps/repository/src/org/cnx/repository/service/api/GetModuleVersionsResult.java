@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Result of a successful {@link CnxRepositoryService#getModuleVersions} operation.
+ * 
+ * @author Tal Dayan
+ */
+public class GetModuleVersionsResult {
+
+    private final ImmutableList<GetModuleVersionResult> moduleVersions;
+
+    private final ImmutableList<ModuleVersionReference> missingModuleVersions;
+
+    /**
+     * @param moduleVersions the module versions that were found, in the order they were
+     *            requested.
+     * @param missingModuleVersions the requested module versions that were not found.
+     */
+    public GetModuleVersionsResult(List<GetModuleVersionResult> moduleVersions,
+        List<ModuleVersionReference> missingModuleVersions) {
+        this.moduleVersions = ImmutableList.copyOf(checkNotNull(moduleVersions));
+        this.missingModuleVersions = ImmutableList.copyOf(checkNotNull(missingModuleVersions));
+    }
+
+    public ImmutableList<GetModuleVersionResult> getModuleVersions() {
+        return moduleVersions;
+    }
+
+    /**
+     * Return the requested module versions that were not found. This includes requests of the
+     * latest version of modules that do not exist or have no versions.
+     */
+    public ImmutableList<ModuleVersionReference> getMissingModuleVersions() {
+        return missingModuleVersions;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nullable;
+
+/**
+ * Represents an immutable reference to a module version.
+ * 
+ * @author Tal Dayan
+ */
+public class ModuleVersionReference {
+
+    private final String moduleId;
+
+    @Nullable
+    private final Integer versionNumber;
+
+    /**
+     * @param moduleId the module id.
+     * @param versionNumber the version number (1 is first, 2 is second, etc) or null to refer to
+     *            the latest version.
+     */
+    public ModuleVersionReference(String moduleId, @Nullable Integer versionNumber) {
+        this.moduleId = checkNotNull(moduleId);
+        this.versionNumber = versionNumber;
+    }
+
+    public String getModuleId() {
+        return moduleId;
+    }
+
+    @Nullable
+    public Integer getVersionNumber() {
+        return versionNumber;
+    }
+
+    @Override
+    public String toString() {
+        return moduleId + "/" + ((versionNumber == null) ? "latest" : versionNumber);
+    }
+}
@@ -17,6 +17,7 @@
 package org.cnx.repository.service.impl;
 
 import java.util.Date;
+import java.util.List;
 
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletResponse;
@@ -36,15 +37,20 @@ import org.cnx.repository.service.api.GetCollectionVersionInfoResult;
 import org.cnx.repository.service.api.GetCollectionVersionResult;
 import org.cnx.repository.service.api.GetExportUploadUrlResult;
 import org.cnx.repository.service.api.GetModuleInfoResult;
+import org.cnx.repository.service.api.GetModuleInfosResult;
 import org.cnx.repository.service.api.GetModuleListResult;
 import org.cnx.repository.service.api.GetModuleVersionInfoResult;
+import org.cnx.repository.service.api.GetModuleVersionRenderArtifactResult;
 import org.cnx.repository.service.api.GetModuleVersionResult;
+import org.cnx.repository.service.api.GetModuleVersionsResult;
 import org.cnx.repository.service.api.GetResourceInfoResult;
 import org.cnx.repository.service.api.GetResourceListResult;
+import org.cnx.repository.service.api.ModuleVersionReference;
 import org.cnx.repository.service.api.RepositoryRequestContext;
 import org.cnx.repository.service.api.RepositoryResponse;
 import org.cnx.repository.service.api.ServeExportResult;
 import org.cnx.repository.service.api.ServeResourceResult;
+import org.cnx.repository.service.impl.instrumentation.RepositoryInstrumentation;
 import org.cnx.repository.service.impl.operations.CollectionOperations;
 import org.cnx.repository.service.impl.operations.ExportOperations;
 import org.cnx.repository.service.impl.operations.MigrationOperations;
@@ -62,6 +68,10 @@ public class CnxRepositoryServiceImpl implements CnxRepositoryService {
 
     private final static CnxRepositoryServiceImpl instance = new CnxRepositoryServiceImpl();
 
+    /** The instance, with its calls recorded by {@link RepositoryInstrumentation}. */
+    private final static CnxRepositoryService instrumented =
+            RepositoryInstrumentation.getInstance().instrument(CnxRepositoryService.class, instance);
+
     @Override
     public CnxRepositoryConfiguration getConfiguration() {
         return Services.config;
@@ -116,6 +126,12 @@ public class CnxRepositoryServiceImpl implements CnxRepositoryService {
         return ModuleOperations.getModuleInfo(context, moduleId);
     }
 
+    @Override
+    public RepositoryResponse<GetModuleInfosResult> getModuleInfos(
+            RepositoryRequestContext context, List<String> moduleIds) {
+        return ModuleOperations.getModuleInfos(context, moduleIds);
+    }
+
     @Override
     public RepositoryResponse<GetModuleListResult> getModuleList(RepositoryRequestContext context,
             @Nullable String moduleListCursor, int maxResults) {
@@ -144,6 +160,20 @@ public class CnxRepositoryServiceImpl implements CnxRepositoryService {
         return ModuleOperations.getModuleVersion(context, moduleId, moduleVersion);
     }
 
+    @Override
+    public RepositoryResponse<GetModuleVersionRenderArtifactResult> getModuleVersionRenderArtifact(
+            RepositoryRequestContext context, String moduleId, int moduleVersion,
+            String fingerprint) {
+        return ModuleOperations.getModuleVersionRenderArtifact(context, moduleId, moduleVersion,
+                fingerprint);
+    }
+
+    @Override
+    public RepositoryResponse<GetModuleVersionsResult> getModuleVersions(
+            RepositoryRequestContext context, List<ModuleVersionReference> moduleVersions) {
+        return ModuleOperations.getModuleVersions(context, moduleVersions);
+    }
+
     @Override
     public RepositoryResponse<GetModuleVersionInfoResult> getModuleVersionInfo(
             RepositoryRequestContext context, String moduleId, @Nullable Integer moduleVersion) {
@@ -233,6 +263,6 @@ public class CnxRepositoryServiceImpl implements CnxRepositoryService {
      *         call.
      */
     public static CnxRepositoryService getService() {
-        return instance;
+        return instrumented;
     }
 }
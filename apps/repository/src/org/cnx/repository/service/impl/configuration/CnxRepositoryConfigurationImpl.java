@@ -16,6 +16,7 @@
 
 package org.cnx.repository.service.impl.configuration;
 
+import org.cnx.common.startup.StartupReport;
 import org.cnx.repository.service.api.CnxRepositoryConfiguration;
 import org.cnx.repository.service.api.ExportScopeType;
 import org.cnx.repository.service.api.ExportType;
@@ -43,7 +44,9 @@ public class CnxRepositoryConfigurationImpl implements CnxRepositoryConfiguratio
     private final ImmutableMap<String, ExportType> exportTypes;
 
     private CnxRepositoryConfigurationImpl() {
+        final long startNanos = StartupReport.start();
         exportTypes = constructExportMap();
+        StartupReport.record("CnxRepositoryConfigurationImpl", startNanos);
     }
 
     /**
@@ -95,7 +98,8 @@ public class CnxRepositoryConfigurationImpl implements CnxRepositoryConfiguratio
 
     @Override
     public long getMaxCnxmlDocSize() {
-        // NOTE(tal): if larger size is needed, can add compression in OrmModuleEntity.
+        // Stored deflated in a content entity. The limit does not count on compression, so
+        // an incompressible doc still fits in an entity.
         return 800 * KB;
     }
 
@@ -107,6 +111,7 @@ public class CnxRepositoryConfigurationImpl implements CnxRepositoryConfiguratio
 
     @Override
     public long getMaxColxmlDocSize() {
+        // Stored in the collection version and latest version entities, deflated or not.
         return 500 * KB;
     }
 }
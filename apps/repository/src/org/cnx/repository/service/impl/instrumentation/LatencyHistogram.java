@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.instrumentation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe latency histogram with fixed, roughly exponential buckets.
+ * <p>
+ * Percentiles are approximated by the upper bound of the bucket that contains them, which is
+ * accurate enough for sizing and for spotting regressions.
+ * 
+ * @author Tal Dayan
+ */
+public class LatencyHistogram {
+    /** Upper bounds of the buckets in millis. The last bucket is unbounded. */
+    private static final long[] BUCKET_BOUNDS_MILLIS = {
+        1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000
+    };
+
+    /** Bucket i counts latencies <= BUCKET_BOUNDS_MILLIS[i], the last one all the others. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+
+    public void record(long latencyNanos) {
+        final double millis = latencyNanos / 1e6;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+    }
+
+    /** Get the number of buckets, including the unbounded last one. */
+    public static int getNumBuckets() {
+        return BUCKET_BOUNDS_MILLIS.length + 1;
+    }
+
+    /**
+     * Get the upper bound of a bucket in millis, or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long getBucketBoundMillis(int bucket) {
+        return (bucket < BUCKET_BOUNDS_MILLIS.length) ? BUCKET_BOUNDS_MILLIS[bucket]
+                : Long.MAX_VALUE;
+    }
+
+    public long getBucketCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get an approximation of a percentile in millis.
+     * 
+     * @param percentile in the range (0, 100].
+     * @return the upper bound of the bucket of the percentile, {@link Long#MAX_VALUE} if it is in
+     *         the unbounded bucket, or zero if nothing was recorded.
+     */
+    public long getPercentileMillis(double percentile) {
+        checkArgument(percentile > 0 && percentile <= 100, "Invalid percentile: %s", percentile);
+        final long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long cumulative = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank) {
+                return getBucketBoundMillis(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.instrumentation;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the calls of a single repository operation that returned a single status.
+ * 
+ * @author Tal Dayan
+ */
+public class OperationStats {
+    private final String operation;
+    private final String status;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong rpcs = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong transactionConflicts = new AtomicLong();
+
+    OperationStats(String operation, String status) {
+        this.operation = checkNotNull(operation);
+        this.status = checkNotNull(status);
+    }
+
+    void record(long latencyNanos, RpcTrace trace) {
+        count.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+        latency.record(latencyNanos);
+        rpcs.addAndGet(trace.getRpcCount());
+        bytesRead.addAndGet(trace.getBytesRead());
+        bytesWritten.addAndGet(trace.getBytesWritten());
+        transactionConflicts.addAndGet(trace.getTransactionConflicts());
+    }
+
+    /** The name of the {@link org.cnx.repository.service.api.CnxRepositoryService} method. */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * The {@link org.cnx.repository.service.api.RepositoryStatus} name, or
+     * {@link RepositoryInstrumentation#EXCEPTION_STATUS} if the call threw.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalLatencyNanos() {
+        return totalLatencyNanos.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRpcs() {
+        return rpcs.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getTransactionConflicts() {
+        return transactionConflicts.get();
+    }
+}
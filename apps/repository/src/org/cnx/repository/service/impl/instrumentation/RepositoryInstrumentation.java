@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.instrumentation;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.cnx.repository.service.api.RepositoryResponse;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Per operation statistics of the repository service of this instance.
+ * <p>
+ * {@link #instrument} wraps a repository service such that each call of a method that returns a
+ * {@link RepositoryResponse} is recorded by method and response status, with its latency and the
+ * RPCs it issued (see {@link RpcTrace}). The statistics can be exported as JSON or in the
+ * Prometheus text format.
+ * 
+ * @author Tal Dayan
+ */
+public class RepositoryInstrumentation {
+    /** Status of calls that threw an exception instead of returning a response. */
+    public static final String EXCEPTION_STATUS = "EXCEPTION";
+
+    private static final RepositoryInstrumentation instance = new RepositoryInstrumentation();
+
+    /** Use {@link #getInstance}. Visible for testing. */
+    RepositoryInstrumentation() {
+    }
+
+    /** Percentiles reported in the JSON export. */
+    private static final int[] PERCENTILES = { 50, 95, 99 };
+
+    /** "operation/status" -> stats. */
+    private final ConcurrentMap<String, OperationStats> stats =
+            new ConcurrentHashMap<String, OperationStats>();
+
+    public static RepositoryInstrumentation getInstance() {
+        return instance;
+    }
+
+    /**
+     * Wrap a service such that its calls are recorded by this instrumentation.
+     * 
+     * @param serviceInterface the interface of the service. The returned service implements this
+     *            interface.
+     */
+    public <T> T instrument(Class<T> serviceInterface, final T service) {
+        checkNotNull(service);
+        final InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (!RepositoryResponse.class.isAssignableFrom(method.getReturnType())) {
+                    return invokeService(method, args);
+                }
+
+                final RpcTrace trace = RpcTrace.begin();
+                if (trace == null) {
+                    // Nested call, accounted for by the outer call.
+                    return invokeService(method, args);
+                }
+
+                String status = EXCEPTION_STATUS;
+                final long start = System.nanoTime();
+                try {
+                    final RepositoryResponse<?> response =
+                            (RepositoryResponse<?>) invokeService(method, args);
+                    if (response != null) {
+                        status = response.getStatus().name();
+                    }
+                    return response;
+                } finally {
+                    final long latencyNanos = System.nanoTime() - start;
+                    RpcTrace.end();
+                    record(method.getName(), status, latencyNanos, trace);
+                }
+            }
+
+            private Object invokeService(Method method, Object[] args) throws Throwable {
+                try {
+                    return method.invoke(service, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return serviceInterface.cast(Proxy.newProxyInstance(serviceInterface.getClassLoader(),
+                new Class<?>[] { serviceInterface }, handler));
+    }
+
+    /**
+     * Record a call of an operation.
+     * 
+     * @param trace the RPCs issued by the call.
+     */
+    void record(String operation, String status, long latencyNanos, RpcTrace trace) {
+        getOrCreate(operation, status).record(latencyNanos, trace);
+        RequestTrace.recordCall(operation, status, latencyNanos, trace);
+    }
+
+    private OperationStats getOrCreate(String operation, String status) {
+        final String key = operation + "/" + status;
+        final OperationStats existing = stats.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final OperationStats created = new OperationStats(operation, status);
+        final OperationStats raced = stats.putIfAbsent(key, created);
+        return (raced == null) ? created : raced;
+    }
+
+    /** Get the statistics, sorted by operation and status. */
+    public List<OperationStats> getStatistics() {
+        final List<OperationStats> result = Lists.newArrayList(stats.values());
+        Collections.sort(result, new Comparator<OperationStats>() {
+            @Override
+            public int compare(OperationStats a, OperationStats b) {
+                final int result = a.getOperation().compareTo(b.getOperation());
+                return (result != 0) ? result : a.getStatus().compareTo(b.getStatus());
+            }
+        });
+        return result;
+    }
+
+    /** Forget all the statistics. */
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Export the statistics as a JSON array with an object per operation and status. Latencies
+     * are in millis.
+     */
+    public String toJson() {
+        final StringBuilder builder = new StringBuilder("[");
+        String separator = "\n";
+        for (OperationStats operationStats : getStatistics()) {
+            final LatencyHistogram latency = operationStats.getLatency();
+            builder.append(separator).append("  {");
+            builder.append("\"operation\": \"").append(operationStats.getOperation());
+            builder.append("\", \"status\": \"").append(operationStats.getStatus());
+            builder.append("\", \"count\": ").append(operationStats.getCount());
+            for (int percentile : PERCENTILES) {
+                final long millis = latency.getPercentileMillis(percentile);
+                builder.append(", \"p").append(percentile).append("_ms\": ");
+                builder.append((millis == Long.MAX_VALUE) ? "null" : Long.toString(millis));
+            }
+            builder.append(", \"rpcs\": ").append(operationStats.getRpcs());
+            builder.append(", \"bytes_read\": ").append(operationStats.getBytesRead());
+            builder.append(", \"bytes_written\": ").append(operationStats.getBytesWritten());
+            builder.append(", \"tx_conflicts\": ").append(
+                    operationStats.getTransactionConflicts());
+            builder.append("}");
+            separator = ",\n";
+        }
+        return builder.append("\n]\n").toString();
+    }
+
+    /**
+     * Export the statistics in the Prometheus text exposition format. Latencies are exported as
+     * a histogram in seconds.
+     */
+    public String toPrometheus() {
+        final List<OperationStats> statistics = getStatistics();
+        final StringBuilder builder = new StringBuilder();
+
+        builder.append("# TYPE cnx_repository_operation_latency_seconds histogram\n");
+        for (OperationStats operationStats : statistics) {
+            final String labels = labels(operationStats);
+            final LatencyHistogram latency = operationStats.getLatency();
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.getNumBuckets(); i++) {
+                cumulative += latency.getBucketCount(i);
+                final long bound = LatencyHistogram.getBucketBoundMillis(i);
+                final String le =
+                        (bound == Long.MAX_VALUE) ? "+Inf" : Double.toString(bound / 1000.0);
+                builder.append("cnx_repository_operation_latency_seconds_bucket{").append(labels)
+                        .append(",le=\"").append(le).append("\"} ").append(cumulative)
+                        .append('\n');
+            }
+            builder.append("cnx_repository_operation_latency_seconds_sum{").append(labels)
+                    .append("} ").append(operationStats.getTotalLatencyNanos() / 1e9).append('\n');
+            builder.append("cnx_repository_operation_latency_seconds_count{").append(labels)
+                    .append("} ").append(cumulative).append('\n');
+        }
+
+        appendCounter(builder, statistics, "cnx_repository_operation_rpcs_total", new Value() {
+            @Override
+            long get(OperationStats operationStats) {
+                return operationStats.getRpcs();
+            }
+        });
+        appendCounter(builder, statistics, "cnx_repository_operation_bytes_read_total",
+                new Value() {
+                    @Override
+                    long get(OperationStats operationStats) {
+                        return operationStats.getBytesRead();
+                    }
+                });
+        appendCounter(builder, statistics, "cnx_repository_operation_bytes_written_total",
+                new Value() {
+                    @Override
+                    long get(OperationStats operationStats) {
+                        return operationStats.getBytesWritten();
+                    }
+                });
+        appendCounter(builder, statistics, "cnx_repository_operation_tx_conflicts_total",
+                new Value() {
+                    @Override
+                    long get(OperationStats operationStats) {
+                        return operationStats.getTransactionConflicts();
+                    }
+                });
+        return builder.toString();
+    }
+
+    /** Selects a counter of {@link OperationStats}. */
+    private static abstract class Value {
+        abstract long get(OperationStats operationStats);
+    }
+
+    private static void appendCounter(StringBuilder builder, List<OperationStats> statistics,
+            String name, Value value) {
+        builder.append("# TYPE ").append(name).append(" counter\n");
+        for (OperationStats operationStats : statistics) {
+            builder.append(name).append('{').append(labels(operationStats)).append("} ")
+                    .append(value.get(operationStats)).append('\n');
+        }
+    }
+
+    /** Operation names and statuses are Java identifiers, so they need no escaping. */
+    private static String labels(OperationStats operationStats) {
+        return "operation=\"" + operationStats.getOperation() + "\",status=\""
+                + operationStats.getStatus() + "\"";
+    }
+}
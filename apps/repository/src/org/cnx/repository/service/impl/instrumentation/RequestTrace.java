@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.instrumentation;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The RPC breakdown of the repository operations called while serving an HTTP request that asked
+ * for it with the {@link #HEADER} request header.
+ * <p>
+ * The breakdown is returned in the same header of the response. The header is updated after each
+ * operation, so it reflects the operations completed before the response was committed.
+ * 
+ * @author Tal Dayan
+ */
+public class RequestTrace {
+    /** Request header that enables tracing, and response header with the breakdown. */
+    public static final String HEADER = "X-Cnx-Trace";
+
+    private static final ThreadLocal<RequestTrace> current = new ThreadLocal<RequestTrace>();
+
+    private final HttpServletResponse response;
+
+    /** One entry per operation call, e.g. "getModuleVersion=OK/12ms". */
+    private final List<String> calls = Lists.newArrayList();
+
+    /** RPC name -> count, over all the operation calls. */
+    private final Map<String, Integer> rpcCounts = Maps.newTreeMap();
+
+    private int rpcCount = 0;
+    private long bytesRead = 0;
+    private long bytesWritten = 0;
+    private int transactionConflicts = 0;
+
+    private RequestTrace(HttpServletResponse response) {
+        this.response = checkNotNull(response);
+    }
+
+    /** Start tracing the request served by the current thread. */
+    public static void begin(HttpServletResponse response) {
+        current.set(new RequestTrace(response));
+    }
+
+    /** Stop tracing the request served by the current thread. */
+    public static void end() {
+        current.remove();
+    }
+
+    /** Called by {@link RepositoryInstrumentation} after each traced operation call. */
+    static void recordCall(String operation, String status, long latencyNanos, RpcTrace rpcTrace) {
+        final RequestTrace trace = current.get();
+        if (trace == null) {
+            return;
+        }
+        trace.calls.add(operation + "=" + status + "/" + (latencyNanos / 1000000) + "ms");
+        for (Map.Entry<String, Integer> entry : rpcTrace.getRpcCounts().entrySet()) {
+            final Integer count = trace.rpcCounts.get(entry.getKey());
+            trace.rpcCounts.put(entry.getKey(),
+                    (count == null) ? entry.getValue() : count + entry.getValue());
+        }
+        trace.rpcCount += rpcTrace.getRpcCount();
+        trace.bytesRead += rpcTrace.getBytesRead();
+        trace.bytesWritten += rpcTrace.getBytesWritten();
+        trace.transactionConflicts += rpcTrace.getTransactionConflicts();
+
+        if (!trace.response.isCommitted()) {
+            trace.response.setHeader(HEADER, trace.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s; rpcs=%d %s; read=%dB; written=%dB; txConflicts=%d",
+                Joiner.on(", ").join(calls), rpcCount, rpcCounts, bytesRead, bytesWritten,
+                transactionConflicts);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.instrumentation;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Accumulates the RPCs issued by the repository operation in progress on the current thread.
+ * <p>
+ * The persistence layer reports its RPCs with the static record methods, which do nothing when
+ * no operation is traced on the current thread. A trace is used by a single thread and is not
+ * thread safe.
+ * 
+ * @author Tal Dayan
+ */
+public class RpcTrace {
+    private static final ThreadLocal<RpcTrace> current = new ThreadLocal<RpcTrace>();
+
+    /** RPC name -> count. Sorted by name. */
+    private final Map<String, Integer> rpcCounts = Maps.newTreeMap();
+
+    private int rpcCount = 0;
+    private long bytesRead = 0;
+    private long bytesWritten = 0;
+    private int transactionConflicts = 0;
+
+    /**
+     * Start tracing the current thread.
+     * 
+     * @return the new trace, or null if the current thread is already traced, e.g. in a nested
+     *         operation call. In that case the RPCs are accumulated by the existing trace.
+     */
+    @Nullable
+    static RpcTrace begin() {
+        if (current.get() != null) {
+            return null;
+        }
+        final RpcTrace trace = new RpcTrace();
+        current.set(trace);
+        return trace;
+    }
+
+    /** Stop tracing the current thread. */
+    static void end() {
+        current.remove();
+    }
+
+    /**
+     * Test if the current thread is traced. Lets callers skip estimating sizes that would not be
+     * recorded.
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Record an RPC.
+     * 
+     * @param rpc the RPC name, e.g. "datastore.get".
+     */
+    public static void recordRpc(String rpc) {
+        final RpcTrace trace = current.get();
+        if (trace != null) {
+            final Integer count = trace.rpcCounts.get(rpc);
+            trace.rpcCounts.put(rpc, (count == null) ? 1 : count + 1);
+            trace.rpcCount++;
+        }
+    }
+
+    /** Record the estimated size of data read by an RPC. */
+    public static void recordBytesRead(long bytes) {
+        final RpcTrace trace = current.get();
+        if (trace != null) {
+            trace.bytesRead += bytes;
+        }
+    }
+
+    /** Record the estimated size of data written by an RPC. */
+    public static void recordBytesWritten(long bytes) {
+        final RpcTrace trace = current.get();
+        if (trace != null) {
+            trace.bytesWritten += bytes;
+        }
+    }
+
+    /**
+     * Record a transaction that failed to commit due to a concurrent modification. These are the
+     * transactions a caller would retry.
+     */
+    public static void recordTransactionConflict() {
+        final RpcTrace trace = current.get();
+        if (trace != null) {
+            trace.transactionConflicts++;
+        }
+    }
+
+    public int getRpcCount() {
+        return rpcCount;
+    }
+
+    public ImmutableMap<String, Integer> getRpcCounts() {
+        return ImmutableMap.copyOf(rpcCounts);
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public int getTransactionConflicts() {
+        return transactionConflicts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rpcs: %d %s, read: %dB, written: %dB, tx conflicts: %d", rpcCount,
+                rpcCounts, bytesRead, bytesWritten, transactionConflicts);
+    }
+}
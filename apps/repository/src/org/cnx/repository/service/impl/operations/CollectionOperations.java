@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.annotation.Nullable;
@@ -37,9 +38,12 @@ import org.cnx.repository.service.api.GetCollectionVersionResult;
 import org.cnx.repository.service.api.RepositoryRequestContext;
 import org.cnx.repository.service.api.RepositoryResponse;
 import org.cnx.repository.service.api.RepositoryStatus;
+import org.cnx.repository.service.impl.persistence.AsyncPersistenceService;
 import org.cnx.repository.service.impl.persistence.IdUtil;
 import org.cnx.repository.service.impl.persistence.OrmCollectionEntity;
+import org.cnx.repository.service.impl.persistence.OrmCollectionLatestVersionEntity;
 import org.cnx.repository.service.impl.persistence.OrmCollectionVersionEntity;
+import org.cnx.repository.service.impl.persistence.OrmExportItemEntity;
 import org.cnx.repository.service.impl.persistence.PersistenceTransaction;
 
 import com.google.appengine.api.datastore.EntityNotFoundException;
@@ -100,18 +104,21 @@ public class CollectionOperations {
         final List<ExportInfo> exports;
         final PersistenceTransaction tx = Services.persistence.beginTransaction();
         try {
-            // Read collection entity
+            // Read the collection entity and its exports concurrently.
+            final Future<OrmCollectionEntity> collectionFuture =
+                    Services.asyncPersistence.read(OrmCollectionEntity.class, collectionKey);
+            final Future<List<OrmExportItemEntity>> exportsFuture =
+                    Services.asyncPersistence.readChildren(OrmExportItemEntity.class,
+                            collectionKey);
+
             try {
-                collectionEntity =
-                        Services.persistence.read(OrmCollectionEntity.class, collectionKey);
+                collectionEntity = AsyncPersistenceService.getResult(collectionFuture);
             } catch (EntityNotFoundException e) {
                 tx.rollback();
                 return ResponseUtil.loggedError(RepositoryStatus.NOT_FOUND,
                         "Could not find collection " + collectionId, log, e);
             }
-
-            // Read exports
-            exports = ExportUtil.fetchParentEportInfoList(Services.persistence, collectionKey);
+            exports = ExportUtil.exportInfoList(AsyncPersistenceService.getResult(exportsFuture));
 
             tx.commit();
         } catch (Throwable e) {
@@ -212,17 +219,21 @@ public class CollectionOperations {
                             colxmlDoc);
 
             // Sanity check that we don't overwrite an existing version. Should never be
-            // triggered if the persisted data is consistent.
-            if (Services.persistence.hasObjectWithKey(versionEntity.getKey())) {
+            // triggered if the persisted data is consistent. As in addModuleVersion(), the check
+            // is issued together with the write and a failed check rolls back the write.
+            final Future<Boolean> versionExists =
+                    Services.asyncPersistence.hasObjectWithKey(versionEntity.getKey());
+            final Future<Void> written =
+                    Services.asyncPersistence.write(collectionEntity, versionEntity,
+                            new OrmCollectionLatestVersionEntity(versionEntity));
+            if (AsyncPersistenceService.getResult(versionExists)) {
                 tx.rollback();
                 return ResponseUtil
                         .loggedError(RepositoryStatus.SERVER_ERROR,
                                 "Server collection data inconsistency. Key: " + versionEntity.getKey(),
                                 log);
             }
-
-            // Update persistence
-            Services.persistence.write(collectionEntity, versionEntity);
+            AsyncPersistenceService.getResult(written);
             tx.commit();
         } catch (Throwable e) {
             tx.safeRollback();
@@ -266,6 +277,16 @@ public class CollectionOperations {
             // version entity since versions are never deleted and version count is monotonic.
             //
             if (collectionVersion == null) {
+                // If the collection has a latest version copy, serve it with a single get.
+                final OrmCollectionLatestVersionEntity latestEntity =
+                        readLatestVersion(collectionKey);
+                if (latestEntity != null) {
+                    return ResponseUtil.loggedOk("Fetched latest collection version",
+                            new GetCollectionVersionResult(collectionId, latestEntity
+                                    .getVersionNumber(), latestEntity.getColxmlDoc()), log);
+                }
+
+                // Otherwise, read the collection entity to determine the latest version.
                 final OrmCollectionEntity collectionEntity;
                 try {
                     collectionEntity =
@@ -365,16 +386,21 @@ public class CollectionOperations {
                 versionToServe = collectionVersion;
             }
 
-            // Fetch collection version entity
+            // Fetch the collection version entity and its exports concurrently.
             final Key collectionVersionKey =
                     OrmCollectionVersionEntity.collectionVersionKey(collectionKey, versionToServe);
+            final Future<OrmCollectionVersionEntity> versionFuture =
+                    Services.asyncPersistence.read(OrmCollectionVersionEntity.class,
+                            collectionVersionKey);
+            final Future<List<OrmExportItemEntity>> exportsFuture =
+                    Services.asyncPersistence.readChildren(OrmExportItemEntity.class,
+                            collectionVersionKey);
             try {
-                versionEntity =
-                        Services.persistence.read(OrmCollectionVersionEntity.class,
-                                collectionVersionKey);
+                versionEntity = AsyncPersistenceService.getResult(versionFuture);
             } catch (EntityNotFoundException e) {
                 // NOTE(tal): if we read the collection entity and versionToServe is within its
                 // valid version range that this is actually a server error.
+                tx.rollback();
                 return ResponseUtil.loggedError(RepositoryStatus.NOT_FOUND,
                         "Collection version not found: " + collectionId + "/" + versionToServe,
                         log, e);
@@ -384,9 +410,7 @@ public class CollectionOperations {
                     "Inconsistent version in collection %s, expected %s found %s", collectionId,
                     versionToServe, versionEntity.getVersionNumber());
 
-            // Get exports
-            exports =
-                    ExportUtil.fetchParentEportInfoList(Services.persistence, collectionVersionKey);
+            exports = ExportUtil.exportInfoList(AsyncPersistenceService.getResult(exportsFuture));
             tx.commit();
         } catch (Throwable e) {
             tx.safeRollback();
@@ -403,4 +427,19 @@ public class CollectionOperations {
         return ResponseUtil.loggedOk("Fetched collection version info", result, log);
     }
 
+
+    /**
+     * Read the latest version copy of a collection. Returns null if the collection does not have
+     * one, e.g. if the collection does not exist, has no versions, or its latest version was
+     * added before latest version copies were introduced.
+     */
+    @Nullable
+    private static OrmCollectionLatestVersionEntity readLatestVersion(Key collectionKey) {
+        try {
+            return Services.persistence.read(OrmCollectionLatestVersionEntity.class,
+                    OrmCollectionLatestVersionEntity.latestVersionKey(collectionKey));
+        } catch (EntityNotFoundException e) {
+            return null;
+        }
+    }
 }
@@ -26,6 +26,7 @@ import org.cnx.repository.service.api.ExportInfo;
 import org.cnx.repository.service.api.ExportReference;
 import org.cnx.repository.service.api.ExportScopeType;
 import org.cnx.repository.service.api.ExportType;
+import org.cnx.repository.service.impl.persistence.AsyncPersistenceService;
 import org.cnx.repository.service.impl.persistence.OrmBlobInfo;
 import org.cnx.repository.service.impl.persistence.OrmExportItemEntity;
 import org.cnx.repository.service.impl.persistence.PersistenceService;
@@ -93,8 +94,14 @@ public class ExportUtil {
     }
 
     public static List<ExportInfo> fetchParentEportInfoList(PersistenceService orm, Key parentKey) {
-        List<OrmExportItemEntity> entities = fetchParentEportList(orm, parentKey);
+        return exportInfoList(fetchParentEportList(orm, parentKey));
+    }
 
+    /**
+     * Convert export entities, e.g. as read asynchronously with
+     * {@link AsyncPersistenceService#readChildren}, to export infos.
+     */
+    public static List<ExportInfo> exportInfoList(List<OrmExportItemEntity> entities) {
         final List<ExportInfo> exportInfos = Lists.newArrayList();
         for (OrmExportItemEntity exportEntity : entities) {
             final String exportTypeId = exportEntity.getExportTypeId();
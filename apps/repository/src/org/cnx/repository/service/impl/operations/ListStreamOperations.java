@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.operations;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import org.cnx.repository.service.api.RepositoryRequestContext;
+import org.cnx.repository.service.api.RepositoryResponse;
+import org.cnx.repository.service.api.RepositoryStatus;
+import org.cnx.repository.service.impl.persistence.EntityStreamVisitor;
+import org.cnx.repository.service.impl.persistence.IdUtil;
+import org.cnx.repository.service.impl.persistence.OrmCollectionEntity;
+import org.cnx.repository.service.impl.persistence.OrmEntity;
+import org.cnx.repository.service.impl.persistence.OrmEntitySpec;
+import org.cnx.repository.service.impl.persistence.OrmModuleEntity;
+import org.cnx.repository.service.impl.persistence.OrmResourceEntity;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.Key;
+
+/**
+ * Streams the ids of all the modules, collections or resources to a writer, as an alternative to
+ * paging through them with the list operations when walking the entire repository.
+ * <p>
+ * Entities are read in chunks and written as they are read, so the memory used does not depend
+ * on the number of entities. Every {@link #CHECKPOINT_INTERVAL} entities a cursor checkpoint is
+ * written. The stream stops at the first checkpoint after the time budget of the call is spent
+ * and the caller continues it with a new call from the last checkpoint.
+ * <p>
+ * In {@link Format#NDJSON} each line is a JSON object: an entity, e.g.
+ * <code>{"id":"m0001","versions":3,"created":"2011-10-01T12:00:00.000Z"}</code>, a checkpoint,
+ * <code>{"cursor":"..."}</code>, and a last line <code>{"end":true}</code> if all the entities were
+ * streamed or <code>{"end":false}</code> if the stream should be continued from the last
+ * checkpoint. In {@link Format#COMPACT} an entity line has the tab separated id and details, a
+ * checkpoint line is <code>#cursor ...</code> and the last line is <code>#end</code> or
+ * <code>#more</code>.
+ * 
+ * @author Tal Dayan
+ */
+public class ListStreamOperations {
+    private static final Logger log = Logger.getLogger(ListStreamOperations.class.getName());
+
+    /** Number of entities between cursor checkpoints. */
+    static final int CHECKPOINT_INTERVAL = 500;
+
+    /** A time budget that leaves a margin below the App Engine 60 seconds request deadline. */
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 50 * 1000;
+
+    /** The streamed entity type. */
+    public static enum ListType {
+        MODULE(OrmModuleEntity.class),
+        COLLECTION(OrmCollectionEntity.class),
+        RESOURCE(OrmResourceEntity.class);
+
+        private final Class<? extends OrmEntity> entityClass;
+
+        private ListType(Class<? extends OrmEntity> entityClass) {
+            this.entityClass = entityClass;
+        }
+    }
+
+    /** The stream format. */
+    public static enum Format {
+        /** A JSON object per line. */
+        NDJSON,
+        /** A plain text line per entity, with tab separated fields. */
+        COMPACT;
+    }
+
+    /** Summary of a completed stream. */
+    public static class StreamListResult {
+        private final int count;
+        @Nullable
+        private final String endCursor;
+
+        StreamListResult(int count, @Nullable String endCursor) {
+            this.count = count;
+            this.endCursor = endCursor;
+        }
+
+        /** Number of entities streamed. */
+        public int getCount() {
+            return count;
+        }
+
+        /** Was the end of data reached? */
+        public boolean isLast() {
+            return endCursor == null;
+        }
+
+        /** Cursor to continue the stream, or null if the end of data was reached. */
+        @Nullable
+        public String getEndCursor() {
+            return endCursor;
+        }
+    }
+
+    /**
+     * Stream entity ids.
+     * 
+     * @param type the type of the streamed entities.
+     * @param format the stream format.
+     * @param withDetails if true, each entity line also contains its creation time and either its
+     *            version count (modules and collections) or state (resources). Otherwise only keys
+     *            are read, which is cheaper.
+     * @param startCursor null to stream from the beginning, or the last checkpoint cursor of a
+     *            previous stream to continue it.
+     * @param timeBudgetMillis time after which the stream stops at the next checkpoint.
+     * @param out the stream output. Errors are reported in the response, before anything is
+     *            written.
+     */
+    public static RepositoryResponse<StreamListResult> streamList(RepositoryRequestContext context,
+            ListType type, Format format, boolean withDetails, @Nullable String startCursor,
+            long timeBudgetMillis, PrintWriter out) {
+        checkNotNull(type);
+        checkNotNull(format);
+        checkNotNull(out);
+
+        if (timeBudgetMillis < 1) {
+            return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                    "Time budget should be >= 1, found: " + timeBudgetMillis, log);
+        }
+
+        if (startCursor != null) {
+            try {
+                Cursor.fromWebSafeString(startCursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                        "Invalid cursor: [" + startCursor + "]", log, e);
+            }
+        }
+
+        final StreamWriter<OrmEntity> writer =
+            new StreamWriter<OrmEntity>(OrmEntity.entityClassSpec(type.entityClass), format,
+                    out, System.currentTimeMillis() + timeBudgetMillis);
+
+        @SuppressWarnings("unchecked")
+        final Class<OrmEntity> entityClass = (Class<OrmEntity>) type.entityClass;
+        final boolean last =
+            Services.persistence.streamEntities(entityClass, !withDetails, startCursor,
+                    CHECKPOINT_INTERVAL, writer);
+        writer.end(last);
+
+        return ResponseUtil.loggedOk("Streamed " + writer.count + " " + type + " ids"
+            + (last ? "" : ", time budget exhausted"),
+                new StreamListResult(writer.count, last ? null : writer.lastCursor), log);
+    }
+
+    /**
+     * Writes the streamed entities and checkpoints.
+     */
+    private static class StreamWriter<T extends OrmEntity> implements EntityStreamVisitor<T> {
+        private final OrmEntitySpec entitySpec;
+        private final Format format;
+        private final PrintWriter out;
+        private final long deadlineMillis;
+
+        /** ISO 8601 in UTC. */
+        private final SimpleDateFormat dateFormat =
+            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+        private int count = 0;
+        @Nullable
+        private String lastCursor = null;
+
+        StreamWriter(OrmEntitySpec entitySpec, Format format, PrintWriter out,
+                long deadlineMillis) {
+            this.entitySpec = entitySpec;
+            this.format = format;
+            this.out = out;
+            this.deadlineMillis = deadlineMillis;
+            dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        @Override
+        public void visit(Key key, @Nullable T entity) {
+            count++;
+            final String id = IdUtil.keyToId(entitySpec, key);
+            if (format == Format.NDJSON) {
+                out.print("{\"id\":\"");
+                out.print(id);
+                out.print('"');
+                if (entity != null) {
+                    if (entity instanceof OrmResourceEntity) {
+                        out.print(",\"state\":\"");
+                        out.print(((OrmResourceEntity) entity).getState());
+                        out.print('"');
+                    } else {
+                        out.print(",\"versions\":");
+                        out.print(getVersionCount(entity));
+                    }
+                    out.print(",\"created\":\"");
+                    out.print(dateFormat.format(entity.getCreationTime()));
+                    out.print('"');
+                }
+                out.print("}\n");
+            } else {
+                out.print(id);
+                if (entity != null) {
+                    out.print('\t');
+                    if (entity instanceof OrmResourceEntity) {
+                        out.print(((OrmResourceEntity) entity).getState());
+                    } else {
+                        out.print(getVersionCount(entity));
+                    }
+                    out.print('\t');
+                    out.print(dateFormat.format(entity.getCreationTime()));
+                }
+                out.print('\n');
+            }
+        }
+
+        @Override
+        public boolean checkpoint(String cursor) {
+            lastCursor = cursor;
+            if (format == Format.NDJSON) {
+                out.print("{\"cursor\":\"" + cursor + "\"}\n");
+            } else {
+                out.print("#cursor " + cursor + "\n");
+            }
+            out.flush();
+            return System.currentTimeMillis() < deadlineMillis;
+        }
+
+        void end(boolean last) {
+            if (format == Format.NDJSON) {
+                out.print("{\"end\":" + last + "}\n");
+            } else {
+                out.print(last ? "#end\n" : "#more\n");
+            }
+            out.flush();
+        }
+
+        private static int getVersionCount(OrmEntity entity) {
+            return (entity instanceof OrmModuleEntity) ? ((OrmModuleEntity) entity)
+                .getVersionCount() : ((OrmCollectionEntity) entity).getVersionCount();
+        }
+    }
+}
@@ -32,8 +32,10 @@ import org.cnx.repository.service.api.RepositoryRequestContext;
 import org.cnx.repository.service.api.RepositoryResponse;
 import org.cnx.repository.service.api.RepositoryStatus;
 import org.cnx.repository.service.impl.persistence.OrmCollectionEntity;
+import org.cnx.repository.service.impl.persistence.OrmCollectionLatestVersionEntity;
 import org.cnx.repository.service.impl.persistence.OrmCollectionVersionEntity;
 import org.cnx.repository.service.impl.persistence.OrmModuleEntity;
+import org.cnx.repository.service.impl.persistence.OrmModuleLatestVersionEntity;
 import org.cnx.repository.service.impl.persistence.OrmModuleVersionEntity;
 import org.cnx.repository.service.impl.persistence.OrmResourceEntity;
 import org.cnx.repository.service.impl.persistence.PersistenceMigrationUtil;
@@ -178,8 +180,10 @@ public class MigrationOperations {
             //                        "Server module data inconsistency. Key: " + versionEntity.getKey(), log);
             //            }
 
-            // Update the persistence
-            Services.persistence.write(collectionEntity, versionEntity);
+            // Update the persistence. The version is the latest, so also update the latest
+            // version copy.
+            Services.persistence.write(collectionEntity, versionEntity,
+                    new OrmCollectionLatestVersionEntity(versionEntity));
             tx.commit();
         } catch (Throwable e) {
             tx.safeRollback();
@@ -271,8 +275,10 @@ public class MigrationOperations {
             //                        "Server module data inconsistency. Key: " + versionEntity.getKey(), log);
             //            }
 
-            // Update the persistence
-            Services.persistence.write(moduleEntity, versionEntity);
+            // Update the persistence. The version is the latest, so also update the latest
+            // version copy.
+            Services.persistence.write(moduleEntity, versionEntity,
+                    new OrmModuleLatestVersionEntity(versionEntity));
             tx.commit();
         } catch (Throwable e) {
             tx.safeRollback();
@@ -282,6 +288,9 @@ public class MigrationOperations {
             checkArgument(!tx.isActive(), "Transaction left active: %s", moduleId);
         }
 
+        // Migrated versions are served like published ones, render them too.
+        Services.renderArtifacts.moduleVersionAdded(moduleId, versionNumber);
+
         // All done OK.
         return ResponseUtil.loggedOk("Wrote module version " + moduleId + "/" + versionNumber,
                 new AddModuleVersionResult(moduleId, versionNumber), log);
@@ -22,30 +22,47 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.annotation.Nullable;
 
+import org.cnx.common.repository.RepositoryConstants;
 import org.cnx.repository.service.api.AddModuleVersionResult;
 import org.cnx.repository.service.api.CnxRepositoryService;
 import org.cnx.repository.service.api.AddModuleResult;
 import org.cnx.repository.service.api.ExportInfo;
 import org.cnx.repository.service.api.GetModuleInfoResult;
+import org.cnx.repository.service.api.GetModuleInfosResult;
 import org.cnx.repository.service.api.GetModuleListResult;
 import org.cnx.repository.service.api.GetModuleVersionInfoResult;
+import org.cnx.repository.service.api.GetModuleVersionRenderArtifactResult;
 import org.cnx.repository.service.api.GetModuleVersionResult;
+import org.cnx.repository.service.api.GetModuleVersionsResult;
+import org.cnx.repository.service.api.ModuleInfo;
+import org.cnx.repository.service.api.ModuleVersionReference;
 import org.cnx.repository.service.api.RepositoryRequestContext;
 import org.cnx.repository.service.api.RepositoryResponse;
 import org.cnx.repository.service.api.RepositoryStatus;
+import org.cnx.repository.service.impl.persistence.AsyncPersistenceService;
 import org.cnx.repository.service.impl.persistence.IdUtil;
+import org.cnx.repository.service.impl.persistence.OrmExportItemEntity;
 import org.cnx.repository.service.impl.persistence.OrmModuleEntity;
+import org.cnx.repository.service.impl.persistence.OrmModuleLatestVersionEntity;
 import org.cnx.repository.service.impl.persistence.OrmModuleVersionEntity;
+import org.cnx.repository.service.impl.persistence.OrmRenderArtifactEntity;
 import org.cnx.repository.service.impl.persistence.PersistenceTransaction;
 
 import com.google.appengine.api.datastore.EntityNotFoundException;
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.repackaged.com.google.common.base.Pair;
 import com.google.appengine.repackaged.com.google.common.collect.ImmutableList;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /**
  * Implementation of the module related operations of the repository service.
@@ -101,15 +118,20 @@ public class ModuleOperations {
         final PersistenceTransaction tx = Services.persistence.beginTransaction();
 
         try {
-            // Read module
+            // Read the module and its exports concurrently.
+            final Future<OrmModuleEntity> moduleFuture =
+                    Services.asyncPersistence.read(OrmModuleEntity.class, moduleKey);
+            final Future<List<OrmExportItemEntity>> exportsFuture =
+                    Services.asyncPersistence.readChildren(OrmExportItemEntity.class, moduleKey);
+
             try {
-                moduleEntity = Services.persistence.read(OrmModuleEntity.class, moduleKey);
+                moduleEntity = AsyncPersistenceService.getResult(moduleFuture);
             } catch (EntityNotFoundException e) {
+                tx.rollback();
                 return ResponseUtil.loggedError(RepositoryStatus.NOT_FOUND,
                         "Could not find module " + moduleId, log, e);
             }
-            // Read exports
-            exports = ExportUtil.fetchParentEportInfoList(Services.persistence, moduleKey);
+            exports = ExportUtil.exportInfoList(AsyncPersistenceService.getResult(exportsFuture));
 
             tx.commit();
         } catch (Throwable e) {
@@ -126,6 +148,51 @@ public class ModuleOperations {
                         .getVersionCount(), exports), log);
     }
 
+    /**
+     * See description in {@link CnxRepositoryService}
+     */
+    public static RepositoryResponse<GetModuleInfosResult> getModuleInfos(
+            RepositoryRequestContext context, List<String> moduleIds) {
+        if (moduleIds.size() > RepositoryConstants.MAX_MODULE_INFOS_PER_BATCH) {
+            return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                    "Too many modules, limit: " + RepositoryConstants.MAX_MODULE_INFOS_PER_BATCH
+                            + ", found: " + moduleIds.size(), log);
+        }
+
+        final List<Key> moduleKeys = Lists.newArrayList();
+        for (String moduleId : moduleIds) {
+            final Key moduleKey = OrmModuleEntity.moduleIdToKey(moduleId);
+            if (moduleKey == null) {
+                return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                        "Module id has invalid format: " + moduleId, log);
+            }
+            moduleKeys.add(moduleKey);
+        }
+
+        final Map<Key, OrmModuleEntity> moduleEntities;
+        try {
+            moduleEntities = Services.persistence.readAll(OrmModuleEntity.class, moduleKeys);
+        } catch (Throwable e) {
+            return ResponseUtil.loggedError(RepositoryStatus.SERVER_ERROR,
+                    "Error while fetching info of " + moduleIds.size() + " modules", log, e);
+        }
+
+        final List<ModuleInfo> moduleInfos = Lists.newArrayList();
+        final List<String> missingModuleIds = Lists.newArrayList();
+        for (int i = 0; i < moduleIds.size(); i++) {
+            final OrmModuleEntity moduleEntity = moduleEntities.get(moduleKeys.get(i));
+            if (moduleEntity == null) {
+                missingModuleIds.add(moduleIds.get(i));
+            } else {
+                moduleInfos.add(new ModuleInfo(moduleIds.get(i), moduleEntity.getVersionCount()));
+            }
+        }
+
+        return ResponseUtil.loggedOk("Retrieved info of " + moduleInfos.size() + " modules, "
+                + missingModuleIds.size() + " not found",
+                new GetModuleInfosResult(moduleInfos, missingModuleIds), log);
+    }
+
     /**
      * See description in {@link CnxRepositoryService}
      */
@@ -216,14 +283,21 @@ public class ModuleOperations {
                             resourceMapDoc);
 
             // Sanity check that we don't overwrite an existing version. Should never be
-            // triggered if the persisted data is consistent.
-            if (Services.persistence.hasObjectWithKey(versionEntity.getKey())) {
+            // triggered if the persisted data is consistent. The check is issued together with
+            // the write, including the latest version copy. Reads within a transaction do not
+            // see its writes, and if the check fails the transaction is rolled back, discarding
+            // the write.
+            final Future<Boolean> versionExists =
+                    Services.asyncPersistence.hasObjectWithKey(versionEntity.getKey());
+            final Future<Void> written =
+                    Services.asyncPersistence.write(moduleEntity, versionEntity,
+                            new OrmModuleLatestVersionEntity(versionEntity));
+            if (AsyncPersistenceService.getResult(versionExists)) {
                 tx.rollback();
                 return ResponseUtil.loggedError(RepositoryStatus.SERVER_ERROR,
                         "Server module data inconsistency. Module migration key: " + versionEntity.getKey(), log);
             }
-            // Update the persistence
-            Services.persistence.write(moduleEntity, versionEntity);
+            AsyncPersistenceService.getResult(written);
             tx.commit();
         } catch (Throwable e) {
             tx.safeRollback();
@@ -233,6 +307,9 @@ public class ModuleOperations {
             checkArgument(!tx.isActive(), "Transaction left active: %s", moduleId);
         }
 
+        // The version is published, render it in the background.
+        Services.renderArtifacts.moduleVersionAdded(moduleId, newVersionNumber);
+
         // All done OK.
         return ResponseUtil.loggedOk("Added module version " + moduleId + "/" + newVersionNumber,
                 new AddModuleVersionResult(moduleId, newVersionNumber), log);
@@ -267,7 +344,17 @@ public class ModuleOperations {
             // version entity since versions are never deleted and version count is monotonic.
             //
             if (moduleVersion == null) {
-                // Handle the case of 'latest'
+                // Handle the case of 'latest'. If the module has a latest version copy, serve
+                // it with a single get.
+                final OrmModuleLatestVersionEntity latestEntity = readLatestVersion(moduleKey);
+                if (latestEntity != null) {
+                    return ResponseUtil.loggedOk("Fetched latest module version",
+                            new GetModuleVersionResult(moduleId, latestEntity.getVersionNumber(),
+                                    latestEntity.getCNXMLDoc(), latestEntity.getResourceMapDoc()),
+                            log);
+                }
+
+                // Otherwise, read the module entity to determine the latest version.
                 final OrmModuleEntity moduleEntity;
                 try {
                     moduleEntity = Services.persistence.read(OrmModuleEntity.class, moduleKey);
@@ -310,6 +397,150 @@ public class ModuleOperations {
         return ResponseUtil.loggedOk("Fetched module version", result, log);
     }
 
+    /**
+     * See description in {@link CnxRepositoryService}
+     */
+    public static RepositoryResponse<GetModuleVersionRenderArtifactResult>
+            getModuleVersionRenderArtifact(RepositoryRequestContext context, String moduleId,
+                    int moduleVersion, String fingerprint) {
+        if (moduleVersion < 1) {
+            return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                    "Illegal module version number " + moduleVersion, log);
+        }
+
+        final Key moduleKey = OrmModuleEntity.moduleIdToKey(moduleId);
+        if (moduleKey == null) {
+            return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                    "Module id has bad format: [" + moduleId + "]", log);
+        }
+
+        // Artifacts are immutable and written after their version, so no transaction is needed.
+        final OrmRenderArtifactEntity artifactEntity;
+        try {
+            artifactEntity =
+                    Services.persistence.read(OrmRenderArtifactEntity.class,
+                            OrmRenderArtifactEntity.renderArtifactKey(
+                                    OrmModuleVersionEntity.moduleVersionKey(moduleKey,
+                                            moduleVersion), fingerprint));
+        } catch (EntityNotFoundException e) {
+            // Normal, the version is not rendered yet or was rendered by another renderer.
+            return ResponseUtil.loggedError(RepositoryStatus.NOT_FOUND, "No render artifact "
+                    + fingerprint + " for module version " + moduleId + "/" + moduleVersion, log);
+        } catch (Throwable e) {
+            return ResponseUtil.loggedError(RepositoryStatus.SERVER_ERROR,
+                    "Error while looking up render artifact of module version " + moduleId + "/"
+                            + moduleVersion, log, e);
+        }
+
+        return ResponseUtil.loggedOk("Fetched module version render artifact",
+                new GetModuleVersionRenderArtifactResult(moduleId, moduleVersion, fingerprint,
+                        artifactEntity.getHtml()), log);
+    }
+
+    /**
+     * See description in {@link CnxRepositoryService}
+     */
+    public static RepositoryResponse<GetModuleVersionsResult> getModuleVersions(
+            RepositoryRequestContext context, List<ModuleVersionReference> moduleVersions) {
+        if (moduleVersions.size() > RepositoryConstants.MAX_MODULE_VERSIONS_PER_BATCH) {
+            return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                    "Too many module versions, limit: "
+                            + RepositoryConstants.MAX_MODULE_VERSIONS_PER_BATCH + ", found: "
+                            + moduleVersions.size(), log);
+        }
+
+        // Module keys of the requests of latest versions.
+        final List<Key> latestModuleKeys = Lists.newArrayList();
+        for (ModuleVersionReference moduleVersion : moduleVersions) {
+            final Integer versionNumber = moduleVersion.getVersionNumber();
+            if (versionNumber != null && versionNumber < 1) {
+                return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                        "Illegal module version number " + moduleVersion, log);
+            }
+            final Key moduleKey = OrmModuleEntity.moduleIdToKey(moduleVersion.getModuleId());
+            if (moduleKey == null) {
+                return ResponseUtil.loggedError(RepositoryStatus.BAD_REQUEST,
+                        "Module id has bad format: [" + moduleVersion.getModuleId() + "]", log);
+            }
+            if (versionNumber == null) {
+                latestModuleKeys.add(moduleKey);
+            }
+        }
+
+        final List<GetModuleVersionResult> results = Lists.newArrayList();
+        final List<ModuleVersionReference> missingModuleVersions = Lists.newArrayList();
+        try {
+            // Read the latest version copies. The latest versions of modules without a copy are
+            // determined from their module entities. As in getModuleVersion(), no transaction is
+            // needed since versions are never deleted and version count is monotonic.
+            final Map<Key, OrmModuleLatestVersionEntity> latestEntities =
+                    readLatestVersions(latestModuleKeys);
+            final List<Key> moduleKeysWithoutCopy = Lists.newArrayList();
+            for (Key moduleKey : latestModuleKeys) {
+                if (!latestEntities.containsKey(moduleKey)) {
+                    moduleKeysWithoutCopy.add(moduleKey);
+                }
+            }
+            final Map<Key, OrmModuleEntity> latestModuleEntities =
+                    moduleKeysWithoutCopy.isEmpty() ? ImmutableMap.<Key, OrmModuleEntity> of()
+                            : Services.persistence.readAll(OrmModuleEntity.class,
+                                    moduleKeysWithoutCopy);
+
+            // Key of version to serve for each request, null if already known to be missing.
+            final List<Key> moduleVersionKeys = Lists.newArrayList();
+            for (ModuleVersionReference moduleVersion : moduleVersions) {
+                final Key moduleKey = OrmModuleEntity.moduleIdToKey(moduleVersion.getModuleId());
+                Integer versionToServe = moduleVersion.getVersionNumber();
+                if (versionToServe == null) {
+                    final OrmModuleEntity moduleEntity = latestModuleEntities.get(moduleKey);
+                    // If module has no versions than there is not latest version.
+                    if (moduleEntity != null && moduleEntity.getVersionCount() >= 1) {
+                        versionToServe = moduleEntity.getVersionCount();
+                    }
+                }
+                moduleVersionKeys.add((versionToServe == null) ? null : OrmModuleVersionEntity
+                        .moduleVersionKey(moduleKey, versionToServe));
+            }
+
+            // Fetch all the module version entities in one batch.
+            final Map<Key, OrmModuleVersionEntity> versionEntities =
+                    Services.persistence.readAll(OrmModuleVersionEntity.class,
+                            Lists.newArrayList(Iterables.filter(moduleVersionKeys,
+                                    Predicates.notNull())));
+
+            for (int i = 0; i < moduleVersions.size(); i++) {
+                if (moduleVersions.get(i).getVersionNumber() == null) {
+                    final OrmModuleLatestVersionEntity latestEntity =
+                            latestEntities.get(OrmModuleEntity.moduleIdToKey(moduleVersions.get(i)
+                                    .getModuleId()));
+                    if (latestEntity != null) {
+                        results.add(new GetModuleVersionResult(moduleVersions.get(i)
+                                .getModuleId(), latestEntity.getVersionNumber(), latestEntity
+                                .getCNXMLDoc(), latestEntity.getResourceMapDoc()));
+                        continue;
+                    }
+                }
+                final Key moduleVersionKey = moduleVersionKeys.get(i);
+                final OrmModuleVersionEntity versionEntity =
+                        (moduleVersionKey == null) ? null : versionEntities.get(moduleVersionKey);
+                if (versionEntity == null) {
+                    missingModuleVersions.add(moduleVersions.get(i));
+                } else {
+                    results.add(new GetModuleVersionResult(moduleVersions.get(i).getModuleId(),
+                            versionEntity.getVersionNumber(), versionEntity.getCNXMLDoc(),
+                            versionEntity.getResourceMapDoc()));
+                }
+            }
+        } catch (Throwable e) {
+            return ResponseUtil.loggedError(RepositoryStatus.SERVER_ERROR,
+                    "Error while looking up " + moduleVersions.size() + " module versions", log, e);
+        }
+
+        return ResponseUtil.loggedOk("Fetched " + results.size() + " module versions, "
+                + missingModuleVersions.size() + " not found",
+                new GetModuleVersionsResult(results, missingModuleVersions), log);
+    }
+
     /**
      * See description in {@link CnxRepositoryService}
      */
@@ -344,11 +575,13 @@ public class ModuleOperations {
                 try {
                     moduleEntity = Services.persistence.read(OrmModuleEntity.class, moduleKey);
                 } catch (EntityNotFoundException e) {
+                    tx.rollback();
                     return ResponseUtil.loggedError(RepositoryStatus.NOT_FOUND,
                             "Could not locate module " + moduleId, log);
                 }
                 // If module has no versions than there is not latest version.
                 if (moduleEntity.getVersionCount() < 1) {
+                    tx.rollback();
                     return ResponseUtil.loggedError(RepositoryStatus.STATE_MISMATCH,
                             "Module has no versions: " + moduleId, log);
                 }
@@ -357,18 +590,21 @@ public class ModuleOperations {
                 versionToServe = moduleVersion;
             }
 
-            // Fetch the module version entity
+            // Fetch the module version entity and its child exports concurrently.
             final Key moduleVersionKey =
                     OrmModuleVersionEntity.moduleVersionKey(moduleKey, versionToServe);
+            final Future<OrmModuleVersionEntity> versionFuture =
+                    Services.asyncPersistence.read(OrmModuleVersionEntity.class, moduleVersionKey);
+            final Future<List<OrmExportItemEntity>> exportsFuture =
+                    Services.asyncPersistence.readChildren(OrmExportItemEntity.class,
+                            moduleVersionKey);
 
-            versionEntity =
-                    Services.persistence.read(OrmModuleVersionEntity.class, moduleVersionKey);
+            versionEntity = AsyncPersistenceService.getResult(versionFuture);
             checkState(versionEntity.getVersionNumber() == versionToServe,
                     "Inconsistent version in module %s, expected %s found %s", moduleId,
                     versionToServe, versionEntity.getVersionNumber());
 
-            // Fetch the module version child exports
-            exports = ExportUtil.fetchParentEportInfoList(Services.persistence, moduleVersionKey);
+            exports = ExportUtil.exportInfoList(AsyncPersistenceService.getResult(exportsFuture));
 
             tx.commit();
 
@@ -385,4 +621,39 @@ public class ModuleOperations {
                         versionEntity.getCreationTime(), exports);
         return ResponseUtil.loggedOk("Fetched module version info", result, log);
     }
+
+    /**
+     * Read the latest version copy of a module. Returns null if the module does not have one,
+     * e.g. if the module does not exist, has no versions, or its latest version was added before
+     * latest version copies were introduced.
+     */
+    @Nullable
+    private static OrmModuleLatestVersionEntity readLatestVersion(Key moduleKey) {
+        try {
+            return Services.persistence.read(OrmModuleLatestVersionEntity.class,
+                    OrmModuleLatestVersionEntity.latestVersionKey(moduleKey));
+        } catch (EntityNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Batch version of {@link #readLatestVersion}. Returns a map from module key to the latest
+     * version copy of the modules that have one.
+     */
+    private static Map<Key, OrmModuleLatestVersionEntity> readLatestVersions(List<Key> moduleKeys) {
+        if (moduleKeys.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        final List<Key> latestVersionKeys = Lists.newArrayList();
+        for (Key moduleKey : moduleKeys) {
+            latestVersionKeys.add(OrmModuleLatestVersionEntity.latestVersionKey(moduleKey));
+        }
+        final Map<Key, OrmModuleLatestVersionEntity> result = Maps.newHashMap();
+        for (OrmModuleLatestVersionEntity latestEntity : Services.persistence.readAll(
+                OrmModuleLatestVersionEntity.class, latestVersionKeys).values()) {
+            result.put(latestEntity.getKey().getParent(), latestEntity);
+        }
+        return result;
+    }
 }
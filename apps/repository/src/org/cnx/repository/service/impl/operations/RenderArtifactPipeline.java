@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.operations;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import org.cnx.common.render.ModuleArtifactRenderer;
+import org.cnx.common.render.RenderArtifacts;
+import org.cnx.repository.service.impl.persistence.OrmModuleEntity;
+import org.cnx.repository.service.impl.persistence.OrmModuleVersionEntity;
+import org.cnx.repository.service.impl.persistence.OrmRenderArtifactEntity;
+import org.cnx.repository.service.impl.persistence.PersistenceService;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.RetryOptions;
+import com.google.appengine.api.taskqueue.TaskOptions;
+
+/**
+ * Renders the content HTML of new module versions in the background, so the web view can serve
+ * the standalone module page without parsing and rendering the CNXML on each cache miss.
+ * <p>
+ * The pipeline is enabled by setting the {@link #ATOMPUB_URL_PROPERTY} system property to the
+ * AtomPub URL the web view uses to access this repository. The URL is part of the rendered
+ * resource links and of the renderer fingerprint (see {@link RenderArtifacts#getFingerprint}),
+ * so a web view that is configured differently never finds, and never serves, these artifacts.
+ * <p>
+ * Rendering failures are never reported to the publisher. The web view falls back to rendering
+ * the module itself when an artifact is missing.
+ * 
+ * @author Tal Dayan
+ */
+public class RenderArtifactPipeline {
+    private static final Logger log = Logger.getLogger(RenderArtifactPipeline.class.getName());
+
+    /** System property with the repository AtomPub URL used by the web view. */
+    public static final String ATOMPUB_URL_PROPERTY = "cnx.repository.render_artifacts.atompub_url";
+
+    /** Number of times a failed render task is retried. */
+    private static final int TASK_RETRY_LIMIT = 3;
+
+    /** Schedules the rendering of a module version. */
+    public static interface Scheduler {
+        /**
+         * Arrange for {@link RenderArtifactPipeline#render} to be called for the given module
+         * version, typically after the current request completed.
+         */
+        void schedule(RenderArtifactPipeline pipeline, String moduleId, int versionNumber)
+                throws Exception;
+    }
+
+    /**
+     * A scheduler that adds a task to the default task queue. The task is executed by
+     * {@link RenderArtifactTaskServlet}.
+     */
+    public static class TaskQueueScheduler implements Scheduler {
+        @Override
+        public void schedule(RenderArtifactPipeline pipeline, String moduleId, int versionNumber) {
+            final TaskOptions task =
+                    TaskOptions.Builder.withUrl(RenderArtifactTaskServlet.TASK_URL)
+                            .param(RenderArtifactTaskServlet.MODULE_ID_PARAM, moduleId)
+                            .param(RenderArtifactTaskServlet.VERSION_PARAM,
+                                    String.valueOf(versionNumber))
+                            .retryOptions(RetryOptions.Builder
+                                    .withTaskRetryLimit(TASK_RETRY_LIMIT));
+            QueueFactory.getDefaultQueue().add(task);
+        }
+    }
+
+    /**
+     * A scheduler that renders with the given executor. Used where task queues are not
+     * available, e.g. in tests.
+     */
+    public static class ExecutorScheduler implements Scheduler {
+        private final Executor executor;
+
+        public ExecutorScheduler(Executor executor) {
+            this.executor = checkNotNull(executor);
+        }
+
+        @Override
+        public void schedule(final RenderArtifactPipeline pipeline, final String moduleId,
+                final int versionNumber) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        pipeline.render(moduleId, versionNumber);
+                    } catch (Exception e) {
+                        log.log(Level.WARNING, "Failed to render module version " + moduleId
+                                + "/" + versionNumber, e);
+                    }
+                }
+            });
+        }
+    }
+
+    private final PersistenceService persistence;
+
+    @Nullable
+    private final String repositoryAtomPubUrl;
+
+    private final Scheduler scheduler;
+
+    /** Created on first use since it loads the renderer. Guarded by this. */
+    @Nullable
+    private ModuleArtifactRenderer renderer;
+
+    /**
+     * @param persistence the persistence service to read module versions and write artifacts.
+     * @param repositoryAtomPubUrl the repository AtomPub URL used by the web view, or null to
+     *            disable the pipeline.
+     * @param scheduler the scheduler of render operations.
+     */
+    public RenderArtifactPipeline(PersistenceService persistence,
+            @Nullable String repositoryAtomPubUrl, Scheduler scheduler) {
+        this.persistence = checkNotNull(persistence);
+        this.repositoryAtomPubUrl = repositoryAtomPubUrl;
+        this.scheduler = checkNotNull(scheduler);
+    }
+
+    /**
+     * Construct a pipeline that is configured by {@link #ATOMPUB_URL_PROPERTY} and renders in
+     * task queue tasks.
+     */
+    public static RenderArtifactPipeline fromSystemProperties(PersistenceService persistence) {
+        final String url = System.getProperty(ATOMPUB_URL_PROPERTY);
+        return new RenderArtifactPipeline(persistence, (url == null || url.isEmpty()) ? null
+                : url, new TaskQueueScheduler());
+    }
+
+    public boolean isEnabled() {
+        return repositoryAtomPubUrl != null;
+    }
+
+    /**
+     * Get the fingerprint of the artifacts this pipeline renders. Should be called only if the
+     * pipeline is enabled.
+     */
+    public String getFingerprint() {
+        checkState(isEnabled(), "Render artifacts are disabled");
+        return RenderArtifacts.getFingerprint(repositoryAtomPubUrl);
+    }
+
+    /**
+     * Called after a module version was committed. Schedules its rendering if the pipeline is
+     * enabled. Never fails, since the version is already published.
+     */
+    public void moduleVersionAdded(String moduleId, int versionNumber) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            scheduler.schedule(this, moduleId, versionNumber);
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Failed to schedule rendering of module version " + moduleId
+                    + "/" + versionNumber, e);
+        }
+    }
+
+    /**
+     * Render a module version and store its artifact. Rendering the same version again
+     * overwrites the artifact with an identical one, so retries are safe.
+     */
+    public void render(String moduleId, int versionNumber) throws Exception {
+        checkState(isEnabled(), "Render artifacts are disabled");
+        final Key moduleKey = checkNotNull(OrmModuleEntity.moduleIdToKey(moduleId),
+                "Invalid module id: %s", moduleId);
+        final OrmModuleVersionEntity versionEntity =
+                persistence.read(OrmModuleVersionEntity.class,
+                        OrmModuleVersionEntity.moduleVersionKey(moduleKey, versionNumber));
+
+        final long startNanos = System.nanoTime();
+        final String html = getRenderer().render(moduleId, String.valueOf(versionNumber),
+                versionEntity.getCNXMLDoc(), versionEntity.getResourceMapDoc());
+        persistence.write(new OrmRenderArtifactEntity(versionEntity.getKey(), getFingerprint(),
+                new Date(), html));
+
+        log.info("Rendered module version " + moduleId + "/" + versionNumber + " in "
+                + (System.nanoTime() - startNanos) / 1000000 + "ms, " + html.length() + " chars");
+    }
+
+    private synchronized ModuleArtifactRenderer getRenderer() {
+        if (renderer == null) {
+            renderer = new ModuleArtifactRenderer(repositoryAtomPubUrl);
+        }
+        return renderer;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.operations;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An internal task queue servlet that renders the artifact of a module version. See
+ * {@link RenderArtifactPipeline}.
+ * <p>
+ * Render errors are reported with a server error status so the task queue retries the task.
+ * 
+ * @author Tal Dayan
+ */
+@SuppressWarnings("serial")
+public class RenderArtifactTaskServlet extends HttpServlet {
+    private static final Logger log = Logger.getLogger(RenderArtifactTaskServlet.class.getName());
+
+    /** The URL of this servlet. Should match web.xml. */
+    public static final String TASK_URL = "/_repo/render_artifact";
+
+    public static final String MODULE_ID_PARAM = "module";
+    public static final String VERSION_PARAM = "version";
+
+    @Override
+    public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final String moduleId = req.getParameter(MODULE_ID_PARAM);
+        final int versionNumber;
+        try {
+            versionNumber = Integer.parseInt(req.getParameter(VERSION_PARAM));
+        } catch (NumberFormatException e) {
+            // Completing the task normally since a retry will never succeed.
+            log.log(Level.SEVERE, "Invalid render task version: "
+                    + req.getParameter(VERSION_PARAM), e);
+            return;
+        }
+
+        if (!Services.renderArtifacts.isEnabled()) {
+            log.warning("Render artifacts are disabled, ignoring task for module version "
+                    + moduleId + "/" + versionNumber);
+            return;
+        }
+
+        try {
+            Services.renderArtifacts.render(moduleId, versionNumber);
+        } catch (Exception e) {
+            ServletUtil.setServletError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Failed to render module version " + moduleId + "/" + versionNumber, e, log,
+                    Level.WARNING);
+        }
+    }
+}
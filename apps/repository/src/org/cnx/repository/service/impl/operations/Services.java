@@ -16,8 +16,10 @@
 
 package org.cnx.repository.service.impl.operations;
 
+import org.cnx.common.startup.StartupReport;
 import org.cnx.repository.service.api.CnxRepositoryConfiguration;
 import org.cnx.repository.service.impl.configuration.CnxRepositoryConfigurationImpl;
+import org.cnx.repository.service.impl.persistence.AsyncPersistenceService;
 import org.cnx.repository.service.impl.persistence.PersistenceService;
 
 import com.google.appengine.api.blobstore.BlobInfoFactory;
@@ -32,6 +34,9 @@ import com.google.appengine.api.datastore.DatastoreServiceFactory;
  */
 public class Services {
 
+    // Must be first, to time the initialization of the fields below.
+    private static final long initStartNanos = StartupReport.start();
+
     // A single instance used by all queries of all threads.
     public static final BlobstoreService blobstore = BlobstoreServiceFactory.getBlobstoreService();
 
@@ -39,9 +44,21 @@ public class Services {
     public static final PersistenceService persistence = new PersistenceService(
         DatastoreServiceFactory.getDatastoreService());
 
+    // Shares the entity cache of persistence.
+    public static final AsyncPersistenceService asyncPersistence = new AsyncPersistenceService(
+        DatastoreServiceFactory.getAsyncDatastoreService(), persistence.getCache());
+
     // TODO(tal): *** should we create an instance on the fly for each use?
     public static final BlobInfoFactory blobInfoFactory = new BlobInfoFactory();
 
     public static final CnxRepositoryConfiguration config = CnxRepositoryConfigurationImpl
         .getInstance();
+
+    // Renders new module versions in the background, if enabled.
+    public static final RenderArtifactPipeline renderArtifacts = RenderArtifactPipeline
+        .fromSystemProperties(persistence);
+
+    static {
+        StartupReport.record("Services", initStartNanos);
+    }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.cnx.repository.service.impl.instrumentation.RpcTrace;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * An asynchronous variant of {@link PersistenceService}, built on the async datastore service.
+ * <p>
+ * Each method issues its datastore call and returns a future without waiting for the call to
+ * complete, so independent calls of an operation can be overlapped. The methods use the current
+ * transaction, if any, as {@link PersistenceService} does. Entities are deserialized, and the
+ * entity cache updated, by the thread that gets the result of the future. Use
+ * {@link #getResult} to wait for a result.
+ * 
+ * @author Tal Dayan
+ */
+public class AsyncPersistenceService {
+
+    private final AsyncDatastoreService datastore;
+
+    /** Content is stored and resolved synchronously. */
+    private final ContentStore contentStore;
+
+    private final EntityCache cache;
+
+    /**
+     * @param datastore the async datastore service.
+     * @param cache the entity cache. Should be the cache of the {@link PersistenceService} that
+     *            is used with this service.
+     */
+    public AsyncPersistenceService(AsyncDatastoreService datastore, EntityCache cache) {
+        this.datastore = checkNotNull(datastore);
+        this.cache = checkNotNull(cache);
+        this.contentStore = new ContentStore(DatastoreServiceFactory.getDatastoreService(), cache);
+    }
+
+    /**
+     * Wait for the result of a future returned by this service.
+     * 
+     * @throws EntityNotFoundException if the future is of a read of an entity that does not exist.
+     */
+    public static <T> T getResult(Future<T> future) throws EntityNotFoundException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the datastore", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof EntityNotFoundException) {
+                throw (EntityNotFoundException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Write entities. See {@link PersistenceService#write}.
+     * <p>
+     * The keys assigned to orm entities without a key are set, and the cached copies of the
+     * entities invalidated, when the result of the returned future is retrieved, so callers must
+     * always wait for it.
+     */
+    public Future<Void> write(final OrmEntity... ormEntities) {
+        final List<Entity> entities = Lists.newArrayList();
+        for (OrmEntity ormEntity : ormEntities) {
+            entities.add(ormEntity.toEntity());
+        }
+
+        if (PersistenceService.allocatesReservedKind(entities)) {
+            PersistenceMigrationUtil.ensureReservedKeysProtected(
+                DatastoreServiceFactory.getDatastoreService());
+        }
+
+        contentStore.store(Arrays.asList(ormEntities));
+
+        PersistenceService.traceWrite("datastore.put", entities);
+        return new TransformingFuture<List<Key>, Void>(datastore.put(entities)) {
+            @Override
+            protected Void transform(List<Key> keys) {
+                for (Key key : keys) {
+                    PersistenceService.invalidateCachedEntity(cache, key);
+                }
+                for (int i = 0; i < ormEntities.length; i++) {
+                    if (ormEntities[i].getKey() == null) {
+                        ormEntities[i].setKey(keys.get(i));
+                    } else {
+                        // Sanity check.
+                        checkState(ormEntities[i].getKey().equals(keys.get(i)));
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Read an entity. See {@link PersistenceService#read}. Cache hits return a completed future.
+     * If the entity does not exist, the future fails with {@link EntityNotFoundException}.
+     */
+    public <T extends OrmEntity> Future<T> read(final Class<T> entityClass, Key key) {
+        final boolean readThroughCache =
+            PersistenceService.isReadThroughCache(cache, key, isInTransaction());
+        if (readThroughCache) {
+            final Entity entity = cache.get(key);
+            if (entity != null) {
+                return Futures.immediateFuture(create(entityClass, entity));
+            }
+        }
+
+        RpcTrace.recordRpc("datastore.get");
+        return new TransformingFuture<Entity, T>(datastore.get(key)) {
+            @Override
+            protected T transform(Entity entity) {
+                PersistenceService.traceRead(null, Collections.singletonList(entity));
+                if (readThroughCache) {
+                    cache.put(entity);
+                }
+                return create(entityClass, entity);
+            }
+        };
+    }
+
+    /**
+     * Read the direct children of a given parent. See {@link PersistenceService#readChildren}.
+     */
+    public <T extends OrmEntity> Future<List<T>> readChildren(Class<T> entityClass, Key parentKey) {
+        final Query query = new Query(OrmEntity.entityClassSpec(entityClass).getKeyKind());
+        query.setAncestor(parentKey);
+
+        // The query is started here and the returned list blocks on first access.
+        final List<Entity> entities =
+            datastore.prepare(query).asList(FetchOptions.Builder.withDefaults());
+        RpcTrace.recordRpc("datastore.query");
+
+        final OrmEntityRegistry.Factory<T> factory = OrmEntityRegistry.getFactory(entityClass);
+        return new TransformingFuture<List<Entity>, List<T>>(Futures.immediateFuture(entities)) {
+            @Override
+            protected List<T> transform(List<Entity> inputEntities) {
+                PersistenceService.traceRead(null, inputEntities);
+                final List<T> ormEntities = Lists.newArrayListWithCapacity(inputEntities.size());
+                for (Entity entity : inputEntities) {
+                    ormEntities.add(factory.create(entity));
+                }
+                contentStore.resolve(ormEntities);
+                return ormEntities;
+            }
+        };
+    }
+
+    /**
+     * Test if an entity with the given key exists. See {@link PersistenceService#hasObjectWithKey}.
+     */
+    public Future<Boolean> hasObjectWithKey(final Key key) {
+        checkNotNull(key);
+        // A batch get reports missing entities by omitting them rather than by failing.
+        final List<Key> keys = Collections.singletonList(key);
+        RpcTrace.recordRpc("datastore.get");
+        return new TransformingFuture<Map<Key, Entity>, Boolean>(datastore.get(keys)) {
+            @Override
+            protected Boolean transform(Map<Key, Entity> entities) {
+                return entities.containsKey(key);
+            }
+        };
+    }
+
+    private <T extends OrmEntity> T create(Class<T> entityClass, Entity entity) {
+        final T ormEntity = OrmEntityRegistry.create(entityClass, entity);
+        contentStore.resolve(Collections.singletonList(ormEntity));
+        return ormEntity;
+    }
+
+    private boolean isInTransaction() {
+        return datastore.getCurrentTransaction(null) != null;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nullable;
+
+import com.google.appengine.api.datastore.Blob;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Text;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Storage of large text properties, such as XML documents, as deflated blobs.
+ * <p>
+ * When compression is enabled, texts of at least {@link #MIN_COMPRESSED_CHARS} characters are
+ * written as an unindexed {@link Blob} of a format marker byte, the UTF-8 size of the text and
+ * the deflated UTF-8 text. Shorter texts, and all texts when compression is disabled, are
+ * written as {@link Text}. Both forms are read regardless of the setting, so the setting can be
+ * changed at any time.
+ * <p>
+ * Compression is enabled unless the system property {@link #ENABLED_PROPERTY} is "false".
+ *
+ * @author Tal Dayan
+ */
+public final class CompressedText {
+
+    /** System property to turn off compression on writes, e.g. in appengine-web.xml. */
+    public static final String ENABLED_PROPERTY = "cnx.repository.compress_text";
+
+    /** Shorter texts gain little from compression. */
+    static final int MIN_COMPRESSED_CHARS = 1024;
+
+    /** First byte of the blob. Allows adding other formats later. */
+    private static final byte FORMAT_DEFLATE = 1;
+
+    /** The format marker and the four bytes of the uncompressed size. */
+    private static final int HEADER_SIZE = 5;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final boolean enabled = !"false".equals(System.getProperty(ENABLED_PROPERTY));
+
+    /** Kind -> stats. */
+    private static final ConcurrentMap<String, CompressionStats> statsByKind =
+        new ConcurrentHashMap<String, CompressionStats>();
+
+    private CompressedText() {
+    }
+
+    /** Are text properties compressed on writes? */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Get the compression statistics of this instance, keyed by entity kind. */
+    public static ImmutableMap<String, CompressionStats> getStatistics() {
+        return ImmutableMap.copyOf(statsByKind);
+    }
+
+    /**
+     * Set an unindexed text property, compressed if compression is enabled and the text is long
+     * enough.
+     */
+    static void setProperty(Entity entity, String propertyName, String text) {
+        if (!enabled || text.length() < MIN_COMPRESSED_CHARS) {
+            entity.setUnindexedProperty(propertyName, new Text(text));
+            return;
+        }
+        final byte[] bytes = text.getBytes(UTF8);
+        final byte[] compressed = deflate(entity.getKind(), bytes, HEADER_SIZE);
+        compressed[0] = FORMAT_DEFLATE;
+        compressed[1] = (byte) (bytes.length >>> 24);
+        compressed[2] = (byte) (bytes.length >>> 16);
+        compressed[3] = (byte) (bytes.length >>> 8);
+        compressed[4] = (byte) bytes.length;
+        entity.setUnindexedProperty(propertyName, new Blob(compressed));
+    }
+
+    /**
+     * Get a text property written by {@link #setProperty}, or a plain {@link Text} property.
+     * 
+     * @return the text or null if the entity does not have this property.
+     */
+    @Nullable
+    static String getProperty(Entity entity, String propertyName) {
+        final Object value = entity.getProperty(propertyName);
+        if (value == null || value instanceof Text) {
+            return (value == null) ? null : ((Text) value).getValue();
+        }
+        checkArgument(value instanceof Blob, "Property %s of %s is not a text: %s", propertyName,
+            entity.getKey(), value.getClass());
+        final byte[] compressed = ((Blob) value).getBytes();
+        checkArgument(compressed.length >= HEADER_SIZE && compressed[0] == FORMAT_DEFLATE,
+            "Property %s of %s has an unknown format", propertyName, entity.getKey());
+        final int size =
+            ((compressed[1] & 0xff) << 24) | ((compressed[2] & 0xff) << 16)
+                | ((compressed[3] & 0xff) << 8) | (compressed[4] & 0xff);
+        return new String(inflate(entity.getKind(), compressed, HEADER_SIZE, size), UTF8);
+    }
+
+    /**
+     * Deflate bytes.
+     * 
+     * @param kind the kind of the entity the bytes belong to, for the statistics.
+     * @param headerSize number of bytes to leave at the start of the result for the caller.
+     */
+    static byte[] deflate(String kind, byte[] bytes, int headerSize) {
+        final long startNanos = System.nanoTime();
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final ByteArrayOutputStream out =
+                new ByteArrayOutputStream(headerSize + bytes.length / 4 + 64);
+            final byte[] buffer = new byte[8192];
+            out.write(buffer, 0, headerSize);
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            final byte[] result = out.toByteArray();
+            getStats(kind).recordCompression(bytes.length, result.length,
+                System.nanoTime() - startNanos);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflate bytes written by {@link #deflate}.
+     * 
+     * @param kind the kind of the entity the bytes belong to, for the statistics.
+     * @param offset the size of the header before the deflated bytes.
+     * @param size the size of the inflated bytes.
+     */
+    static byte[] inflate(String kind, byte[] compressed, int offset, int size) {
+        final long startNanos = System.nanoTime();
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, offset, compressed.length - offset);
+            final byte[] bytes = new byte[size];
+            int n = 0;
+            while (n < size) {
+                final int inflated = inflater.inflate(bytes, n, size - n);
+                checkArgument(inflated > 0, "Truncated content, expected %s bytes, found %s",
+                    size, n);
+                n += inflated;
+            }
+            getStats(kind).recordDecompression(System.nanoTime() - startNanos);
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupted content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static CompressionStats getStats(String kind) {
+        final CompressionStats stats = statsByKind.get(kind);
+        if (stats != null) {
+            return stats;
+        }
+        statsByKind.putIfAbsent(kind, new CompressionStats());
+        return statsByKind.get(kind);
+    }
+}
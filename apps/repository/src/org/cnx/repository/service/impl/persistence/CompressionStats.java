@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the documents compressed and decompressed by {@link CompressedText} for a single
+ * entity kind.
+ *
+ * @author Tal Dayan
+ */
+public class CompressionStats {
+    private final AtomicLong compressions = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    private final AtomicLong decompressions = new AtomicLong();
+    private final AtomicLong decompressionNanos = new AtomicLong();
+
+    void recordCompression(long uncompressedSize, long compressedSize, long nanos) {
+        compressions.incrementAndGet();
+        uncompressedBytes.addAndGet(uncompressedSize);
+        compressedBytes.addAndGet(compressedSize);
+        compressionNanos.addAndGet(nanos);
+    }
+
+    void recordDecompression(long nanos) {
+        decompressions.incrementAndGet();
+        decompressionNanos.addAndGet(nanos);
+    }
+
+    public long getCompressions() {
+        return compressions.get();
+    }
+
+    /** Total UTF-8 size of the compressed documents. */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public long getCompressionNanos() {
+        return compressionNanos.get();
+    }
+
+    public long getDecompressions() {
+        return decompressions.get();
+    }
+
+    public long getDecompressionNanos() {
+        return decompressionNanos.get();
+    }
+
+    /**
+     * Compressed size as a fraction of the uncompressed size, lower is better. One if nothing
+     * was compressed.
+     */
+    public double getCompressionRatio() {
+        final long uncompressed = getUncompressedBytes();
+        return (uncompressed == 0) ? 1 : ((double) getCompressedBytes()) / uncompressed;
+    }
+
+    @Override
+    public String toString() {
+        final long compressions = getCompressions();
+        final long decompressions = getDecompressions();
+        return String.format("compressions: %d, bytes: %d -> %d, ratio: %.3f, avg compress: %d us,"
+                + " decompressions: %d, avg decompress: %d us", compressions,
+                getUncompressedBytes(), getCompressedBytes(), getCompressionRatio(),
+                (compressions == 0) ? 0 : getCompressionNanos() / compressions / 1000,
+                decompressions,
+                (decompressions == 0) ? 0 : getDecompressionNanos() / decompressions / 1000);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A content addressed store of the documents of {@link StoredDocumentHolder} entities, backed by
+ * {@link OrmContentEntity} entities.
+ * <p>
+ * Content entities are root entities, each in its own entity group, so they are read and written
+ * outside of the current transaction, if any. This is safe since they are immutable. A document
+ * stored for a transaction that then fails stays in the store, unreferenced.
+ * 
+ * @author Tal Dayan
+ */
+class ContentStore {
+
+    private final DatastoreService datastore;
+
+    private final EntityCache cache;
+
+    ContentStore(DatastoreService datastore, EntityCache cache) {
+        this.datastore = checkNotNull(datastore);
+        this.cache = checkNotNull(cache);
+    }
+
+    /**
+     * Store the documents of the given entities, unless already stored. Uses at most one batch
+     * get and one batch put.
+     */
+    void store(Iterable<? extends OrmEntity> ormEntities) {
+        // Key -> document, of documents not known to be stored.
+        final Map<Key, StoredDocument> documents = Maps.newLinkedHashMap();
+        for (OrmEntity ormEntity : ormEntities) {
+            if (!(ormEntity instanceof StoredDocumentHolder)) {
+                continue;
+            }
+            for (StoredDocument document : ((StoredDocumentHolder) ormEntity)
+                .getStoredDocuments()) {
+                final Key key = OrmContentEntity.contentKey(document.getHash());
+                if (document.isResolved() && !documents.containsKey(key) && !isCached(key)) {
+                    documents.put(key, document);
+                }
+            }
+        }
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        final Map<Key, Entity> existing = datastore.get(null, documents.keySet());
+        PersistenceService.traceRead("datastore.get", existing.values());
+        documents.keySet().removeAll(existing.keySet());
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        final Date now = new Date();
+        final List<Entity> entities = Lists.newArrayListWithCapacity(documents.size());
+        for (StoredDocument document : documents.values()) {
+            entities.add(new OrmContentEntity(now, document).toEntity());
+        }
+        datastore.put(null, entities);
+        PersistenceService.traceWrite("datastore.put", entities);
+
+        // Likely to be read soon, e.g. as the latest version.
+        for (Entity entity : entities) {
+            cache.put(entity);
+        }
+    }
+
+    /**
+     * Resolve the unresolved documents of the given entities. Uses at most one batch get.
+     * 
+     * @throws IllegalStateException if a referenced document is missing.
+     */
+    void resolve(Iterable<? extends OrmEntity> ormEntities) {
+        // Key -> unresolved documents with that key.
+        final Map<Key, List<StoredDocument>> unresolved = Maps.newLinkedHashMap();
+        for (OrmEntity ormEntity : ormEntities) {
+            if (!(ormEntity instanceof StoredDocumentHolder)) {
+                continue;
+            }
+            for (StoredDocument document : ((StoredDocumentHolder) ormEntity)
+                .getStoredDocuments()) {
+                if (!document.isResolved()) {
+                    final Key key = OrmContentEntity.contentKey(document.getHash());
+                    List<StoredDocument> list = unresolved.get(key);
+                    if (list == null) {
+                        list = Lists.newArrayList();
+                        unresolved.put(key, list);
+                    }
+                    list.add(document);
+                }
+            }
+        }
+        if (unresolved.isEmpty()) {
+            return;
+        }
+
+        final Map<Key, Entity> entities = Maps.newHashMap();
+        final List<Key> keysToFetch = Lists.newArrayList();
+        for (Key key : unresolved.keySet()) {
+            final Entity entity = isCacheable() ? cache.get(key) : null;
+            if (entity != null) {
+                entities.put(key, entity);
+            } else {
+                keysToFetch.add(key);
+            }
+        }
+        if (!keysToFetch.isEmpty()) {
+            final Map<Key, Entity> fetched = datastore.get(null, keysToFetch);
+            PersistenceService.traceRead("datastore.get", fetched.values());
+            for (Entity entity : fetched.values()) {
+                if (isCacheable()) {
+                    cache.put(entity);
+                }
+            }
+            entities.putAll(fetched);
+        }
+
+        for (Map.Entry<Key, List<StoredDocument>> entry : unresolved.entrySet()) {
+            final Entity entity = entities.get(entry.getKey());
+            checkState(entity != null, "Missing stored document: %s", entry.getKey());
+            final String document = new OrmContentEntity(entity).getDocument();
+            for (StoredDocument storedDocument : entry.getValue()) {
+                storedDocument.resolve(document);
+            }
+        }
+    }
+
+    private boolean isCacheable() {
+        return cache.getPolicy(OrmContentEntity.getSpec().getKeyKind()) != EntityCache.Policy.NONE;
+    }
+
+    private boolean isCached(Key key) {
+        return isCacheable() && cache.get(key) != null;
+    }
+}
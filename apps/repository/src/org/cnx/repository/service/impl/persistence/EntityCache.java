@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.persistence;
+
+import javax.annotation.Nullable;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A read through cache of datastore entities used by {@link PersistenceService}.
+ * <p>
+ * The cache holds datastore entities rather than orm entities since orm entities are mutable.
+ * Cached entities are shared and must not be modified by the callers.
+ *
+ * @author Tal Dayan
+ */
+public interface EntityCache {
+
+    /** How entities of a given kind are cached. */
+    public static enum Policy {
+        /** Not cached. */
+        NONE,
+        /**
+         * Entities are never modified once written, so they are cached until evicted, and can be
+         * read from the cache also within a transaction.
+         */
+        IMMUTABLE,
+        /**
+         * Entities may be modified. They are cached for a bounded time, invalidated on writes,
+         * and never read from the cache within a transaction.
+         */
+        MUTABLE;
+    }
+
+    /** Get the cache policy of entities of the given kind. */
+    Policy getPolicy(String kind);
+
+    /**
+     * Lookup an entity.
+     *
+     * @return the cached entity or null if not cached.
+     */
+    @Nullable
+    Entity get(Key key);
+
+    /** Cache an entity that was just read from the datastore. */
+    void put(Entity entity);
+
+    /** Drop the entity with the given key, if cached. */
+    void invalidate(Key key);
+
+    /** Get the cache statistics, keyed by entity kind. */
+    ImmutableMap<String, EntityCacheStats> getStatistics();
+}
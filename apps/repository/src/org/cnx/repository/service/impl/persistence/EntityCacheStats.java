@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lookup counters of an {@link EntityCache} for a single entity kind.
+ *
+ * @author Tal Dayan
+ */
+public class EntityCacheStats {
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong memcacheHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    void recordLocalHit() {
+        localHits.incrementAndGet();
+    }
+
+    void recordMemcacheHit() {
+        memcacheHits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordInvalidation() {
+        invalidations.incrementAndGet();
+    }
+
+    public long getLocalHits() {
+        return localHits.get();
+    }
+
+    public long getMemcacheHits() {
+        return memcacheHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Fraction of lookups served by either cache tier. Zero if there were no lookups.
+     */
+    public double getHitRatio() {
+        final long hits = getLocalHits() + getMemcacheHits();
+        final long lookups = hits + getMisses();
+        return (lookups == 0) ? 0 : ((double) hits) / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("local hits: %d, memcache hits: %d, misses: %d, invalidations: %d,"
+                + " hit ratio: %.3f", getLocalHits(), getMemcacheHits(), getMisses(),
+                getInvalidations(), getHitRatio());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import javax.annotation.Nullable;
+
+import com.google.appengine.api.datastore.Key;
+
+/**
+ * Receives the entities streamed by {@link PersistenceService#streamEntities}.
+ * 
+ * @author Tal Dayan
+ */
+public interface EntityStreamVisitor<T extends OrmEntity> {
+
+    /**
+     * Called once per entity, in query order.
+     * 
+     * @param entity the entity, or null if the stream reads keys only.
+     */
+    void visit(Key key, @Nullable T entity);
+
+    /**
+     * Called periodically between entities.
+     * 
+     * @param cursor a cursor to start a new stream right after the last visited entity.
+     * @return true to continue the stream, false to stop it here.
+     */
+    boolean checkpoint(String cursor);
+}
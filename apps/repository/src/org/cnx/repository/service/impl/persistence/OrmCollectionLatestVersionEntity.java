@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+/**
+ * A POJO representing a denormalized copy of the latest version of a collection. See
+ * {@link OrmModuleLatestVersionEntity}.
+ * 
+ * @author Tal Dayan
+ */
+public class OrmCollectionLatestVersionEntity extends OrmEntity {
+
+    /**
+     * Latest version copies do not have an id. There is at most one per collection.
+     */
+    private static final OrmEntitySpec ENTITY_SPEC = new OrmEntitySpec("CollectionLatest", null);
+
+    private static final String KEY_NAME = "latest";
+
+    private static final String VERSION_NUMBER = "version";
+    private static final String COLXML_DOC = "colxml";
+    private static final String COLLECTION_ID = "collection";
+
+    private final int versionNumber;
+
+    private final String colxmlDoc;
+
+    /**
+     * Construct a copy of a collection version entity.
+     */
+    public OrmCollectionLatestVersionEntity(OrmCollectionVersionEntity versionEntity) {
+        super(ENTITY_SPEC, latestVersionKey(versionEntity.getKey().getParent()), versionEntity
+                .getCreationTime());
+        this.versionNumber = versionEntity.getVersionNumber();
+        this.colxmlDoc = versionEntity.getColxmlDoc();
+    }
+
+    /**
+     * Deserialize a collection latest version entity from a datastore entity.
+     */
+    public OrmCollectionLatestVersionEntity(Entity entity) {
+        super(ENTITY_SPEC, entity);
+        this.versionNumber = ((Long) entity.getProperty(VERSION_NUMBER)).intValue();
+        this.colxmlDoc = checkNotNull(CompressedText.getProperty(entity, COLXML_DOC),
+                "Missing property %s", COLXML_DOC);
+    }
+
+    public int getVersionNumber() {
+        return versionNumber;
+    }
+
+    public String getColxmlDoc() {
+        return colxmlDoc;
+    }
+
+    /**
+     * Construct the key of the latest version copy of a collection.
+     * 
+     * @param collectionKey the key of the parent collection entity.
+     * @return the collection latest version key.
+     */
+    public static Key latestVersionKey(Key collectionKey) {
+        checkNotNull(collectionKey, "null collection key");
+        checkArgument(OrmCollectionEntity.getSpec().getKeyKind().equals(collectionKey.getKind()),
+                "Not a collectionKey: %s", collectionKey);
+        return KeyFactory.createKey(collectionKey, ENTITY_SPEC.getKeyKind(), KEY_NAME);
+    }
+
+    @Override
+    protected void serializeToEntity(Entity entity) {
+        entity.setProperty(VERSION_NUMBER, versionNumber); // serialized as Long
+        CompressedText.setProperty(entity, COLXML_DOC, colxmlDoc);
+        entity.setProperty(COLLECTION_ID,
+                OrmCollectionEntity.collectionKeyToId(getKey().getParent()));
+    }
+
+    public static OrmEntitySpec getSpec() {
+        return ENTITY_SPEC;
+    }
+}
@@ -24,7 +24,6 @@ import java.util.Date;
 import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.KeyFactory;
-import com.google.appengine.api.datastore.Text;
 
 /**
  * A POJO representing a collection version entity.
@@ -66,7 +65,8 @@ public class OrmCollectionVersionEntity extends OrmEntity {
     public OrmCollectionVersionEntity(Entity entity) {
         super(ENTITY_SPEC, entity);
         this.versionNumber = ((Long) entity.getProperty(VERSION_NUMBER)).intValue();
-        this.colxmlDoc = ((Text) entity.getProperty(COLXML_DOC)).getValue();
+        this.colxmlDoc = checkNotNull(CompressedText.getProperty(entity, COLXML_DOC),
+                "Missing property %s", COLXML_DOC);
     }
 
     public int getVersionNumber() {
@@ -95,7 +95,7 @@ public class OrmCollectionVersionEntity extends OrmEntity {
     @Override
     protected void serializeToEntity(Entity entity) {
         entity.setProperty(VERSION_NUMBER, versionNumber); // serialized as Long
-        entity.setProperty(COLXML_DOC, new Text(colxmlDoc));
+        CompressedText.setProperty(entity, COLXML_DOC, colxmlDoc);
 
         // We serialize also a human readable copy of the collection id so it can be seen and
         // used in the datastore view.
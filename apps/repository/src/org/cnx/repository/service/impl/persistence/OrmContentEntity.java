@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.Charset;
+import java.util.Date;
+
+import com.google.appengine.api.datastore.Blob;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+/**
+ * A POJO representing a document in the {@link ContentStore}.
+ * <p>
+ * Content entities are root entities whose key name is the SHA-256 hash of the document, so
+ * they are immutable and shared by all the entities that reference the same document. The
+ * document is always stored deflated, see {@link CompressedText}.
+ * 
+ * @author Tal Dayan
+ */
+public class OrmContentEntity extends OrmEntity {
+
+    /**
+     * Content entities do not have an id. Their key name is their hash.
+     */
+    private static final OrmEntitySpec ENTITY_SPEC = new OrmEntitySpec("Content", null);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String DATA = "data";
+    private static final String SIZE = "size";
+
+    private final String document;
+
+    /**
+     * Construct the content entity of a document.
+     */
+    public OrmContentEntity(Date creationTime, StoredDocument storedDocument) {
+        super(ENTITY_SPEC, contentKey(storedDocument.getHash()), creationTime);
+        this.document = storedDocument.getDocument();
+    }
+
+    /**
+     * Deserialize a content entity from a datastore entity.
+     */
+    public OrmContentEntity(Entity entity) {
+        super(ENTITY_SPEC, entity);
+        final int size = ((Long) entity.getProperty(SIZE)).intValue();
+        this.document =
+                new String(CompressedText.inflate(ENTITY_SPEC.getKeyKind(),
+                        ((Blob) entity.getProperty(DATA)).getBytes(), 0, size), UTF8);
+    }
+
+    public String getDocument() {
+        return document;
+    }
+
+    /**
+     * Construct the key of the content entity of a document.
+     * 
+     * @param hash the hash of the document. See {@link StoredDocument#sha256Hex}.
+     */
+    public static Key contentKey(String hash) {
+        checkNotNull(hash, "null hash");
+        return KeyFactory.createKey(ENTITY_SPEC.getKeyKind(), hash);
+    }
+
+    @Override
+    protected void serializeToEntity(Entity entity) {
+        final byte[] bytes = document.getBytes(UTF8);
+        // Set as a Long, as read back from the datastore, since the content store caches the
+        // entities it writes.
+        entity.setUnindexedProperty(SIZE, (long) bytes.length);
+        entity.setUnindexedProperty(DATA, new Blob(CompressedText.deflate(
+                ENTITY_SPEC.getKeyKind(), bytes, 0)));
+    }
+
+    public static OrmEntitySpec getSpec() {
+        return ENTITY_SPEC;
+    }
+}
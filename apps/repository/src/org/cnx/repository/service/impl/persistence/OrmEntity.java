@@ -111,15 +111,10 @@ public abstract class OrmEntity {
     }
 
     /**
-     * Invoke the getSpec() method of an entity class to get its spec.
+     * Get the spec of an entity class. See {@link OrmEntityRegistry}.
      */
     public static <T extends OrmEntity> OrmEntitySpec entityClassSpec(Class<T> entityClass) {
-        try {
-            return (OrmEntitySpec) entityClass.getDeclaredMethod("getSpec").invoke(null);
-        } catch (Throwable e) {
-            throw new RuntimeException("Error involing static method getSpec() of class "
-                    + entityClass, e);
-        }
+        return OrmEntityRegistry.getSpec(entityClass);
     }
 
     /**
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Registry of the orm entity classes.
+ * <p>
+ * Maps each orm entity class to its spec and to a factory that constructs it from a datastore
+ * entity. The registry is built once when the class is loaded, so reading entities does not use
+ * reflection.
+ * 
+ * @author Tal Dayan
+ */
+public final class OrmEntityRegistry {
+
+    /** Constructs orm entities of a given class from datastore entities. */
+    public static interface Factory<T extends OrmEntity> {
+        T create(Entity entity);
+    }
+
+    private static class Registration<T extends OrmEntity> {
+        private final OrmEntitySpec spec;
+        private final Factory<T> factory;
+
+        Registration(OrmEntitySpec spec, Factory<T> factory) {
+            this.spec = spec;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Orm entity class -> registration. New orm entity classes should be added here.
+     */
+    private static final ImmutableMap<Class<? extends OrmEntity>, Registration<?>> REGISTRATIONS;
+
+    static {
+        final ImmutableMap.Builder<Class<? extends OrmEntity>, Registration<?>> builder =
+            ImmutableMap.builder();
+
+        register(builder, OrmCollectionEntity.class, OrmCollectionEntity.getSpec(),
+            new Factory<OrmCollectionEntity>() {
+                @Override
+                public OrmCollectionEntity create(Entity entity) {
+                    return new OrmCollectionEntity(entity);
+                }
+            });
+
+        register(builder, OrmCollectionLatestVersionEntity.class,
+            OrmCollectionLatestVersionEntity.getSpec(),
+            new Factory<OrmCollectionLatestVersionEntity>() {
+                @Override
+                public OrmCollectionLatestVersionEntity create(Entity entity) {
+                    return new OrmCollectionLatestVersionEntity(entity);
+                }
+            });
+
+        register(builder, OrmCollectionVersionEntity.class, OrmCollectionVersionEntity.getSpec(),
+            new Factory<OrmCollectionVersionEntity>() {
+                @Override
+                public OrmCollectionVersionEntity create(Entity entity) {
+                    return new OrmCollectionVersionEntity(entity);
+                }
+            });
+
+        register(builder, OrmContentEntity.class, OrmContentEntity.getSpec(),
+            new Factory<OrmContentEntity>() {
+                @Override
+                public OrmContentEntity create(Entity entity) {
+                    return new OrmContentEntity(entity);
+                }
+            });
+
+        register(builder, OrmExportItemEntity.class, OrmExportItemEntity.getSpec(),
+            new Factory<OrmExportItemEntity>() {
+                @Override
+                public OrmExportItemEntity create(Entity entity) {
+                    return new OrmExportItemEntity(entity);
+                }
+            });
+
+        register(builder, OrmModuleEntity.class, OrmModuleEntity.getSpec(),
+            new Factory<OrmModuleEntity>() {
+                @Override
+                public OrmModuleEntity create(Entity entity) {
+                    return new OrmModuleEntity(entity);
+                }
+            });
+
+        register(builder, OrmModuleLatestVersionEntity.class,
+            OrmModuleLatestVersionEntity.getSpec(),
+            new Factory<OrmModuleLatestVersionEntity>() {
+                @Override
+                public OrmModuleLatestVersionEntity create(Entity entity) {
+                    return new OrmModuleLatestVersionEntity(entity);
+                }
+            });
+
+        register(builder, OrmModuleVersionEntity.class, OrmModuleVersionEntity.getSpec(),
+            new Factory<OrmModuleVersionEntity>() {
+                @Override
+                public OrmModuleVersionEntity create(Entity entity) {
+                    return new OrmModuleVersionEntity(entity);
+                }
+            });
+
+        register(builder, OrmRenderArtifactEntity.class, OrmRenderArtifactEntity.getSpec(),
+            new Factory<OrmRenderArtifactEntity>() {
+                @Override
+                public OrmRenderArtifactEntity create(Entity entity) {
+                    return new OrmRenderArtifactEntity(entity);
+                }
+            });
+
+        register(builder, OrmResourceEntity.class, OrmResourceEntity.getSpec(),
+            new Factory<OrmResourceEntity>() {
+                @Override
+                public OrmResourceEntity create(Entity entity) {
+                    return new OrmResourceEntity(entity);
+                }
+            });
+
+        REGISTRATIONS = builder.build();
+    }
+
+    private static <T extends OrmEntity> void register(
+        ImmutableMap.Builder<Class<? extends OrmEntity>, Registration<?>> builder,
+        Class<T> entityClass, OrmEntitySpec spec, Factory<T> factory) {
+        builder.put(entityClass, new Registration<T>(spec, factory));
+    }
+
+    // Utility class.
+    private OrmEntityRegistry() {
+    }
+
+    /**
+     * Get the spec of an orm entity class.
+     */
+    public static OrmEntitySpec getSpec(Class<? extends OrmEntity> entityClass) {
+        return getRegistration(entityClass).spec;
+    }
+
+    /**
+     * Construct an orm entity of the given class from a datastore entity.
+     */
+    public static <T extends OrmEntity> T create(Class<T> entityClass, Entity entity) {
+        return getRegistration(entityClass).factory.create(entity);
+    }
+
+    /**
+     * Get the factory of an orm entity class.
+     */
+    public static <T extends OrmEntity> Factory<T> getFactory(Class<T> entityClass) {
+        return getRegistration(entityClass).factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends OrmEntity> Registration<T> getRegistration(Class<T> entityClass) {
+        final Registration<T> registration = (Registration<T>) REGISTRATIONS.get(entityClass);
+        checkArgument(registration != null, "Unregistered orm entity class: %s", entityClass);
+        return registration;
+    }
+}
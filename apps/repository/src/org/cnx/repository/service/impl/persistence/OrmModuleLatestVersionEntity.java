@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A POJO representing a denormalized copy of the latest version of a module.
+ * <p>
+ * The copy is a child of the module entity and is written in the same transaction that adds a
+ * module version, so 'latest' can be read with a single get instead of reading the module entity
+ * and then its version entity. Modules whose latest version was added before this entity was
+ * introduced do not have a copy and are read the old way.
+ * <p>
+ * Like the version entity, the copy references its documents in the {@link ContentStore}, so
+ * it does not duplicate them.
+ * 
+ * @author Tal Dayan
+ */
+public class OrmModuleLatestVersionEntity extends OrmEntity implements StoredDocumentHolder {
+
+    /**
+     * Latest version copies do not have an id. There is at most one per module.
+     */
+    private static final OrmEntitySpec ENTITY_SPEC = new OrmEntitySpec("ModuleLatest", null);
+
+    private static final String KEY_NAME = "latest";
+
+    private static final String VERSION_NUMBER = "version";
+    private static final String CNXML_DOC = "cnxml";
+    private static final String RESOURCE_MAP_DOC = "resource_map";
+    private static final String CNXML_DOC_HASH = "cnxml_sha256";
+    private static final String RESOURCE_MAP_DOC_HASH = "resource_map_sha256";
+    private static final String MODULE_ID = "module";
+
+    private final int versionNumber;
+
+    private final StoredDocument cnxmlDoc;
+
+    private final StoredDocument resourceMapDoc;
+
+    /** See {@link StoredDocumentHolder#hasInlineDocuments}. */
+    private final boolean inlineDocuments;
+
+    /**
+     * Construct a copy of a module version entity.
+     */
+    public OrmModuleLatestVersionEntity(OrmModuleVersionEntity versionEntity) {
+        super(ENTITY_SPEC, latestVersionKey(versionEntity.getKey().getParent()), versionEntity
+                .getCreationTime());
+        this.versionNumber = versionEntity.getVersionNumber();
+        this.cnxmlDoc = versionEntity.getStoredCnxmlDoc();
+        this.resourceMapDoc = versionEntity.getStoredResourceMapDoc();
+        this.inlineDocuments = false;
+    }
+
+    /**
+     * Deserialize a module latest version entity from a datastore entity.
+     */
+    public OrmModuleLatestVersionEntity(Entity entity) {
+        super(ENTITY_SPEC, entity);
+        this.versionNumber = ((Long) entity.getProperty(VERSION_NUMBER)).intValue();
+        this.cnxmlDoc =
+                OrmModuleVersionEntity.readStoredDocument(entity, CNXML_DOC, CNXML_DOC_HASH);
+        this.resourceMapDoc =
+                OrmModuleVersionEntity.readStoredDocument(entity, RESOURCE_MAP_DOC,
+                        RESOURCE_MAP_DOC_HASH);
+        this.inlineDocuments = entity.hasProperty(CNXML_DOC);
+    }
+
+    public int getVersionNumber() {
+        return versionNumber;
+    }
+
+    public String getCNXMLDoc() {
+        return cnxmlDoc.getDocument();
+    }
+
+    public String getResourceMapDoc() {
+        return resourceMapDoc.getDocument();
+    }
+
+    @Override
+    public List<StoredDocument> getStoredDocuments() {
+        return ImmutableList.of(cnxmlDoc, resourceMapDoc);
+    }
+
+    @Override
+    public boolean hasInlineDocuments() {
+        return inlineDocuments;
+    }
+
+    /**
+     * Construct the key of the latest version copy of a module.
+     * 
+     * @param moduleKey the key of the parent module entity.
+     * @return the module latest version key.
+     */
+    public static Key latestVersionKey(Key moduleKey) {
+        checkNotNull(moduleKey, "null module key");
+        checkArgument(OrmModuleEntity.getSpec().getKeyKind().equals(moduleKey.getKind()),
+                "Not a moduleKey: %s", moduleKey);
+        return KeyFactory.createKey(moduleKey, ENTITY_SPEC.getKeyKind(), KEY_NAME);
+    }
+
+    @Override
+    protected void serializeToEntity(Entity entity) {
+        entity.setProperty(VERSION_NUMBER, versionNumber); // serialized as Long
+        entity.setUnindexedProperty(CNXML_DOC_HASH, cnxmlDoc.getHash());
+        entity.setUnindexedProperty(RESOURCE_MAP_DOC_HASH, resourceMapDoc.getHash());
+        entity.setProperty(MODULE_ID, OrmModuleEntity.moduleKeyToId(getKey().getParent()));
+    }
+
+    public static OrmEntitySpec getSpec() {
+        return ENTITY_SPEC;
+    }
+}
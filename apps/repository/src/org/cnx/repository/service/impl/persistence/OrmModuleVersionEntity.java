@@ -20,19 +20,24 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Date;
+import java.util.List;
 
 import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.KeyFactory;
 import com.google.appengine.api.datastore.Text;
+import com.google.common.collect.ImmutableList;
 
 /**
  * A POJO class representing a module version entity.
+ * <p>
+ * The CNXML and resource map documents are kept in the {@link ContentStore} and referenced by
+ * hash. Entities written before that hold the documents inline and are still readable.
  *
  * @author Tal Dayan
  */
 // @PersistenceCapable(table = SchemaConsts.MODULE_VERSION_KEY_KIND)
-public class OrmModuleVersionEntity extends OrmEntity {
+public class OrmModuleVersionEntity extends OrmEntity implements StoredDocumentHolder {
 
     /**
      * Module version do not have an id. The use the module id and version number.
@@ -42,6 +47,8 @@ public class OrmModuleVersionEntity extends OrmEntity {
     private static final String VERSION_NUMBER = "version";
     private static final String CNXML_DOC = "cnxml";
     private static final String RESOURCE_MAP_DOC = "resource_map";
+    private static final String CNXML_DOC_HASH = "cnxml_sha256";
+    private static final String RESOURCE_MAP_DOC_HASH = "resource_map_sha256";
     private static final String MODULE_ID = "module";
 
     /**
@@ -49,9 +56,12 @@ public class OrmModuleVersionEntity extends OrmEntity {
      */
     private final int versionNumber;
 
-    private final String cnxmlDoc;
+    private final StoredDocument cnxmlDoc;
 
-    private final String resourceMapDoc;
+    private final StoredDocument resourceMapDoc;
+
+    /** See {@link StoredDocumentHolder#hasInlineDocuments}. */
+    private final boolean inlineDocuments;
 
     /**
      * @param moduleKey key of parent module
@@ -63,8 +73,9 @@ public class OrmModuleVersionEntity extends OrmEntity {
             String cnxmlDoc, String resourceMapDoc) {
         super(ENTITY_SPEC, moduleVersionKey(moduleKey, versionNumber), creationDate);
         this.versionNumber = versionNumber;
-        this.cnxmlDoc = checkNotNull(cnxmlDoc);
-        this.resourceMapDoc = checkNotNull(resourceMapDoc);
+        this.cnxmlDoc = StoredDocument.forDocument(cnxmlDoc);
+        this.resourceMapDoc = StoredDocument.forDocument(resourceMapDoc);
+        this.inlineDocuments = false;
     }
 
     /**
@@ -73,8 +84,21 @@ public class OrmModuleVersionEntity extends OrmEntity {
     public OrmModuleVersionEntity(Entity entity) {
         super(ENTITY_SPEC, entity);
         this.versionNumber = ((Long) entity.getProperty(VERSION_NUMBER)).intValue();
-        this.cnxmlDoc = ((Text) entity.getProperty(CNXML_DOC)).getValue();
-        this.resourceMapDoc = ((Text) entity.getProperty(RESOURCE_MAP_DOC)).getValue();
+        this.cnxmlDoc = readStoredDocument(entity, CNXML_DOC, CNXML_DOC_HASH);
+        this.resourceMapDoc = readStoredDocument(entity, RESOURCE_MAP_DOC, RESOURCE_MAP_DOC_HASH);
+        this.inlineDocuments = entity.hasProperty(CNXML_DOC);
+    }
+
+    /**
+     * Read a stored document property of a module version or latest version entity, either
+     * inline or a hash reference.
+     */
+    static StoredDocument readStoredDocument(Entity entity, String inlineProperty,
+            String hashProperty) {
+        final Text inline = (Text) entity.getProperty(inlineProperty);
+        return (inline != null) ? StoredDocument.forDocument(inline.getValue()) : StoredDocument
+                .forHash(checkNotNull((String) entity.getProperty(hashProperty),
+                        "Missing property %s", hashProperty));
     }
 
     public int getVersionNumber() {
@@ -82,13 +106,31 @@ public class OrmModuleVersionEntity extends OrmEntity {
     }
 
     public String getCNXMLDoc() {
-        return cnxmlDoc;
+        return cnxmlDoc.getDocument();
     }
 
     public String getResourceMapDoc() {
+        return resourceMapDoc.getDocument();
+    }
+
+    StoredDocument getStoredCnxmlDoc() {
+        return cnxmlDoc;
+    }
+
+    StoredDocument getStoredResourceMapDoc() {
         return resourceMapDoc;
     }
 
+    @Override
+    public List<StoredDocument> getStoredDocuments() {
+        return ImmutableList.of(cnxmlDoc, resourceMapDoc);
+    }
+
+    @Override
+    public boolean hasInlineDocuments() {
+        return inlineDocuments;
+    }
+
     /**
      * Construct a module version key.
      * 
@@ -107,8 +149,8 @@ public class OrmModuleVersionEntity extends OrmEntity {
     @Override
     protected void serializeToEntity(Entity entity) {
         entity.setProperty(VERSION_NUMBER, versionNumber); // serialized as Long
-        entity.setProperty(CNXML_DOC, new Text(cnxmlDoc));
-        entity.setProperty(RESOURCE_MAP_DOC, new Text(resourceMapDoc));
+        entity.setUnindexedProperty(CNXML_DOC_HASH, cnxmlDoc.getHash());
+        entity.setUnindexedProperty(RESOURCE_MAP_DOC_HASH, resourceMapDoc.getHash());
 
         // We serialize also a human readable copy of the module id so it can be seen and
         // used in the datastore view.
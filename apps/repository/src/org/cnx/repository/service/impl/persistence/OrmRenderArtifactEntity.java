@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Date;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+/**
+ * A POJO representing the content HTML of a module version, rendered when the version was
+ * published. See {@link org.cnx.common.render.RenderArtifacts}.
+ * <p>
+ * Render artifacts are children of their module version entity. Their key name is the renderer
+ * fingerprint, so a version may have artifacts of several renderers, and a newer renderer never
+ * serves an artifact of an older one.
+ * 
+ * @author Tal Dayan
+ */
+public class OrmRenderArtifactEntity extends OrmEntity {
+
+    /**
+     * Render artifacts do not have an id. Their key name is the renderer fingerprint.
+     */
+    private static final OrmEntitySpec ENTITY_SPEC = new OrmEntitySpec("RenderArtifact", null);
+
+    private static final String HTML = "html";
+
+    private final String html;
+
+    /**
+     * @param moduleVersionKey key of the parent module version
+     * @param fingerprint the renderer fingerprint
+     * @param html the rendered content HTML
+     */
+    public OrmRenderArtifactEntity(Key moduleVersionKey, String fingerprint, Date creationTime,
+            String html) {
+        super(ENTITY_SPEC, renderArtifactKey(moduleVersionKey, fingerprint), creationTime);
+        this.html = checkNotNull(html);
+    }
+
+    /**
+     * Deserialize a render artifact entity from a datastore entity.
+     */
+    public OrmRenderArtifactEntity(Entity entity) {
+        super(ENTITY_SPEC, entity);
+        this.html =
+                checkNotNull(CompressedText.getProperty(entity, HTML), "Missing property %s", HTML);
+    }
+
+    public String getHtml() {
+        return html;
+    }
+
+    public String getFingerprint() {
+        return getKey().getName();
+    }
+
+    /**
+     * Construct a render artifact key.
+     * 
+     * @param moduleVersionKey the key of the parent module version entity.
+     * @param fingerprint the renderer fingerprint.
+     * @return the render artifact key.
+     */
+    public static Key renderArtifactKey(Key moduleVersionKey, String fingerprint) {
+        checkNotNull(moduleVersionKey, "null module version key");
+        checkArgument(OrmModuleVersionEntity.getSpec().getKeyKind().equals(
+                moduleVersionKey.getKind()), "Not a module version key: %s", moduleVersionKey);
+        checkNotNull(fingerprint, "null fingerprint");
+        return KeyFactory.createKey(moduleVersionKey, ENTITY_SPEC.getKeyKind(), fingerprint);
+    }
+
+    @Override
+    protected void serializeToEntity(Entity entity) {
+        CompressedText.setProperty(entity, HTML, html);
+    }
+
+    public static OrmEntitySpec getSpec() {
+        return ENTITY_SPEC;
+    }
+}
@@ -20,8 +20,13 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static org.cnx.common.repository.RepositoryConstants.MIN_NON_RESERVED_KEY_ID;
 
 import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
 import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
 import com.google.appengine.api.datastore.KeyRange;
+import com.google.common.collect.ImmutableSet;
+import java.util.Date;
 import java.util.logging.Logger;
 
 /**
@@ -35,6 +40,56 @@ public class PersistenceMigrationUtil {
 
     private static final Logger log = Logger.getLogger(PersistenceMigrationUtil.class.getName());
 
+    /**
+     * Kind of the marker entity persisted once the reserved key ranges are protected. The key name
+     * includes the reserved range, so changing the range protects again.
+     */
+    private static final String MARKER_KIND = "ReservedKeysProtected";
+
+    private static final Key MARKER_KEY =
+            KeyFactory.createKey(MARKER_KIND, "below_" + MIN_NON_RESERVED_KEY_ID);
+
+    /** Kinds whose automatically allocated keys must not fall in the reserved range. */
+    private static final ImmutableSet<String> RESERVED_KINDS = ImmutableSet.of(
+            OrmCollectionEntity.getSpec().getKeyKind(), OrmModuleEntity.getSpec().getKeyKind(),
+            OrmResourceEntity.getSpec().getKeyKind());
+
+    /** True once this instance found or wrote the marker. */
+    private static volatile boolean reservedKeysProtected = false;
+
+    /**
+     * Protect the reserved key ranges unless already done, as recorded by a marker entity.
+     * 
+     * Called lazily before the first automatic key allocation of a reserved kind in this instance,
+     * rather than at startup, so cold starts do not pay for it. After the first call the cost is
+     * a volatile read. The marker is read and written outside of the current transaction, if any.
+     */
+    public static void ensureReservedKeysProtected(DatastoreService datastore) {
+        if (reservedKeysProtected) {
+            return;
+        }
+        synchronized (PersistenceMigrationUtil.class) {
+            if (reservedKeysProtected) {
+                return;
+            }
+            try {
+                datastore.get(null, MARKER_KEY);
+            } catch (EntityNotFoundException e) {
+                protectAllReservedKeys(datastore);
+            }
+            reservedKeysProtected = true;
+        }
+    }
+
+    /**
+     * Test if automatically allocated keys of the given kind must be outside of the reserved
+     * range, that is, if {@link #ensureReservedKeysProtected} must be called before allocating
+     * them.
+     */
+    public static boolean isReservedKind(String kind) {
+        return RESERVED_KINDS.contains(kind);
+    }
+
     /**
      * Protect all key ranges reserved for migration.
      * 
@@ -42,13 +97,18 @@ public class PersistenceMigrationUtil {
      * 
      * Note that this operation is persisted in the database so it is sufficient to perform only
      * once though no harm if calling this multiple time (but not per query, for performance
-     * reasons).
+     * reasons). Once done, a marker entity is written such that
+     * {@link #ensureReservedKeysProtected} does not repeat it.
      */
     public static void protectAllReservedKeys(DatastoreService datastore) {
 
         protectEntityReservedKeys(datastore, OrmCollectionEntity.getSpec(), MIN_NON_RESERVED_KEY_ID);
         protectEntityReservedKeys(datastore, OrmModuleEntity.getSpec(), MIN_NON_RESERVED_KEY_ID);
         protectEntityReservedKeys(datastore, OrmResourceEntity.getSpec(), MIN_NON_RESERVED_KEY_ID);
+
+        final Entity marker = new Entity(MARKER_KEY);
+        marker.setProperty("time", new Date());
+        datastore.put(null, marker);
     }
 
     private static void protectEntityReservedKeys(DatastoreService datastore,
@@ -62,6 +122,45 @@ public class PersistenceMigrationUtil {
         datastore.allocateIdRange(keyRange);
     }
 
+    /**
+     * Rewrite a module version or module latest version entity that holds its documents inline,
+     * from before the {@link ContentStore}, such that it references them in the content store.
+     * 
+     * @return true if the entity was rewritten, false if it does not exist or does not hold its
+     *         documents inline.
+     */
+    public static boolean moveDocumentsToContentStore(PersistenceService persistence, Key key)
+        throws PersistenceException {
+        final Class<? extends OrmEntity> entityClass;
+        if (OrmModuleVersionEntity.getSpec().getKeyKind().equals(key.getKind())) {
+            entityClass = OrmModuleVersionEntity.class;
+        } else if (OrmModuleLatestVersionEntity.getSpec().getKeyKind().equals(key.getKind())) {
+            entityClass = OrmModuleLatestVersionEntity.class;
+        } else {
+            throw new IllegalArgumentException("Entity has no stored documents: " + key);
+        }
+
+        // Latest version copies are replaced by new versions, so the read and the rewrite must be
+        // in one transaction.
+        final PersistenceTransaction tx = persistence.beginTransaction();
+        try {
+            final OrmEntity ormEntity;
+            try {
+                ormEntity = persistence.read(entityClass, key);
+            } catch (EntityNotFoundException e) {
+                return false;
+            }
+            if (!((StoredDocumentHolder) ormEntity).hasInlineDocuments()) {
+                return false;
+            }
+            persistence.write(ormEntity);
+            tx.commit();
+            return true;
+        } finally {
+            tx.safeRollback();
+        }
+    }
+
     /**
      * Test if given resource key is in the protected range.
      */
@@ -20,11 +20,15 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
-import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
+import org.cnx.repository.service.impl.instrumentation.RpcTrace;
+
 import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.Entity;
@@ -33,18 +37,79 @@ import com.google.appengine.api.datastore.FetchOptions;
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultIterator;
 import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.appengine.repackaged.com.google.common.base.Pair;
-import com.google.appengine.repackaged.com.google.common.collect.Lists;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public class PersistenceService {
 
+    /** Memcache namespace of the default entity cache. */
+    private static final String ENTITY_CACHE_NAMESPACE = "entities";
+
+    /** Memory bound of the in process tier of the default entity cache. */
+    private static final long ENTITY_CACHE_LOCAL_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * How long module and collection entities are cached. Their version count is the only value
+     * that changes, and only affects requests for the 'latest' version.
+     */
+    private static final long MUTABLE_ENTITY_TTL_MILLIS = 5 * 1000;
+
+    /**
+     * How long module and collection version entities are cached. Versions are not write-once:
+     * the migration operations accept the latest version number again, so a migrator retry
+     * rewrites the latest version. A write only invalidates the local tier of the writing
+     * instance and memcache, so the TTL bounds how long other instances serve the old entity.
+     */
+    private static final long VERSION_ENTITY_TTL_MILLIS = 10 * 60 * 1000;
+
+    /** Entities fetched per datastore round trip by {@link #streamEntities}. */
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final DatastoreService datastore;
 
+    private final EntityCache cache;
+
+    private final ContentStore contentStore;
+
     public PersistenceService(DatastoreService datastore) {
+        this(datastore, createDefaultCache());
+    }
+
+    public PersistenceService(DatastoreService datastore, EntityCache cache) {
         this.datastore = checkNotNull(datastore);
+        this.cache = checkNotNull(cache);
+        this.contentStore = new ContentStore(datastore, cache);
+    }
 
-        PersistenceMigrationUtil.protectAllReservedKeys(datastore);
+    /**
+     * Create the default entity cache. Module and collection versions are cached for a long but
+     * bounded time since the migration operations may overwrite them. The latest version copies
+     * change with each new version, so like their parents they are cached for a short time.
+     * Content entities are immutable and shared by the versions with the same documents. Render
+     * artifacts are only rewritten with the same content.
+     */
+    private static EntityCache createDefaultCache() {
+        return new TieredEntityCache(ENTITY_CACHE_LOCAL_BYTES,
+            MemcacheServiceFactory.getMemcacheService(ENTITY_CACHE_NAMESPACE))
+            .cacheImmutable(OrmContentEntity.getSpec().getKeyKind())
+            .cacheImmutable(OrmRenderArtifactEntity.getSpec().getKeyKind())
+            .cacheMutable(OrmModuleVersionEntity.getSpec().getKeyKind(), VERSION_ENTITY_TTL_MILLIS)
+            .cacheMutable(OrmCollectionVersionEntity.getSpec().getKeyKind(),
+                VERSION_ENTITY_TTL_MILLIS)
+            .cacheMutable(OrmModuleEntity.getSpec().getKeyKind(), MUTABLE_ENTITY_TTL_MILLIS)
+            .cacheMutable(OrmCollectionEntity.getSpec().getKeyKind(), MUTABLE_ENTITY_TTL_MILLIS)
+            .cacheMutable(OrmModuleLatestVersionEntity.getSpec().getKeyKind(),
+                MUTABLE_ENTITY_TTL_MILLIS)
+            .cacheMutable(OrmCollectionLatestVersionEntity.getSpec().getKeyKind(),
+                MUTABLE_ENTITY_TTL_MILLIS);
+    }
+
+    public EntityCache getCache() {
+        return cache;
     }
 
     /**
@@ -62,7 +127,21 @@ public class PersistenceService {
             entities.add(ormEntities[i].toEntity());
         }
 
+        if (allocatesReservedKind(entities)) {
+            PersistenceMigrationUtil.ensureReservedKeysProtected(datastore);
+        }
+
+        // Outside of the transaction, if any, before the entities that reference them.
+        contentStore.store(Arrays.asList(ormEntities));
+
         final List<Key> keys = datastore.put(entities);
+        traceWrite("datastore.put", entities);
+
+        // Within a transaction this happens before the commit, so a concurrent reader
+        // may cache the old entity again. The TTL of mutable kinds bounds this.
+        for (Key key : keys) {
+            invalidateCachedEntity(cache, key);
+        }
 
         // If an orm entity has no key, get the key assigned by the datastore.
         for (int i = 0; i < n; i++) {
@@ -75,22 +154,162 @@ public class PersistenceService {
         }
     }
 
+    /**
+     * Read an entity. Entities of cached kinds (see {@link EntityCache}) are read through the
+     * cache.
+     */
     public <T extends OrmEntity> T read(Class<T> entityClass, Key key)
         throws EntityNotFoundException {
+        final T ormEntity = deserialize(entityClass, readEntity(key));
+        contentStore.resolve(Collections.singletonList(ormEntity));
+        return ormEntity;
+    }
+
+    /**
+     * Read a batch of entities with a single datastore call. Entities of cached kinds are read
+     * through the cache and only the remaining keys are fetched from the datastore.
+     * 
+     * When called within a transaction, all the keys must be in the entity group of the
+     * transaction.
+     * 
+     * @param entityClass the class of the entities to read.
+     * @param keys the keys of the entities to read. May contain duplicates.
+     * 
+     * @return a map from key to entity, in the order of the given keys. Keys of entities that
+     *         were not found are missing from the map.
+     */
+    public <T extends OrmEntity> Map<Key, T> readAll(Class<T> entityClass, List<Key> keys) {
+        final boolean inTransaction = isInTransaction();
+
+        final Map<Key, Entity> entities = Maps.newHashMap();
+        final List<Key> keysToFetch = Lists.newArrayList();
+        for (Key key : keys) {
+            final Entity entity =
+                isReadThroughCache(cache, key, inTransaction) ? cache.get(key) : null;
+            if (entity != null) {
+                entities.put(key, entity);
+            } else {
+                keysToFetch.add(key);
+            }
+        }
+
+        if (!keysToFetch.isEmpty()) {
+            final Map<Key, Entity> fetchedEntities = datastore.get(keysToFetch);
+            traceRead("datastore.get", fetchedEntities.values());
+            for (Entity entity : fetchedEntities.values()) {
+                if (isReadThroughCache(cache, entity.getKey(), inTransaction)) {
+                    cache.put(entity);
+                }
+            }
+            entities.putAll(fetchedEntities);
+        }
+
+        final Map<Key, T> ormEntities = Maps.newLinkedHashMap();
+        for (Key key : keys) {
+            final Entity entity = entities.get(key);
+            if (entity != null && !ormEntities.containsKey(key)) {
+                ormEntities.put(key, deserialize(entityClass, entity));
+            }
+        }
+        contentStore.resolve(ormEntities.values());
+        return ormEntities;
+    }
+
+    private Entity readEntity(Key key) throws EntityNotFoundException {
+        if (!isReadThroughCache(cache, key, isInTransaction())) {
+            return get(key);
+        }
+
+        Entity entity = cache.get(key);
+        if (entity == null) {
+            entity = get(key);
+            cache.put(entity);
+        }
+        return entity;
+    }
+
+    private Entity get(Key key) throws EntityNotFoundException {
+        RpcTrace.recordRpc("datastore.get");
         final Entity entity = datastore.get(key);
-        return deserialize(entityClass, entity);
+        traceRead(null, Collections.singletonList(entity));
+        return entity;
     }
 
-    private static <T extends OrmEntity> T deserialize(Class<T> entityClass, Entity entity) {
-        try {
-            final Constructor<T> constructor = entityClass.getConstructor(Entity.class);
-            return constructor.newInstance(entity);
-        } catch (Throwable e) {
-            throw new RuntimeException(e);
+    private boolean isInTransaction() {
+        return datastore.getCurrentTransaction(null) != null;
+    }
+
+    /**
+     * Test if the entity with the given key should be read through the cache. Within a
+     * transaction, mutable entities must be read from the datastore so the transaction sees a
+     * consistent value.
+     */
+    static boolean isReadThroughCache(EntityCache cache, Key key, boolean inTransaction) {
+        final EntityCache.Policy policy = cache.getPolicy(key.getKind());
+        return policy == EntityCache.Policy.IMMUTABLE
+            || (policy == EntityCache.Policy.MUTABLE && !inTransaction);
+    }
+
+    static void invalidateCachedEntity(EntityCache cache, Key key) {
+        if (cache.getPolicy(key.getKind()) != EntityCache.Policy.NONE) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Test if writing the given entities allocates a key of a kind whose reserved key range must be
+     * protected first.
+     */
+    static boolean allocatesReservedKind(List<Entity> entities) {
+        for (Entity entity : entities) {
+            if (!entity.getKey().isComplete()
+                && PersistenceMigrationUtil.isReservedKind(entity.getKind())) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Report to the {@link RpcTrace} of the current thread a datastore RPC and the estimated size
+     * of the entities it read.
+     * 
+     * @param rpc the RPC name, or null if it was already reported.
+     */
+    static void traceRead(@Nullable String rpc, Iterable<Entity> entities) {
+        if (rpc != null) {
+            RpcTrace.recordRpc(rpc);
+        }
+        if (RpcTrace.isActive()) {
+            RpcTrace.recordBytesRead(estimateSize(entities));
+        }
+    }
+
+    /**
+     * Report to the {@link RpcTrace} of the current thread a datastore RPC and the estimated size
+     * of the entities it wrote.
+     */
+    static void traceWrite(String rpc, Iterable<Entity> entities) {
+        RpcTrace.recordRpc(rpc);
+        if (RpcTrace.isActive()) {
+            RpcTrace.recordBytesWritten(estimateSize(entities));
+        }
+    }
+
+    private static long estimateSize(Iterable<Entity> entities) {
+        long bytes = 0;
+        for (Entity entity : entities) {
+            bytes += TieredEntityCache.estimateSize(entity);
+        }
+        return bytes;
+    }
+
+    private static <T extends OrmEntity> T deserialize(Class<T> entityClass, Entity entity) {
+        return OrmEntityRegistry.create(entityClass, entity);
     }
 
     public PersistenceTransaction beginTransaction() {
+        RpcTrace.recordRpc("datastore.beginTransaction");
         return new PersistenceTransaction(datastore.beginTransaction());
     }
 
@@ -110,12 +329,15 @@ public class PersistenceService {
 
         final List<Entity> entities =
             datastore.prepare(query).asList(FetchOptions.Builder.withDefaults());
+        traceRead("datastore.query", entities);
 
-        final List<T> ormEntities = Lists.newArrayList();
+        final OrmEntityRegistry.Factory<T> factory = OrmEntityRegistry.getFactory(entityClass);
+        final List<T> ormEntities = Lists.newArrayListWithCapacity(entities.size());
 
         for (Entity entity : entities) {
-            ormEntities.add(deserialize(entityClass, entity));
+            ormEntities.add(factory.create(entity));
         }
+        contentStore.resolve(ormEntities);
 
         return ormEntities;
     }
@@ -124,7 +346,12 @@ public class PersistenceService {
      * Delete entities with given keys.
      */
     public void delete(Key... keys) {
+        RpcTrace.recordRpc("datastore.delete");
         datastore.delete(keys);
+
+        for (Key key : keys) {
+            invalidateCachedEntity(cache, key);
+        }
     }
 
     /**
@@ -135,7 +362,7 @@ public class PersistenceService {
         checkArgument(key != null);
         try {
             @SuppressWarnings("unused")
-            final Entity entity = datastore.get(key);
+            final Entity entity = get(key);
         } catch (EntityNotFoundException e) {
             return false;
         }
@@ -152,8 +379,7 @@ public class PersistenceService {
      * IMPORTANT, callers should impose a reasonable max on {@code maxResults} to avoid memory
      * explosion.
      * 
-     * TODO(tal): consider to use QueryResultIterator instead of QueryResultList for reduced memory
-     * footprint.
+     * To walk all the entities with a constant memory footprint use {@link #streamEntities}.
      * 
      * @param entityClass the result ORM entity class.
      * @param maxResults max results to return to the user. May return less than that, even zero.
@@ -184,6 +410,7 @@ public class PersistenceService {
         // NOTE(tal): these entities have keys only since we queried above for keys only. They
         // cannot be deserialized into ORM entities.
         final QueryResultList<Entity> results = pq.asQueryResultList(fetchOptions);
+        RpcTrace.recordRpc("datastore.query");
 
         final List<Key> keys = Lists.newArrayList();
 
@@ -200,4 +427,59 @@ public class PersistenceService {
 
         return Pair.of(keys, endCursor);
     }
+
+    /**
+     * Stream all the entities of a given class, fetching them in chunks such that only a chunk is
+     * held in memory at a time. Unlike {@link #entityKeyList}, a single call can walk any number of
+     * entities.
+     * 
+     * @param entityClass the ORM entity class.
+     * @param keysOnly if true only keys are fetched, which is cheaper, and the visitor is passed
+     *            null entities.
+     * @param startCursor null to stream from the beginning, or a cursor passed to
+     *            {@link EntityStreamVisitor#checkpoint} by an earlier stream to continue it.
+     * @param checkpointInterval the number of entities between visitor checkpoints. Asserted to be
+     *            >= 1.
+     * @param visitor receives the entities and the checkpoints.
+     * 
+     * @return true if the end of data has been reached, false if the visitor stopped the stream.
+     */
+    public <T extends OrmEntity> boolean streamEntities(Class<T> entityClass, boolean keysOnly,
+            @Nullable String startCursor, int checkpointInterval, EntityStreamVisitor<T> visitor) {
+        checkArgument(checkpointInterval >= 1, "Invalid checkpoint interval: %s",
+            checkpointInterval);
+
+        final Query query = new Query(OrmEntity.entityClassSpec(entityClass).getKeyKind());
+        if (keysOnly) {
+            query.setKeysOnly();
+        }
+
+        final FetchOptions fetchOptions = FetchOptions.Builder.withChunkSize(STREAM_CHUNK_SIZE);
+        if (startCursor != null) {
+            fetchOptions.startCursor(Cursor.fromWebSafeString(startCursor));
+        }
+
+        RpcTrace.recordRpc("datastore.query");
+        final QueryResultIterator<Entity> results =
+            datastore.prepare(query).asQueryResultIterator(fetchOptions);
+
+        // NOTE(tal): keys only entities have no properties and cannot be deserialized.
+        @Nullable
+        final OrmEntityRegistry.Factory<T> factory =
+            keysOnly ? null : OrmEntityRegistry.getFactory(entityClass);
+
+        int sinceCheckpoint = 0;
+        while (results.hasNext()) {
+            final Entity entity = results.next();
+            visitor.visit(entity.getKey(), keysOnly ? null : factory.create(entity));
+
+            if (++sinceCheckpoint == checkpointInterval) {
+                sinceCheckpoint = 0;
+                if (!visitor.checkpoint(results.getCursor().toWebSafeString())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 }
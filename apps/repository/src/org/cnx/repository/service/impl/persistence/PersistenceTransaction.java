@@ -20,9 +20,12 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.ConcurrentModificationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.cnx.repository.service.impl.instrumentation.RpcTrace;
+
 import com.google.appengine.api.datastore.Transaction;
 
 /**
@@ -94,10 +97,14 @@ public class PersistenceTransaction {
      */
     public void commit() throws PersistenceException {
         checkState(state == State.ACTIVE, "Unexpected state: %s", state);
+        RpcTrace.recordRpc("datastore.commit");
         try {
             tx.commit();
             state = State.COMMIT_OK;
         } catch (Throwable e) {
+            if (e instanceof ConcurrentModificationException) {
+                RpcTrace.recordTransactionConflict();
+            }
             state = State.COMMIT_FAILED;
             throw new PersistenceException("Exception when performing commit", e);
         }
@@ -112,6 +119,7 @@ public class PersistenceTransaction {
      */
     public void rollback() throws PersistenceException {
         checkState(state == State.ACTIVE, "Unexpected state: %s", state);
+        RpcTrace.recordRpc("datastore.rollback");
         try {
             tx.rollback();
             state = State.ROLLBACK_OK;
@@ -129,6 +137,7 @@ public class PersistenceTransaction {
      */
     public void safeRollback() {
         if (state == State.ACTIVE) {
+            RpcTrace.recordRpc("datastore.rollback");
             try {
                 tx.rollback();
                 state = State.ROLLBACK_OK;
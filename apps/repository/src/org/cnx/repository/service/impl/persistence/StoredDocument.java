@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.annotation.Nullable;
+
+/**
+ * A document of an orm entity that is persisted in the {@link ContentStore} and referenced by the
+ * entity with its SHA-256 hash, such that identical documents are stored once.
+ * <p>
+ * A stored document read from the datastore has only its hash until the persistence service
+ * resolves it (see {@link StoredDocumentHolder}). Documents read from entities that still hold
+ * them inline are resolved from the start.
+ * 
+ * @author Tal Dayan
+ */
+public class StoredDocument {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Hex SHA-256 of the UTF-8 document. Computed lazily if the document is known. */
+    @Nullable
+    private String hash;
+
+    @Nullable
+    private String document;
+
+    private StoredDocument(@Nullable String hash, @Nullable String document) {
+        this.hash = hash;
+        this.document = document;
+    }
+
+    /** A resolved stored document. */
+    public static StoredDocument forDocument(String document) {
+        return new StoredDocument(null, checkNotNull(document));
+    }
+
+    /** An unresolved reference to a stored document. */
+    public static StoredDocument forHash(String hash) {
+        return new StoredDocument(checkNotNull(hash), null);
+    }
+
+    public String getHash() {
+        if (hash == null) {
+            hash = sha256Hex(document);
+        }
+        return hash;
+    }
+
+    public boolean isResolved() {
+        return document != null;
+    }
+
+    /** Get the document. Asserts that it is resolved. */
+    public String getDocument() {
+        checkState(document != null, "Stored document not resolved: %s", hash);
+        return document;
+    }
+
+    /** Called by the persistence service with the document of the hash. */
+    void resolve(String resolvedDocument) {
+        checkState(document == null, "Stored document already resolved: %s", hash);
+        document = checkNotNull(resolvedDocument);
+    }
+
+    /** Get the hex SHA-256 hash of the UTF-8 encoding of a document. */
+    public static String sha256Hex(String document) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not supported", e);
+        }
+        final byte[] bytes = digest.digest(document.getBytes(UTF8));
+        final StringBuilder builder = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+            builder.append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import java.util.List;
+
+/**
+ * Implemented by orm entities with documents in the {@link ContentStore}.
+ * <p>
+ * The persistence service stores the documents of such entities before writing them, and
+ * resolves their document references after reading them, so callers see complete entities.
+ * 
+ * @author Tal Dayan
+ */
+interface StoredDocumentHolder {
+    /** Get the stored documents of this entity. */
+    List<StoredDocument> getStoredDocuments();
+
+    /**
+     * Was this entity read from a datastore entity that holds its documents inline, from before
+     * the content store?
+     */
+    boolean hasInlineDocuments();
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import org.cnx.repository.service.impl.instrumentation.RpcTrace;
+
+import com.google.appengine.api.datastore.Blob;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * An {@link EntityCache} with an in process LRU tier bounded by an estimate of the cached bytes,
+ * backed by a memcache tier shared by all instances.
+ * <p>
+ * Immutable kinds never expire. Mutable kinds expire after a per kind TTL in both tiers. Writes
+ * invalidate the local tier and memcache, but the local tier of other instances keeps serving
+ * the old entity until it expires. Memcache values carry the expiration time set when the entity
+ * was put, and the local tier keeps it, so the TTL bounds how stale a mutable entity can be.
+ *
+ * @author Tal Dayan
+ */
+public class TieredEntityCache implements EntityCache {
+    private static final Logger log = Logger.getLogger(TieredEntityCache.class.getName());
+
+    /** Rough per entity and per property overhead, in bytes. */
+    private static final int ENTITY_OVERHEAD = 128;
+    private static final int PROPERTY_OVERHEAD = 32;
+
+    /** A TTL of zero means the kind is immutable. */
+    private static final long NO_EXPIRATION = 0;
+
+    private final long maxLocalBytes;
+
+    @Nullable
+    private final MemcacheService memcache;
+
+    /** Kind -> TTL in millis. Kinds not in this map are not cached. */
+    private final ConcurrentMap<String, Long> ttlMillisByKind =
+            new ConcurrentHashMap<String, Long>();
+
+    private final ConcurrentMap<String, EntityCacheStats> statsByKind =
+            new ConcurrentHashMap<String, EntityCacheStats>();
+
+    /** Guarded by itself. */
+    private final LinkedHashMap<Key, CachedEntity> lru =
+            new LinkedHashMap<Key, CachedEntity>(16, 0.75f, true /* accessOrder */);
+
+    /** Guarded by lru. */
+    private long localBytes = 0;
+
+    /** Also the memcache value, so the expiration time is shared by all instances. */
+    private static class CachedEntity implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Entity entity;
+        private final long sizeBytes;
+        /** Zero if never expires. */
+        private final long expirationTimeMillis;
+
+        CachedEntity(Entity entity, long sizeBytes, long expirationTimeMillis) {
+            this.entity = entity;
+            this.sizeBytes = sizeBytes;
+            this.expirationTimeMillis = expirationTimeMillis;
+        }
+
+        boolean isExpired(long nowMillis) {
+            return expirationTimeMillis != NO_EXPIRATION && nowMillis >= expirationTimeMillis;
+        }
+    }
+
+    /**
+     * @param maxLocalBytes approximate bound of the memory used by the local tier.
+     * @param memcache the memcache tier, or null for a local tier only.
+     */
+    public TieredEntityCache(long maxLocalBytes, @Nullable MemcacheService memcache) {
+        checkArgument(maxLocalBytes >= 0, "Invalid cache size: %s", maxLocalBytes);
+        this.maxLocalBytes = maxLocalBytes;
+        this.memcache = memcache;
+    }
+
+    /**
+     * Cache entities of the given kind until evicted. Should be called before the cache is used.
+     */
+    public TieredEntityCache cacheImmutable(String kind) {
+        return addKind(kind, NO_EXPIRATION);
+    }
+
+    /**
+     * Cache entities of the given kind for up to ttlMillis. Should be called before the cache is
+     * used.
+     */
+    public TieredEntityCache cacheMutable(String kind, long ttlMillis) {
+        checkArgument(ttlMillis > 0, "Invalid TTL: %s", ttlMillis);
+        return addKind(kind, ttlMillis);
+    }
+
+    private TieredEntityCache addKind(String kind, long ttlMillis) {
+        ttlMillisByKind.put(checkNotNull(kind), ttlMillis);
+        statsByKind.put(kind, new EntityCacheStats());
+        return this;
+    }
+
+    @Override
+    public Policy getPolicy(String kind) {
+        final Long ttlMillis = ttlMillisByKind.get(kind);
+        if (ttlMillis == null) {
+            return Policy.NONE;
+        }
+        return (ttlMillis == NO_EXPIRATION) ? Policy.IMMUTABLE : Policy.MUTABLE;
+    }
+
+    @Override
+    @Nullable
+    public Entity get(Key key) {
+        final EntityCacheStats stats = statsByKind.get(key.getKind());
+        checkArgument(stats != null, "Kind is not cached: %s", key.getKind());
+
+        final long now = System.currentTimeMillis();
+        synchronized (lru) {
+            final CachedEntity cached = lru.get(key);
+            if (cached != null) {
+                if (!cached.isExpired(now)) {
+                    stats.recordLocalHit();
+                    return cached.entity;
+                }
+                removeLocal(key);
+            }
+        }
+
+        if (memcache != null) {
+            Object value = null;
+            RpcTrace.recordRpc("memcache.get");
+            try {
+                value = memcache.get(memcacheKey(key));
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Entity cache memcache lookup failed", e);
+            }
+            // Memcache may return an entry a little after its expiration time.
+            if (value instanceof CachedEntity && !((CachedEntity) value).isExpired(now)) {
+                final CachedEntity cached = (CachedEntity) value;
+                stats.recordMemcacheHit();
+                putLocal(cached);
+                return cached.entity;
+            }
+        }
+
+        stats.recordMiss();
+        return null;
+    }
+
+    @Override
+    public void put(Entity entity) {
+        final Key key = checkNotNull(entity.getKey());
+        final long ttlMillis = checkNotNull(ttlMillisByKind.get(key.getKind()),
+                "Kind is not cached: %s", key.getKind());
+
+        final CachedEntity cached = new CachedEntity(entity, estimateSize(entity),
+                (ttlMillis == NO_EXPIRATION) ? NO_EXPIRATION
+                        : System.currentTimeMillis() + ttlMillis);
+        putLocal(cached);
+
+        if (memcache != null) {
+            RpcTrace.recordRpc("memcache.put");
+            try {
+                memcache.put(memcacheKey(key), cached, (ttlMillis == NO_EXPIRATION) ? null
+                        : Expiration.onDate(new Date(cached.expirationTimeMillis)));
+            } catch (RuntimeException e) {
+                // Most likely the entity exceeds the memcache value size limit.
+                log.log(Level.WARNING, "Entity cache memcache store failed for " + key, e);
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(Key key) {
+        final EntityCacheStats stats = statsByKind.get(key.getKind());
+        if (stats == null) {
+            return;
+        }
+        stats.recordInvalidation();
+
+        synchronized (lru) {
+            removeLocal(key);
+        }
+
+        if (memcache != null) {
+            RpcTrace.recordRpc("memcache.delete");
+            try {
+                memcache.delete(memcacheKey(key));
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Entity cache memcache delete failed for " + key, e);
+            }
+        }
+    }
+
+    @Override
+    public ImmutableMap<String, EntityCacheStats> getStatistics() {
+        return ImmutableMap.copyOf(statsByKind);
+    }
+
+    /** Get the estimated number of bytes held by the local tier. */
+    public long getLocalBytes() {
+        synchronized (lru) {
+            return localBytes;
+        }
+    }
+
+    private void putLocal(CachedEntity cached) {
+        if (cached.sizeBytes > maxLocalBytes) {
+            return;
+        }
+        final Key key = cached.entity.getKey();
+        synchronized (lru) {
+            removeLocal(key);
+            lru.put(key, cached);
+            localBytes += cached.sizeBytes;
+
+            // Evict least recently used entities until within the bound.
+            final Iterator<CachedEntity> iterator = lru.values().iterator();
+            while (localBytes > maxLocalBytes && iterator.hasNext()) {
+                localBytes -= iterator.next().sizeBytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Must be called while holding lru. */
+    private void removeLocal(Key key) {
+        final CachedEntity removed = lru.remove(key);
+        if (removed != null) {
+            localBytes -= removed.sizeBytes;
+        }
+    }
+
+    private static String memcacheKey(Key key) {
+        return KeyFactory.keyToString(key);
+    }
+
+    /**
+     * Estimate the memory used by an entity. Text properties and the compressed documents of
+     * content entities dominate the size of the cached entities.
+     */
+    static long estimateSize(Entity entity) {
+        long size = ENTITY_OVERHEAD;
+        for (Map.Entry<String, Object> property : entity.getProperties().entrySet()) {
+            size += PROPERTY_OVERHEAD + 2 * property.getKey().length();
+            final Object value = property.getValue();
+            if (value instanceof Text) {
+                size += 2 * ((Text) value).getValue().length();
+            } else if (value instanceof String) {
+                size += 2 * ((String) value).length();
+            } else if (value instanceof Blob) {
+                size += ((Blob) value).getBytes().length;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A future whose value is computed from the value of another future when first retrieved.
+ * <p>
+ * Used by {@link AsyncPersistenceService} to deserialize datastore entities and update the entity
+ * cache in the thread that waits for the result, since datastore futures do not support
+ * listeners. The transformation is done at most once.
+ * 
+ * @author Tal Dayan
+ */
+abstract class TransformingFuture<F, T> implements Future<T> {
+    private final Future<F> input;
+
+    /** Guarded by this. True once the transformation was done. */
+    private boolean transformed = false;
+
+    /** Guarded by this. */
+    private T value;
+
+    /** Guarded by this. Set if the transformation failed. */
+    private ExecutionException exception;
+
+    TransformingFuture(Future<F> input) {
+        this.input = checkNotNull(input);
+    }
+
+    /**
+     * Compute the value of this future from the value of the input future. Exceptions are
+     * reported by {@link #get} as the cause of an {@link ExecutionException}.
+     */
+    protected abstract T transform(F inputValue) throws Exception;
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return input.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return input.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return input.isDone();
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        return transformOnce(input.get());
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        return transformOnce(input.get(timeout, unit));
+    }
+
+    private synchronized T transformOnce(F inputValue) throws ExecutionException {
+        if (!transformed) {
+            transformed = true;
+            try {
+                value = transform(inputValue);
+            } catch (Exception e) {
+                exception = new ExecutionException(e);
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return value;
+    }
+}
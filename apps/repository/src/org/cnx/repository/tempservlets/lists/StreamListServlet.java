@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.tempservlets.lists;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.cnx.repository.service.api.RepositoryRequestContext;
+import org.cnx.repository.service.api.RepositoryResponse;
+import org.cnx.repository.service.impl.operations.ListStreamOperations;
+import org.cnx.repository.service.impl.operations.ListStreamOperations.Format;
+import org.cnx.repository.service.impl.operations.ListStreamOperations.ListType;
+import org.cnx.repository.service.impl.operations.ListStreamOperations.StreamListResult;
+
+/**
+ * A temp API servlet to stream all the module, collection or resource ids in one request. See
+ * {@link ListStreamOperations} for the formats.
+ * <p>
+ * Parameters: type (module, collection or resource), format (ndjson, the default, or compact),
+ * details (true to include the version count or state and the creation time), cursor (optional,
+ * the last checkpoint cursor of a previous stream) and budget_ms (optional time budget).
+ * 
+ * @author Tal Dayan
+ */
+@SuppressWarnings("serial")
+public class StreamListServlet extends HttpServlet {
+
+    @Override
+    public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final ListType type;
+        final Format format;
+        final long timeBudgetMillis;
+        try {
+            type = ListType.valueOf(upperCase(req.getParameter("type")));
+            final String formatParam = req.getParameter("format");
+            format = (formatParam == null) ? Format.NDJSON : Format.valueOf(upperCase(formatParam));
+            final String budgetParam = req.getParameter("budget_ms");
+            timeBudgetMillis =
+                (budgetParam == null) ? ListStreamOperations.DEFAULT_TIME_BUDGET_MILLIS : Long
+                    .parseLong(budgetParam);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid parameter: "
+                + e.getMessage());
+            return;
+        }
+        final boolean withDetails = "true".equals(req.getParameter("details"));
+        final String cursor = req.getParameter("cursor");
+
+        resp.setContentType((format == Format.NDJSON) ? "application/x-ndjson" : "text/plain");
+        resp.setCharacterEncoding("UTF-8");
+
+        final RepositoryRequestContext context = new RepositoryRequestContext(null);
+        final RepositoryResponse<StreamListResult> repositoryResponse =
+            ListStreamOperations.streamList(context, type, format, withDetails, cursor,
+                    timeBudgetMillis, resp.getWriter());
+
+        // Errors are detected before anything is written.
+        if (repositoryResponse.isError()) {
+            resp.reset();
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    repositoryResponse.getExtendedDescription());
+        }
+    }
+
+    private static String upperCase(String param) {
+        if (param == null) {
+            throw new IllegalArgumentException("missing");
+        }
+        return param.toUpperCase(Locale.US);
+    }
+}
@@ -20,6 +20,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 import org.cnx.atompubclient2.CnxClient;
 import org.cnx.atompubclient2.HttpClientWrapper;
 import org.cnx.common.exceptions.CnxException;
@@ -34,12 +35,12 @@ public class MigratorUtils {
             ClientProtocolException,
             IOException,
             CnxException {
-        HttpClientWrapper httpClient = new HttpClientWrapper();
+        HttpClientWrapper httpClient = HttpClientWrapper.getHttpClient();
         URI cleanUpUri =
                 new URI(cnxClient.getConstants().getAtomPubRestUrl() + "/delete/" + id.getType()
                         + "/"
                         + id.getId());
         HttpGet httpGet = new HttpGet(cleanUpUri);
-        httpClient.execute(httpGet);
+        EntityUtils.consume(httpClient.execute(httpGet).getEntity());
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cnx.repository.service.api.CnxRepositoryService;
+import org.cnx.repository.service.api.RepositoryRequestContext;
+import org.cnx.repository.service.api.RepositoryResponse;
+
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the latency of the repository operations that issue more than one datastore call,
+ * using the local datastore. Prints the median and 90th percentile per operation.
+ * <p>
+ * The local datastore does not simulate the RPC latency of the production datastore, so the
+ * absolute numbers are only useful to compare runs of this benchmark.
+ * <p>
+ * Usage: <code>OperationLatencyBenchmark [iterations]</code>. This is not a test and is not run
+ * by <code>ant test</code>.
+ * 
+ * @author Tal Dayan
+ */
+public class OperationLatencyBenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 500;
+
+    private static final String CNXML =
+            "<document xmlns=\"http://cnx.rice.edu/cnxml\"><content><para>Hello</para></content>"
+                    + "</document>";
+    private static final String RESOURCE_MAP = "<resources/>";
+    private static final String COLXML =
+            "<col:collection xmlns:col=\"http://cnx.rice.edu/collxml\"/>";
+
+    private static final RepositoryRequestContext CONTEXT = new RepositoryRequestContext(null);
+
+    /** A measured operation. */
+    private static abstract class Operation {
+        abstract RepositoryResponse<?> run();
+    }
+
+    private static void measure(String name, int iterations, Operation operation) {
+        final long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            final RepositoryResponse<?> response = operation.run();
+            nanos[i] = System.nanoTime() - start;
+            if (!response.isOk()) {
+                throw new IllegalStateException(name + " failed: " + response.getDescription());
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-30s p50 %8d us, p90 %8d us%n", name, nanos[iterations / 2] / 1000,
+                nanos[iterations * 9 / 10] / 1000);
+    }
+
+    public static void main(String[] args) {
+        final int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        final LocalServiceTestHelper helper =
+                new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig(),
+                        new LocalMemcacheServiceTestConfig());
+        helper.setUp();
+        try {
+            final CnxRepositoryService repository = CnxRepositoryServiceImpl.getService();
+
+            final List<String> moduleIds = Lists.newArrayList();
+            final List<String> collectionIds = Lists.newArrayList();
+            for (int i = 0; i < iterations; i++) {
+                moduleIds.add(repository.addModule(CONTEXT).getResult().getModuleId());
+                collectionIds.add(repository.addCollection(CONTEXT).getResult()
+                        .getCollectionId());
+            }
+
+            measure("addModuleVersion", iterations, new Operation() {
+                int i = 0;
+
+                @Override
+                RepositoryResponse<?> run() {
+                    return repository.addModuleVersion(CONTEXT, moduleIds.get(i++), null, CNXML,
+                            RESOURCE_MAP);
+                }
+            });
+            measure("addCollectionVersion", iterations, new Operation() {
+                int i = 0;
+
+                @Override
+                RepositoryResponse<?> run() {
+                    return repository.addCollectionVersion(CONTEXT, collectionIds.get(i++), null,
+                            COLXML);
+                }
+            });
+            measure("getModuleInfo", iterations, new Operation() {
+                int i = 0;
+
+                @Override
+                RepositoryResponse<?> run() {
+                    return repository.getModuleInfo(CONTEXT, moduleIds.get(i++));
+                }
+            });
+            measure("getModuleVersion/latest", iterations, new Operation() {
+                int i = 0;
+
+                @Override
+                RepositoryResponse<?> run() {
+                    return repository.getModuleVersion(CONTEXT, moduleIds.get(i++), null);
+                }
+            });
+            measure("getModuleVersionInfo", iterations, new Operation() {
+                int i = 0;
+
+                @Override
+                RepositoryResponse<?> run() {
+                    return repository.getModuleVersionInfo(CONTEXT, moduleIds.get(i++), 1);
+                }
+            });
+            measure("getCollectionInfo", iterations, new Operation() {
+                int i = 0;
+
+                @Override
+                RepositoryResponse<?> run() {
+                    return repository.getCollectionInfo(CONTEXT, collectionIds.get(i++));
+                }
+            });
+            measure("getCollectionVersionInfo", iterations, new Operation() {
+                int i = 0;
+
+                @Override
+                RepositoryResponse<?> run() {
+                    return repository.getCollectionVersionInfo(CONTEXT, collectionIds.get(i++),
+                            1);
+                }
+            });
+        } finally {
+            helper.tearDown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.instrumentation;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ * 
+ * @author Tal Dayan
+ */
+public class LatencyHistogramTests {
+
+    private static final long MILLIS = 1000 * 1000;
+
+    @Test
+    public void empty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMillis(50));
+    }
+
+    @Test
+    public void buckets() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(1 * MILLIS);
+        histogram.record(1 * MILLIS + 1);
+        histogram.record(3 * MILLIS);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(5, histogram.getCount());
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(1));
+        assertEquals(1, histogram.getBucketCount(2));
+        assertEquals(1, histogram.getBucketCount(LatencyHistogram.getNumBuckets() - 1));
+        assertEquals(Long.MAX_VALUE,
+                LatencyHistogram.getBucketBoundMillis(LatencyHistogram.getNumBuckets() - 1));
+    }
+
+    @Test
+    public void percentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3 * MILLIS);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(150 * MILLIS);
+        }
+        histogram.record(40 * 1000 * MILLIS);
+
+        assertEquals(5, histogram.getPercentileMillis(50));
+        assertEquals(5, histogram.getPercentileMillis(90));
+        assertEquals(200, histogram.getPercentileMillis(95));
+        assertEquals(200, histogram.getPercentileMillis(99));
+        assertEquals(60000, histogram.getPercentileMillis(100));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.instrumentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.cnx.repository.service.api.RepositoryResponse;
+import org.cnx.repository.service.api.RepositoryStatus;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RepositoryInstrumentation}.
+ * 
+ * @author Tal Dayan
+ */
+public class RepositoryInstrumentationTests {
+
+    /** A minimal service to instrument. */
+    public static interface TestService {
+        RepositoryResponse<String> call(RepositoryStatus status);
+
+        String name();
+    }
+
+    private final RepositoryInstrumentation instrumentation = new RepositoryInstrumentation();
+
+    private final TestService service = instrumentation.instrument(TestService.class,
+            new TestService() {
+                @Override
+                public RepositoryResponse<String> call(RepositoryStatus status) {
+                    RpcTrace.recordRpc("datastore.get");
+                    RpcTrace.recordRpc("datastore.get");
+                    RpcTrace.recordBytesRead(100);
+                    if (status == null) {
+                        throw new IllegalStateException();
+                    }
+                    return status.isError() ? RepositoryResponse.<String> newError(status,
+                            "error") : RepositoryResponse.newOk("ok", "result");
+                }
+
+                @Override
+                public String name() {
+                    return "test";
+                }
+            });
+
+    @Test
+    public void recordsByOperationAndStatus() {
+        assertEquals("result", service.call(RepositoryStatus.OK).getResult());
+        service.call(RepositoryStatus.OK);
+        service.call(RepositoryStatus.NOT_FOUND);
+        try {
+            service.call(null);
+            fail("should have failed");
+        } catch (IllegalStateException e) {
+            // expected.
+        }
+        // Not a repository operation.
+        assertEquals("test", service.name());
+
+        final List<OperationStats> statistics = instrumentation.getStatistics();
+        assertEquals(3, statistics.size());
+        assertStats(statistics.get(0), RepositoryInstrumentation.EXCEPTION_STATUS, 1);
+        assertStats(statistics.get(1), "NOT_FOUND", 1);
+        assertStats(statistics.get(2), "OK", 2);
+    }
+
+    private static void assertStats(OperationStats stats, String status, int count) {
+        assertEquals("call", stats.getOperation());
+        assertEquals(status, stats.getStatus());
+        assertEquals(count, stats.getCount());
+        assertEquals(count, stats.getLatency().getCount());
+        assertEquals(2 * count, stats.getRpcs());
+        assertEquals(100 * count, stats.getBytesRead());
+    }
+
+    @Test
+    public void nestedCallsAreAccountedToOuterCall() {
+        final TestService outer = instrumentation.instrument(TestService.class,
+                new TestService() {
+                    @Override
+                    public RepositoryResponse<String> call(RepositoryStatus status) {
+                        return service.call(status);
+                    }
+
+                    @Override
+                    public String name() {
+                        return "outer";
+                    }
+                });
+        outer.call(RepositoryStatus.OK);
+
+        final List<OperationStats> statistics = instrumentation.getStatistics();
+        assertEquals(1, statistics.size());
+        assertStats(statistics.get(0), "OK", 1);
+    }
+
+    @Test
+    public void export() {
+        service.call(RepositoryStatus.OK);
+
+        final String json = instrumentation.toJson();
+        assertTrue(json,
+                json.contains("\"operation\": \"call\", \"status\": \"OK\", \"count\": 1"));
+        assertTrue(json, json.contains("\"rpcs\": 2, \"bytes_read\": 100"));
+
+        final String prometheus = instrumentation.toPrometheus();
+        assertTrue(prometheus, prometheus.contains(
+                "cnx_repository_operation_latency_seconds_bucket{operation=\"call\",status=\"OK\","
+                    + "le=\"+Inf\"} 1\n"));
+        assertTrue(prometheus, prometheus.contains("cnx_repository_operation_latency_seconds_count"
+                + "{operation=\"call\",status=\"OK\"} 1\n"));
+        assertTrue(prometheus, prometheus.contains(
+                "cnx_repository_operation_rpcs_total{operation=\"call\",status=\"OK\"} 2\n"));
+    }
+}
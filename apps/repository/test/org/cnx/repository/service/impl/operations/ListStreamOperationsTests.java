@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.repository.service.impl.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.List;
+
+import org.cnx.repository.service.api.RepositoryRequestContext;
+import org.cnx.repository.service.api.RepositoryResponse;
+import org.cnx.repository.service.api.RepositoryStatus;
+import org.cnx.repository.service.impl.operations.ListStreamOperations.Format;
+import org.cnx.repository.service.impl.operations.ListStreamOperations.ListType;
+import org.cnx.repository.service.impl.operations.ListStreamOperations.StreamListResult;
+import org.cnx.repository.service.impl.persistence.OrmModuleEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests for {@link ListStreamOperations}.
+ * 
+ * @author Tal Dayan
+ */
+public class ListStreamOperationsTests {
+
+    private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
+            new LocalDatastoreServiceTestConfig(), new LocalMemcacheServiceTestConfig());
+
+    private final RepositoryRequestContext context = new RepositoryRequestContext(null);
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private static void writeModules(int count) {
+        final List<OrmModuleEntity> modules = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            final OrmModuleEntity module = new OrmModuleEntity(new Date());
+            module.setVersionCount(2);
+            modules.add(module);
+        }
+        Services.persistence.write(modules.toArray(new OrmModuleEntity[count]));
+    }
+
+    private static String[] lines(StringWriter out) {
+        return out.toString().split("\n");
+    }
+
+    @Test
+    public void ndjsonWithDetails() {
+        writeModules(3);
+        final StringWriter out = new StringWriter();
+        final RepositoryResponse<StreamListResult> response =
+                ListStreamOperations.streamList(context, ListType.MODULE, Format.NDJSON, true,
+                        null, ListStreamOperations.DEFAULT_TIME_BUDGET_MILLIS,
+                        new PrintWriter(out));
+
+        assertTrue(response.isOk());
+        assertEquals(3, response.getResult().getCount());
+        assertTrue(response.getResult().isLast());
+        final String[] lines = lines(out);
+        assertEquals(4, lines.length);
+        assertTrue(lines[0], lines[0].matches(
+                "\\{\"id\":\"m\\d+\",\"versions\":2,\"created\":\"\\d{4}-\\d\\d-\\d\\dT.*Z\"\\}"));
+        assertEquals("{\"end\":true}", lines[3]);
+    }
+
+    @Test
+    public void compactContinuesFromCheckpoint() {
+        final int count = ListStreamOperations.CHECKPOINT_INTERVAL + 2;
+        writeModules(count);
+
+        // A tiny budget stops the stream at the first checkpoint.
+        final StringWriter first = new StringWriter();
+        final RepositoryResponse<StreamListResult> firstResponse =
+                ListStreamOperations.streamList(context, ListType.MODULE, Format.COMPACT, false,
+                        null, 1, new PrintWriter(first));
+        assertFalse(firstResponse.getResult().isLast());
+        assertEquals(ListStreamOperations.CHECKPOINT_INTERVAL,
+                firstResponse.getResult().getCount());
+        final String[] firstLines = lines(first);
+        assertEquals("#more", firstLines[firstLines.length - 1]);
+        assertEquals("#cursor " + firstResponse.getResult().getEndCursor(),
+                firstLines[firstLines.length - 2]);
+        assertTrue(firstLines[0], firstLines[0].matches("m\\d+"));
+
+        final StringWriter second = new StringWriter();
+        final RepositoryResponse<StreamListResult> secondResponse =
+                ListStreamOperations.streamList(context, ListType.MODULE, Format.COMPACT, false,
+                        firstResponse.getResult().getEndCursor(), 1, new PrintWriter(second));
+        assertTrue(secondResponse.getResult().isLast());
+        assertNull(secondResponse.getResult().getEndCursor());
+        assertEquals(2, secondResponse.getResult().getCount());
+        assertEquals("#end", lines(second)[2]);
+    }
+
+    @Test
+    public void invalidCursor() {
+        final StringWriter out = new StringWriter();
+        final RepositoryResponse<StreamListResult> response =
+                ListStreamOperations.streamList(context, ListType.RESOURCE, Format.NDJSON, false,
+                        "not a cursor", 1000, new PrintWriter(out));
+        assertEquals(RepositoryStatus.BAD_REQUEST, response.getStatus());
+        assertEquals("", out.toString());
+    }
+}
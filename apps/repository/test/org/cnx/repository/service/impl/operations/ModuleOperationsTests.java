@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.cnx.common.repository.RepositoryConstants;
+import org.cnx.repository.service.api.GetModuleInfosResult;
+import org.cnx.repository.service.api.GetModuleVersionResult;
+import org.cnx.repository.service.api.GetModuleVersionsResult;
+import org.cnx.repository.service.api.ModuleInfo;
+import org.cnx.repository.service.api.ModuleVersionReference;
+import org.cnx.repository.service.api.RepositoryRequestContext;
+import org.cnx.repository.service.api.RepositoryResponse;
+import org.cnx.repository.service.api.RepositoryStatus;
+import org.cnx.repository.service.impl.persistence.OrmModuleEntity;
+import org.cnx.repository.service.impl.persistence.OrmModuleVersionEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests for the batch operations of {@link ModuleOperations}.
+ *
+ * @author Tal Dayan
+ */
+public class ModuleOperationsTests {
+
+    private static final String RESOURCE_MAP = "<resources/>";
+
+    private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
+            new LocalDatastoreServiceTestConfig(), new LocalMemcacheServiceTestConfig());
+
+    private final RepositoryRequestContext context = new RepositoryRequestContext(null);
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private static String cnxml(int versionNumber) {
+        return "<document><title>Version " + versionNumber + "</title></document>";
+    }
+
+    /** Add a module with the given number of versions, with latest version copies. */
+    private String addModule(int versionCount) {
+        final String moduleId = ModuleOperations.addModule(context).getResult().getModuleId();
+        for (int i = 1; i <= versionCount; i++) {
+            assertTrue(ModuleOperations.addModuleVersion(context, moduleId, i, cnxml(i),
+                    RESOURCE_MAP).isOk());
+        }
+        return moduleId;
+    }
+
+    /** Write a module with the given number of versions, without latest version copies. */
+    private static String writeModuleWithoutLatestCopy(int versionCount) {
+        final OrmModuleEntity module = new OrmModuleEntity(new Date());
+        module.setVersionCount(versionCount);
+        Services.persistence.write(module);
+        for (int i = 1; i <= versionCount; i++) {
+            Services.persistence.write(new OrmModuleVersionEntity(module.getKey(), new Date(), i,
+                    cnxml(i), RESOURCE_MAP));
+        }
+        return module.getId();
+    }
+
+    /** A well formed id of a module that does not exist. */
+    private static String missingModuleId(String moduleId) {
+        final Key moduleKey = OrmModuleEntity.moduleIdToKey(moduleId);
+        return OrmModuleEntity.moduleKeyToId(KeyFactory.createKey(moduleKey.getKind(),
+                moduleKey.getId() + 1000));
+    }
+
+    private static ModuleVersionReference ref(String moduleId, Integer versionNumber) {
+        return new ModuleVersionReference(moduleId, versionNumber);
+    }
+
+    private static void assertVersion(String moduleId, int versionNumber,
+            GetModuleVersionResult result) {
+        assertEquals(moduleId, result.getModuleId());
+        assertEquals(versionNumber, result.getVersionNumber());
+        assertEquals(cnxml(versionNumber), result.getCnxmlDoc());
+        assertEquals(RESOURCE_MAP, result.getResourceMapDoc());
+    }
+
+    @Test
+    public void getModuleInfos() {
+        final String moduleId1 = addModule(1);
+        final String moduleId2 = addModule(2);
+        final String missingModuleId = missingModuleId(moduleId2);
+
+        final RepositoryResponse<GetModuleInfosResult> response =
+                ModuleOperations.getModuleInfos(context,
+                        ImmutableList.of(moduleId2, missingModuleId, moduleId1, moduleId2));
+        assertTrue(response.isOk());
+
+        // Duplicates are served for each request, in request order.
+        final List<ModuleInfo> infos = response.getResult().getModuleInfos();
+        assertEquals(3, infos.size());
+        assertEquals(moduleId2, infos.get(0).getModuleId());
+        assertEquals(2, infos.get(0).getVersionCount());
+        assertEquals(moduleId1, infos.get(1).getModuleId());
+        assertEquals(1, infos.get(1).getVersionCount());
+        assertEquals(moduleId2, infos.get(2).getModuleId());
+        assertEquals(ImmutableList.of(missingModuleId), response.getResult()
+                .getMissingModuleIds());
+    }
+
+    @Test
+    public void getModuleInfosBatchLimit() {
+        final String moduleId = addModule(0);
+        final List<String> moduleIds = Lists.newArrayList();
+        for (int i = 0; i < RepositoryConstants.MAX_MODULE_INFOS_PER_BATCH; i++) {
+            moduleIds.add(moduleId);
+        }
+        assertEquals(RepositoryConstants.MAX_MODULE_INFOS_PER_BATCH, ModuleOperations
+                .getModuleInfos(context, moduleIds).getResult().getModuleInfos().size());
+
+        moduleIds.add(moduleId);
+        assertEquals(RepositoryStatus.BAD_REQUEST,
+                ModuleOperations.getModuleInfos(context, moduleIds).getStatus());
+    }
+
+    @Test
+    public void getModuleInfosBadId() {
+        assertEquals(RepositoryStatus.BAD_REQUEST,
+                ModuleOperations.getModuleInfos(context, ImmutableList.of("xyz")).getStatus());
+    }
+
+    @Test
+    public void getModuleVersions() {
+        final String moduleId = addModule(3);
+        final String moduleIdWithoutCopy = writeModuleWithoutLatestCopy(2);
+        final String emptyModuleId = addModule(0);
+        final String missingModuleId = missingModuleId(moduleIdWithoutCopy);
+
+        // Cache some of the requested versions.
+        assertTrue(ModuleOperations.getModuleVersion(context, moduleId, 1).isOk());
+        assertTrue(ModuleOperations.getModuleVersion(context, moduleIdWithoutCopy, 2).isOk());
+
+        final List<ModuleVersionReference> refs =
+                ImmutableList.of(ref(moduleId, 1), ref(moduleId, 2), ref(moduleId, null),
+                        ref(moduleId, 1), ref(moduleIdWithoutCopy, null),
+                        ref(moduleIdWithoutCopy, 1), ref(moduleId, 4), ref(emptyModuleId, null),
+                        ref(missingModuleId, null), ref(missingModuleId, 1));
+        final RepositoryResponse<GetModuleVersionsResult> response =
+                ModuleOperations.getModuleVersions(context, refs);
+        assertTrue(response.isOk());
+
+        final List<GetModuleVersionResult> results = response.getResult().getModuleVersions();
+        assertEquals(6, results.size());
+        assertVersion(moduleId, 1, results.get(0));
+        assertVersion(moduleId, 2, results.get(1));
+        assertVersion(moduleId, 3, results.get(2));
+        assertVersion(moduleId, 1, results.get(3));
+        assertVersion(moduleIdWithoutCopy, 2, results.get(4));
+        assertVersion(moduleIdWithoutCopy, 1, results.get(5));
+
+        final List<ModuleVersionReference> missing =
+                response.getResult().getMissingModuleVersions();
+        assertEquals(4, missing.size());
+        assertEquals(refs.get(6), missing.get(0));
+        assertEquals(refs.get(7), missing.get(1));
+        assertEquals(refs.get(8), missing.get(2));
+        assertEquals(refs.get(9), missing.get(3));
+    }
+
+    @Test
+    public void getModuleVersionsBatchLimit() {
+        final String moduleId = addModule(1);
+        final List<ModuleVersionReference> refs = Lists.newArrayList();
+        for (int i = 0; i < RepositoryConstants.MAX_MODULE_VERSIONS_PER_BATCH; i++) {
+            refs.add(ref(moduleId, (i % 2 == 0) ? 1 : null));
+        }
+        assertEquals(RepositoryConstants.MAX_MODULE_VERSIONS_PER_BATCH, ModuleOperations
+                .getModuleVersions(context, refs).getResult().getModuleVersions().size());
+
+        refs.add(ref(moduleId, 1));
+        assertEquals(RepositoryStatus.BAD_REQUEST,
+                ModuleOperations.getModuleVersions(context, refs).getStatus());
+    }
+
+    @Test
+    public void getModuleVersionsBadRequest() {
+        final String moduleId = addModule(1);
+        assertEquals(RepositoryStatus.BAD_REQUEST, ModuleOperations.getModuleVersions(context,
+                ImmutableList.of(ref(moduleId, 1), ref(moduleId, 0))).getStatus());
+        assertEquals(RepositoryStatus.BAD_REQUEST, ModuleOperations.getModuleVersions(context,
+                ImmutableList.of(ref("xyz", 1))).getStatus());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.concurrent.Executor;
+
+import org.cnx.common.render.RenderArtifacts;
+import org.cnx.common.repository.atompub.CnxAtomPubUtils;
+import org.cnx.common.repository.atompub.IdWrapper;
+import org.cnx.repository.service.impl.persistence.OrmModuleEntity;
+import org.cnx.repository.service.impl.persistence.OrmModuleVersionEntity;
+import org.cnx.repository.service.impl.persistence.OrmRenderArtifactEntity;
+import org.cnx.repository.service.impl.persistence.PersistenceService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests for {@link RenderArtifactPipeline}.
+ * 
+ * @author Tal Dayan
+ */
+public class RenderArtifactPipelineTests {
+
+    private static final String ATOMPUB_URL = "http://localhost:8888/atompub";
+
+    private static final String CNXML =
+            "<document xmlns=\"http://cnx.rice.edu/cnxml\" id=\"m0001\" cnxml-version=\"0.7\">"
+                    + "<title>Test</title><content>"
+                    + "<para id=\"p1\">See <link document=\"m0002\">this</link>.</para>"
+                    + "<figure id=\"f1\"><media id=\"i1\" alt=\"\"><image src=\"a.png\""
+                    + " mime-type=\"image/png\"/></media></figure>"
+                    + "</content></document>";
+
+    /** Runs tasks in the calling thread. */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final LocalServiceTestHelper helper =
+            new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+    private PersistenceService persistence;
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+        persistence = new PersistenceService(DatastoreServiceFactory.getDatastoreService());
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private Key writeModuleVersion() throws Exception {
+        final OrmModuleEntity module = new OrmModuleEntity(new Date());
+        persistence.write(module);
+        final OrmModuleVersionEntity version =
+                new OrmModuleVersionEntity(module.getKey(), new Date(), 1, CNXML,
+                        CnxAtomPubUtils.getResourceMappingXmlFromResources(ImmutableMap.of(
+                                "a.png", new IdWrapper("r0042", IdWrapper.Type.RESOURCE))));
+        persistence.write(version);
+        return version.getKey();
+    }
+
+    @Test
+    public void rendersAddedVersions() throws Exception {
+        final Key versionKey = writeModuleVersion();
+        final String moduleId = OrmModuleEntity.moduleKeyToId(versionKey.getParent());
+        final RenderArtifactPipeline pipeline =
+                new RenderArtifactPipeline(persistence, ATOMPUB_URL,
+                        new RenderArtifactPipeline.ExecutorScheduler(DIRECT_EXECUTOR));
+        assertTrue(pipeline.isEnabled());
+        assertEquals(RenderArtifacts.getFingerprint(ATOMPUB_URL), pipeline.getFingerprint());
+
+        pipeline.moduleVersionAdded(moduleId, 1);
+
+        final OrmRenderArtifactEntity artifact =
+                persistence.read(OrmRenderArtifactEntity.class, OrmRenderArtifactEntity
+                        .renderArtifactKey(versionKey, pipeline.getFingerprint()));
+        assertEquals(pipeline.getFingerprint(), artifact.getFingerprint());
+        assertTrue(artifact.getHtml(), artifact.getHtml().contains("/content/module/m0002/latest"));
+        assertTrue(artifact.getHtml(),
+                artifact.getHtml().contains(ATOMPUB_URL + "/resource/r0042"));
+    }
+
+    @Test
+    public void disabledPipelineDoesNotSchedule() throws Exception {
+        final Key versionKey = writeModuleVersion();
+        final RenderArtifactPipeline pipeline =
+                new RenderArtifactPipeline(persistence, null /* repositoryAtomPubUrl */,
+                        new RenderArtifactPipeline.Scheduler() {
+                            @Override
+                            public void schedule(RenderArtifactPipeline pipeline,
+                                    String moduleId, int versionNumber) {
+                                fail("should not schedule");
+                            }
+                        });
+        assertFalse(pipeline.isEnabled());
+
+        pipeline.moduleVersionAdded(OrmModuleEntity.moduleKeyToId(versionKey.getParent()), 1);
+        try {
+            persistence.read(OrmRenderArtifactEntity.class, OrmRenderArtifactEntity
+                    .renderArtifactKey(versionKey, RenderArtifacts.getFingerprint(ATOMPUB_URL)));
+            fail("should have failed");
+        } catch (EntityNotFoundException e) {
+            // expected.
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.blobstore.BlobKey;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+/**
+ * Tests for {@link AsyncPersistenceService}.
+ * 
+ * @author Tal Dayan
+ */
+public class AsyncPersistenceServiceTests {
+
+    private final LocalServiceTestHelper helper =
+            new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+    private TieredEntityCache cache;
+    private AsyncPersistenceService persistence;
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+        cache =
+                new TieredEntityCache(1024 * 1024, null).cacheMutable(OrmModuleEntity.getSpec()
+                        .getKeyKind(), 60 * 1000);
+        persistence =
+                new AsyncPersistenceService(DatastoreServiceFactory.getAsyncDatastoreService(),
+                        cache);
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private Key writeModule(int versionCount) throws Exception {
+        final OrmModuleEntity module = new OrmModuleEntity(new Date());
+        module.setVersionCount(versionCount);
+        AsyncPersistenceService.getResult(persistence.write(module));
+        assertNotNull("Key not assigned", module.getKey());
+        return module.getKey();
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        final Key moduleKey = writeModule(3);
+        final OrmModuleEntity module =
+                AsyncPersistenceService.getResult(persistence.read(OrmModuleEntity.class,
+                        moduleKey));
+        assertEquals(moduleKey, module.getKey());
+        assertEquals(3, module.getVersionCount());
+    }
+
+    @Test
+    public void readNotFound() throws Exception {
+        final Key moduleKey = writeModule(0);
+        final Key versionKey = OrmModuleVersionEntity.moduleVersionKey(moduleKey, 1);
+        try {
+            AsyncPersistenceService.getResult(persistence.read(OrmModuleVersionEntity.class,
+                    versionKey));
+            fail("should have failed");
+        } catch (EntityNotFoundException e) {
+            // expected.
+        }
+    }
+
+    @Test
+    public void hasObjectWithKey() throws Exception {
+        final Key moduleKey = writeModule(0);
+        assertTrue(AsyncPersistenceService.getResult(persistence.hasObjectWithKey(moduleKey)));
+        assertFalse(AsyncPersistenceService.getResult(persistence
+                .hasObjectWithKey(OrmModuleVersionEntity.moduleVersionKey(moduleKey, 1))));
+    }
+
+    @Test
+    public void readChildren() throws Exception {
+        final Key moduleKey = writeModule(0);
+        for (int i = 0; i < 3; i++) {
+            final Entity entity =
+                    new Entity(OrmExportItemEntity.getSpec().getKeyKind(), "export-" + i,
+                            moduleKey);
+            entity.setProperty("created", new Date());
+            entity.setProperty("blob_key", new BlobKey("blob-" + i));
+            entity.setProperty("blob_content_type", "application/pdf");
+            entity.setProperty("blob_size", 1000L);
+            entity.setProperty("blob_md5", "md5");
+            entity.setProperty("blob_creation", new Date());
+            entity.setProperty("blob_filename", "export.pdf");
+            DatastoreServiceFactory.getDatastoreService().put(entity);
+        }
+
+        final List<OrmExportItemEntity> exports =
+                AsyncPersistenceService.getResult(persistence.readChildren(
+                        OrmExportItemEntity.class, moduleKey));
+        assertEquals(3, exports.size());
+        assertEquals(0, AsyncPersistenceService.getResult(
+                persistence.readChildren(OrmExportItemEntity.class, writeModule(0))).size());
+    }
+
+    @Test
+    public void readThroughCache() throws Exception {
+        final Key moduleKey = writeModule(1);
+        final EntityCacheStats stats =
+                cache.getStatistics().get(OrmModuleEntity.getSpec().getKeyKind());
+        final long invalidations = stats.getInvalidations();
+
+        AsyncPersistenceService.getResult(persistence.read(OrmModuleEntity.class, moduleKey));
+        assertEquals(1, stats.getMisses());
+        AsyncPersistenceService.getResult(persistence.read(OrmModuleEntity.class, moduleKey));
+        assertEquals(1, stats.getLocalHits());
+
+        // Writes invalidate the cached entity once the write completes.
+        final OrmModuleEntity module =
+                AsyncPersistenceService.getResult(persistence.read(OrmModuleEntity.class,
+                        moduleKey));
+        module.incrementVersionCount();
+        AsyncPersistenceService.getResult(persistence.write(module));
+        assertEquals(invalidations + 1, stats.getInvalidations());
+        assertEquals(2, AsyncPersistenceService.getResult(
+                persistence.read(OrmModuleEntity.class, moduleKey)).getVersionCount());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+/**
+ * Microbenchmark of the CPU cost and the bytes saved by {@link CompressedText} on real CNXML and
+ * COLXML documents.
+ * <p>
+ * For each document prints its UTF-8 size, its compressed size and the time to compress and
+ * decompress it. Storing a document as a {@link com.google.appengine.api.datastore.Text} has no
+ * such cost but counts its full size against the entity size limit.
+ * <p>
+ * Usage: <code>CompressedTextBenchmark [dir] [iterations]</code>, where dir is searched
+ * recursively for .cnxml and .xml files and defaults to test/testdata. This is not a test and
+ * is not run by <code>ant test</code>.
+ * 
+ * @author Tal Dayan
+ */
+public class CompressedTextBenchmark {
+
+    private static final String DEFAULT_DIR = "test/testdata";
+    private static final int DEFAULT_ITERATIONS = 200;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String KIND = "Benchmark";
+
+    private static void findDocuments(File dir, List<File> result) {
+        for (File file : dir.listFiles()) {
+            if (file.isDirectory()) {
+                findDocuments(file, result);
+            } else if (file.getName().endsWith(".cnxml") || file.getName().endsWith(".xml")) {
+                result.add(file);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final File dir = new File((args.length > 0) ? args[0] : DEFAULT_DIR);
+        final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+
+        final List<File> files = Lists.newArrayList();
+        findDocuments(dir, files);
+        System.out.printf("%d documents, %d iterations%n", files.size(), iterations);
+        System.out.printf("%-50s %9s %9s %7s %12s %12s%n", "document", "bytes", "deflated",
+                "ratio", "deflate ns", "inflate ns");
+
+        long totalBytes = 0;
+        long totalCompressed = 0;
+        long totalCompressNanos = 0;
+        long totalDecompressNanos = 0;
+        int sink = 0;
+        for (File file : files) {
+            final byte[] bytes = Files.toString(file, UTF8).getBytes(UTF8);
+
+            // Warm up.
+            byte[] compressed = null;
+            for (int i = 0; i < iterations; i++) {
+                compressed = CompressedText.deflate(KIND, bytes, 0);
+                sink += CompressedText.inflate(KIND, compressed, 0, bytes.length).length;
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += CompressedText.deflate(KIND, bytes, 0).length;
+            }
+            final long compressNanos = (System.nanoTime() - start) / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += CompressedText.inflate(KIND, compressed, 0, bytes.length).length;
+            }
+            final long decompressNanos = (System.nanoTime() - start) / iterations;
+
+            System.out.printf("%-50s %9d %9d %7.3f %12d %12d%n",
+                    dir.toURI().relativize(file.toURI()).getPath(), bytes.length,
+                    compressed.length, ((double) compressed.length) / bytes.length,
+                    compressNanos, decompressNanos);
+            totalBytes += bytes.length;
+            totalCompressed += compressed.length;
+            totalCompressNanos += compressNanos;
+            totalDecompressNanos += decompressNanos;
+        }
+
+        System.out.printf("%-50s %9d %9d %7.3f %12d %12d (%d)%n", "total", totalBytes,
+                totalCompressed, ((double) totalCompressed) / Math.max(1, totalBytes),
+                totalCompressNanos, totalDecompressNanos, sink);
+    }
+}
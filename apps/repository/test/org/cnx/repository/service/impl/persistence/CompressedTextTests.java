@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.datastore.Blob;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+/**
+ * Tests for {@link CompressedText}.
+ * 
+ * @author Tal Dayan
+ */
+public class CompressedTextTests {
+
+    private static final String KIND = "CompressedTextTests";
+
+    private final LocalServiceTestHelper helper =
+            new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private static String longText() {
+        final StringBuilder builder = new StringBuilder("<collection>");
+        for (int i = 0; builder.length() < 10 * CompressedText.MIN_COMPRESSED_CHARS; i++) {
+            builder.append("<module document=\"m").append(i).append("\">Caf\u00e9 \u03c0</module>");
+        }
+        return builder.append("</collection>").toString();
+    }
+
+    @Test
+    public void shortTextIsNotCompressed() {
+        final Entity entity = new Entity(KIND);
+        CompressedText.setProperty(entity, "doc", "<collection/>");
+        assertTrue(entity.getProperty("doc") instanceof Text);
+        assertEquals("<collection/>", CompressedText.getProperty(entity, "doc"));
+    }
+
+    @Test
+    public void longTextRoundTrip() {
+        final String text = longText();
+        final Entity entity = new Entity(KIND);
+        CompressedText.setProperty(entity, "doc", text);
+        assertTrue(entity.getProperty("doc") instanceof Blob);
+        assertTrue(entity.isUnindexedProperty("doc"));
+        assertTrue(((Blob) entity.getProperty("doc")).getBytes().length < text.length() / 4);
+        assertEquals(text, CompressedText.getProperty(entity, "doc"));
+
+        final CompressionStats stats = CompressedText.getStatistics().get(KIND);
+        assertTrue(stats.getCompressions() > 0);
+        assertTrue(stats.getDecompressions() > 0);
+        assertTrue(stats.getCompressionRatio() < 0.25);
+    }
+
+    @Test
+    public void legacyTextIsRead() {
+        final String text = longText();
+        final Entity entity = new Entity(KIND);
+        entity.setProperty("doc", new Text(text));
+        assertEquals(text, CompressedText.getProperty(entity, "doc"));
+        assertNull(CompressedText.getProperty(entity, "missing"));
+    }
+
+    @Test
+    public void collectionVersionRoundTrip() throws Exception {
+        final String colxml = longText();
+        final Key collectionKey =
+                KeyFactory.createKey(OrmCollectionEntity.getSpec().getKeyKind(), 10000);
+        final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+        final Entity entity =
+                datastore.get(datastore.put(new OrmCollectionVersionEntity(collectionKey,
+                        new Date(), 1, colxml).toEntity()));
+        assertTrue(entity.getProperty("colxml") instanceof Blob);
+        assertEquals(colxml, new OrmCollectionVersionEntity(entity).getColxmlDoc());
+    }
+
+    @Test
+    public void unknownFormatIsRejected() {
+        final Entity entity = new Entity(KIND);
+        entity.setUnindexedProperty("doc", new Blob(new byte[] { 7, 0, 0, 0, 1, 0 }));
+        try {
+            CompressedText.getProperty(entity, "doc");
+            fail("should have failed");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+}
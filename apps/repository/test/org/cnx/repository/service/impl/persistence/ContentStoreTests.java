@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+/**
+ * Tests for {@link ContentStore} and its use by {@link PersistenceService}.
+ * 
+ * @author Tal Dayan
+ */
+public class ContentStoreTests {
+
+    private static final String CNXML_1 = "<document><para>One</para></document>";
+    private static final String CNXML_2 = "<document><para>Two</para></document>";
+    private static final String RESOURCE_MAP = "<resources><resource name=\"a.png\"/></resources>";
+
+    private final LocalServiceTestHelper helper =
+            new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+    private DatastoreService datastore;
+    private PersistenceService persistence;
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+        datastore = DatastoreServiceFactory.getDatastoreService();
+        persistence =
+                new PersistenceService(datastore, new TieredEntityCache(1024 * 1024, null)
+                        .cacheImmutable(OrmContentEntity.getSpec().getKeyKind()));
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private int countContentEntities() {
+        return datastore.prepare(new Query(OrmContentEntity.getSpec().getKeyKind()))
+                .countEntities(FetchOptions.Builder.withDefaults());
+    }
+
+    private Key writeModule() {
+        final OrmModuleEntity module = new OrmModuleEntity(new Date());
+        persistence.write(module);
+        return module.getKey();
+    }
+
+    @Test
+    public void identicalDocumentsAreStoredOnce() throws Exception {
+        final Key moduleKey = writeModule();
+        final OrmModuleVersionEntity version1 =
+                new OrmModuleVersionEntity(moduleKey, new Date(), 1, CNXML_1, RESOURCE_MAP);
+        final OrmModuleVersionEntity version2 =
+                new OrmModuleVersionEntity(moduleKey, new Date(), 2, CNXML_2, RESOURCE_MAP);
+        persistence.write(version1, new OrmModuleLatestVersionEntity(version1));
+        persistence.write(version2, new OrmModuleLatestVersionEntity(version2));
+
+        // Two cnxml documents and one shared resource map.
+        assertEquals(3, countContentEntities());
+
+        // The version entities hold references, not the documents.
+        final Entity entity = datastore.get(version1.getKey());
+        assertFalse(entity.hasProperty("cnxml"));
+        assertEquals(StoredDocument.sha256Hex(CNXML_1), entity.getProperty("cnxml_sha256"));
+
+        final OrmModuleVersionEntity read =
+                persistence.read(OrmModuleVersionEntity.class, version2.getKey());
+        assertEquals(CNXML_2, read.getCNXMLDoc());
+        assertEquals(RESOURCE_MAP, read.getResourceMapDoc());
+        assertFalse(read.hasInlineDocuments());
+
+        final OrmModuleLatestVersionEntity latest =
+                persistence.read(OrmModuleLatestVersionEntity.class,
+                        OrmModuleLatestVersionEntity.latestVersionKey(moduleKey));
+        assertEquals(2, latest.getVersionNumber());
+        assertEquals(CNXML_2, latest.getCNXMLDoc());
+    }
+
+    @Test
+    public void compressedContentRoundTrip() throws Exception {
+        final StringBuilder builder = new StringBuilder("<document>");
+        for (int i = 0; i < 1000; i++) {
+            builder.append("<para id=\"p").append(i).append("\">Caf\u00e9 \u03c0</para>");
+        }
+        final String cnxml = builder.append("</document>").toString();
+        final OrmContentEntity content =
+                new OrmContentEntity(new Date(), StoredDocument.forDocument(cnxml));
+        final Key key = datastore.put(content.toEntity());
+        assertEquals(OrmContentEntity.contentKey(StoredDocument.sha256Hex(cnxml)), key);
+        final Entity entity = datastore.get(key);
+        assertEquals(cnxml, new OrmContentEntity(entity).getDocument());
+    }
+
+    @Test
+    public void legacyInlineDocumentsAreReadAndMigrated() throws Exception {
+        final Key moduleKey = writeModule();
+        final Key versionKey = OrmModuleVersionEntity.moduleVersionKey(moduleKey, 1);
+        final Entity legacy = new Entity(versionKey);
+        legacy.setProperty("created", new Date());
+        legacy.setProperty("version", 1L);
+        legacy.setProperty("cnxml", new Text(CNXML_1));
+        legacy.setProperty("resource_map", new Text(RESOURCE_MAP));
+        datastore.put(legacy);
+
+        OrmModuleVersionEntity read = persistence.read(OrmModuleVersionEntity.class, versionKey);
+        assertTrue(read.hasInlineDocuments());
+        assertEquals(CNXML_1, read.getCNXMLDoc());
+        assertEquals(0, countContentEntities());
+
+        assertTrue(PersistenceMigrationUtil.moveDocumentsToContentStore(persistence, versionKey));
+        assertEquals(2, countContentEntities());
+        assertNull(datastore.get(versionKey).getProperty("cnxml"));
+
+        read = persistence.read(OrmModuleVersionEntity.class, versionKey);
+        assertFalse(read.hasInlineDocuments());
+        assertEquals(CNXML_1, read.getCNXMLDoc());
+        assertEquals(RESOURCE_MAP, read.getResourceMapDoc());
+
+        // Already migrated.
+        assertFalse(PersistenceMigrationUtil.moveDocumentsToContentStore(persistence, versionKey));
+        assertFalse(PersistenceMigrationUtil.moveDocumentsToContentStore(persistence,
+                OrmModuleVersionEntity.moduleVersionKey(moduleKey, 2)));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+/**
+ * Tests for {@link OrmEntityRegistry}.
+ * 
+ * @author Tal Dayan
+ */
+public class OrmEntityRegistryTests {
+
+    private final LocalServiceTestHelper helper =
+            new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    @Test
+    public void getSpec() {
+        assertSame(OrmCollectionEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmCollectionEntity.class));
+        assertSame(OrmCollectionLatestVersionEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmCollectionLatestVersionEntity.class));
+        assertSame(OrmCollectionVersionEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmCollectionVersionEntity.class));
+        assertSame(OrmContentEntity.getSpec(), OrmEntityRegistry.getSpec(OrmContentEntity.class));
+        assertSame(OrmExportItemEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmExportItemEntity.class));
+        assertSame(OrmModuleEntity.getSpec(), OrmEntityRegistry.getSpec(OrmModuleEntity.class));
+        assertSame(OrmModuleLatestVersionEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmModuleLatestVersionEntity.class));
+        assertSame(OrmModuleVersionEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmModuleVersionEntity.class));
+        assertSame(OrmRenderArtifactEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmRenderArtifactEntity.class));
+        assertSame(OrmResourceEntity.getSpec(),
+                OrmEntityRegistry.getSpec(OrmResourceEntity.class));
+    }
+
+    @Test
+    public void create() throws Exception {
+        final OrmModuleEntity module = new OrmModuleEntity(new Date());
+        module.setVersionCount(7);
+
+        // Read back from the datastore, which returns integer properties as Longs.
+        final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+        final Entity entity = datastore.get(datastore.put(module.toEntity()));
+
+        final OrmModuleEntity created = OrmEntityRegistry.create(OrmModuleEntity.class, entity);
+        assertEquals(entity.getKey(), created.getKey());
+        assertEquals(7, created.getVersionCount());
+        assertEquals(module.getCreationTime(), created.getCreationTime());
+    }
+
+    @Test
+    public void unregisteredClass() {
+        try {
+            OrmEntityRegistry.getSpec(OrmEntity.class);
+            fail("should have failed");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+}
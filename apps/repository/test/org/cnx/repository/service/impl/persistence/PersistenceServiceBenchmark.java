@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import java.util.Date;
+import java.util.List;
+
+import com.google.appengine.api.blobstore.BlobKey;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.Lists;
+
+/**
+ * Microbenchmark of {@link PersistenceService#readChildren} over a module with many export
+ * children, using the local datastore.
+ * <p>
+ * The <code>-reflection</code> benchmark deserializes the same entities with a reflective
+ * constructor lookup per entity, as a baseline for {@link OrmEntityRegistry}.
+ * <p>
+ * Usage: <code>PersistenceServiceBenchmark [children] [iterations]</code>. This is not a test
+ * and is not run by <code>ant test</code>.
+ * 
+ * @author Tal Dayan
+ */
+public class PersistenceServiceBenchmark {
+
+    private static final int DEFAULT_CHILDREN = 500;
+    private static final int DEFAULT_ITERATIONS = 200;
+
+    /** A benchmarked operation. Returns a value to keep the JIT from eliminating the work. */
+    private static abstract class Operation {
+        abstract int run() throws Exception;
+    }
+
+    private static void time(String name, int iterations, Operation operation)
+            throws Exception {
+        // Warm up.
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.run();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.run();
+        }
+        final long nanosPerOp = (System.nanoTime() - start) / iterations;
+        System.out.printf("%-30s %12d ns/op (%d)%n", name, nanosPerOp, sink);
+    }
+
+    private static Entity newExportEntity(Key parentKey, int i) {
+        final Entity entity =
+                new Entity(OrmExportItemEntity.getSpec().getKeyKind(), "export-" + i, parentKey);
+        entity.setProperty("created", new Date());
+        entity.setProperty("blob_key", new BlobKey("blob-" + i));
+        entity.setProperty("blob_content_type", "application/pdf");
+        entity.setProperty("blob_size", 1000L + i);
+        entity.setProperty("blob_md5", "md5-" + i);
+        entity.setProperty("blob_creation", new Date());
+        entity.setProperty("blob_filename", "export-" + i + ".pdf");
+        return entity;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int children = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_CHILDREN;
+        final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+
+        final LocalServiceTestHelper helper =
+                new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+        helper.setUp();
+        try {
+            final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+            final PersistenceService persistenceService = new PersistenceService(datastore);
+
+            final Key moduleKey = datastore.put(new OrmModuleEntity(new Date()).toEntity());
+            final List<Entity> exports = Lists.newArrayList();
+            for (int i = 0; i < children; i++) {
+                exports.add(newExportEntity(moduleKey, i));
+            }
+            datastore.put(exports);
+            System.out.printf("%s: %d export children, %d iterations%n",
+                    KeyFactory.keyToString(moduleKey), children, iterations);
+
+            time("readChildren", iterations, new Operation() {
+                @Override
+                int run() {
+                    return persistenceService.readChildren(OrmExportItemEntity.class, moduleKey)
+                            .size();
+                }
+            });
+
+            time("deserialize", iterations, new Operation() {
+                @Override
+                int run() {
+                    int count = 0;
+                    for (Entity entity : exports) {
+                        if (OrmEntityRegistry.create(OrmExportItemEntity.class, entity) != null) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            });
+
+            time("deserialize-reflection", iterations, new Operation() {
+                @Override
+                int run() throws Exception {
+                    int count = 0;
+                    for (Entity entity : exports) {
+                        if (OrmExportItemEntity.class.getConstructor(Entity.class).newInstance(
+                                entity) != null) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            });
+        } finally {
+            helper.tearDown();
+        }
+    }
+}
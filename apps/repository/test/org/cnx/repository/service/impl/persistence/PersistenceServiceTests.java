@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests for {@link PersistenceService}.
+ * 
+ * @author Tal Dayan
+ */
+public class PersistenceServiceTests {
+
+    private final LocalServiceTestHelper helper =
+            new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+    private PersistenceService persistence;
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+        persistence =
+                new PersistenceService(DatastoreServiceFactory.getDatastoreService(),
+                        new TieredEntityCache(1024 * 1024, null).cacheMutable(OrmModuleEntity
+                                .getSpec().getKeyKind(), 60 * 1000));
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private Key writeModule(int versionCount) {
+        final OrmModuleEntity module = new OrmModuleEntity(new Date());
+        module.setVersionCount(versionCount);
+        persistence.write(module);
+        return module.getKey();
+    }
+
+    private static Key missingModuleKey(Key moduleKey) {
+        return KeyFactory.createKey(moduleKey.getKind(), moduleKey.getId() + 1000);
+    }
+
+    private EntityCacheStats moduleStats() {
+        return persistence.getCache().getStatistics().get(OrmModuleEntity.getSpec().getKeyKind());
+    }
+
+    @Test
+    public void readAllEmpty() {
+        assertTrue(persistence.readAll(OrmModuleEntity.class, Collections.<Key> emptyList())
+                .isEmpty());
+    }
+
+    @Test
+    public void readAllDuplicateAndMissingKeys() {
+        final Key key1 = writeModule(1);
+        final Key key2 = writeModule(2);
+        final Key missingKey = missingModuleKey(key2);
+
+        final Map<Key, OrmModuleEntity> modules =
+                persistence.readAll(OrmModuleEntity.class,
+                        ImmutableList.of(key2, missingKey, key1, key2));
+
+        // In the order of the given keys, without duplicates and missing keys.
+        assertEquals(ImmutableList.of(key2, key1), Lists.newArrayList(modules.keySet()));
+        assertEquals(2, modules.get(key2).getVersionCount());
+        assertEquals(1, modules.get(key1).getVersionCount());
+    }
+
+    @Test
+    public void readAllMixedCacheHitsAndMisses() throws Exception {
+        final Key key1 = writeModule(1);
+        final Key key2 = writeModule(2);
+        final Key missingKey = missingModuleKey(key2);
+
+        // Cache the first module only.
+        persistence.read(OrmModuleEntity.class, key1);
+        assertEquals(1, moduleStats().getMisses());
+
+        final Map<Key, OrmModuleEntity> modules =
+                persistence.readAll(OrmModuleEntity.class,
+                        ImmutableList.of(key1, key2, missingKey));
+        assertEquals(ImmutableList.of(key1, key2), Lists.newArrayList(modules.keySet()));
+        assertEquals(1, moduleStats().getLocalHits());
+        assertEquals(3, moduleStats().getMisses());
+
+        // Found entities are now cached, missing ones are not.
+        persistence.readAll(OrmModuleEntity.class, ImmutableList.of(key1, key2, missingKey));
+        assertEquals(3, moduleStats().getLocalHits());
+        assertEquals(4, moduleStats().getMisses());
+    }
+
+    @Test
+    public void readAllInTransactionBypassesCacheOfMutableKinds() throws Exception {
+        final Key key = writeModule(1);
+        persistence.read(OrmModuleEntity.class, key);
+
+        final PersistenceTransaction tx = persistence.beginTransaction();
+        try {
+            assertEquals(1, persistence.readAll(OrmModuleEntity.class, ImmutableList.of(key))
+                    .get(key).getVersionCount());
+        } finally {
+            tx.rollback();
+        }
+        assertEquals(0, moduleStats().getLocalHits());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.repository.service.impl.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests for {@link TieredEntityCache}.
+ * 
+ * @author Tal Dayan
+ */
+public class TieredEntityCacheTests {
+
+    private static final String IMMUTABLE_KIND = "Immutable";
+    private static final String MUTABLE_KIND = "Mutable";
+    private static final String SHARED_KIND = "Shared";
+
+    private static final long TTL_MILLIS = 500;
+
+    /** Long enough for memcache, which does not honor sub second expirations. */
+    private static final long SHARED_TTL_MILLIS = 60 * 1000;
+
+    private final LocalServiceTestHelper helper =
+            new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+    @Before
+    public void setUp() {
+        helper.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        helper.tearDown();
+    }
+
+    private static TieredEntityCache newCache(long maxLocalBytes, MemcacheService memcache) {
+        return new TieredEntityCache(maxLocalBytes, memcache).cacheImmutable(IMMUTABLE_KIND)
+            .cacheMutable(MUTABLE_KIND, TTL_MILLIS).cacheMutable(SHARED_KIND, SHARED_TTL_MILLIS);
+    }
+
+    private static Entity newEntity(String kind, long id) {
+        final Entity entity = new Entity(KeyFactory.createKey(kind, id));
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append("<para>").append(id).append("</para>");
+        }
+        entity.setUnindexedProperty("doc", new Text(builder.toString()));
+        return entity;
+    }
+
+    /**
+     * A memcache that keeps values until deleted, ignoring their expiration, unlike the local
+     * memcache which does not keep values with a sub second expiration at all.
+     */
+    private static MemcacheService newMapMemcache() {
+        final Map<Object, Object> values = Maps.newHashMap();
+        return (MemcacheService) Proxy.newProxyInstance(MemcacheService.class.getClassLoader(),
+                new Class<?>[] { MemcacheService.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("get")) {
+                            return values.get(args[0]);
+                        }
+                        if (method.getName().equals("put")) {
+                            values.put(args[0], args[1]);
+                            return null;
+                        }
+                        if (method.getName().equals("delete")) {
+                            return values.remove(args[0]) != null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenOverBound() {
+        final Entity entity1 = newEntity(IMMUTABLE_KIND, 1);
+        final Entity entity2 = newEntity(IMMUTABLE_KIND, 2);
+        final Entity entity3 = newEntity(IMMUTABLE_KIND, 3);
+        final long entityBytes = TieredEntityCache.estimateSize(entity1);
+        final TieredEntityCache cache = newCache(2 * entityBytes + entityBytes / 2, null);
+
+        cache.put(entity1);
+        cache.put(entity2);
+        assertEquals(2 * entityBytes, cache.getLocalBytes());
+
+        // Touch entity1 so entity2 is the least recently used.
+        assertSame(entity1, cache.get(entity1.getKey()));
+        cache.put(entity3);
+
+        assertEquals(2 * entityBytes, cache.getLocalBytes());
+        assertSame(entity1, cache.get(entity1.getKey()));
+        assertNull(cache.get(entity2.getKey()));
+        assertSame(entity3, cache.get(entity3.getKey()));
+    }
+
+    @Test
+    public void entityLargerThanBoundIsNotCachedLocally() {
+        final Entity entity = newEntity(IMMUTABLE_KIND, 1);
+        final TieredEntityCache cache =
+                newCache(TieredEntityCache.estimateSize(entity) - 1, null);
+
+        cache.put(entity);
+        assertEquals(0, cache.getLocalBytes());
+        assertNull(cache.get(entity.getKey()));
+    }
+
+    @Test
+    public void mutableEntitiesExpire() throws Exception {
+        final Entity immutableEntity = newEntity(IMMUTABLE_KIND, 1);
+        final Entity mutableEntity = newEntity(MUTABLE_KIND, 1);
+        final TieredEntityCache cache = newCache(1024 * 1024, null);
+
+        cache.put(immutableEntity);
+        cache.put(mutableEntity);
+        assertSame(mutableEntity, cache.get(mutableEntity.getKey()));
+
+        Thread.sleep(2 * TTL_MILLIS);
+        assertSame(immutableEntity, cache.get(immutableEntity.getKey()));
+        assertNull(cache.get(mutableEntity.getKey()));
+        assertEquals(TieredEntityCache.estimateSize(immutableEntity), cache.getLocalBytes());
+    }
+
+    @Test
+    public void invalidateClearsBothTiers() {
+        final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+        final TieredEntityCache writer = newCache(1024 * 1024, memcache);
+        final TieredEntityCache otherInstance = newCache(1024 * 1024, memcache);
+        final Entity entity = newEntity(SHARED_KIND, 1);
+
+        writer.put(entity);
+        assertEquals(entity, otherInstance.get(entity.getKey()));
+        assertEquals(1, otherInstance.getStatistics().get(SHARED_KIND).getMemcacheHits());
+
+        writer.invalidate(entity.getKey());
+        assertNull(writer.get(entity.getKey()));
+        assertNull(newCache(1024 * 1024, memcache).get(entity.getKey()));
+
+        // The local tier of other instances keeps the entity until it expires.
+        assertEquals(entity, otherInstance.get(entity.getKey()));
+        assertEquals(1, otherInstance.getStatistics().get(SHARED_KIND).getLocalHits());
+    }
+
+    @Test
+    public void localCopyOfMemcacheEntityKeepsItsExpiration() throws Exception {
+        final MemcacheService memcache = newMapMemcache();
+        final TieredEntityCache writer = newCache(1024 * 1024, memcache);
+        final TieredEntityCache otherInstance = newCache(1024 * 1024, memcache);
+        final Entity entity = newEntity(MUTABLE_KIND, 1);
+
+        writer.put(entity);
+        Thread.sleep(TTL_MILLIS * 3 / 5);
+        assertEquals(entity, otherInstance.get(entity.getKey()));
+        assertEquals(1, otherInstance.getStatistics().get(MUTABLE_KIND).getMemcacheHits());
+
+        // Expires with the entity put by the writer, not TTL_MILLIS after it was copied.
+        Thread.sleep(TTL_MILLIS * 3 / 5);
+        assertNull(otherInstance.get(entity.getKey()));
+        assertEquals(0, otherInstance.getStatistics().get(MUTABLE_KIND).getLocalHits());
+    }
+
+    @Test
+    public void memcacheFailuresFallBackToLocalTier() {
+        final MemcacheService failingMemcache =
+                (MemcacheService) Proxy.newProxyInstance(MemcacheService.class.getClassLoader(),
+                        new Class<?>[] { MemcacheService.class }, new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args) {
+                                throw new RuntimeException("memcache is down");
+                            }
+                        });
+        final TieredEntityCache cache = newCache(1024 * 1024, failingMemcache);
+        final Entity entity = newEntity(IMMUTABLE_KIND, 1);
+
+        assertNull(cache.get(entity.getKey()));
+        cache.put(entity);
+        assertSame(entity, cache.get(entity.getKey()));
+        cache.invalidate(entity.getKey());
+        assertNull(cache.get(entity.getKey()));
+
+        final EntityCacheStats stats = cache.getStatistics().get(IMMUTABLE_KIND);
+        assertEquals(1, stats.getLocalHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getInvalidations());
+        assertEquals(0, cache.getLocalBytes());
+    }
+}
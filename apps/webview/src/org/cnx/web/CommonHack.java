@@ -23,12 +23,12 @@ import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.net.URL;
 import javax.ws.rs.core.Response;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.parsers.SAXParser;
 import org.cnx.common.exceptions.CnxInvalidUrlException;
 import org.cnx.common.exceptions.CnxPossibleValidIdException;
+import org.cnx.common.jaxb.JaxbRegistry;
+import org.cnx.common.render.RenderArtifacts;
 import org.cnx.common.repository.RepositoryConstants;
 import org.cnx.common.repository.atompub.IdWrapper;
 import org.cnx.resourcemapping.Resources;
@@ -48,7 +48,8 @@ public class CommonHack {
     public static final String COLLECTION_TEMPLATE_NAME = "org.cnx.web.collection";
     public static final String COLLECTION_MODULE_TEMPLATE_NAME = "org.cnx.web.collectionModule";
 
-    public static final String WEBVIEW_URL_PREFIX = "/content";
+    /** Shared with the repository, which renders module links at publish time. */
+    public static final String WEBVIEW_URL_PREFIX = RenderArtifacts.WEBVIEW_URL_PREFIX;
     public static final String CONFIG = "/config";
 
     public static Document parseXmlString(final SAXParser parser, final String source)
@@ -59,13 +60,8 @@ public class CommonHack {
     }
 
     public static Resources getResourcesFromResourceMappingDoc(String resourceMappingXml) {
-        JAXBContext jaxbContext;
         try {
-            jaxbContext = JAXBContext.newInstance(Resources.class);
-            Unmarshaller unMarshaller = jaxbContext.createUnmarshaller();
-            Resources resources =
-                    (Resources) unMarshaller.unmarshal(new StringReader(resourceMappingXml));
-            return resources;
+            return JaxbRegistry.unmarshal(Resources.class, new StringReader(resourceMappingXml));
         } catch (JAXBException e) {
             // TODO(arjuns): Auto-generated catch block
             throw new RuntimeException(e);
@@ -21,6 +21,7 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Stage;
 import com.google.inject.servlet.GuiceServletContextListener;
+import org.cnx.common.startup.StartupReport;
 
 /**
  *  GuiceContextListener adds a global injector to the servlet context.
@@ -31,6 +32,9 @@ public class GuiceContextListener extends GuiceServletContextListener {
         if (SystemProperty.environment.value() == SystemProperty.Environment.Value.Production) {
             stage = Stage.PRODUCTION;
         }
-        return Guice.createInjector(stage, new WebViewModule());
+        final long startNanos = StartupReport.start();
+        final Injector injector = Guice.createInjector(stage, new WebViewModule());
+        StartupReport.record("Guice injector (" + stage + ")", startNanos);
+        return injector;
     }
 }
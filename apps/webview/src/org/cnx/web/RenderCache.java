@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.web;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.api.utils.SystemProperty;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import org.cnx.common.repository.atompub.VersionWrapper;
+
+/**
+ * Two tier cache of rendered HTML pages.
+ *
+ * A rendered page depends only on the module version, the collection version it is rendered in
+ * (if any) and the templates/configuration of this deployment. Pinned versions never change, so
+ * pages are cached under concrete versions: "latest" requests must be resolved by the caller
+ * before looking up the cache (see {@link #versionToken}).
+ *
+ * The first tier is a bounded in-process LRU. The second tier is memcache, which is shared
+ * between instances and is flushed by {@link org.cnx.web.servlets.ClearCacheServlet}.
+ *
+ * @author Arjun Satyapal
+ */
+@Singleton
+public class RenderCache {
+    private static final Logger logger = Logger.getLogger(RenderCache.class.getName());
+
+    /** Memcache namespace used for rendered pages. */
+    private static final String MEMCACHE_NAMESPACE = "render";
+
+    /** Placeholder used in keys of modules which are not rendered under a collection. */
+    private static final String NO_COLLECTION = "-";
+
+    private final boolean enabled;
+    private final String fingerprint;
+    private final LruMap lru;
+    @Nullable
+    private final MemcacheService memcache;
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong memcacheHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Inject
+    public RenderCache(WebViewConfiguration configuration) {
+        this(configuration.isRenderCacheEnabled(), configuration.getRenderCacheSize(),
+                computeFingerprint(configuration),
+                configuration.isRenderCacheEnabled() ? MemcacheServiceFactory
+                        .getMemcacheService(MEMCACHE_NAMESPACE) : null);
+    }
+
+    @VisibleForTesting
+    RenderCache(boolean enabled, int maxEntries, String fingerprint,
+            @Nullable MemcacheService memcache) {
+        checkArgument(maxEntries >= 0, "Invalid cache size : %s", maxEntries);
+        this.enabled = enabled;
+        this.fingerprint = checkNotNull(fingerprint);
+        this.lru = new LruMap(maxEntries);
+        this.memcache = memcache;
+    }
+
+    /**
+     * Fingerprint of everything besides the content which affects the rendered HTML, i.e. the
+     * deployed application version (which covers the soy templates) and the configuration.
+     */
+    private static String computeFingerprint(WebViewConfiguration configuration) {
+        final String input =
+                SystemProperty.applicationVersion.get() + "\n" + configuration.getConfiguration();
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("MD5");
+            return new BigInteger(1, digest.digest(input.getBytes(Charsets.UTF_8))).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Return the version token to use as part of the cache key.
+     *
+     * Pages requested as "latest" link to "latest" versions, so they are cached separately from
+     * the same concrete version requested explicitly.
+     *
+     * @param requested version as requested by the client. May be "latest".
+     * @param resolved concrete version returned by the repository.
+     */
+    public static String versionToken(VersionWrapper requested, VersionWrapper resolved) {
+        checkArgument(resolved.getVersionInt() != null, "Unresolved version : %s", resolved);
+        if (requested.getVersionInt() == null) {
+            return requested.toString() + "=" + resolved.toString();
+        }
+        return resolved.toString();
+    }
+
+    /**
+     * Build a cache key for a module rendered on its own.
+     */
+    public String getKey(String moduleId, String moduleVersionToken) {
+        return getKey(NO_COLLECTION, NO_COLLECTION, moduleId, moduleVersionToken);
+    }
+
+    /**
+     * Build a cache key for a module rendered under a collection.
+     */
+    public String getKey(String collectionId, String collectionVersionToken, String moduleId,
+            String moduleVersionToken) {
+        return new StringBuilder(fingerprint).append('/').append(checkNotNull(collectionId))
+                .append('/').append(checkNotNull(collectionVersionToken)).append('/')
+                .append(checkNotNull(moduleId)).append('/')
+                .append(checkNotNull(moduleVersionToken)).toString();
+    }
+
+    /**
+     * Are pages cached? If not, callers need not keep a copy of the pages they render.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Look up a rendered page.
+     *
+     * @return the page HTML or null if it is not cached.
+     */
+    @Nullable
+    public String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+
+        String html;
+        synchronized (lru) {
+            html = lru.get(key);
+        }
+        if (html != null) {
+            localHits.incrementAndGet();
+            return html;
+        }
+
+        if (memcache != null) {
+            try {
+                html = (String) memcache.get(key);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Render cache memcache lookup failed", e);
+            }
+            if (html != null) {
+                memcacheHits.incrementAndGet();
+                synchronized (lru) {
+                    lru.put(key, html);
+                }
+                return html;
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a rendered page in both tiers.
+     */
+    public void put(String key, String html) {
+        checkNotNull(html);
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (lru) {
+            lru.put(key, html);
+        }
+
+        if (memcache != null) {
+            try {
+                memcache.put(key, html);
+            } catch (RuntimeException e) {
+                // Most likely the page exceeds the memcache value size limit.
+                logger.log(Level.WARNING, "Render cache memcache store failed for " + key, e);
+            }
+        }
+    }
+
+    /**
+     * Drop all the pages held in-process. Memcache is cleared separately by the caller.
+     */
+    public void clearLocal() {
+        synchronized (lru) {
+            lru.clear();
+        }
+    }
+
+    public long getLocalHits() {
+        return localHits.get();
+    }
+
+    public long getMemcacheHits() {
+        return memcacheHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getLocalSize() {
+        synchronized (lru) {
+            return lru.size();
+        }
+    }
+
+    /**
+     * Return the cache statistics as HTML, in the format used by
+     * {@link org.cnx.web.servlets.ConfigDisplayServlet}.
+     */
+    public String getStatistics() {
+        return new StringBuilder()
+                .append(WebViewConfiguration.getPropertyHtmlString("render.cache.enabled", enabled))
+                .append(WebViewConfiguration.getPropertyHtmlString("render.cache.fingerprint",
+                        fingerprint))
+                .append(WebViewConfiguration.getPropertyHtmlString("render.cache.local.size",
+                        getLocalSize()))
+                .append(WebViewConfiguration.getPropertyHtmlString("render.cache.local.hits",
+                        getLocalHits()))
+                .append(WebViewConfiguration.getPropertyHtmlString("render.cache.memcache.hits",
+                        getMemcacheHits()))
+                .append(WebViewConfiguration.getPropertyHtmlString("render.cache.misses",
+                        getMisses()))
+                .append(WebViewConfiguration.getPropertyHtmlString("render.cache.evictions",
+                        getEvictions()))
+                .toString();
+    }
+
+    /**
+     * Access ordered map which drops its least recently used entry once full.
+     */
+    @SuppressWarnings("serial")
+    private class LruMap extends LinkedHashMap<String, String> {
+        private final int maxEntries;
+
+        LruMap(int maxEntries) {
+            super(16, 0.75f, true /* accessOrder */);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
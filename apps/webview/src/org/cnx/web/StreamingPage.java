@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.web;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Charsets;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * A page that is written to the response as it is rendered.
+ *
+ * The page shell is rendered by Soy as usual, with {@link #CONTENT_PLACEHOLDER} as the content
+ * HTML. When the response is written, the shell up to the placeholder is written first, then the
+ * content is written by a {@link PageContent} callback directly to the response, then the rest of
+ * the shell. The content therefore never exists as a single string, and the bytes are sent as the
+ * content is serialized.
+ *
+ * The response is buffered, so the shell alone is not sent before the content callback starts
+ * writing. A callback that fails before writing anything still results in an error response.
+ *
+ * @author Arjun Satyapal
+ */
+public class StreamingPage implements StreamingOutput {
+    /**
+     * Pass this as the content HTML when rendering the shell. Soy escapes '<' in template data
+     * unless marked noAutoescape, so it cannot appear in the shell by accident.
+     */
+    public static final String CONTENT_PLACEHOLDER = "<!--cnx:content-->";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Writes the content HTML of a page.
+     */
+    public interface PageContent {
+        void write(Appendable out) throws Exception;
+    }
+
+    private final String shellStart;
+    private final String shellEnd;
+    private final PageContent content;
+    @Nullable
+    private final RenderCache renderCache;
+    @Nullable
+    private final String cacheKey;
+
+    /**
+     * @param shellHtml the rendered page with {@link #CONTENT_PLACEHOLDER} as the content.
+     * @param content writes the content.
+     * @param renderCache if not null and enabled, the full page is stored in this cache under
+     *        cacheKey once written.
+     */
+    public StreamingPage(String shellHtml, PageContent content, @Nullable RenderCache renderCache,
+            @Nullable String cacheKey) {
+        final int index = shellHtml.indexOf(CONTENT_PLACEHOLDER);
+        checkArgument(index >= 0, "Page shell has no content placeholder");
+        checkArgument(shellHtml.indexOf(CONTENT_PLACEHOLDER, index + 1) < 0,
+                "Page shell has more than one content placeholder");
+        this.shellStart = shellHtml.substring(0, index);
+        this.shellEnd = shellHtml.substring(index + CONTENT_PLACEHOLDER.length());
+        this.content = checkNotNull(content);
+        this.renderCache = (renderCache != null && renderCache.isEnabled()) ? renderCache : null;
+        this.cacheKey = cacheKey;
+        checkArgument(this.renderCache == null || cacheKey != null, "Missing cache key");
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        final Writer writer =
+                new BufferedWriter(new OutputStreamWriter(output, Charsets.UTF_8), BUFFER_SIZE);
+        // The cache needs the full page, so keep a copy only when it is enabled.
+        final StringBuilder copy = (renderCache == null) ? null : new StringBuilder();
+        final Writer out = (copy == null) ? writer : new TeeWriter(writer, copy);
+
+        out.append(shellStart);
+        try {
+            content.write(out);
+        } catch (IOException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        out.append(shellEnd);
+        writer.flush();
+
+        if (copy != null) {
+            renderCache.put(cacheKey, copy.toString());
+        }
+    }
+
+    /**
+     * A Writer that writes to another Writer and keeps a copy of what is written.
+     */
+    private static class TeeWriter extends Writer {
+        private final Writer writer;
+        private final StringBuilder copy;
+
+        TeeWriter(Writer writer, StringBuilder copy) {
+            this.writer = writer;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            writer.write(chars, offset, length);
+            copy.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String s, int offset, int length) throws IOException {
+            writer.write(s, offset, length);
+            copy.append(s, offset, offset + length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -82,4 +82,24 @@ public class WebViewConfiguration {
     public String getSiteMessage() {
         return configProperties.getProperty("cnx.siteMessage", "");
     }
+
+    public boolean isRenderCacheEnabled() {
+        return Boolean.parseBoolean(configProperties.getProperty("render.cache.enable", "true"));
+    }
+
+    /**
+     * Maximum number of rendered pages held in-process by {@link RenderCache}.
+     */
+    public int getRenderCacheSize() {
+        return Integer.parseInt(configProperties.getProperty("render.cache.size", "200"));
+    }
+
+    /**
+     * Whether module pages should use the HTML rendered by the repository at publish time, when
+     * available. See {@link org.cnx.common.render.RenderArtifacts}.
+     */
+    public boolean useRenderArtifacts() {
+        return Boolean.parseBoolean(configProperties.getProperty("render.artifacts.enable",
+                "false"));
+    }
 }
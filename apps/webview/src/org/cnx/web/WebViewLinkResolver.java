@@ -24,13 +24,11 @@ import java.net.URI;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 import org.cnx.cnxml.LinkResolver;
-import org.cnx.cnxml.Links;
 import org.cnx.cnxml.Module;
+import org.cnx.cnxml.ResourceIndex;
 import org.cnx.common.collxml.Collection;
 import org.cnx.common.repository.atompub.CnxAtomPubUtils;
 import org.cnx.common.repository.atompub.ServletUris;
-import org.cnx.resourcemapping.Resource;
-import org.cnx.resourcemapping.Resources;
 
 /**
  * Resolves links for Modules and Collections.
@@ -43,13 +41,16 @@ public class WebViewLinkResolver implements LinkResolver {
 
     private final Provider<Collection> collectionProvider;
     private final Provider<Module> moduleProvider;
+    private final Provider<ResourceIndex> resourceIndexProvider;
     private final WebViewConfiguration configuration;
 
     @Inject
     public WebViewLinkResolver(Provider<Collection> collectionProvider,
-            Provider<Module> moduleProvider, WebViewConfiguration configuration) {
+            Provider<Module> moduleProvider, Provider<ResourceIndex> resourceIndexProvider,
+            WebViewConfiguration configuration) {
         this.collectionProvider = collectionProvider;
         this.moduleProvider = moduleProvider;
+        this.resourceIndexProvider = resourceIndexProvider;
         this.configuration = configuration;
     }
 
@@ -95,15 +96,11 @@ public class WebViewLinkResolver implements LinkResolver {
     public URI resolveResource(@Nullable String document, @Nullable String version, URI resource)
             throws Exception {
         if (document == null && version == null) {
-            final Resources resources = moduleProvider.get().getResources();
-            for (Resource currResource : resources.getResource()) {
-                final URI currName = Links.convertFileNameToUri(currResource.getName());
-                if (currName.equals(resource)) {
-                    final String resourceId =
-                            currResource.getLocationInformation().getRepository().getResourceId();
-                    return new URI(configuration.getRepositoryAtomPubUrl()
-                            + "/resource/" + resourceId);
-                }
+            // The index is built once per render, see ResourceIndex.
+            final String resourceId = resourceIndexProvider.get().getResourceId(resource);
+            if (resourceId != null) {
+                return new URI(configuration.getRepositoryAtomPubUrl()
+                        + "/resource/" + resourceId);
             }
             logger.severe("For Module[" + moduleProvider.get().getId() + "], Returning badUrl : "
                     + resource);
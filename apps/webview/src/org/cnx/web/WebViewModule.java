@@ -17,15 +17,19 @@
 package org.cnx.web;
 
 import java.io.File;
+import java.net.URL;
 
+import org.cnx.atompubclient2.CnxClient;
 import org.cnx.cnxml.CnxmlModule;
 import org.cnx.cnxml.DefaultProcessorModule;
 import org.cnx.cnxml.LinkProcessor;
 import org.cnx.cnxml.LinkResolver;
 import org.cnx.cnxml.Module;
 import org.cnx.cnxml.Processor;
+import org.cnx.cnxml.ResourceIndex;
 import org.cnx.common.collxml.Collection;
 import org.cnx.common.collxml.CollxmlModule;
+import org.cnx.common.startup.StartupReport;
 import org.cnx.mdml.MdmlModule;
 import org.cnx.util.RenderTime;
 import org.cnx.util.UtilModule;
@@ -64,7 +68,8 @@ public class WebViewModule extends AbstractModule {
 
     @Provides @Singleton @WebViewTemplate
             SoyTofu provideTofu(WebViewConfiguration config, SoyFileSet.Builder builder) {
-        return builder
+        final long startNanos = StartupReport.start();
+        final SoyTofu tofu = builder
                 .setCompileTimeGlobals(new ImmutableMap.Builder<String, Object>()
                         .put("analyticsJs", config.getAnalyticsCode())
                         .put("siteMessage", config.getSiteMessage())
@@ -76,6 +81,17 @@ public class WebViewModule extends AbstractModule {
                 .add(new File("module.soy"))
                 .add(new File("errors.soy"))
                 .build().compileToJavaObj();
+        StartupReport.record("Soy templates", startNanos);
+        return tofu;
+    }
+
+    @Provides @Singleton CnxClient provideCnxClient(WebViewConfiguration config) {
+        // Shared by all requests, so the service document is fetched once rather than per page.
+        try {
+            return new CnxClient(new URL(config.getRepositoryAtomPubUrl()));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Provides @RenderTime Module provideModule() {
@@ -83,6 +99,11 @@ public class WebViewModule extends AbstractModule {
         return null;
     }
 
+    @Provides @RenderTime ResourceIndex provideResourceIndex() {
+        // Placeholder to make Guice happy. The real index is seeded in-scope.
+        return null;
+    }
+
     @Provides @RenderTime Collection provideCollection() {
         // Placeholder to make Guice happy. The real collection is seeded in-scope.
         return null;
@@ -51,6 +51,7 @@ import org.cnx.cnxml.LinkResolver;
 import org.cnx.cnxml.Module;
 import org.cnx.cnxml.ModuleFactory;
 import org.cnx.cnxml.ModuleHtmlGenerator;
+import org.cnx.cnxml.ResourceIndex;
 import org.cnx.common.collxml.Collection;
 import org.cnx.common.collxml.CollectionFactory;
 import org.cnx.common.collxml.CollectionHtmlGenerator;
@@ -68,6 +69,8 @@ import org.cnx.mdml.Actor;
 import org.cnx.mdml.Metadata;
 import org.cnx.util.RenderScope;
 import org.cnx.web.CommonHack;
+import org.cnx.web.RenderCache;
+import org.cnx.web.StreamingPage;
 import org.cnx.web.Utils;
 import org.cnx.web.WebViewConfiguration;
 import org.cnx.web.WebViewTemplate;
@@ -132,18 +135,17 @@ public class RenderCollectionServlet {
     private final WebViewConfiguration configuration;
     private final Provider<LinkResolver> linkResolverProvider;
     private final SAXParser saxParser;
-    // TODO(arjuns) : Move this to a better place.
     private final CnxClient cnxClient;
+    private final RenderCache renderCache;
 
     public RenderCollectionServlet(@Context ServletContext context) {
-        URL url = null;
         try {
             injector = (Injector) context.getAttribute(Injector.class.getName());
             linkResolverProvider = injector.getProvider(LinkResolver.class);
             configuration = injector.getInstance(WebViewConfiguration.class);
             saxParser = injector.getInstance(SAXParser.class);
-            url = new URL(configuration.getRepositoryAtomPubUrl());
-            cnxClient = new CnxClient(url);
+            renderCache = injector.getInstance(RenderCache.class);
+            cnxClient = injector.getInstance(CnxClient.class);
         } catch (Exception e) {
             // TODO(arjuns): Auto-generated catch block
             throw new RuntimeException(e);
@@ -300,7 +302,8 @@ public class RenderCollectionServlet {
      * When client does HTTP-GET on {@link #COLLECTION_VERSION_MODULE_VERSION_URI}, then this method
      * is triggered.
      * 
-     * Purpose of this method is to render a Module in Collection's context.
+     * Purpose of this method is to render a Module in Collection's context. Rendered pages are
+     * kept in {@link RenderCache}.
      * 
      * @param collectionId Id of desired Collection.
      * @param collectionVersionString Version of desiredModule.
@@ -334,6 +337,18 @@ public class RenderCollectionServlet {
         final IdWrapper moduleIdWrapper = new IdWrapper(moduleId, IdWrapper.Type.MODULE);
         final VersionWrapper moduleVersion = new VersionWrapper(moduleVersionString);
 
+        // Pinned versions can be served from the cache without contacting the repository.
+        String cacheKey = null;
+        String cachedHtml = null;
+        if (collectionVersion.getVersionInt() != null && moduleVersion.getVersionInt() != null) {
+            cacheKey = getCacheKey(collectionId, collectionVersion, collectionVersion,
+                    moduleId, moduleVersion, moduleVersion);
+            cachedHtml = renderCache.get(cacheKey);
+        }
+        if (cachedHtml != null) {
+            return Response.ok().entity(cachedHtml).build();
+        }
+
         // TODO(arjuns) : Add a URL for accessing resources with HTTP redirect.
         CollectionVersionWrapper collectionVersionWrapper = null;
         try {
@@ -343,6 +358,15 @@ public class RenderCollectionServlet {
             handleCnxInvalidUrlException(collectionIdWrapper, e);
         }
 
+        if (cacheKey == null && moduleVersion.getVersionInt() != null) {
+            cacheKey = getCacheKey(collectionId, collectionVersion,
+                    collectionVersionWrapper.getVersion(), moduleId, moduleVersion, moduleVersion);
+            cachedHtml = renderCache.get(cacheKey);
+        }
+        if (cachedHtml != null) {
+            return Response.ok().entity(cachedHtml).build();
+        }
+
         final Collection collection =
                 injector.getInstance(CollectionFactory.class).create(
                         collectionId,
@@ -366,6 +390,16 @@ public class RenderCollectionServlet {
             handleCnxInvalidUrlException(moduleIdWrapper, e);
         }
 
+        if (cacheKey == null) {
+            cacheKey = getCacheKey(collectionId, collectionVersion,
+                    collectionVersionWrapper.getVersion(), moduleId, moduleVersion,
+                    moduleVersionWrapper.getVersion());
+            cachedHtml = renderCache.get(cacheKey);
+        }
+        if (cachedHtml != null) {
+            return Response.ok().entity(cachedHtml).build();
+        }
+
         final Module module =
                 injector.getInstance(ModuleFactory.class).create(
                         moduleId,
@@ -373,11 +407,12 @@ public class RenderCollectionServlet {
                         CommonHack.parseXmlString(saxParser, moduleVersionWrapper.getCnxml()),
                         CommonHack.getResourcesFromResourceMappingDoc(moduleVersionWrapper
                                 .getResourceMappingXml()));
+        // Shared by both render scopes below.
+        final ResourceIndex resourceIndex = ResourceIndex.forModule(module);
 
         final ModuleLink[] links = collection.getPreviousNext(moduleId);
         SoyData prevLink, nextLink;
         String collectionTitle = null, moduleTitle;
-        String moduleContentHtml = null;
         List<Actor> moduleAuthors;
 
         RenderScope renderScope = injector.getInstance(RenderScope.class);
@@ -386,9 +421,7 @@ public class RenderCollectionServlet {
         try {
             renderScope.seed(Collection.class, collection);
             renderScope.seed(Module.class, module);
-
-            final ModuleHtmlGenerator generator = injector.getInstance(ModuleHtmlGenerator.class);
-            moduleContentHtml = generator.generate(module);
+            renderScope.seed(ResourceIndex.class, resourceIndex);
 
             // Get collection title
             if (collection.getMetadata() != null) {
@@ -430,16 +463,49 @@ public class RenderCollectionServlet {
                 new SoyMapData(ID_PARAM, moduleId, VERSION_PARAM, moduleVersion.toString(),
                         TITLE_PARAM, moduleTitle, AUTHORS_PARAM,
                         Utils.convertActorListToSoyData(moduleAuthors), CONTENT_HTML_PARAM,
-                        moduleContentHtml);
+                        StreamingPage.CONTENT_PLACEHOLDER);
 
         final SoyMapData params =
                 new SoyMapData(COLLECTION_PARAM, collectionSoyMapData, MODULE_PARAM,
                         moduleSoyMapData, PREVIOUS_MODULE_PARAM, prevLink, NEXT_MODULE_PARAM,
                         nextLink);
 
-        final String renderedModuleHtml =
+        final String shellHtml =
                 tofu.render(CommonHack.COLLECTION_MODULE_TEMPLATE_NAME, params, null);
-        return Response.ok().entity(renderedModuleHtml).build();
+
+        // The module content is rendered while the response is written.
+        final StreamingPage page = new StreamingPage(shellHtml, new StreamingPage.PageContent() {
+            @Override
+            public void write(Appendable out) throws Exception {
+                final RenderScope contentScope = injector.getInstance(RenderScope.class);
+                contentScope.enter();
+                try {
+                    contentScope.seed(Collection.class, collection);
+                    contentScope.seed(Module.class, module);
+                    contentScope.seed(ResourceIndex.class, resourceIndex);
+                    injector.getInstance(ModuleHtmlGenerator.class).generate(module, out);
+                } finally {
+                    contentScope.exit();
+                }
+            }
+        }, renderCache, cacheKey);
+        return Response.ok().entity(page).build();
+    }
+
+    /**
+     * Build the {@link RenderCache} key for a module rendered under a collection.
+     * 
+     * @param requestedCollectionVersion collection version as requested by the client.
+     * @param collectionVersion concrete collection version.
+     * @param requestedModuleVersion module version as requested by the client.
+     * @param moduleVersion concrete module version.
+     */
+    private String getCacheKey(String collectionId, VersionWrapper requestedCollectionVersion,
+            VersionWrapper collectionVersion, String moduleId,
+            VersionWrapper requestedModuleVersion, VersionWrapper moduleVersion) {
+        return renderCache.getKey(collectionId,
+                RenderCache.versionToken(requestedCollectionVersion, collectionVersion), moduleId,
+                RenderCache.versionToken(requestedModuleVersion, moduleVersion));
     }
 
     private String getCollectionUri(String collectionId, VersionWrapper collectionVersion) {
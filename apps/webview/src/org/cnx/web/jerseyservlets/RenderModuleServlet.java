@@ -32,6 +32,9 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import javax.servlet.ServletContext;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -39,13 +42,14 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.xml.parsers.SAXParser;
 import org.cnx.atompubclient2.CnxClient;
 import org.cnx.cnxml.Module;
 import org.cnx.cnxml.ModuleFactory;
 import org.cnx.cnxml.ModuleHtmlGenerator;
+import org.cnx.cnxml.ResourceIndex;
 import org.cnx.common.exceptions.CnxInvalidUrlException;
+import org.cnx.common.render.RenderArtifacts;
 import org.cnx.common.repository.ContentType;
 import org.cnx.common.repository.atompub.IdWrapper;
 import org.cnx.common.repository.atompub.ServletUris;
@@ -53,6 +57,8 @@ import org.cnx.common.repository.atompub.VersionWrapper;
 import org.cnx.mdml.Actor;
 import org.cnx.util.RenderScope;
 import org.cnx.web.CommonHack;
+import org.cnx.web.RenderCache;
+import org.cnx.web.StreamingPage;
 import org.cnx.web.Utils;
 import org.cnx.web.WebViewConfiguration;
 import org.cnx.web.WebViewTemplate;
@@ -66,20 +72,21 @@ import org.xml.sax.SAXException;
  */
 @Path(ServletUris.Module.MODULE_SERVLET)
 public class RenderModuleServlet {
+    private static final Logger logger = Logger.getLogger(RenderModuleServlet.class.getName());
+
     private final Injector injector;
     private final SAXParser saxParser;
-    // TODO(arjuns) : Move this to a better place.
     private final CnxClient cnxClient;
     private final WebViewConfiguration configuration;
+    private final RenderCache renderCache;
 
     public RenderModuleServlet(@Context ServletContext context) {
-        URL url = null;
         try {
             injector = (Injector) context.getAttribute(Injector.class.getName());
             configuration = injector.getInstance(WebViewConfiguration.class);
             saxParser = injector.getInstance(SAXParser.class);
-            url = new URL(configuration.getRepositoryAtomPubUrl());
-            cnxClient = new CnxClient(url);
+            renderCache = injector.getInstance(RenderCache.class);
+            cnxClient = injector.getInstance(CnxClient.class);
 
         } catch (Exception e) {
             // TODO(arjuns): Auto-generated catch block
@@ -93,7 +100,9 @@ public class RenderModuleServlet {
      * method is triggered.
      * 
      * Purpose of this method is to fetch CNXML and ResourceMapping Doc from Repository, then create
-     * a HTML and then serve it back to client.
+     * a HTML and then serve it back to client. Rendered pages are kept in {@link RenderCache}.
+     * The content HTML is taken from the repository render artifact when available, see
+     * {@link WebViewConfiguration#useRenderArtifacts}.
      * 
      * @param moduleId Id of desired Module.
      * @param moduleVersionString Version of desiredModule.
@@ -115,68 +124,123 @@ public class RenderModuleServlet {
             throws JDOMException, IOException, SAXException, IllegalStateException,
             IllegalArgumentException, URISyntaxException, FeedException, CnxException {
         // TODO(arjuns) : Handle exception.
-        StringBuilder builder = new StringBuilder();
-
         final IdWrapper idWrapper = new IdWrapper(moduleId, IdWrapper.Type.MODULE);
         final VersionWrapper versionWrapper = new VersionWrapper(moduleVersionString);
 
-        String finalHtml = null;
+        // Pinned versions can be served from the cache without contacting the repository.
+        String cacheKey = null;
+        if (versionWrapper.getVersionInt() != null) {
+            cacheKey =
+                    renderCache.getKey(moduleId,
+                            RenderCache.versionToken(versionWrapper, versionWrapper));
+            final String cachedHtml = renderCache.get(cacheKey);
+            if (cachedHtml != null) {
+                return Response.ok().entity(cachedHtml).build();
+            }
+        }
 
-        if (finalHtml == null) {
-            // TODO(arjuns) : Add a URL for accessing resources with HTTP redirect.
+        // TODO(arjuns) : Add a URL for accessing resources with HTTP redirect.
+        ModuleVersionWrapper moduleVersionWrapper = null;
+        try {
+            moduleVersionWrapper = cnxClient.getModuleVersion(idWrapper, versionWrapper);
+        } catch (CnxInvalidUrlException e) {
+            handleCnxInvalidUrlException(idWrapper, e);
+        }
 
-            ModuleVersionWrapper moduleVersionWrapper = null;
-            try {
-                moduleVersionWrapper = cnxClient.getModuleVersion(idWrapper, versionWrapper);
-            } catch (CnxInvalidUrlException e) {
-                handleCnxInvalidUrlException(idWrapper, e);
+        // For latest, the repository has now resolved the concrete version.
+        if (cacheKey == null) {
+            cacheKey =
+                    renderCache.getKey(moduleId, RenderCache.versionToken(versionWrapper,
+                            moduleVersionWrapper.getVersion()));
+            final String cachedHtml = renderCache.get(cacheKey);
+            if (cachedHtml != null) {
+                return Response.ok().entity(cachedHtml).build();
             }
+        }
 
-            final Module module =
-                    injector.getInstance(ModuleFactory.class).create(
-                            moduleId,
-                            moduleVersionString,
-                            CommonHack.parseXmlString(saxParser, moduleVersionWrapper.getCnxml()),
-                            CommonHack.getResourcesFromResourceMappingDoc(moduleVersionWrapper
-                                    .getResourceMappingXml()));
-
-            RenderScope renderScope = injector.getInstance(RenderScope.class);
-
-            // Render content
-            String title, contentHtml;
-            List<Actor> authors;
-            renderScope.enter();
-            try {
-                renderScope.seed(Module.class, module);
-                title = module.getTitle();
-                if (module.getMetadata() != null) {
-                    authors = module.getMetadata().getAuthors();
-                } else {
-                    authors = Collections.<Actor> emptyList();
-                }
-                ModuleHtmlGenerator generator = injector.getInstance(ModuleHtmlGenerator.class);
-                contentHtml = generator.generate(module);
-            } catch (Exception e) {
-                // TODO(arjuns) : Handle Exception.
-                throw new RuntimeException(e);
-            } finally {
-                renderScope.exit();
-            }
-            final SoyMapData params =
-                    new SoyMapData("module", new SoyMapData("id", moduleId, "version",
-                            moduleVersionString, "title", title, "authors",
-                            Utils.convertActorListToSoyData(authors), "contentHtml", contentHtml));
+        // Use the content rendered at publish time, if the repository has one that matches our
+        // configuration.
+        final String artifactHtml = getRenderArtifact(idWrapper, moduleVersionWrapper.getVersion());
 
-            SoyTofu tofu = injector.getInstance(Key.get(SoyTofu.class, WebViewTemplate.class));
+        final Module module =
+                injector.getInstance(ModuleFactory.class).create(
+                        moduleId,
+                        moduleVersionString,
+                        CommonHack.parseXmlString(saxParser, moduleVersionWrapper.getCnxml()),
+                        CommonHack.getResourcesFromResourceMappingDoc(moduleVersionWrapper
+                                .getResourceMappingXml()));
 
-            finalHtml = tofu.render(CommonHack.MODULE_TEMPLATE_NAME, params, null);
+        // Render the page metadata
+        String title;
+        List<Actor> authors;
+        final RenderScope metadataScope = injector.getInstance(RenderScope.class);
+        metadataScope.enter();
+        try {
+            metadataScope.seed(Module.class, module);
+            title = module.getTitle();
+            if (module.getMetadata() != null) {
+                authors = module.getMetadata().getAuthors();
+            } else {
+                authors = Collections.<Actor> emptyList();
+            }
+        } catch (Exception e) {
+            // TODO(arjuns) : Handle Exception.
+            throw new RuntimeException(e);
+        } finally {
+            metadataScope.exit();
         }
+        final SoyMapData params =
+                new SoyMapData("module", new SoyMapData("id", moduleId, "version",
+                        moduleVersionString, "title", title, "authors",
+                        Utils.convertActorListToSoyData(authors), "contentHtml",
+                        StreamingPage.CONTENT_PLACEHOLDER));
 
-        builder.append(finalHtml);
+        SoyTofu tofu = injector.getInstance(Key.get(SoyTofu.class, WebViewTemplate.class));
+        final String shellHtml = tofu.render(CommonHack.MODULE_TEMPLATE_NAME, params, null);
 
-        ResponseBuilder myresponse = Response.ok();
-        myresponse.entity(builder.toString());
-        return myresponse.build();
+        // The content is rendered while the response is written.
+        final StreamingPage page = new StreamingPage(shellHtml, new StreamingPage.PageContent() {
+            @Override
+            public void write(Appendable out) throws Exception {
+                if (artifactHtml != null) {
+                    out.append(artifactHtml);
+                    return;
+                }
+                final RenderScope renderScope = injector.getInstance(RenderScope.class);
+                renderScope.enter();
+                try {
+                    renderScope.seed(Module.class, module);
+                    renderScope.seed(ResourceIndex.class, ResourceIndex.forModule(module));
+                    injector.getInstance(ModuleHtmlGenerator.class).generate(module, out);
+                } finally {
+                    renderScope.exit();
+                }
+            }
+        }, renderCache, cacheKey);
+
+        return Response.ok().entity(page).build();
+    }
+
+    /**
+     * Fetch the content HTML rendered by the repository for a standalone module page.
+     * 
+     * @return the content HTML, or null if render artifacts are disabled or the repository does
+     *         not have one for this version and configuration.
+     */
+    @Nullable
+    private String getRenderArtifact(IdWrapper idWrapper, VersionWrapper version) {
+        if (!configuration.useRenderArtifacts()) {
+            return null;
+        }
+        try {
+            return cnxClient.getModuleVersionRenderArtifact(idWrapper, version,
+                    RenderArtifacts.getFingerprint(configuration.getRepositoryAtomPubUrl()));
+        } catch (Exception e) {
+            // Not fatal, the module is rendered here instead.
+            logger.log(Level.WARNING, "Failed to fetch render artifact of " + idWrapper + "/"
+                    + version, e);
+            return null;
+        }
     }
 
     /**
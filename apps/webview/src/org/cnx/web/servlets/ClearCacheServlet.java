@@ -19,14 +19,17 @@ package org.cnx.web.servlets;
 import com.google.appengine.api.memcache.MemcacheService;
 import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.common.io.ByteStreams;
+import com.google.inject.Injector;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.logging.Logger;
+import javax.servlet.ServletConfig;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.cnx.common.repository.ContentType;
+import org.cnx.web.RenderCache;
 
 @SuppressWarnings("serial")
 public class ClearCacheServlet extends HttpServlet {
@@ -35,6 +38,15 @@ public class ClearCacheServlet extends HttpServlet {
     private static final Logger log =
             Logger.getLogger(ClearCacheServlet.class.getName());
 
+    private RenderCache renderCache;
+
+    @Override
+    public void init(final ServletConfig config) {
+        final Injector injector =
+                (Injector) config.getServletContext().getAttribute(Injector.class.getName());
+        renderCache = injector.getInstance(RenderCache.class);
+    }
+
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws IOException {
@@ -48,6 +60,9 @@ public class ClearCacheServlet extends HttpServlet {
         log.warning("Clearing the site cache!");
         final MemcacheService cache = MemcacheServiceFactory.getMemcacheService();
         cache.clearAll();
+        // Only the in-process tier of this instance can be reached from here. Other instances
+        // keep their local pages until evicted or redeployed.
+        renderCache.clearLocal();
         resp.sendRedirect("/");
     }
 }
@@ -19,12 +19,17 @@ import static org.cnx.web.WebViewConfiguration.getPropertyHtmlString;
 
 import com.google.appengine.api.utils.SystemProperty;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 import java.io.IOException;
 import javax.servlet.ServletConfig;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.cnx.atompubclient2.CnxClient;
+import org.cnx.cnxml.ContentMathmlProcessor;
 import org.cnx.common.repository.ContentType;
+import org.cnx.util.TransformerPool;
+import org.cnx.web.RenderCache;
 import org.cnx.web.WebViewConfiguration;
 
 /**
@@ -36,12 +41,20 @@ import org.cnx.web.WebViewConfiguration;
 public class ConfigDisplayServlet extends HttpServlet {
     private Injector injector;
     private WebViewConfiguration configuration;
+    private RenderCache renderCache;
+    private TransformerPool ctopTransformerPool;
+    private CnxClient cnxClient;
 
     @Override
     public void init(final ServletConfig config) {
         this.injector =
                 (Injector) config.getServletContext().getAttribute(Injector.class.getName());
         configuration = injector.getInstance(WebViewConfiguration.class);
+        renderCache = injector.getInstance(RenderCache.class);
+        ctopTransformerPool =
+                injector.getInstance(Key.get(TransformerPool.class,
+                        ContentMathmlProcessor.ContentToPresentation.class));
+        cnxClient = injector.getInstance(CnxClient.class);
     }
 
     @Override
@@ -59,6 +72,21 @@ public class ConfigDisplayServlet extends HttpServlet {
                 .append(getPropertyHtmlString("appengine.sdk.version", SystemProperty.version.get()));
 
         builder.append(configuration.getConfiguration());
+        builder.append(renderCache.getStatistics());
+
+        builder.append(getPropertyHtmlString("ctop.transformers.created",
+                ctopTransformerPool.getCreatedCount()));
+        builder.append(getPropertyHtmlString("ctop.transformers.borrowed",
+                ctopTransformerPool.getBorrowCount()));
+        builder.append(getPropertyHtmlString("ctop.transformers.active",
+                ctopTransformerPool.getActiveCount()));
+        builder.append(getPropertyHtmlString("ctop.transformers.idle",
+                ctopTransformerPool.getIdleCount()));
+
+        builder.append(getPropertyHtmlString("cnxclient.servicedocument.fetches",
+                cnxClient.getServiceDocumentFetchCount()));
+        builder.append(getPropertyHtmlString("cnxclient.servicedocument.fetch.failures",
+                cnxClient.getServiceDocumentFetchFailureCount()));
 
         resp.setContentType(ContentType.TEXT_HTML_UTF8);
         resp.getWriter().print(builder.toString());
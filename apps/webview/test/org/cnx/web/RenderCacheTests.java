@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.cnx.common.repository.atompub.VersionWrapper;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RenderCache}.
+ *
+ * @author Arjun Satyapal
+ */
+public class RenderCacheTests {
+    private RenderCache cache;
+
+    @Before
+    public void createCache() {
+        cache = new RenderCache(true /* enabled */, 2 /* maxEntries */, "fp", null /* memcache */);
+    }
+
+    @Test
+    public void test_versionToken() throws Exception {
+        final VersionWrapper latest = new VersionWrapper("latest");
+        final VersionWrapper three = new VersionWrapper(3);
+
+        assertEquals("3", RenderCache.versionToken(three, three));
+        assertEquals("latest=3", RenderCache.versionToken(latest, three));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_versionTokenUnresolved() throws Exception {
+        final VersionWrapper latest = new VersionWrapper("latest");
+        RenderCache.versionToken(latest, latest);
+    }
+
+    @Test
+    public void test_keys() {
+        assertEquals("fp/-/-/m1/3", cache.getKey("m1", "3"));
+        assertEquals("fp/col1/2/m1/3", cache.getKey("col1", "2", "m1", "3"));
+        assertFalse(cache.getKey("m1", "3").equals(cache.getKey("m1", "latest=3")));
+    }
+
+    @Test
+    public void test_hitsMissesAndEvictions() {
+        assertNull(cache.get("a"));
+        cache.put("a", "<p>a</p>");
+        cache.put("b", "<p>b</p>");
+        assertEquals("<p>a</p>", cache.get("a"));
+
+        // "b" is now the least recently used entry.
+        cache.put("c", "<p>c</p>");
+        assertNull(cache.get("b"));
+        assertEquals("<p>c</p>", cache.get("c"));
+
+        assertEquals(2, cache.getLocalHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getLocalSize());
+
+        cache.clearLocal();
+        assertEquals(0, cache.getLocalSize());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void test_disabled() {
+        final RenderCache disabled = new RenderCache(false, 2, "fp", null /* memcache */);
+        disabled.put("a", "<p>a</p>");
+        assertNull(disabled.get("a"));
+        assertEquals(0, disabled.getMisses());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.cnx.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StreamingPage}.
+ *
+ * @author Arjun Satyapal
+ */
+public class StreamingPageTests {
+    private static final String SHELL =
+            "<html><body>" + StreamingPage.CONTENT_PLACEHOLDER + "</body></html>";
+
+    private static final StreamingPage.PageContent CONTENT = new StreamingPage.PageContent() {
+        @Override
+        public void write(Appendable out) throws Exception {
+            out.append("<p>caf\u00e9</p>");
+        }
+    };
+
+    private static String write(StreamingPage page) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        page.write(output);
+        return output.toString("UTF-8");
+    }
+
+    @Test
+    public void test_write() throws Exception {
+        assertEquals("<html><body><p>caf\u00e9</p></body></html>",
+                write(new StreamingPage(SHELL, CONTENT, null, null)));
+    }
+
+    @Test
+    public void test_writeCaches() throws Exception {
+        final RenderCache cache = new RenderCache(true, 2, "fp", null);
+        final String html = write(new StreamingPage(SHELL, CONTENT, cache, "key"));
+        assertEquals(html, cache.get("key"));
+
+        final RenderCache disabledCache = new RenderCache(false, 2, "fp", null);
+        write(new StreamingPage(SHELL, CONTENT, disabledCache, null));
+        assertNull(disabledCache.get("key"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_missingPlaceholder() {
+        new StreamingPage("<html></html>", CONTENT, null, null);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ *  Benchmark is a single operation measured by {@link BenchmarkRunner}.
+ *  <p>
+ *  Only {@link #run} is timed.  {@link #prepare} and {@link #cleanup} are called around every
+ *  invocation of {@link #run} and can be used to build fresh inputs for operations which modify
+ *  their input, or to enter and exit scopes.
+ */
+public abstract class Benchmark {
+    private final String name;
+
+    protected Benchmark(String name) {
+        this.name = checkNotNull(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     *  Called before every timed invocation of {@link #run}.
+     */
+    public void prepare() throws Exception {
+    }
+
+    /**
+     *  The measured operation.
+     *
+     *  @return the result of the operation, which the runner consumes so that the work cannot be
+     *          optimized away
+     */
+    public abstract Object run() throws Exception;
+
+    /**
+     *  Called after every timed invocation of {@link #run}.
+     */
+    public void cleanup() throws Exception {
+    }
+}
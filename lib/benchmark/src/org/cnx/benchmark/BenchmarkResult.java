@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+
+/**
+ *  BenchmarkResult holds the measurements of one {@link Benchmark} run.
+ */
+public class BenchmarkResult {
+    /** Returned by {@link #getBytesPerOperation} when allocation could not be measured. */
+    public static final long UNKNOWN = -1;
+
+    private final String name;
+    private final long[] sortedNanos;
+    private final long totalNanos;
+    private final long allocatedBytes;
+
+    /**
+     *  @param name benchmark name
+     *  @param nanos duration of every measured operation; sorted in place
+     *  @param count number of valid entries in <code>nanos</code>
+     *  @param allocatedBytes bytes allocated by all measured operations, or {@link #UNKNOWN}
+     */
+    public BenchmarkResult(String name, long[] nanos, int count, long allocatedBytes) {
+        checkArgument(count > 0, "No operations measured for %s", name);
+        this.name = checkNotNull(name);
+        this.sortedNanos = Arrays.copyOf(nanos, count);
+        Arrays.sort(sortedNanos);
+        long total = 0;
+        for (long n : sortedNanos) {
+            total += n;
+        }
+        this.totalNanos = total;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getOperations() {
+        return sortedNanos.length;
+    }
+
+    /**
+     *  @return operations per second, counting only the time spent in the measured operation
+     */
+    public double getThroughput() {
+        return getOperations() * 1e9 / Math.max(totalNanos, 1);
+    }
+
+    /**
+     *  @param percentile between 0 (exclusive) and 100 (inclusive)
+     *  @return the duration in nanoseconds which <code>percentile</code> percent of the
+     *          operations did not exceed
+     */
+    public long getPercentile(double percentile) {
+        checkArgument(percentile > 0 && percentile <= 100, "Invalid percentile: %s", percentile);
+        final int rank = (int)Math.ceil(percentile / 100 * sortedNanos.length);
+        return sortedNanos[Math.max(rank, 1) - 1];
+    }
+
+    public long getMax() {
+        return sortedNanos[sortedNanos.length - 1];
+    }
+
+    /**
+     *  @return average bytes allocated per operation, or {@link #UNKNOWN}
+     */
+    public long getBytesPerOperation() {
+        if (allocatedBytes == UNKNOWN) {
+            return UNKNOWN;
+        }
+        return allocatedBytes / getOperations();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.Lists;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+/**
+ *  BenchmarkRunner times {@link Benchmark}s and reports throughput, latency percentiles and
+ *  allocation per operation.
+ *  <p>
+ *  Each benchmark is first run for a warmup period so that the JIT compiler has settled, then
+ *  for a measurement period during which every operation is timed individually.  Allocation is
+ *  measured with the HotSpot per-thread allocation counter when the JVM provides it.
+ */
+public class BenchmarkRunner {
+    public static final String WARMUP_PROPERTY = "benchmark.warmup.ms";
+    public static final String MEASURE_PROPERTY = "benchmark.measure.ms";
+
+    private static final long DEFAULT_WARMUP_MILLIS = 2000;
+    private static final long DEFAULT_MEASURE_MILLIS = 5000;
+
+    /** Upper bound on the number of operations recorded per benchmark. */
+    private static final int MAX_SAMPLES = 1 << 22;
+
+    private final long warmupNanos;
+    private final long measureNanos;
+    private final PrintStream out;
+    @Nullable private final com.sun.management.ThreadMXBean allocationBean;
+
+    /** Accumulates results so that the JIT cannot discard the measured work. */
+    private int sink;
+
+    public BenchmarkRunner(long warmupMillis, long measureMillis, PrintStream out) {
+        checkArgument(warmupMillis >= 0, "Invalid warmup time: %s", warmupMillis);
+        checkArgument(measureMillis > 0, "Invalid measurement time: %s", measureMillis);
+        this.warmupNanos = TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        this.measureNanos = TimeUnit.MILLISECONDS.toNanos(measureMillis);
+        this.out = out;
+        this.allocationBean = getAllocationBean();
+    }
+
+    /**
+     *  Create a runner configured from the {@link #WARMUP_PROPERTY} and {@link #MEASURE_PROPERTY}
+     *  system properties.
+     */
+    public static BenchmarkRunner fromSystemProperties(PrintStream out) {
+        return new BenchmarkRunner(Long.getLong(WARMUP_PROPERTY, DEFAULT_WARMUP_MILLIS),
+                Long.getLong(MEASURE_PROPERTY, DEFAULT_MEASURE_MILLIS), out);
+    }
+
+    @Nullable private static com.sun.management.ThreadMXBean getAllocationBean() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *  Run every benchmark whose name matches <code>filter</code> and print a report line for
+     *  each one.
+     *
+     *  @param filter pattern searched for in benchmark names, or null to run all benchmarks
+     */
+    public List<BenchmarkResult> runAll(List<? extends Benchmark> benchmarks,
+            @Nullable Pattern filter) throws Exception {
+        final List<BenchmarkResult> results = Lists.newArrayList();
+        printHeader();
+        for (Benchmark benchmark : benchmarks) {
+            if (filter != null && !filter.matcher(benchmark.getName()).find()) {
+                continue;
+            }
+            final BenchmarkResult result = run(benchmark);
+            printResult(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     *  Warm up and measure a single benchmark.
+     */
+    public BenchmarkResult run(Benchmark benchmark) throws Exception {
+        // Warmup
+        final long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            invoke(benchmark);
+        }
+        System.gc();
+
+        // Measurement
+        final long threadId = Thread.currentThread().getId();
+        long[] samples = new long[1024];
+        int count = 0;
+        long allocated = 0;
+        final long measureEnd = System.nanoTime() + measureNanos;
+        while (count == 0 || (System.nanoTime() < measureEnd && count < MAX_SAMPLES)) {
+            benchmark.prepare();
+            final long bytesBefore =
+                    (allocationBean != null) ? allocationBean.getThreadAllocatedBytes(threadId) : 0;
+            final long start = System.nanoTime();
+            final Object result = benchmark.run();
+            final long elapsed = System.nanoTime() - start;
+            if (allocationBean != null) {
+                allocated += allocationBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+            }
+            benchmark.cleanup();
+            consume(result);
+
+            if (count == samples.length) {
+                final long[] grown = new long[samples.length * 2];
+                System.arraycopy(samples, 0, grown, 0, count);
+                samples = grown;
+            }
+            samples[count++] = elapsed;
+        }
+
+        return new BenchmarkResult(benchmark.getName(), samples, count,
+                (allocationBean != null) ? allocated : BenchmarkResult.UNKNOWN);
+    }
+
+    private void invoke(Benchmark benchmark) throws Exception {
+        benchmark.prepare();
+        try {
+            consume(benchmark.run());
+        } finally {
+            benchmark.cleanup();
+        }
+    }
+
+    private void consume(@Nullable Object result) {
+        sink += System.identityHashCode(result);
+    }
+
+    private void printHeader() {
+        out.printf("%-50s %12s %10s %10s %10s %10s %12s%n", "Benchmark", "ops/s", "p50 us",
+                "p90 us", "p99 us", "max us", "B/op");
+    }
+
+    private void printResult(BenchmarkResult result) {
+        final long bytes = result.getBytesPerOperation();
+        out.printf("%-50s %12.1f %10.1f %10.1f %10.1f %10.1f %12s%n", result.getName(),
+                result.getThroughput(), result.getPercentile(50) / 1e3,
+                result.getPercentile(90) / 1e3, result.getPercentile(99) / 1e3,
+                result.getMax() / 1e3, (bytes == BenchmarkResult.UNKNOWN) ? "n/a" : bytes);
+        out.flush();
+    }
+}
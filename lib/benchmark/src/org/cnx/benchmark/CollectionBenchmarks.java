@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.cnx.common.collxml.Collection;
+import org.cnx.common.collxml.CollectionFactory;
+import org.cnx.common.collxml.CollectionFactoryImpl;
+import org.cnx.common.collxml.CollxmlAttributes;
+import org.cnx.common.collxml.CollxmlTag;
+import org.cnx.common.collxml.ModuleLink;
+import org.cnx.mdml.MdmlModule;
+import org.jdom.Document;
+import org.jdom.Element;
+
+/**
+ *  CollectionBenchmarks measures the navigation queries made while rendering a collection, on a
+ *  synthetic collection with {@link #MODULE_COUNT} modules.
+ *  <p>
+ *  <code>collection/toc</code> resolves every module of the collection once, the way the web
+ *  view's link resolver does while rendering the table of contents.  The <code>-scan</code>
+ *  benchmark does the same with a linear search of the module links, as a baseline.
+ *  <p>
+ *  Usage: <code>CollectionBenchmarks [filter]</code>.  Run it with
+ *  <code>ant run -Dbenchmark.class=org.cnx.benchmark.CollectionBenchmarks</code>.
+ */
+public class CollectionBenchmarks {
+    static final int MODULE_COUNT = 2000;
+    static final int MODULES_PER_SUBCOLLECTION = 50;
+
+    /**
+     *  Build a CollXML document with <code>moduleCount</code> modules, grouped into
+     *  subcollections.
+     */
+    static Document createCollxml(int moduleCount, int modulesPerSubcollection) {
+        final Element content = new Element(CollxmlTag.CONTENT.getTag(), CollxmlTag.NAMESPACE);
+        Element subcollectionContent = null;
+        for (int i = 0; i < moduleCount; i++) {
+            if (i % modulesPerSubcollection == 0) {
+                subcollectionContent =
+                        new Element(CollxmlTag.CONTENT.getTag(), CollxmlTag.NAMESPACE);
+                content.addContent(new Element(
+                        CollxmlTag.SUBCOLLECTION.getTag(), CollxmlTag.NAMESPACE)
+                        .addContent(subcollectionContent));
+            }
+            subcollectionContent.addContent(
+                    new Element(CollxmlTag.MODULE.getTag(), CollxmlTag.NAMESPACE)
+                            .setAttribute(CollxmlAttributes.MODULE_DOCUMENT, "m" + (10000 + i))
+                            .setAttribute(CollxmlAttributes.MODULE_VERSION, "latest"));
+        }
+        return new Document(new Element("collection", CollxmlTag.NAMESPACE)
+                .addContent(content));
+    }
+
+    static boolean scanHasModule(Collection collection, String moduleId) {
+        for (ModuleLink link : collection.getModuleLinks()) {
+            if (moduleId.equals(link.getModuleId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    List<Benchmark> createBenchmarks() {
+        final List<Benchmark> benchmarks = Lists.newArrayList();
+        final CollectionFactory factory = Guice.createInjector(new MdmlModule())
+                .getInstance(CollectionFactoryImpl.class);
+        final Document collxml = createCollxml(MODULE_COUNT, MODULES_PER_SUBCOLLECTION);
+        final Collection collection = factory.create("col0", "1", collxml);
+        final String[] moduleIds = new String[collection.getModuleLinks().size()];
+        for (int i = 0; i < moduleIds.length; i++) {
+            moduleIds[i] = collection.getModuleLinks().get(i).getModuleId();
+        }
+        final String lastModuleId = moduleIds[moduleIds.length - 1];
+
+        benchmarks.add(new Benchmark("collection/create") {
+            @Override public Object run() {
+                return factory.create("col0", "1", collxml);
+            }
+        });
+
+        benchmarks.add(new Benchmark("collection/toc") {
+            @Override public Object run() {
+                int found = 0;
+                for (String moduleId : moduleIds) {
+                    if (collection.hasModule(moduleId)) {
+                        found++;
+                    }
+                }
+                return found;
+            }
+        });
+
+        benchmarks.add(new Benchmark("collection/toc-scan") {
+            @Override public Object run() {
+                int found = 0;
+                for (String moduleId : moduleIds) {
+                    if (scanHasModule(collection, moduleId)) {
+                        found++;
+                    }
+                }
+                return found;
+            }
+        });
+
+        benchmarks.add(new Benchmark("collection/previous-next") {
+            @Override public Object run() {
+                return collection.getPreviousNext(lastModuleId);
+            }
+        });
+        return benchmarks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Pattern filter = (args.length > 0 && !Strings.isNullOrEmpty(args[0]))
+                ? Pattern.compile(args[0]) : null;
+        BenchmarkRunner.fromSystemProperties(System.out).runAll(
+                new CollectionBenchmarks().createBenchmarks(), filter);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+
+import org.cnx.cnxml.CnxmlTag;
+import org.cnx.util.MathmlTag;
+import org.jdom.Content;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.filter.ElementFilter;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
+
+/**
+ *  Corpus is the set of CNXML documents the rendering benchmarks run over.
+ *  <p>
+ *  The documents come from the repository test data (the col10064 collection and m10085), so the
+ *  corpus tracks real content:
+ *  <ul>
+ *  <li>small, medium and large real modules,
+ *  <li>a huge synthetic module made of the content of every col10064 module, repeated,
+ *  <li>the medium module with its MathML removed, which exercises the no-math fast paths.
+ *  </ul>
+ */
+public class Corpus {
+    public static final String TESTDATA_PROPERTY = "benchmark.testdata.dir";
+
+    private static final String MODULE_FILE = "index_auto_generated.cnxml";
+    private static final String COLLECTION_DIR = "col10064";
+    private static final String[] COLLECTION_MODULES = {
+        "m0504", "m0528", "m10057", "m10111", "m2102"
+    };
+
+    /** How many times the col10064 content is repeated in the huge document. */
+    private static final int HUGE_REPEAT = 10;
+
+    /**
+     *  CorpusDocument is a named CNXML document, kept as the source string.
+     */
+    public static class CorpusDocument {
+        private final String name;
+        private final String cnxml;
+
+        CorpusDocument(String name, String cnxml) {
+            this.name = checkNotNull(name);
+            this.cnxml = checkNotNull(cnxml);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCnxml() {
+            return cnxml;
+        }
+    }
+
+    private final ImmutableList<CorpusDocument> documents;
+
+    private Corpus(List<CorpusDocument> documents) {
+        this.documents = ImmutableList.copyOf(documents);
+    }
+
+    public List<CorpusDocument> getDocuments() {
+        return documents;
+    }
+
+    /**
+     *  Load the corpus from the directory named by the {@link #TESTDATA_PROPERTY} system property.
+     */
+    public static Corpus fromSystemProperties() throws IOException, JDOMException {
+        final String dir = System.getProperty(TESTDATA_PROPERTY);
+        checkArgument(dir != null, "System property %s is not set", TESTDATA_PROPERTY);
+        return load(new File(dir));
+    }
+
+    /**
+     *  Load the corpus from the repository test data directory.
+     */
+    public static Corpus load(File testdataDir) throws IOException, JDOMException {
+        checkArgument(testdataDir.isDirectory(), "Not a directory: %s", testdataDir);
+        final File collectionDir = new File(testdataDir, COLLECTION_DIR);
+        final List<CorpusDocument> documents = Lists.newArrayList();
+
+        final String small = read(new File(collectionDir, "m0504"));
+        final String medium = read(new File(collectionDir, "m2102"));
+        documents.add(new CorpusDocument("small-m0504", small));
+        documents.add(new CorpusDocument("medium-m2102", medium));
+        documents.add(new CorpusDocument("large-m10085", read(new File(testdataDir, "m10085"))));
+        documents.add(new CorpusDocument("huge-col10064", buildHugeDocument(collectionDir)));
+        documents.add(new CorpusDocument("nomath-m2102", removeMath(medium)));
+
+        return new Corpus(documents);
+    }
+
+    private static String read(File moduleDir) throws IOException {
+        return Files.toString(new File(moduleDir, MODULE_FILE), Charsets.UTF_8);
+    }
+
+    private static Document parse(String cnxml) throws IOException, JDOMException {
+        return new SAXBuilder().build(new StringReader(cnxml));
+    }
+
+    private static Element getContent(Document doc) {
+        return doc.getRootElement().getChild(CnxmlTag.CONTENT.getTag(), CnxmlTag.NAMESPACE);
+    }
+
+    /**
+     *  Append the content of every col10064 module, {@link #HUGE_REPEAT} times, to the content
+     *  of the first one.
+     */
+    @SuppressWarnings("unchecked")
+    private static String buildHugeDocument(File collectionDir)
+            throws IOException, JDOMException {
+        final Document huge = parse(read(new File(collectionDir, COLLECTION_MODULES[0])));
+        final Element hugeContent = getContent(huge);
+        hugeContent.removeContent();
+
+        final List<Element> contents = Lists.newArrayList();
+        for (String module : COLLECTION_MODULES) {
+            contents.add(getContent(parse(read(new File(collectionDir, module)))));
+        }
+        for (int i = 0; i < HUGE_REPEAT; i++) {
+            for (Element content : contents) {
+                for (Content child : (List<Content>)content.getContent()) {
+                    hugeContent.addContent((Content)child.clone());
+                }
+            }
+        }
+        return new XMLOutputter().outputString(huge);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String removeMath(String cnxml) throws IOException, JDOMException {
+        final Document doc = parse(cnxml);
+        final List<Element> math = Lists.newArrayList();
+        final Iterator<Element> iter =
+                (Iterator<Element>)doc.getDescendants(new ElementFilter(MathmlTag.NAMESPACE));
+        while (iter.hasNext()) {
+            final Element elem = iter.next();
+            if (!MathmlTag.NAMESPACE.equals(elem.getParentElement().getNamespace())) {
+                math.add(elem);
+            }
+        }
+        for (Element elem : math) {
+            elem.detach();
+        }
+        return new XMLOutputter().outputString(doc);
+    }
+}
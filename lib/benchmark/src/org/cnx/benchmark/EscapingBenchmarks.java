@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.cnx.util.HtmlEscaper;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Text;
+import org.jdom.input.SAXBuilder;
+
+/**
+ *  EscapingBenchmarks measures the HTML escaping done for every text node and attribute value
+ *  while serializing ({@link HtmlEscaper}).
+ *  <p>
+ *  Each operation escapes every text node and attribute value of a corpus document, in document
+ *  order, into a reused buffer.  The <code>-commons</code> benchmarks append the result of
+ *  {@link StringEscapeUtils#escapeHtml4} instead, as a baseline.  Compare the allocation
+ *  columns: HtmlEscaper should not allocate at all.
+ *  <p>
+ *  Usage: <code>EscapingBenchmarks [filter]</code>.  Run it with
+ *  <code>ant run -Dbenchmark.class=org.cnx.benchmark.EscapingBenchmarks</code>.
+ */
+public class EscapingBenchmarks {
+    /**
+     *  Return the text and attribute values of all the elements of a document, in document order.
+     */
+    static String[] getStrings(Element root) {
+        final List<String> strings = Lists.newArrayList();
+        for (Iterator<?> i = root.getDescendants(); i.hasNext();) {
+            final Object node = i.next();
+            if (node instanceof Text) {
+                strings.add(((Text)node).getText());
+            } else if (node instanceof Element) {
+                for (Object attribute : ((Element)node).getAttributes()) {
+                    strings.add(((Attribute)attribute).getValue());
+                }
+            }
+        }
+        return strings.toArray(new String[strings.size()]);
+    }
+
+    List<Benchmark> createBenchmarks(Corpus corpus) throws Exception {
+        final List<Benchmark> benchmarks = Lists.newArrayList();
+        final StringBuilder buffer = new StringBuilder();
+
+        for (Corpus.CorpusDocument corpusDocument : corpus.getDocuments()) {
+            final String name = corpusDocument.getName();
+            final String[] strings = getStrings(new SAXBuilder().build(
+                    new StringReader(corpusDocument.getCnxml())).getRootElement());
+
+            benchmarks.add(new Benchmark("escape/" + name) {
+                @Override public Object run() throws Exception {
+                    buffer.setLength(0);
+                    for (String s : strings) {
+                        HtmlEscaper.escape(buffer, s);
+                    }
+                    return buffer.length();
+                }
+            });
+
+            benchmarks.add(new Benchmark("escape-commons/" + name) {
+                @Override public Object run() {
+                    buffer.setLength(0);
+                    for (String s : strings) {
+                        buffer.append(StringEscapeUtils.escapeHtml4(s));
+                    }
+                    return buffer.length();
+                }
+            });
+        }
+        return benchmarks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Pattern filter = (args.length > 0 && !Strings.isNullOrEmpty(args[0]))
+                ? Pattern.compile(args[0]) : null;
+        BenchmarkRunner.fromSystemProperties(System.out).runAll(
+                new EscapingBenchmarks().createBenchmarks(Corpus.fromSystemProperties()), filter);
+    }
+}
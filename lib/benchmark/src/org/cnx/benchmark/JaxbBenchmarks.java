@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
+import org.cnx.common.jaxb.JaxbRegistry;
+import org.cnx.resourcemapping.LocationInformation;
+import org.cnx.resourcemapping.ObjectFactory;
+import org.cnx.resourcemapping.Repository;
+import org.cnx.resourcemapping.Resource;
+import org.cnx.resourcemapping.Resources;
+
+/**
+ *  JaxbBenchmarks measures marshalling and unmarshalling of resource mapping documents, through
+ *  {@link JaxbRegistry} and with a new <code>JAXBContext</code> per operation as a baseline.
+ *  <p>
+ *  Usage: <code>JaxbBenchmarks [filter]</code>.  Run it with
+ *  <code>ant run -Dbenchmark.class=org.cnx.benchmark.JaxbBenchmarks</code>.
+ */
+public class JaxbBenchmarks {
+    /** Number of resources in the benchmark resource mapping document. */
+    static final int RESOURCE_COUNT = 50;
+
+    static Resources createResources(int resourceCount) {
+        final ObjectFactory objectFactory = new ObjectFactory();
+        final Resources resources = objectFactory.createResources();
+        resources.setVersion(BigDecimal.ONE);
+        for (int i = 0; i < resourceCount; i++) {
+            final Repository repository = objectFactory.createRepository();
+            repository.setRepositoryId("cnx-repo");
+            repository.setResourceId(String.format("r%04d", i));
+            final LocationInformation locationInformation =
+                    objectFactory.createLocationInformation();
+            locationInformation.setRepository(repository);
+            final Resource resource = objectFactory.createResource();
+            resource.setName("figure" + i + ".png");
+            resource.setLocationInformation(locationInformation);
+            resources.getResource().add(resource);
+        }
+        return resources;
+    }
+
+    List<Benchmark> createBenchmarks() throws Exception {
+        final List<Benchmark> benchmarks = Lists.newArrayList();
+        final Resources resources = createResources(RESOURCE_COUNT);
+        final String xml = JaxbRegistry.marshal(resources);
+
+        benchmarks.add(new Benchmark("jaxb/marshal") {
+            @Override public Object run() throws Exception {
+                return JaxbRegistry.marshal(resources);
+            }
+        });
+
+        benchmarks.add(new Benchmark("jaxb/marshal-new-context") {
+            @Override public Object run() throws Exception {
+                final Marshaller marshaller =
+                        JAXBContext.newInstance(Resources.class).createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+                final StringWriter writer = new StringWriter();
+                marshaller.marshal(resources, writer);
+                return writer.toString();
+            }
+        });
+
+        benchmarks.add(new Benchmark("jaxb/unmarshal") {
+            @Override public Object run() throws Exception {
+                return JaxbRegistry.unmarshal(Resources.class, new StringReader(xml));
+            }
+        });
+
+        benchmarks.add(new Benchmark("jaxb/unmarshal-new-context") {
+            @Override public Object run() throws Exception {
+                return JAXBContext.newInstance(Resources.class).createUnmarshaller()
+                        .unmarshal(new StringReader(xml));
+            }
+        });
+        return benchmarks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Pattern filter = (args.length > 0 && !Strings.isNullOrEmpty(args[0]))
+                ? Pattern.compile(args[0]) : null;
+        BenchmarkRunner.fromSystemProperties(System.out).runAll(
+                new JaxbBenchmarks().createBenchmarks(), filter);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.multibindings.Multibinder;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.SAXParser;
+
+import org.cnx.cnxml.CnxmlModule;
+import org.cnx.cnxml.CnxmlTag;
+import org.cnx.cnxml.ContentMathmlProcessor;
+import org.cnx.cnxml.ContentPass;
+import org.cnx.cnxml.DefaultProcessorModule;
+import org.cnx.cnxml.LinkProcessor;
+import org.cnx.cnxml.LinkResolver;
+import org.cnx.cnxml.Module;
+import org.cnx.cnxml.ModuleFactory;
+import org.cnx.cnxml.ModuleHtmlGenerator;
+import org.cnx.cnxml.Processor;
+import org.cnx.mdml.MdmlModule;
+import org.cnx.resourcemapping.ObjectFactory;
+import org.cnx.resourcemapping.Resources;
+import org.cnx.util.ElementSetFilter;
+import org.cnx.util.IdFilter;
+import org.cnx.util.JdomHtmlSerializer;
+import org.cnx.util.RenderScope;
+import org.cnx.util.TransformerPool;
+import org.cnx.util.UtilModule;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.filter.Filter;
+import org.jdom.input.SAXHandler;
+
+/**
+ *  RenderingBenchmarks measures the stages of the CNXML to HTML rendering pipeline over the
+ *  {@link Corpus}.
+ *  <p>
+ *  Usage: <code>RenderingBenchmarks [filter]</code>, where the optional filter is a regular
+ *  expression searched for in the benchmark names (e.g. <code>generate/</code> or
+ *  <code>huge</code>).  Run it with <code>ant run</code>.
+ */
+public class RenderingBenchmarks {
+    /**
+     *  Resolves every link to a fixed location, so that resolution cost does not depend on any
+     *  repository.
+     */
+    static class BenchmarkLinkResolver implements LinkResolver {
+        @Override public URI resolveUri(URI uri) throws Exception {
+            if (uri.isAbsolute()) {
+                return uri;
+            }
+            return resolveResource(null, null, uri);
+        }
+
+        @Override public URI resolveDocument(String document, String version) throws Exception {
+            return new URI("/content/module/" + document + "/"
+                    + (version != null ? version : "latest"));
+        }
+
+        @Override public URI resolveResource(String document, String version, URI resource)
+                throws Exception {
+            return new URI("/resource/" + resource);
+        }
+    }
+
+    static class BenchmarkModule extends AbstractModule {
+        @Override protected void configure() {
+            bind(LinkResolver.class).to(BenchmarkLinkResolver.class);
+
+            Multibinder<Processor> processorBinder =
+                    Multibinder.newSetBinder(binder(), Processor.class);
+            processorBinder.addBinding().to(LinkProcessor.class);
+
+            install(new CnxmlModule());
+            install(new DefaultProcessorModule());
+            install(new MdmlModule());
+            install(new UtilModule());
+        }
+    }
+
+    /** The elements numbered by the HTML generator. */
+    static final ImmutableSet<CnxmlTag> NUMBERED_TAGS = ImmutableSet.of(
+            CnxmlTag.DEFINITION,
+            CnxmlTag.EQUATION,
+            CnxmlTag.EXAMPLE,
+            CnxmlTag.EXERCISE,
+            CnxmlTag.FIGURE,
+            CnxmlTag.RULE,
+            CnxmlTag.TABLE
+    );
+
+    private final Injector injector;
+    private final Resources resources;
+
+    RenderingBenchmarks(Injector injector) {
+        this.injector = injector;
+        this.resources = new ObjectFactory().createResources();
+    }
+
+    /**
+     *  Parse a CNXML string the same way the web view does (see
+     *  <code>org.cnx.web.CommonHack.parseXmlString</code>).
+     */
+    static Document parseXmlString(SAXParser parser, String source) throws Exception {
+        final SAXHandler handler = new SAXHandler();
+        parser.parse(new ByteArrayInputStream(source.getBytes(Charsets.UTF_8)), handler);
+        return handler.getDocument();
+    }
+
+    private static Element getContent(Document cnxml) {
+        return cnxml.getRootElement().getChild(CnxmlTag.CONTENT.getTag(), CnxmlTag.NAMESPACE);
+    }
+
+    private Module createModule(Document cnxml) {
+        return injector.getInstance(ModuleFactory.class).create("m0", "1", cnxml, resources);
+    }
+
+    /**
+     *  Base class of benchmarks which operate on a fresh copy of a parsed module.
+     */
+    private abstract class ModuleBenchmark extends Benchmark {
+        private final Document original;
+        protected Module module;
+
+        ModuleBenchmark(String name, Document original) {
+            super(name);
+            this.original = original;
+        }
+
+        @Override public void prepare() throws Exception {
+            module = createModule((Document)original.clone());
+        }
+    }
+
+    /**
+     *  Index IDs and number elements with a walk each, the way the HTML generator did before it
+     *  had a {@link ContentPass}.
+     */
+    @SuppressWarnings("unchecked")
+    static Object indexWithSeparateWalks(Element content, Filter numberedFilter) {
+        final Map<String, Element> idMap = IdFilter.getIdMap(content);
+        final Map<Element, Integer> numbers = new HashMap<Element, Integer>();
+        final Map<String, Integer> counters = new HashMap<String, Integer>();
+        final Iterator<Element> iter = content.getDescendants(numberedFilter);
+        while (iter.hasNext()) {
+            final Element elem = iter.next();
+            final String key = elem.getName() + Strings.nullToEmpty(elem.getAttributeValue("type"));
+            final Integer last = counters.get(key);
+            final int number = (last != null) ? last + 1 : 1;
+            counters.put(key, number);
+            numbers.put(elem, number);
+        }
+        return idMap.size() + numbers.size();
+    }
+
+    List<Benchmark> createBenchmarks(Corpus corpus) throws Exception {
+        final List<Benchmark> benchmarks = Lists.newArrayList();
+        final SAXParser parser = injector.getInstance(SAXParser.class);
+        final JdomHtmlSerializer serializer = injector.getInstance(JdomHtmlSerializer.class);
+        final LinkProcessor linkProcessor = injector.getInstance(LinkProcessor.class);
+        final ContentMathmlProcessor ctopProcessor =
+                injector.getInstance(ContentMathmlProcessor.class);
+        final ContentMathmlProcessor ctopSubtreeProcessor =
+                new ContentMathmlProcessor(injector.getInstance(Key.get(TransformerPool.class,
+                        ContentMathmlProcessor.ContentToPresentation.class)));
+        ctopSubtreeProcessor.setSubtreeMode(true);
+        final RenderScope renderScope = injector.getInstance(RenderScope.class);
+        final List<String> numberedNames = Lists.newArrayList();
+        for (CnxmlTag tag : NUMBERED_TAGS) {
+            numberedNames.add(tag.getTag());
+        }
+        final Filter numberedFilter = new ElementSetFilter(numberedNames, CnxmlTag.NAMESPACE);
+        final ContentPass contentPass =
+                new ContentPass(ImmutableList.of(linkProcessor), NUMBERED_TAGS);
+
+        for (Corpus.CorpusDocument corpusDocument : corpus.getDocuments()) {
+            final String name = corpusDocument.getName();
+            final String cnxml = corpusDocument.getCnxml();
+            final Document doc = parseXmlString(parser, cnxml);
+
+            benchmarks.add(new Benchmark("parse/" + name) {
+                @Override public Object run() throws Exception {
+                    return parseXmlString(parser, cnxml);
+                }
+            });
+
+            benchmarks.add(new ModuleBenchmark("links/" + name, doc) {
+                @Override public Object run() throws Exception {
+                    return linkProcessor.process(module);
+                }
+            });
+
+            // The link, ID and numbering walks of the generator, one walk each and fused.
+            benchmarks.add(new ModuleBenchmark("walks/" + name, doc) {
+                @Override public Object run() throws Exception {
+                    linkProcessor.process(module);
+                    return indexWithSeparateWalks(getContent(module.getCnxml()), numberedFilter);
+                }
+            });
+
+            benchmarks.add(new ModuleBenchmark("pass/" + name, doc) {
+                @Override public Object run() throws Exception {
+                    return contentPass.run(getContent(module.getCnxml()));
+                }
+            });
+
+            benchmarks.add(new ModuleBenchmark("ctop/" + name, doc) {
+                @Override public Object run() throws Exception {
+                    return ctopProcessor.process(module);
+                }
+            });
+
+            benchmarks.add(new ModuleBenchmark("ctop-subtree/" + name, doc) {
+                @Override public Object run() throws Exception {
+                    return ctopSubtreeProcessor.process(module);
+                }
+            });
+
+            final Element content = getContent(doc);
+            benchmarks.add(new Benchmark("serialize/" + name) {
+                @Override public Object run() throws Exception {
+                    return serializer.serialize(content);
+                }
+            });
+
+            final Module metadataModule = createModule(doc);
+            if (metadataModule.getMetadata() != null) {
+                benchmarks.add(new Benchmark("authors/" + name) {
+                    @Override public Object run() throws Exception {
+                        return metadataModule.getMetadata().getAuthors();
+                    }
+                });
+            }
+
+            benchmarks.add(new ModuleBenchmark("generate/" + name, doc) {
+                private ModuleHtmlGenerator generator;
+
+                @Override public void prepare() throws Exception {
+                    super.prepare();
+                    renderScope.enter();
+                    renderScope.seed(Module.class, module);
+                    generator = injector.getInstance(ModuleHtmlGenerator.class);
+                }
+
+                @Override public Object run() throws Exception {
+                    return generator.generate(module);
+                }
+
+                @Override public void cleanup() {
+                    renderScope.exit();
+                }
+            });
+        }
+        return benchmarks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Pattern filter = (args.length > 0 && !Strings.isNullOrEmpty(args[0]))
+                ? Pattern.compile(args[0]) : null;
+        final RenderingBenchmarks renderingBenchmarks =
+                new RenderingBenchmarks(Guice.createInjector(new BenchmarkModule()));
+        BenchmarkRunner.fromSystemProperties(System.out).runAll(
+                renderingBenchmarks.createBenchmarks(Corpus.fromSystemProperties()), filter);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.cnx.cnxml.LinkProcessor;
+import org.cnx.cnxml.LinkResolver;
+import org.cnx.cnxml.Links;
+import org.cnx.cnxml.Module;
+import org.cnx.cnxml.ResourceIndex;
+import org.cnx.resourcemapping.LocationInformation;
+import org.cnx.resourcemapping.ObjectFactory;
+import org.cnx.resourcemapping.Repository;
+import org.cnx.resourcemapping.Resource;
+import org.cnx.resourcemapping.Resources;
+import org.jdom.Document;
+import org.jdom.input.SAXBuilder;
+
+/**
+ *  ResourceLookupBenchmarks measures the resolution of resource links of image heavy modules,
+ *  where every figure has an image and a link to it.
+ *  <p>
+ *  The <code>-scan</code> benchmarks resolve each link by scanning the module's resource
+ *  mapping, the way the web view did before {@link ResourceIndex}.  The others build the index
+ *  once per render, as the render scope does, and look each link up.
+ *  <p>
+ *  Usage: <code>ResourceLookupBenchmarks [filter]</code>.  Run it with
+ *  <code>ant run -Dbenchmark.class=org.cnx.benchmark.ResourceLookupBenchmarks</code>.
+ */
+public class ResourceLookupBenchmarks {
+    /** Number of images of the synthetic modules. */
+    private static final int[] IMAGE_COUNTS = { 10, 100, 500 };
+
+    private static final ObjectFactory factory = new ObjectFactory();
+
+    /**
+     *  Resolves resources the way the web view resolver does, with either a scan of the
+     *  resource mapping or the index.  Other links are left alone.
+     */
+    private static class ResourceResolver implements LinkResolver {
+        private final boolean scan;
+        private Module module;
+        private ResourceIndex index;
+
+        ResourceResolver(boolean scan) {
+            this.scan = scan;
+        }
+
+        void setModule(Module module) throws Exception {
+            this.module = module;
+            this.index = scan ? null : ResourceIndex.forModule(module);
+        }
+
+        @Override public URI resolveUri(URI uri) throws Exception {
+            if (uri.isAbsolute()) {
+                return uri;
+            }
+            return resolveResource(null, null, uri);
+        }
+
+        @Override public URI resolveDocument(String document, String version) throws Exception {
+            return null;
+        }
+
+        @Override public URI resolveResource(String document, String version, URI resource)
+                throws Exception {
+            final String resourceId = scan
+                    ? scanResourceId(module.getResources(), resource)
+                    : index.getResourceId(resource);
+            return (resourceId != null) ? new URI("/resource/" + resourceId) : resource;
+        }
+    }
+
+    static String scanResourceId(Resources resources, URI resource) throws Exception {
+        for (Resource currResource : resources.getResource()) {
+            if (Links.convertFileNameToUri(currResource.getName()).equals(resource)) {
+                return currResource.getLocationInformation().getRepository().getResourceId();
+            }
+        }
+        return null;
+    }
+
+    static String imageName(int i) {
+        return "figure " + i + ".png";
+    }
+
+    /**
+     *  Build a module with the given number of figures, each with an image and a link to it.
+     */
+    static String buildCnxml(int imageCount) {
+        final StringBuilder cnxml = new StringBuilder(
+                "<document xmlns=\"http://cnx.rice.edu/cnxml\" id=\"m0\" cnxml-version=\"0.7\">"
+                + "<title>Images</title><content>");
+        for (int i = 0; i < imageCount; i++) {
+            cnxml.append("<figure id=\"f").append(i).append("\"><media id=\"m").append(i)
+                    .append("\" alt=\"\"><image mime-type=\"image/png\" src=\"")
+                    .append(imageName(i)).append("\"/></media></figure>")
+                    .append("<para id=\"p").append(i).append("\"><link resource=\"")
+                    .append(imageName(i)).append("\">Figure ").append(i).append("</link></para>");
+        }
+        return cnxml.append("</content></document>").toString();
+    }
+
+    static Resources buildResources(int imageCount) {
+        final Resources resources = factory.createResources();
+        for (int i = 0; i < imageCount; i++) {
+            final Repository repository = factory.createRepository();
+            repository.setResourceId("r" + i);
+            final LocationInformation location = factory.createLocationInformation();
+            location.setRepository(repository);
+            final Resource resource = factory.createResource();
+            resource.setName(imageName(i));
+            resource.setLocationInformation(location);
+            resources.getResource().add(resource);
+        }
+        return resources;
+    }
+
+    private static Benchmark createLinkBenchmark(String name, final Document original,
+            final Resources resources, boolean scan) {
+        final ResourceResolver resolver = new ResourceResolver(scan);
+        final LinkProcessor processor = new LinkProcessor(resolver);
+        return new Benchmark(name) {
+            private Module module;
+
+            @Override public void prepare() throws Exception {
+                module = new Module("m0", "1", (Document)original.clone(), resources, null);
+            }
+
+            @Override public Object run() throws Exception {
+                resolver.setModule(module);
+                return processor.process(module);
+            }
+        };
+    }
+
+    List<Benchmark> createBenchmarks() throws Exception {
+        final List<Benchmark> benchmarks = Lists.newArrayList();
+        for (int imageCount : IMAGE_COUNTS) {
+            final String name = "images-" + imageCount;
+            final Document doc = new SAXBuilder().build(new StringReader(buildCnxml(imageCount)));
+            final Resources resources = buildResources(imageCount);
+
+            benchmarks.add(createLinkBenchmark("links/" + name, doc, resources, false));
+            benchmarks.add(createLinkBenchmark("links-scan/" + name, doc, resources, true));
+        }
+        return benchmarks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Pattern filter = (args.length > 0 && !Strings.isNullOrEmpty(args[0]))
+                ? Pattern.compile(args[0]) : null;
+        BenchmarkRunner.fromSystemProperties(System.out).runAll(
+                new ResourceLookupBenchmarks().createBenchmarks(), filter);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.cnx.cnxml.CnxmlAttributes;
+import org.cnx.cnxml.CnxmlTag;
+import org.cnx.util.HtmlTag;
+import org.cnx.util.ValueEnum;
+import org.cnx.util.ValueEnums;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.filter.ElementFilter;
+import org.jdom.input.SAXBuilder;
+
+/**
+ *  TagLookupBenchmarks measures the name to constant lookups done for every element and
+ *  attribute while rendering ({@link CnxmlTag#of}, {@link HtmlTag#of} and
+ *  {@link ValueEnums#findEnum}).
+ *  <p>
+ *  Each operation looks up every element name of a corpus document, in document order.  The
+ *  <code>-scan</code> benchmarks run the same lookups with a linear scan over the constants, as
+ *  a baseline for the lookup tables.
+ *  <p>
+ *  Usage: <code>TagLookupBenchmarks [filter]</code>.  Run it with
+ *  <code>ant run -Dbenchmark.class=org.cnx.benchmark.TagLookupBenchmarks</code>.
+ */
+public class TagLookupBenchmarks {
+    /** Attribute values looked up by the value enum benchmarks, including an unknown one. */
+    private static final String[] BULLET_STYLES = {
+        "bullet", "open-circle", "pilcrow", "rpilcrow", "asterisk", "dash", "section", "none",
+        "other", "unknown-style"
+    };
+
+    static CnxmlTag scanCnxmlTag(String name) {
+        for (CnxmlTag tag : CnxmlTag.values()) {
+            if (Objects.equal(tag.getTag(), name)) {
+                return tag;
+            }
+        }
+        return CnxmlTag.INVALID;
+    }
+
+    static HtmlTag scanHtmlTag(String name) {
+        for (HtmlTag tag : HtmlTag.values()) {
+            if (Objects.equal(tag.getTag(), name)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    static <E extends Enum<E>> E scanEnum(Class<E> enumClass, String value) {
+        for (E v : enumClass.getEnumConstants()) {
+            if (((ValueEnum)v).getValue().equals(value)) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *  Return the names of all the elements of a document, in document order.
+     */
+    static String[] getElementNames(Document doc) {
+        final List<String> names = Lists.newArrayList();
+        for (Iterator<?> i = doc.getDescendants(new ElementFilter()); i.hasNext();) {
+            names.add(((Element)i.next()).getName());
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    List<Benchmark> createBenchmarks(Corpus corpus) throws Exception {
+        final List<Benchmark> benchmarks = Lists.newArrayList();
+
+        for (Corpus.CorpusDocument corpusDocument : corpus.getDocuments()) {
+            final String name = corpusDocument.getName();
+            final String[] names = getElementNames(
+                    new SAXBuilder().build(new StringReader(corpusDocument.getCnxml())));
+
+            benchmarks.add(new Benchmark("tags/cnxml/" + name) {
+                @Override public Object run() {
+                    int found = 0;
+                    for (String n : names) {
+                        if (CnxmlTag.of(n) != CnxmlTag.INVALID) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }
+            });
+
+            benchmarks.add(new Benchmark("tags/cnxml-scan/" + name) {
+                @Override public Object run() {
+                    int found = 0;
+                    for (String n : names) {
+                        if (scanCnxmlTag(n) != CnxmlTag.INVALID) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }
+            });
+
+            benchmarks.add(new Benchmark("tags/html/" + name) {
+                @Override public Object run() {
+                    int found = 0;
+                    for (String n : names) {
+                        if (HtmlTag.of(n) != null) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }
+            });
+
+            benchmarks.add(new Benchmark("tags/html-scan/" + name) {
+                @Override public Object run() {
+                    int found = 0;
+                    for (String n : names) {
+                        if (scanHtmlTag(n) != null) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }
+            });
+        }
+
+        benchmarks.add(new Benchmark("enums/bullet-style") {
+            @Override public Object run() {
+                int found = 0;
+                for (String value : BULLET_STYLES) {
+                    if (CnxmlAttributes.BulletStyle.of(value) != null) {
+                        found++;
+                    }
+                }
+                return found;
+            }
+        });
+
+        benchmarks.add(new Benchmark("enums/bullet-style-scan") {
+            @Override public Object run() {
+                int found = 0;
+                for (String value : BULLET_STYLES) {
+                    if (scanEnum(CnxmlAttributes.BulletStyle.class, value) != null) {
+                        found++;
+                    }
+                }
+                return found;
+            }
+        });
+        return benchmarks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Pattern filter = (args.length > 0 && !Strings.isNullOrEmpty(args[0]))
+                ? Pattern.compile(args[0]) : null;
+        BenchmarkRunner.fromSystemProperties(System.out).runAll(
+                new TagLookupBenchmarks().createBenchmarks(Corpus.fromSystemProperties()), filter);
+    }
+}
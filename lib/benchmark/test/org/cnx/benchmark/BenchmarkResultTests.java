@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.benchmark;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BenchmarkResultTests {
+    private static final long[] NANOS = {50, 10, 40, 30, 20, 60, 70, 80, 100, 90};
+
+    @Test
+    public void percentilesShouldUseNearestRank() {
+        final BenchmarkResult result =
+                new BenchmarkResult("test", NANOS, NANOS.length, BenchmarkResult.UNKNOWN);
+        assertEquals(10, result.getPercentile(1));
+        assertEquals(50, result.getPercentile(50));
+        assertEquals(90, result.getPercentile(90));
+        assertEquals(100, result.getPercentile(99));
+        assertEquals(100, result.getMax());
+    }
+
+    @Test
+    public void onlyCountedSamplesShouldBeUsed() {
+        final BenchmarkResult result = new BenchmarkResult("test", NANOS, 2, 1000);
+        assertEquals(2, result.getOperations());
+        assertEquals(50, result.getMax());
+        assertEquals(500, result.getBytesPerOperation());
+        assertEquals(2e9 / 60, result.getThroughput(), 1e-6);
+    }
+
+    @Test
+    public void unknownAllocationShouldBeReported() {
+        final BenchmarkResult result =
+                new BenchmarkResult("test", NANOS, NANOS.length, BenchmarkResult.UNKNOWN);
+        assertEquals(BenchmarkResult.UNKNOWN, result.getBytesPerOperation());
+    }
+}
@@ -17,12 +17,13 @@
 package org.cnx.cnxml;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
+import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.URIResolver;
 import javax.xml.transform.stream.StreamSource;
 
 import org.cnx.util.RenderTime;
+import org.cnx.util.TransformerPool;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.AbstractModule;
@@ -37,6 +38,11 @@ public class CnxmlModule extends AbstractModule {
     private static final String CTOP_CNX_NAME = "ctop-cnx.xsl";
     private static final String CTOP_W3C_NAME = "ctop-w3c.xsl";
 
+    /**
+     *  Number of idle content-to-presentation transformers kept for reuse.
+     */
+    private static final int CTOP_MAX_IDLE_TRANSFORMERS = 16;
+
     @Override
     protected void configure() {
         bind(ModuleFactory.class).to(ModuleFactoryImpl.class);
@@ -49,7 +55,15 @@ public class CnxmlModule extends AbstractModule {
     @Provides
     @Singleton
     @ContentMathmlProcessor.ContentToPresentation
-    Transformer provideContentToPresentationTransformer(TransformerFactory factory) {
+    TransformerPool provideContentToPresentationTransformerPool(
+            @ContentMathmlProcessor.ContentToPresentation Templates templates) {
+        return new TransformerPool(templates, CTOP_MAX_IDLE_TRANSFORMERS);
+    }
+
+    @Provides
+    @Singleton
+    @ContentMathmlProcessor.ContentToPresentation
+    Templates provideContentToPresentationTemplates(TransformerFactory factory) {
         try {
             final Source cnxSource = getXsltSource(CTOP_CNX_NAME);
             final Source w3cSource = getXsltSource(CTOP_W3C_NAME);
@@ -65,7 +79,7 @@ public class CnxmlModule extends AbstractModule {
                 }
             });
 
-            return factory.newTransformer(cnxSource);
+            return factory.newTemplates(cnxSource);
         } catch (Exception e) {
             throw new RuntimeException("ContentMathMLProcessor XSLT is invalid", e);
         }
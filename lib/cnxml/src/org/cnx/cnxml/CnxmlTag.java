@@ -16,8 +16,8 @@
 
 package org.cnx.cnxml;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.base.Objects;
 
 import javax.annotation.Nullable;
 import org.jdom.Namespace;
@@ -82,6 +82,18 @@ public enum CnxmlTag {
     public static final String NAMESPACE_URI = "http://cnx.rice.edu/cnxml";
     public static final Namespace NAMESPACE = Namespace.getNamespace(NAMESPACE_URI);
 
+    private static final ImmutableMap<String, CnxmlTag> TAGS_BY_NAME;
+
+    static {
+        final ImmutableMap.Builder<String, CnxmlTag> builder = ImmutableMap.builder();
+        for (CnxmlTag tag : values()) {
+            if (tag.tag != null) {
+                builder.put(tag.tag, tag);
+            }
+        }
+        TAGS_BY_NAME = builder.build();
+    }
+
     private CnxmlTag(@Nullable String tag) {
         this.tag = tag;
     }
@@ -98,12 +110,8 @@ public enum CnxmlTag {
         if (name == null) {
             return defaultTag;
         }
-        for (CnxmlTag tag : CnxmlTag.values()) {
-            if (Objects.equal(tag.tag, name)) {
-                return tag;
-            }
-        }
-        return defaultTag;
+        final CnxmlTag tag = TAGS_BY_NAME.get(name);
+        return (tag != null) ? tag : defaultTag;
     }
 
     public final static ImmutableSet<CnxmlTag> MEDIA_CHILDREN = ImmutableSet.of(
@@ -23,22 +23,56 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.Iterator;
+import java.util.List;
 
 import javax.xml.transform.Transformer;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.inject.BindingAnnotation;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 
+import org.cnx.util.MathmlTag;
+import org.cnx.util.TransformerPool;
+import org.jdom.Content;
 import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.Parent;
+import org.jdom.filter.ElementFilter;
 import org.jdom.transform.JDOMResult;
 import org.jdom.transform.JDOMSource;
 
 /**
  *  ContentMathmlProcessor transforms content MathML into presentation MathML.
+ *  <p>
+ *  By default the stylesheet is run over the whole document.  When the
+ *  {@link #SUBTREE_MODE} setting is true, only MathML subtrees which contain content MathML are
+ *  transformed, each on its own, and presentation-only MathML is left untouched.
+ *  <p>
+ *  Documents without any MathML are returned as-is in either mode.
  */
 @Singleton public class ContentMathmlProcessor implements Processor {
-    private final Transformer transformer;
+    /**
+     *  Name of the optional boolean binding which enables subtree mode.
+     */
+    public static final String SUBTREE_MODE = "org.cnx.cnxml.ContentMathmlProcessor.subtreeMode";
+
+    /**
+     *  Content MathML elements.  A MathML tree containing none of these is presentation-only.
+     */
+    @VisibleForTesting static final ImmutableSet<String> CONTENT_TAGS = ImmutableSet.of(
+            "apply", "bind", "bvar", "ci", "cn", "csymbol", "cs", "cbytes", "cerror", "share",
+            "condition", "declare", "degree", "domainofapplication", "fn", "interval", "lambda",
+            "list", "logbase", "lowlimit", "matrix", "matrixrow", "momentabout", "piece",
+            "piecewise", "otherwise", "reln", "set", "uplimit", "vector"
+    );
+
+    private final TransformerPool transformerPool;
+    private boolean subtreeMode;
 
     @BindingAnnotation
     @Target({FIELD, PARAMETER, METHOD})
@@ -46,14 +80,106 @@ import org.jdom.transform.JDOMSource;
     public static @interface ContentToPresentation {
     }
 
-    @Inject public ContentMathmlProcessor(@ContentToPresentation Transformer transformer) {
-        this.transformer = transformer;
+    @Inject public ContentMathmlProcessor(@ContentToPresentation TransformerPool transformerPool) {
+        this.transformerPool = transformerPool;
+    }
+
+    @Inject(optional=true) public void setSubtreeMode(@Named(SUBTREE_MODE) boolean subtreeMode) {
+        this.subtreeMode = subtreeMode;
     }
 
     public Module process(Module module) throws Exception {
+        if (!hasMathml(module.getCnxml())) {
+            // The stylesheet would only copy the document.
+            return module;
+        }
+
+        if (subtreeMode) {
+            transformSubtrees(module.getCnxml());
+            return module;
+        }
+
         final JDOMResult result = new JDOMResult();
-        transformer.transform(new JDOMSource(module.getCnxml()), result);
+        final Transformer transformer = transformerPool.borrow();
+        try {
+            transformer.transform(new JDOMSource(module.getCnxml()), result);
+        } finally {
+            transformerPool.release(transformer);
+        }
         return new Module(module.getId(), module.getVersion(),
                 result.getDocument(), module.getResources(), module.getMetadata());
     }
+
+    /**
+     *  Replace every outermost MathML element containing content MathML with its transformed
+     *  version, in place.
+     */
+    @SuppressWarnings("unchecked")
+    private void transformSubtrees(final Document doc) throws Exception {
+        final List<Element> roots = Lists.newArrayList();
+        final Iterator<Element> iter = (Iterator<Element>)doc.getDescendants(
+                new ElementFilter(MathmlTag.NAMESPACE));
+        while (iter.hasNext()) {
+            final Element elem = iter.next();
+            final Parent parent = elem.getParent();
+            if (parent instanceof Element
+                    && !MathmlTag.NAMESPACE.equals(((Element)parent).getNamespace())
+                    && hasContentMathml(elem)) {
+                roots.add(elem);
+            }
+        }
+        if (roots.isEmpty()) {
+            return;
+        }
+
+        final Transformer transformer = transformerPool.borrow();
+        try {
+            for (Element elem : roots) {
+                final Element parent = (Element)elem.getParent();
+                final int index = parent.indexOf(elem);
+                parent.removeContent(index);
+                parent.addContent(index, transformSubtree(transformer, parent, elem));
+            }
+        } finally {
+            transformerPool.release(transformer);
+        }
+    }
+
+    /**
+     *  Run the stylesheet over a single MathML element.
+     *  <p>
+     *  The stylesheet inspects the parent of <code>math</code> (to detect equations), so the
+     *  element is transformed inside an empty copy of its parent.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Content> transformSubtree(final Transformer transformer, final Element parent,
+            final Element elem) throws Exception {
+        final Element wrapper = new Element(parent.getName(), parent.getNamespace());
+        wrapper.addContent(elem);
+        final JDOMResult result = new JDOMResult();
+        transformer.transform(new JDOMSource(new Document(wrapper)), result);
+        return (List<Content>)result.getDocument().getRootElement().removeContent();
+    }
+
+    /**
+     *  @return whether the document contains any MathML element
+     */
+    @VisibleForTesting static boolean hasMathml(final Document doc) {
+        return doc.getDescendants(new ElementFilter(MathmlTag.NAMESPACE)).hasNext();
+    }
+
+    /**
+     *  @return whether the MathML tree rooted at <code>elem</code> contains content MathML
+     */
+    @SuppressWarnings("unchecked")
+    @VisibleForTesting static boolean hasContentMathml(final Element elem) {
+        final Iterator<Element> iter = (Iterator<Element>)elem.getDescendants(
+                new ElementFilter(MathmlTag.NAMESPACE));
+        while (iter.hasNext()) {
+            if (CONTENT_TAGS.contains(iter.next().getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
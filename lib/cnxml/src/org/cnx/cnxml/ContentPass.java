@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.cnxml;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cnx.util.IdFilter;
+
+import org.jdom.Element;
+
+/**
+ *  ContentPass makes a single traversal of a module's content, calling back the registered
+ *  {@link ContentVisitor}s for the tags they visit and, optionally, collecting the ID map and
+ *  the element numbers that the HTML generator needs.
+ *  <p>
+ *  The results are the same as those of separate walks over the content: visitors are called in
+ *  document order, IDs map to the first element that has them and numbered elements are
+ *  numbered per tag and type with a {@link Counter}.
+ *  <p>
+ *  A ContentPass may be run any number of times, but it is not thread-safe if its visitors are
+ *  not.
+ */
+public class ContentPass {
+    /**
+     *  Result holds what a pass collected about the content.
+     */
+    public static class Result {
+        private final Map<String, Element> idMap;
+        private final Map<Element, Integer> elementNumbers;
+
+        private Result(Map<String, Element> idMap, Map<Element, Integer> elementNumbers) {
+            this.idMap = idMap;
+            this.elementNumbers = elementNumbers;
+        }
+
+        /**
+         *  getIdMap returns a mapping from IDs to elements.  If there are multiple elements with
+         *  the same ID, the first element is used.
+         */
+        public Map<String, Element> getIdMap() {
+            return idMap;
+        }
+
+        /**
+         *  getElementNumbers returns the 1-based number of each numbered element.
+         */
+        public Map<Element, Integer> getElementNumbers() {
+            return elementNumbers;
+        }
+    }
+
+    private final Map<CnxmlTag, List<ContentVisitor>> visitorsByTag;
+    private final ImmutableSet<CnxmlTag> numberedTags;
+    private final boolean indexed;
+
+    /**
+     *  Construct a pass that only calls back the given visitors.
+     */
+    public ContentPass(Iterable<? extends ContentVisitor> visitors) {
+        this(visitors, ImmutableSet.<CnxmlTag>of(), false);
+    }
+
+    /**
+     *  Construct a pass that calls back the given visitors, collects the ID map and numbers the
+     *  elements with the given tags.
+     */
+    public ContentPass(Iterable<? extends ContentVisitor> visitors, Set<CnxmlTag> numberedTags) {
+        this(visitors, numberedTags, true);
+    }
+
+    private ContentPass(Iterable<? extends ContentVisitor> visitors, Set<CnxmlTag> numberedTags,
+            boolean indexed) {
+        this.visitorsByTag = new EnumMap<CnxmlTag, List<ContentVisitor>>(CnxmlTag.class);
+        for (ContentVisitor visitor : checkNotNull(visitors)) {
+            for (CnxmlTag tag : visitor.getVisitedTags()) {
+                List<ContentVisitor> list = visitorsByTag.get(tag);
+                if (list == null) {
+                    list = Lists.newArrayList();
+                    visitorsByTag.put(tag, list);
+                }
+                list.add(visitor);
+            }
+        }
+        this.numberedTags = ImmutableSet.copyOf(numberedTags);
+        this.indexed = indexed;
+    }
+
+    /**
+     *  Traverse the descendants of the content element once.
+     *
+     *  @param contentRoot The content element from the CNXML
+     *  @return The collected ID map and element numbers; both are empty if this pass only calls
+     *          back visitors.
+     */
+    public Result run(final Element contentRoot) throws Exception {
+        final Map<String, Element> idMap = new HashMap<String, Element>();
+        final Map<Element, Integer> elementNumbers = new HashMap<Element, Integer>();
+        final Counter counter = new Counter();
+        final String cnxmlUri = CnxmlTag.NAMESPACE.getURI();
+
+        final Deque<Iterator<?>> stack = new ArrayDeque<Iterator<?>>();
+        stack.push(checkNotNull(contentRoot).getContent().iterator());
+        while (!stack.isEmpty()) {
+            final Iterator<?> iter = stack.peek();
+            if (!iter.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            final Object node = iter.next();
+            if (!(node instanceof Element)) {
+                continue;
+            }
+            final Element elem = (Element)node;
+
+            if (indexed) {
+                final String id = elem.getAttributeValue(IdFilter.ATTRIBUTE);
+                if (id != null && !idMap.containsKey(id)) {
+                    idMap.put(id, elem);
+                }
+            }
+
+            if (cnxmlUri.equals(elem.getNamespaceURI())) {
+                final CnxmlTag tag = CnxmlTag.of(elem.getName());
+                if (numberedTags.contains(tag)) {
+                    final String type = elem.getAttributeValue(CnxmlAttributes.TYPE);
+                    elementNumbers.put(elem,
+                            counter.getNextNumber(elem.getName(), Strings.nullToEmpty(type)));
+                }
+                final List<ContentVisitor> visitors = visitorsByTag.get(tag);
+                if (visitors != null) {
+                    for (ContentVisitor visitor : visitors) {
+                        visitor.visit(elem, tag);
+                    }
+                }
+            }
+
+            if (!elem.getContent().isEmpty()) {
+                stack.push(elem.getContent().iterator());
+            }
+        }
+        return new Result(idMap, elementNumbers);
+    }
+}
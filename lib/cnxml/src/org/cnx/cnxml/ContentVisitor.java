@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.cnxml;
+
+import java.util.Set;
+
+import org.jdom.Element;
+
+/**
+ *  A ContentVisitor is called back for CNXML elements of a module's content by a
+ *  {@link ContentPass}, instead of walking the content tree on its own.  This lets several
+ *  visitors share a single traversal of the content.
+ *  <p>
+ *  Visitors may change the attributes of the elements they visit, but must not change the
+ *  structure of the tree.
+ *
+ *  @see VisitingProcessor
+ */
+public interface ContentVisitor {
+    /**
+     *  getVisitedTags returns the tags of the elements this visitor is called for.
+     */
+    public Set<CnxmlTag> getVisitedTags();
+
+    /**
+     *  visit is called for each element with one of the visited tags, in document order.
+     *
+     *  @param elem The visited element
+     *  @param tag The tag of the visited element
+     */
+    public void visit(Element elem, CnxmlTag tag) throws Exception;
+}
@@ -21,13 +21,13 @@ import static com.google.common.base.Preconditions.*;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -39,7 +39,6 @@ import org.cnx.util.ElementSetFilter;
 import org.cnx.util.RenderTime;
 import org.cnx.util.HtmlTag;
 import org.cnx.util.HtmlAttributes;
-import org.cnx.util.IdFilter;
 import org.cnx.util.JdomHtmlSerializer;
 import org.cnx.util.MathmlAttributes;
 import org.cnx.util.MathmlTag;
@@ -50,7 +49,6 @@ import org.jdom.Content;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.Namespace;
-import org.jdom.Parent;
 import org.jdom.Text;
 import org.jdom.filter.ElementFilter;
 import org.jdom.filter.Filter;
@@ -176,9 +174,10 @@ import org.jdom.input.DOMBuilder;
     private static final Logger log = Logger.getLogger(JdomHtmlGenerator.class.getName());
 
     private static final Filter mediaFilter = cnxmlSetFilter(CnxmlTag.MEDIA_CHILDREN);
-    private static final Filter numberedElementFilter = cnxmlSetFilter(NUMBERED_TAGS);
 
-    private final ImmutableSet<Processor> processors;
+    /** Processors that are not content visitors; they run before the content pass. */
+    private final ImmutableList<Processor> processors;
+    private final ContentPass contentPass;
     private final JdomHtmlSerializer jdomHtmlSerializer;
 
     private Module module;
@@ -222,16 +221,33 @@ import org.jdom.input.DOMBuilder;
 
     @Inject public JdomHtmlGenerator(Set<Processor> processors,
             JdomHtmlSerializer jdomHtmlSerializer) {
-        this.processors = ImmutableSet.copyOf(processors);
+        final ImmutableList.Builder<Processor> otherProcessors = ImmutableList.builder();
+        final List<ContentVisitor> visitors = Lists.newArrayList();
+        for (Processor processor : processors) {
+            if (processor instanceof ContentVisitor) {
+                visitors.add((ContentVisitor)processor);
+            } else {
+                otherProcessors.add(processor);
+            }
+        }
+        this.processors = otherProcessors.build();
+        this.contentPass = new ContentPass(visitors, NUMBERED_TAGS);
         this.jdomHtmlSerializer = jdomHtmlSerializer;
     }
 
     @Override public String generate(Module module) throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        generate(module, sb);
+        return sb.toString();
+    }
+
+    @Override public void generate(Module module, Appendable out) throws Exception {
         long startTime, endTime;
 
         this.module = module;
 
-        // Apply processors
+        // Apply processors that need the whole module, such as XSLT transforms.  Processors that
+        // are content visitors run later, in the content pass.
         startTime = System.currentTimeMillis();
         for (Processor processor : processors) {
             module = processor.process(module);
@@ -243,39 +259,26 @@ import org.jdom.input.DOMBuilder;
         final Element contentElem = module.getCnxml().getRootElement()
                 .getChild(CnxmlTag.CONTENT.getTag(), CnxmlTag.NAMESPACE);
         if (contentElem == null) {
-            return "";
+            return;
         }
 
-        // Generate HTML
+        // Run the visiting processors, index IDs and number elements in a single traversal.
+        startTime = System.currentTimeMillis();
+        final ContentPass.Result passResult = contentPass.run(contentElem);
+        idElementMap = passResult.getIdMap();
+        elementNumberMap = passResult.getElementNumbers();
+        endTime = System.currentTimeMillis();
+        log.fine("Content pass took " + (endTime - startTime) + " ms");
+
+        // Generate HTML. The HTML tree is built before anything is written, so errors are
+        // detected before out receives partial output.
         startTime = System.currentTimeMillis();
-        idElementMap = IdFilter.getIdMap(contentElem);
-        elementNumberMap = enumerateElements(contentElem);
         final List<Content> contentList = generateHtmlTree(contentElem);
-        final StringBuilder sb = new StringBuilder();
         for (Content content : contentList) {
-            jdomHtmlSerializer.serialize(sb, content);
+            jdomHtmlSerializer.serialize(out, content);
         }
         endTime = System.currentTimeMillis();
         log.fine("Rendered in " + (endTime - startTime) + " ms");
-
-        return sb.toString();
-    }
-
-    /**
-     *  Get numbers for elements.
-     */
-    @SuppressWarnings("unchecked")
-    private static Map<Element, Integer> enumerateElements(final Parent contentRoot) {
-        final Map<Element, Integer> map = new HashMap<Element, Integer>();
-        final Iterator<Element> iter = contentRoot.getDescendants(numberedElementFilter);
-        final Counter counter = new Counter();
-
-        while (iter.hasNext()) {
-            final Element elem = iter.next();
-            final String type = elem.getAttributeValue(CnxmlAttributes.TYPE);
-            map.put(elem, counter.getNextNumber(elem.getName(), Strings.nullToEmpty(type)));
-        }
-        return map;
     }
 
     /**
@@ -24,22 +24,24 @@ import com.google.inject.Inject;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
-import java.util.Iterator;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.jdom.Element;
 import org.jdom.Namespace;
-import org.jdom.filter.ElementFilter;
 
 /**
  *  LinkProcessor traverses the DOM tree given to it and bakes the final URI into the
  *  <code>src</code> or <code>url</code> attributes of any link or media elements.
  *  <p>
  *  The final URI is discovered using a {@link LinkResolver}.
+ *  <p>
+ *  LinkProcessor is a {@link ContentVisitor}, so the HTML generator resolves links in the same
+ *  traversal that indexes the content.
  *
  *  @see LinkResolver
  */
-public class LinkProcessor implements Processor {
+public class LinkProcessor extends VisitingProcessor {
     private static final Logger logger = Logger.getLogger(LinkProcessor.class.getName());
 
     @VisibleForTesting static final ImmutableSet<CnxmlTag> LINK_TAGS = ImmutableSet.of(
@@ -54,23 +56,21 @@ public class LinkProcessor implements Processor {
         this.resolver = resolver;
     }
 
-    @Override
-    @SuppressWarnings("unchecked")
-    public Module process(final Module module) throws Exception {
-        final Iterator<Element> iter = (Iterator<Element>)module.getCnxml().getRootElement()
-                .getChild(CnxmlTag.CONTENT.getTag(), CnxmlTag.NAMESPACE)
-                .getDescendants(new ElementFilter(CnxmlTag.NAMESPACE));
-        while (iter.hasNext()) {
-            final Element elem = iter.next();
-            final CnxmlTag tag = CnxmlTag.of(elem.getName());
-
-            if (LINK_TAGS.contains(tag)) {
-                resolveLink(elem);
-            } else if (CnxmlTag.MEDIA_CHILDREN.contains(tag)) {
-                resolveMedia(elem);
-            }
+    private static final ImmutableSet<CnxmlTag> VISITED_TAGS = ImmutableSet.<CnxmlTag>builder()
+            .addAll(LINK_TAGS)
+            .addAll(CnxmlTag.MEDIA_CHILDREN)
+            .build();
+
+    @Override public Set<CnxmlTag> getVisitedTags() {
+        return VISITED_TAGS;
+    }
+
+    @Override public void visit(final Element elem, final CnxmlTag tag) throws Exception {
+        if (LINK_TAGS.contains(tag)) {
+            resolveLink(elem);
+        } else {
+            resolveMedia(elem);
         }
-        return module;
     }
 
     @VisibleForTesting void resolveLink(final Element elem) throws Exception {
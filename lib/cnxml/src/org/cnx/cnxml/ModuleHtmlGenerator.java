@@ -27,4 +27,13 @@ public interface ModuleHtmlGenerator {
      *  @return The rendered HTML string
      */
     public String generate(Module module) throws Exception;
+
+    /**
+     *  The generate method writes HTML that corresponds to the given module to an Appendable, such
+     *  as a servlet response Writer, without building the whole HTML string first.
+     *
+     *  @param module The module to render
+     *  @param out The destination of the rendered HTML
+     */
+    public void generate(Module module, Appendable out) throws Exception;
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.cnxml;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.cnx.resourcemapping.LocationInformation;
+import org.cnx.resourcemapping.Resource;
+import org.cnx.resourcemapping.Resources;
+
+/**
+ *  ResourceIndex maps the resource names of a module, as they appear in links, to repository
+ *  resource IDs.
+ *  <p>
+ *  Link resolvers look up every resource link and media element of a module, so the index is
+ *  built once per render and seeded in the render scope alongside the {@link Module}, instead
+ *  of scanning the module's resource mapping for each link.
+ */
+public final class ResourceIndex {
+    private final ImmutableMap<URI, String> resourceIds;
+
+    private ResourceIndex(ImmutableMap<URI, String> resourceIds) {
+        this.resourceIds = resourceIds;
+    }
+
+    /**
+     *  Builds the index of a module's resources.
+     *  <p>
+     *  Names are converted with {@link Links#convertFileNameToUri}.  If several resources have
+     *  the same name, the first one wins.  Resources that are not stored in the repository are
+     *  not indexed.
+     */
+    public static ResourceIndex forResources(final Resources resources)
+            throws URISyntaxException {
+        final Map<URI, String> resourceIds = Maps.newLinkedHashMap();
+        for (Resource resource : resources.getResource()) {
+            final LocationInformation location = resource.getLocationInformation();
+            if (location == null || location.getRepository() == null) {
+                continue;
+            }
+            final URI name = Links.convertFileNameToUri(resource.getName());
+            if (!resourceIds.containsKey(name)) {
+                resourceIds.put(name, location.getRepository().getResourceId());
+            }
+        }
+        return new ResourceIndex(ImmutableMap.copyOf(resourceIds));
+    }
+
+    /**
+     *  Builds the index of the module's resources.
+     */
+    public static ResourceIndex forModule(final Module module) throws URISyntaxException {
+        return forResources(module.getResources());
+    }
+
+    /**
+     *  getResourceId returns the repository ID of a resource.
+     *
+     *  @param resource The resource link, relative to the module
+     *  @return The resource ID, or null if the module has no such resource
+     */
+    @Nullable public String getResourceId(final URI resource) {
+        return resourceIds.get(checkNotNull(resource));
+    }
+
+    public int size() {
+        return resourceIds.size();
+    }
+}
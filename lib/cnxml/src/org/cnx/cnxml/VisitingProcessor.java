@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.cnxml;
+
+import com.google.common.collect.ImmutableList;
+
+import org.jdom.Element;
+
+/**
+ *  VisitingProcessor adapts a {@link ContentVisitor} to the {@link Processor} interface, so that
+ *  it can be bound and run like any other processor.
+ *  <p>
+ *  When run on its own, a VisitingProcessor makes a traversal of the content just for itself.
+ *  {@link JdomHtmlGenerator} instead runs all of its visiting processors in the same traversal
+ *  that indexes and numbers the content elements.
+ */
+public abstract class VisitingProcessor implements Processor, ContentVisitor {
+    @Override public Module process(final Module module) throws Exception {
+        final Element contentElem = module.getCnxml().getRootElement()
+                .getChild(CnxmlTag.CONTENT.getTag(), CnxmlTag.NAMESPACE);
+        if (contentElem != null) {
+            new ContentPass(ImmutableList.of(this)).run(contentElem);
+        }
+        return module;
+    }
+}
@@ -16,7 +16,7 @@
 
 package org.cnx.mdml;
 
-import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
 
 import javax.annotation.Nullable;
 
@@ -49,6 +49,18 @@ public enum MdmlTag {
 
     public static final String ROLE_SEP = " ";
 
+    private static final ImmutableMap<String, MdmlTag> TAGS_BY_NAME;
+
+    static {
+        final ImmutableMap.Builder<String, MdmlTag> builder = ImmutableMap.builder();
+        for (MdmlTag tag : values()) {
+            if (tag.tag != null) {
+                builder.put(tag.tag, tag);
+            }
+        }
+        TAGS_BY_NAME = builder.build();
+    }
+
     private MdmlTag(@Nullable String tag) {
         this.tag = tag;
     }
@@ -58,11 +70,10 @@ public enum MdmlTag {
     }
 
     public static MdmlTag of(@Nullable final String name) {
-        for (MdmlTag tag : MdmlTag.values()) {
-            if (Objects.equal(tag.tag, name)) {
-                return tag;
-            }
+        if (name == null) {
+            return INVALID;
         }
-        return INVALID;
+        final MdmlTag tag = TAGS_BY_NAME.get(name);
+        return (tag != null) ? tag : INVALID;
     }
 }
@@ -30,4 +30,21 @@ public class CnxmlTagTests {
                         CnxmlTag.IMAGE, CnxmlTag.LABVIEW, CnxmlTag.OBJECT, CnxmlTag.VIDEO),
                 CnxmlTag.MEDIA_CHILDREN);
     }
+
+    @Test
+    public void ofShouldFindTagByName() {
+        for (CnxmlTag tag : CnxmlTag.values()) {
+            if (tag != CnxmlTag.INVALID) {
+                assertSame(tag, CnxmlTag.of(tag.getTag()));
+            }
+        }
+    }
+
+    @Test
+    public void ofShouldReturnDefaultForUnknownNames() {
+        assertSame(CnxmlTag.INVALID, CnxmlTag.of("no-such-tag"));
+        assertSame(CnxmlTag.INVALID, CnxmlTag.of(null));
+        assertNull(CnxmlTag.of("no-such-tag", null));
+        assertSame(CnxmlTag.PARAGRAPH, CnxmlTag.of(null, CnxmlTag.PARAGRAPH));
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.cnxml;
+
+import static org.junit.Assert.*;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
+import org.cnx.mdml.MdmlModule;
+import org.cnx.resourcemapping.ObjectFactory;
+import org.cnx.util.MathmlTag;
+import org.cnx.util.TransformerPool;
+import org.cnx.util.UtilModule;
+
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.output.XMLOutputter;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ContentMathmlProcessorTests {
+    private static final Namespace ns = CnxmlTag.NAMESPACE;
+    private static final Namespace mathns = MathmlTag.NAMESPACE;
+
+    private static Injector injector;
+
+    @BeforeClass public static void createInjector() {
+        injector = Guice.createInjector(new CnxmlModule(), new MdmlModule(), new UtilModule());
+    }
+
+    private static Element contentMath() {
+        return new Element("math", mathns)
+                .addContent(new Element("apply", mathns)
+                        .addContent(new Element("plus", mathns))
+                        .addContent(new Element("ci", mathns).setText("a"))
+                        .addContent(new Element("ci", mathns).setText("b")));
+    }
+
+    private static Element presentationMath() {
+        return new Element("math", mathns)
+                .addContent(new Element("mrow", mathns)
+                        .addContent(new Element("mi", mathns).setText("a"))
+                        .addContent(new Element("mo", mathns).setText("+"))
+                        .addContent(new Element("mi", mathns).setText("b")));
+    }
+
+    private static Module createModule() {
+        final Document doc = new Document(new Element("document", ns)
+                .setAttribute("id", "m123")
+                .addContent(new Element("content", ns)
+                        .addContent(new Element("para", ns).addContent(contentMath()))
+                        .addContent(new Element("equation", ns).addContent(contentMath()))
+                        .addContent(new Element("para", ns).addContent(presentationMath()))));
+        return new Module("m123", "1", doc, new ObjectFactory().createResources(), null);
+    }
+
+    private static String getMath(final Module module, final int index) {
+        final Element container = (Element)module.getCnxml().getRootElement()
+                .getChild("content", ns).getChildren().get(index);
+        return new XMLOutputter().outputString(container.getChildren());
+    }
+
+    @Test public void contentMathShouldBeDetected() {
+        assertTrue(ContentMathmlProcessor.hasContentMathml(contentMath()));
+        assertFalse(ContentMathmlProcessor.hasContentMathml(presentationMath()));
+    }
+
+    @Test public void documentWithoutMathShouldBeUntouched() throws Exception {
+        final TransformerPool pool = injector.getInstance(
+                Key.get(TransformerPool.class, ContentMathmlProcessor.ContentToPresentation.class));
+        final ContentMathmlProcessor processor = new ContentMathmlProcessor(pool);
+        final Document doc = new Document(new Element("document", ns)
+                .setAttribute("id", "m123")
+                .addContent(new Element("content", ns)
+                        .addContent(new Element("para", ns).setText("No math here"))));
+        final Module module =
+                new Module("m123", "1", doc, new ObjectFactory().createResources(), null);
+        final long borrowed = pool.getBorrowCount();
+
+        assertFalse(ContentMathmlProcessor.hasMathml(doc));
+        assertSame(module, processor.process(module));
+        assertEquals(borrowed, pool.getBorrowCount());
+    }
+
+    @Test public void subtreeModeShouldMatchDocumentMode() throws Exception {
+        final ContentMathmlProcessor processor = new ContentMathmlProcessor(injector.getInstance(
+                Key.get(TransformerPool.class, ContentMathmlProcessor.ContentToPresentation.class)));
+        final Module expected = processor.process(createModule());
+
+        processor.setSubtreeMode(true);
+        final Module actual = processor.process(createModule());
+
+        assertEquals(getMath(expected, 0), getMath(actual, 0));
+        assertEquals(getMath(expected, 1), getMath(actual, 1));
+        assertTrue(getMath(actual, 1).contains("display=\"block\""));
+    }
+
+    @Test public void subtreeModeShouldSkipPresentationMath() throws Exception {
+        final ContentMathmlProcessor processor = new ContentMathmlProcessor(injector.getInstance(
+                Key.get(TransformerPool.class, ContentMathmlProcessor.ContentToPresentation.class)));
+        processor.setSubtreeMode(true);
+        final Module module = processor.process(createModule());
+
+        assertEquals(new XMLOutputter().outputString(presentationMath()), getMath(module, 2));
+    }
+
+    @Test public void transformersShouldBeReused() throws Exception {
+        final TransformerPool pool = injector.getInstance(
+                Key.get(TransformerPool.class, ContentMathmlProcessor.ContentToPresentation.class));
+        final ContentMathmlProcessor processor = new ContentMathmlProcessor(pool);
+        processor.process(createModule());
+        final long created = pool.getCreatedCount();
+        processor.process(createModule());
+
+        assertEquals(created, pool.getCreatedCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.cnxml;
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cnx.util.IdFilter;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentPassTests {
+    private static final Namespace ns = CnxmlTag.NAMESPACE;
+    private static final Namespace mathNs =
+            Namespace.getNamespace("http://www.w3.org/1998/Math/MathML");
+
+    private Element content;
+    private Element figure1;
+    private Element figure2;
+    private Element figure3;
+    private Element table;
+    private Element link;
+    private Element image;
+    private Element math;
+
+    /** Records the elements it visits. */
+    private static class RecordingVisitor implements ContentVisitor {
+        private final Set<CnxmlTag> tags;
+        final List<String> visited = Lists.newArrayList();
+
+        RecordingVisitor(CnxmlTag... tags) {
+            this.tags = ImmutableSet.copyOf(tags);
+        }
+
+        @Override public Set<CnxmlTag> getVisitedTags() {
+            return tags;
+        }
+
+        @Override public void visit(Element elem, CnxmlTag tag) {
+            assertEquals(tag.getTag(), elem.getName());
+            visited.add(elem.getAttributeValue("id"));
+        }
+    }
+
+    @Before
+    public void createContent() {
+        figure1 = new Element("figure", ns).setAttribute("id", "f1");
+        figure2 = new Element("figure", ns).setAttribute("id", "f2")
+                .setAttribute("type", "subfigure");
+        figure3 = new Element("figure", ns).setAttribute("id", "f3");
+        table = new Element("table", ns).setAttribute("id", "t1");
+        link = new Element("link", ns).setAttribute("id", "l1")
+                .setAttribute("resource", "graph.png");
+        image = new Element("image", ns).setAttribute("id", "i1")
+                .setAttribute("src", "graph.png");
+        math = new Element("link", mathNs).setAttribute("id", "l1");
+
+        figure2.addContent(new Element("media", ns).addContent(image));
+        figure1.addContent(figure2);
+        content = new Element("content", ns)
+                .addContent(new Element("para", ns).setAttribute("id", "p1")
+                        .addContent("See ")
+                        .addContent(link)
+                        .addContent(math))
+                .addContent(figure1)
+                .addContent(table)
+                .addContent(figure3);
+    }
+
+    @Test
+    public void idMapShouldMatchIdFilter() throws Exception {
+        final ContentPass.Result result =
+                new ContentPass(ImmutableList.<ContentVisitor>of(), ImmutableSet.<CnxmlTag>of())
+                        .run(content);
+        final Map<String, Element> idMap = result.getIdMap();
+        assertEquals(IdFilter.getIdMap(content), idMap);
+        assertSame(link, idMap.get("l1"));
+        assertNull(idMap.get("missing"));
+    }
+
+    @Test
+    public void elementsShouldBeNumberedByTagAndType() throws Exception {
+        final ContentPass.Result result = new ContentPass(ImmutableList.<ContentVisitor>of(),
+                ImmutableSet.of(CnxmlTag.FIGURE, CnxmlTag.TABLE)).run(content);
+        final Map<Element, Integer> numbers = result.getElementNumbers();
+        assertEquals(4, numbers.size());
+        assertEquals(Integer.valueOf(1), numbers.get(figure1));
+        assertEquals(Integer.valueOf(1), numbers.get(figure2));
+        assertEquals(Integer.valueOf(2), numbers.get(figure3));
+        assertEquals(Integer.valueOf(1), numbers.get(table));
+    }
+
+    @Test
+    public void visitorsShouldBeCalledInDocumentOrder() throws Exception {
+        final RecordingVisitor figures = new RecordingVisitor(CnxmlTag.FIGURE);
+        final RecordingVisitor figuresAndLinks =
+                new RecordingVisitor(CnxmlTag.FIGURE, CnxmlTag.LINK);
+        final ContentPass.Result result =
+                new ContentPass(ImmutableList.of(figures, figuresAndLinks)).run(content);
+
+        assertEquals(ImmutableList.of("f1", "f2", "f3"), figures.visited);
+        // The MathML link is not a CNXML element, so it is not visited.
+        assertEquals(ImmutableList.of("l1", "f1", "f2", "f3"), figuresAndLinks.visited);
+        assertTrue(result.getIdMap().isEmpty());
+        assertTrue(result.getElementNumbers().isEmpty());
+    }
+
+    @Test
+    public void linkProcessorShouldResolveLinksInPass() throws Exception {
+        final LinkResolver resolver = new LinkResolver() {
+            @Override public URI resolveUri(URI uri) throws Exception {
+                return new URI("/resolved/" + uri);
+            }
+
+            @Override public URI resolveDocument(String document, String version)
+                    throws Exception {
+                return null;
+            }
+
+            @Override public URI resolveResource(String document, String version,
+                    URI resource) throws Exception {
+                return new URI("/resource/" + resource);
+            }
+        };
+        final ContentPass.Result result = new ContentPass(
+                ImmutableList.of(new LinkProcessor(resolver)), ImmutableSet.of(CnxmlTag.FIGURE))
+                .run(content);
+
+        assertEquals("/resource/graph.png", link.getAttributeValue("url"));
+        assertNull(link.getAttributeValue("resource"));
+        assertEquals("/resolved/graph.png", image.getAttributeValue("src"));
+        assertEquals(3, result.getElementNumbers().size());
+    }
+}
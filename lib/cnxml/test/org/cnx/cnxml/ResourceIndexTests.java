@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.cnxml;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+
+import org.cnx.resourcemapping.LocationInformation;
+import org.cnx.resourcemapping.ObjectFactory;
+import org.cnx.resourcemapping.Repository;
+import org.cnx.resourcemapping.Resource;
+import org.cnx.resourcemapping.Resources;
+import org.junit.Test;
+
+public class ResourceIndexTests {
+    private static final ObjectFactory factory = new ObjectFactory();
+
+    private static Resource createResource(final String name, final String resourceId) {
+        final Repository repository = factory.createRepository();
+        repository.setResourceId(resourceId);
+        final LocationInformation location = factory.createLocationInformation();
+        location.setRepository(repository);
+        final Resource resource = factory.createResource();
+        resource.setName(name);
+        resource.setLocationInformation(location);
+        return resource;
+    }
+
+    @Test
+    public void indexShouldFindResourcesByLink() throws Exception {
+        final Resources resources = factory.createResources();
+        resources.getResource().add(createResource("graph.png", "r0001"));
+        resources.getResource().add(createResource("my graph.png", "r0002"));
+        resources.getResource().add(createResource("caf\u00e9.png", "r0003"));
+        final ResourceIndex index = ResourceIndex.forResources(resources);
+
+        assertEquals(3, index.size());
+        assertEquals("r0001", index.getResourceId(new URI("graph.png")));
+        assertEquals("r0002", index.getResourceId(new URI("my%20graph.png")));
+        assertEquals("r0002", index.getResourceId(Links.convertLinkAttributeToUri("my graph.png")));
+        assertEquals("r0003", index.getResourceId(Links.convertFileNameToUri("caf\u00e9.png")));
+        assertNull(index.getResourceId(new URI("missing.png")));
+    }
+
+    @Test
+    public void firstResourceShouldWin() throws Exception {
+        final Resources resources = factory.createResources();
+        resources.getResource().add(createResource("graph.png", "r0001"));
+        resources.getResource().add(createResource("graph.png", "r0002"));
+        final ResourceIndex index = ResourceIndex.forResources(resources);
+
+        assertEquals(1, index.size());
+        assertEquals("r0001", index.getResourceId(new URI("graph.png")));
+    }
+
+    @Test
+    public void resourcesOutsideRepositoryShouldNotBeIndexed() throws Exception {
+        final Resources resources = factory.createResources();
+        final Resource internet = factory.createResource();
+        internet.setName("remote.png");
+        internet.setLocationInformation(factory.createLocationInformation());
+        resources.getResource().add(internet);
+        final ResourceIndex index = ResourceIndex.forResources(resources);
+
+        assertEquals(0, index.size());
+        assertNull(index.getResourceId(new URI("remote.png")));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.commons.lang3.text.translate.EntityArrays;
+
+/**
+ *  HtmlEscaper escapes text for HTML exactly like
+ *  {@link org.apache.commons.lang3.StringEscapeUtils#escapeHtml4}, but appends to the destination
+ *  directly instead of building a new string.
+ *  <p>
+ *  Runs of characters which need no escaping are appended as ranges of the source string, so
+ *  escaping text which contains no special characters does not allocate.
+ */
+public final class HtmlEscaper {
+    /**
+     *  Character to entity table, built from the same entity arrays that escapeHtml4 uses.  Null
+     *  for characters which are copied as is.
+     */
+    private static final String[] ENTITIES = createEntityTable();
+
+    private HtmlEscaper() {
+    }
+
+    private static String[] createEntityTable() {
+        final String[][][] arrays = {
+            EntityArrays.BASIC_ESCAPE(),
+            EntityArrays.ISO8859_1_ESCAPE(),
+            EntityArrays.HTML40_EXTENDED_ESCAPE(),
+        };
+        int max = 0;
+        for (String[][] array : arrays) {
+            for (String[] entry : array) {
+                max = Math.max(max, entry[0].charAt(0));
+            }
+        }
+        final String[] table = new String[max + 1];
+        for (String[][] array : arrays) {
+            for (String[] entry : array) {
+                // escapeHtml4 applies the first array which has an entry.
+                if (entry[0].length() == 1 && table[entry[0].charAt(0)] == null) {
+                    table[entry[0].charAt(0)] = entry[1];
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     *  Append the HTML escaped form of a string.
+     */
+    public static void escape(final Appendable out, final String s) throws IOException {
+        escape(out, s, false);
+    }
+
+    /**
+     *  Append the HTML escaped form of a string with its hyphens removed, as used for comment
+     *  text.  Same as escaping <code>s.replace("-", "")</code>.
+     */
+    public static void escapeWithoutHyphens(final Appendable out, final String s)
+            throws IOException {
+        escape(out, s, true);
+    }
+
+    private static void escape(final Appendable out, final String s, final boolean dropHyphens)
+            throws IOException {
+        final int length = s.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            final String entity = (c < ENTITIES.length) ? ENTITIES[c] : null;
+            if (entity == null && !(dropHyphens && c == '-')) {
+                continue;
+            }
+            appendRun(out, s, runStart, i);
+            if (entity != null) {
+                out.append(entity);
+            }
+            runStart = i + 1;
+        }
+        appendRun(out, s, runStart, length);
+    }
+
+    private static void appendRun(final Appendable out, final String s, final int start,
+            final int end) throws IOException {
+        if (start == end) {
+            return;
+        }
+        if (out instanceof Writer) {
+            // Writer.append(CharSequence, int, int) copies the range into a new string.
+            ((Writer)out).write(s, start, end - start);
+        } else {
+            out.append(s, start, end);
+        }
+    }
+}
@@ -16,7 +16,10 @@
 
 package org.cnx.util;
 
-import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
@@ -74,6 +77,19 @@ public enum HtmlTag {
     private final String tag;
     private final boolean voidTag;
 
+    private static final ImmutableMap<String, HtmlTag> TAGS_BY_NAME;
+
+    static {
+        final Map<String, HtmlTag> tags = new HashMap<String, HtmlTag>();
+        for (HtmlTag tag : values()) {
+            // Several constants share a tag name (e.g. ANCHOR and LINK); the first one wins.
+            if (tag.tag != null && !tags.containsKey(tag.tag)) {
+                tags.put(tag.tag, tag);
+            }
+        }
+        TAGS_BY_NAME = ImmutableMap.copyOf(tags);
+    }
+
     private HtmlTag(@Nullable String tag, boolean voidTag) {
         this.tag = tag;
         this.voidTag = voidTag;
@@ -96,11 +112,7 @@ public enum HtmlTag {
         if (name == null) {
             return defaultTag;
         }
-        for (HtmlTag tag : HtmlTag.values()) {
-            if (Objects.equal(tag.tag, name)) {
-                return tag;
-            }
-        }
-        return defaultTag;
+        final HtmlTag tag = TAGS_BY_NAME.get(name);
+        return (tag != null) ? tag : defaultTag;
     }
 }
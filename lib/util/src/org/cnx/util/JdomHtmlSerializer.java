@@ -19,12 +19,11 @@ package org.cnx.util;
 import static com.google.common.base.Preconditions.*;
 import com.google.common.collect.ImmutableSet;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Stack;
 
-import org.apache.commons.lang3.StringEscapeUtils;
-
 import org.jdom.Attribute;
 import org.jdom.Comment;
 import org.jdom.Content;
@@ -59,44 +58,58 @@ public class JdomHtmlSerializer {
     /**
      *  This method builds a string from an HTML JDOM tree.
      *
+     *  @see #serialize(Appendable, Content)
+     */
+    public void serialize(final StringBuilder sb, final Content content) {
+        try {
+            serialize((Appendable)sb, content);
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     *  This method writes an HTML JDOM tree to an Appendable, such as a Writer, as it goes.
+     *
      *  This serialization follows HTML5 rules: namespaces are not preserved and void elements do
      *  not have a closing tag.
      */
-    public void serialize(final StringBuilder sb, final Content content) {
+    public void serialize(final Appendable out, final Content content) throws IOException {
         final Stack<SerializerFrame> stack = new Stack<SerializerFrame>();
-        serializeContent(sb, stack, content);
+        serializeContent(out, stack, content);
 
         while (!stack.empty()) {
             if (stack.peek().iterator.hasNext()) {
-                serializeContent(sb, stack, stack.peek().iterator.next());
+                serializeContent(out, stack, stack.peek().iterator.next());
             } else {
                 final Element elem = stack.pop().element;
-                sb.append("</");
-                sb.append(elem.getName());
-                sb.append('>');
+                out.append("</");
+                out.append(elem.getName());
+                out.append('>');
             }
         }
     }
 
     @SuppressWarnings("unchecked")
-    private void serializeContent(final StringBuilder sb, final Stack<SerializerFrame> stack,
-            final Content content) {
+    private void serializeContent(final Appendable out, final Stack<SerializerFrame> stack,
+            final Content content) throws IOException {
         if (content instanceof Text) {
-            sb.append(StringEscapeUtils.escapeHtml4(((Text)content).getText()));
+            HtmlEscaper.escape(out, ((Text)content).getText());
         } else if (content instanceof Element) {
             final Element elem = (Element)content;
 
-            sb.append('<');
-            sb.append(elem.getName());
+            out.append('<');
+            out.append(elem.getName());
 
             for (Attribute attr : (List<Attribute>)elem.getAttributes()) {
-                sb.append(' ');
-                sb.append(attr.getName());
-                sb.append("=\"");
-                sb.append(StringEscapeUtils.escapeHtml4(attr.getValue()));
-                sb.append('"');
+                out.append(' ');
+                out.append(attr.getName());
+                out.append("=\"");
+                HtmlEscaper.escape(out, attr.getValue());
+                out.append('"');
             }
-            sb.append('>');
+            out.append('>');
 
             // If this element can have children, then push it.
             final HtmlTag tag = HtmlTag.of(elem.getName());
@@ -104,9 +117,9 @@ public class JdomHtmlSerializer {
                 stack.push(new SerializerFrame(elem));
             }
         } else if (content instanceof Comment) {
-            sb.append("<!--\n");
-            sb.append(StringEscapeUtils.escapeHtml4(content.getValue().replace("-", "")));
-            sb.append("\n-->");
+            out.append("<!--\n");
+            HtmlEscaper.escapeWithoutHyphens(out, content.getValue());
+            out.append("\n-->");
         }
     }
 }
@@ -16,7 +16,7 @@
 
 package org.cnx.util;
 
-import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
 
 import javax.annotation.Nullable;
 
@@ -35,6 +35,18 @@ public enum MathmlTag {
 
     private final String tag;
 
+    private static final ImmutableMap<String, MathmlTag> TAGS_BY_NAME;
+
+    static {
+        final ImmutableMap.Builder<String, MathmlTag> builder = ImmutableMap.builder();
+        for (MathmlTag tag : values()) {
+            if (tag.tag != null) {
+                builder.put(tag.tag, tag);
+            }
+        }
+        TAGS_BY_NAME = builder.build();
+    }
+
     private MathmlTag(@Nullable String tag) {
         this.tag = tag;
     }
@@ -51,11 +63,7 @@ public enum MathmlTag {
         if (name == null) {
             return defaultTag;
         }
-        for (MathmlTag tag : MathmlTag.values()) {
-            if (Objects.equal(tag.tag, name)) {
-                return tag;
-            }
-        }
-        return defaultTag;
+        final MathmlTag tag = TAGS_BY_NAME.get(name);
+        return (tag != null) ? tag : defaultTag;
     }
 }
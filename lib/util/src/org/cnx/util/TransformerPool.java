@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+
+/**
+ *  TransformerPool hands out {@link Transformer} instances created from a single compiled
+ *  stylesheet.
+ *  <p>
+ *  A {@link Templates} object is thread-safe, but the transformers it creates are not.  The pool
+ *  lets concurrent renders each use their own transformer without recompiling the stylesheet.
+ *  Every borrowed transformer must be given back with {@link #release}.  At most
+ *  <code>maxIdle</code> transformers are kept between uses; the pool never blocks.
+ */
+public class TransformerPool {
+    private final Templates templates;
+    private final BlockingQueue<Transformer> idle;
+
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    public TransformerPool(Templates templates, int maxIdle) {
+        checkArgument(maxIdle >= 1, "maxIdle must be positive: %s", maxIdle);
+        this.templates = checkNotNull(templates);
+        this.idle = new LinkedBlockingQueue<Transformer>(maxIdle);
+    }
+
+    public Templates getTemplates() {
+        return templates;
+    }
+
+    /**
+     *  Take an idle transformer from the pool, or create a new one if none is idle.
+     */
+    public Transformer borrow() throws TransformerConfigurationException {
+        Transformer transformer = idle.poll();
+        if (transformer == null) {
+            transformer = templates.newTransformer();
+            createdCount.incrementAndGet();
+        }
+        borrowCount.incrementAndGet();
+        activeCount.incrementAndGet();
+        return transformer;
+    }
+
+    /**
+     *  Return a transformer obtained from {@link #borrow} to the pool.
+     */
+    public void release(Transformer transformer) {
+        activeCount.decrementAndGet();
+        // Not every implementation clears parameters on reset().
+        transformer.reset();
+        transformer.clearParameters();
+        idle.offer(transformer);
+    }
+
+    /**
+     *  @return number of transformers created from the stylesheet so far
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     *  @return number of {@link #borrow} calls so far
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     *  @return number of transformers currently borrowed
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     *  @return number of transformers waiting in the pool
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
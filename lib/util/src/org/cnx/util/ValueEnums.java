@@ -18,7 +18,12 @@ package org.cnx.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.EnumSet;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -26,6 +31,15 @@ import javax.annotation.Nullable;
  *  ValueEnums provides a set of methods that operate on ValueEnum implementors.
  */
 public final class ValueEnums {
+    /**
+     *  Value to constant tables, built the first time an enum class is looked up.
+     */
+    private static final ConcurrentMap<Class<?>, ImmutableMap<String, ?>> lookupTables =
+            new ConcurrentHashMap<Class<?>, ImmutableMap<String, ?>>();
+
+    private ValueEnums() {
+    }
+
     /**
      *  findEnum returns the corresponding enum for the string.
      *  <p>
@@ -37,11 +51,24 @@ public final class ValueEnums {
         if (value == null) {
             return defaultEnum;
         }
-        for (E v : EnumSet.allOf(enumClass)) {
-            if (((ValueEnum)v).getValue().equals(value)) {
-                return v;
+        final E v = enumClass.cast(getLookupTable(enumClass).get(value));
+        return (v != null) ? v : defaultEnum;
+    }
+
+    private static ImmutableMap<String, ?> getLookupTable(final Class<?> enumClass) {
+        ImmutableMap<String, ?> table = lookupTables.get(enumClass);
+        if (table == null) {
+            final Map<String, Object> values = new HashMap<String, Object>();
+            for (Object v : enumClass.getEnumConstants()) {
+                final String value = ((ValueEnum)v).getValue();
+                if (!values.containsKey(value)) {
+                    values.put(value, v);
+                }
             }
+            table = ImmutableMap.copyOf(values);
+            // Racing threads build equal tables, so it does not matter which one is kept.
+            lookupTables.putIfAbsent(enumClass, table);
         }
-        return defaultEnum;
+        return table;
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.util;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.junit.Test;
+
+/**
+ *  Differential tests of {@link HtmlEscaper} against {@link StringEscapeUtils#escapeHtml4}.
+ */
+public class HtmlEscaperTests {
+    /** Characters which are likely to need escaping, mixed into the random strings. */
+    private static final String SPECIALS = "\"&<>'-\u00a0\u00e9\u00ff\u0152\u03c0\u2014\u20ac\u2666";
+
+    private static String escape(String s) throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        HtmlEscaper.escape(sb, s);
+        return sb.toString();
+    }
+
+    private static String escapeWithoutHyphens(String s) throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        HtmlEscaper.escapeWithoutHyphens(sb, s);
+        return sb.toString();
+    }
+
+    private static void assertSameAsCommons(String s) throws Exception {
+        assertEquals(StringEscapeUtils.escapeHtml4(s), escape(s));
+        assertEquals(StringEscapeUtils.escapeHtml4(s.replace("-", "")), escapeWithoutHyphens(s));
+    }
+
+    @Test
+    public void plainTextShouldBeCopied() throws Exception {
+        assertEquals("", escape(""));
+        assertEquals("Hello, World!", escape("Hello, World!"));
+    }
+
+    @Test
+    public void everyCharacterShouldMatchCommons() throws Exception {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            assertSameAsCommons("a" + (char)c + "b");
+        }
+    }
+
+    @Test
+    public void randomStringsShouldMatchCommons() throws Exception {
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                switch (random.nextInt(4)) {
+                case 0:
+                    sb.append(SPECIALS.charAt(random.nextInt(SPECIALS.length())));
+                    break;
+                case 1:
+                    sb.append((char)random.nextInt(Character.MAX_VALUE + 1));
+                    break;
+                default:
+                    sb.append((char)(' ' + random.nextInt(95)));
+                    break;
+                }
+            }
+            assertSameAsCommons(sb.toString());
+        }
+    }
+
+    @Test
+    public void surrogatePairsShouldBeCopied() throws Exception {
+        assertSameAsCommons("x\ud835\udc00<\ud835\udc01");
+    }
+
+    @Test
+    public void writerShouldMatchStringBuilder() throws Exception {
+        final String s = "<a href=\"x&y\">caf\u00e9 -- \u03c0</a>";
+        final StringWriter writer = new StringWriter();
+        HtmlEscaper.escape(writer, s);
+        assertEquals(escape(s), writer.toString());
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class HtmlTagTests {
+    @Test
+    public void ofShouldFindTagByName() {
+        assertSame(HtmlTag.DIV, HtmlTag.of("div"));
+        assertSame(HtmlTag.PARAGRAPH, HtmlTag.of("p"));
+    }
+
+    @Test
+    public void ofShouldPreferFirstConstantWithSameName() {
+        assertSame(HtmlTag.ANCHOR, HtmlTag.of("a"));
+    }
+
+    @Test
+    public void ofShouldReturnDefaultForUnknownNames() {
+        assertNull(HtmlTag.of("blink"));
+        assertNull(HtmlTag.of(null));
+        assertSame(HtmlTag.DIV, HtmlTag.of("blink", HtmlTag.DIV));
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.cnx.util;
 
+import java.io.StringWriter;
+
 import org.jdom.Comment;
 import org.jdom.Element;
 import org.jdom.Namespace;
@@ -135,4 +137,16 @@ public class JdomHtmlSerializerTests {
     public void commentsShouldRender() {
         assertEquals("<!--\nhello\n-->", serializer.serialize(new Comment("hello")));
     }
+
+    @Test
+    public void writerShouldMatchString() throws Exception {
+        final Element elem = new Element("div")
+                .setAttribute("class", "a&b")
+                .addContent(new Element("p").setText("1 < 2"))
+                .addContent(new Element("br"))
+                .addContent(new Comment("note"));
+        final StringWriter writer = new StringWriter();
+        serializer.serialize(writer, elem);
+        assertEquals(serializer.serialize(elem), writer.toString());
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.util;
+
+import java.io.StringReader;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransformerPoolTests {
+    private static final String IDENTITY_XSL =
+            "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+            + "<xsl:template match=\"@*|node()\">"
+            + "<xsl:copy><xsl:apply-templates select=\"@*|node()\"/></xsl:copy>"
+            + "</xsl:template>"
+            + "</xsl:stylesheet>";
+
+    private TransformerPool pool;
+
+    @Before
+    public void createPool() throws Exception {
+        pool = new TransformerPool(TransformerFactory.newInstance().newTemplates(
+                new StreamSource(new StringReader(IDENTITY_XSL))), 1);
+    }
+
+    @Test
+    public void releasedTransformerShouldBeReused() throws Exception {
+        final Transformer first = pool.borrow();
+        pool.release(first);
+        assertSame(first, pool.borrow());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowCount());
+        assertEquals(1, pool.getActiveCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void concurrentBorrowsShouldGetDistinctTransformers() throws Exception {
+        final Transformer first = pool.borrow();
+        final Transformer second = pool.borrow();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getActiveCount());
+
+        pool.release(first);
+        pool.release(second);
+        assertEquals(0, pool.getActiveCount());
+        // Only maxIdle transformers are kept.
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void releaseShouldResetParameters() throws Exception {
+        final Transformer transformer = pool.borrow();
+        transformer.setParameter("p", "value");
+        pool.release(transformer);
+        assertNull(pool.borrow().getParameter("p"));
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2011 The CNX Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.cnx.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ValueEnumsTests {
+    @Test
+    public void findEnumShouldFindConstantByValue() {
+        assertSame(MathmlAttributes.Display.BLOCK,
+                ValueEnums.findEnum(MathmlAttributes.Display.class, "block", null));
+        assertSame(MathmlAttributes.Mode.INLINE,
+                ValueEnums.findEnum(MathmlAttributes.Mode.class, "inline", null));
+    }
+
+    @Test
+    public void findEnumShouldReturnDefaultForUnknownValues() {
+        assertNull(ValueEnums.findEnum(MathmlAttributes.Display.class, "sideways", null));
+        assertSame(MathmlAttributes.Display.INLINE, ValueEnums.findEnum(
+                MathmlAttributes.Display.class, null, MathmlAttributes.Display.INLINE));
+    }
+}